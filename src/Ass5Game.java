@@ -1,4 +1,17 @@
+import events.AnalyticsEventHandler;
+import events.EventPipeline;
+import events.LoggingEventHandler;
+import events.ReplayEventHandler;
 import game.Game;
+import game.WorldConfig;
+import levels.LevelDefinition;
+import levels.LevelGenerator;
+import render.FrameRecorder;
+import telemetry.TelemetryRecorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * The main class for running the Ass5Game application.
@@ -6,15 +19,114 @@ import game.Game;
  * sets up the game environment, and runs the game loop.
  */
 public class Ass5Game {
+    private static final double LEVEL_DENSITY = 0.4;
+    private static final String USAGE = "usage: Ass5Game [--autopilot] [--log] [--telemetry <file>] [--record <file>]"
+            + " [--replay <file>] [--tick-rate <n>] [--level <file> | --random-level <n> | --infinite <seed>]"
+            + " [--world <width>x<height>] [--render-scale <s>]";
 
     /**
      * The main method to run the game.
      *
-     * @param args command-line arguments (not used)
+     * @param args command-line arguments: {@code --telemetry <file>} records level-design telemetry to the file,
+     *             {@code --tick-rate <n>} simulates the physics at n ticks per second,
+     *             {@code --record <file>} records every rendered frame to the file,
+     *             {@code --autopilot} lets the game play itself,
+     *             {@code --log} prints every game event,
+     *             {@code --replay <file>} appends every game event to a binary replay file,
+     *             {@code --level <file>} plays the level read from the file,
+     *             {@code --random-level <n>} plays the n-th generated level,
+     *             {@code --infinite <seed>} plays generated levels one after the other for as long as they are
+     *             cleared,
+     *             {@code --world <width>x<height>} sets the size of the field,
+     *             {@code --render-scale <s>} shows the field at s window pixels per unit;
+     *             an unknown flag or a flag missing its value prints the usage and exits
+     * @throws IOException if the level cannot be read, or the telemetry, recording or replay file cannot be
+     *                     written
      */
-    public static void main(String[] args) {
-        Game game = new Game();
-        game.initialize();
-        game.run();
+    public static void main(String[] args) throws IOException {
+        String telemetryFile = null;
+        String recordFile = null;
+        String replayFile = null;
+        boolean log = false;
+        WorldConfig world = WorldConfig.STANDARD;
+        double renderScale = 1;
+        boolean autopilot = false;
+        int tickRate = 60;
+        LevelDefinition level = LevelDefinition.spiral();
+        LevelGenerator generator = null;
+        long next = 0;
+        boolean infinite = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--autopilot".equals(args[i])) {
+                autopilot = true;
+            } else if ("--log".equals(args[i])) {
+                log = true;
+            } else if (i + 1 >= args.length) {
+                System.err.println(USAGE);
+                return;
+            } else if ("--telemetry".equals(args[i])) {
+                telemetryFile = args[++i];
+            } else if ("--record".equals(args[i])) {
+                recordFile = args[++i];
+            } else if ("--replay".equals(args[i])) {
+                replayFile = args[++i];
+            } else if ("--tick-rate".equals(args[i])) {
+                tickRate = Integer.parseInt(args[++i]);
+            } else if ("--level".equals(args[i])) {
+                level = LevelDefinition.read(Paths.get(args[++i]));
+            } else if ("--random-level".equals(args[i])) {
+                generator = new LevelGenerator(1, LEVEL_DENSITY);
+                next = Long.parseLong(args[++i]);
+            } else if ("--infinite".equals(args[i])) {
+                generator = new LevelGenerator(Long.parseLong(args[++i]), LEVEL_DENSITY);
+                infinite = true;
+            } else if ("--world".equals(args[i])) {
+                world = WorldConfig.parse(args[++i]);
+            } else if ("--render-scale".equals(args[i])) {
+                renderScale = Double.parseDouble(args[++i]);
+            } else {
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        world = world.withRenderScale(renderScale);
+        AnalyticsEventHandler analytics = new AnalyticsEventHandler();
+        EventPipeline pipeline = new EventPipeline(1024);
+        pipeline.addHandler(analytics);
+        if (log) {
+            pipeline.addHandler(new LoggingEventHandler(System.out));
+        }
+        if (replayFile != null) {
+            pipeline.addHandler(new ReplayEventHandler(Files.newOutputStream(Paths.get(replayFile))));
+        }
+        pipeline.start();
+        TelemetryRecorder telemetry = telemetryFile == null ? null
+                : new TelemetryRecorder(Paths.get(telemetryFile), (int) world.getWidth(), (int) world.getHeight());
+        FrameRecorder recorder = recordFile == null ? null
+                : new FrameRecorder(Paths.get(recordFile), world.getWindowWidth(), world.getWindowHeight());
+
+        boolean cleared;
+        do {
+            Game game = new Game();
+            game.setWorld(world);
+            game.setAutopilot(autopilot);
+            game.setTickRate(tickRate);
+            game.setLevel(generator != null ? generator.generate(next++) : level);
+            game.attachEventPipeline(pipeline);
+            game.attachTelemetry(telemetry);
+            game.attachFrameRecorder(recorder);
+            game.initialize();
+            game.run();
+            cleared = game.getRemainingBlocks() == 0;
+        } while (infinite && cleared);
+
+        pipeline.shutdown();
+        if (telemetry != null) {
+            telemetry.close();
+        }
+        if (recorder != null) {
+            recorder.close();
+        }
+        System.out.println(analytics.summary());
     }
 }
@@ -0,0 +1,77 @@
+package events;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EventHandler} that aggregates statistics about the game: how many events of each type
+ * happened and how many times each block was hit.
+ *
+ * <p>
+ * The statistics are written by the handler's thread only. They are safe to read once the pipeline
+ * was shut down.
+ * </p>
+ */
+public class AnalyticsEventHandler implements EventHandler {
+    private final long[] countsByType;
+    private int[] hitsPerBlock;
+    private long lastTick;
+
+    /**
+     * Constructs an empty {@code AnalyticsEventHandler}.
+     */
+    public AnalyticsEventHandler() {
+        this.countsByType = new long[EventType.values().length];
+        this.hitsPerBlock = new int[64];
+    }
+
+    @Override
+    public void onEvent(EventView event, boolean endOfBatch) {
+        this.countsByType[event.type().ordinal()]++;
+        this.lastTick = event.tick();
+        int block = event.blockId();
+        if (event.type() == EventType.HIT && block >= 0) {
+            if (block >= this.hitsPerBlock.length) {
+                this.hitsPerBlock = Arrays.copyOf(this.hitsPerBlock, Math.max(block + 1, this.hitsPerBlock.length * 2));
+            }
+            this.hitsPerBlock[block]++;
+        }
+    }
+
+    /**
+     * Returns how many events of the given type were consumed.
+     *
+     * @param type the event type
+     * @return the number of events of that type
+     */
+    public long getCount(EventType type) {
+        return this.countsByType[type.ordinal()];
+    }
+
+    /**
+     * Returns how many times the block with the given id was hit.
+     *
+     * @param blockId the id of the block
+     * @return the number of hits on that block
+     */
+    public int getHits(int blockId) {
+        return blockId < this.hitsPerBlock.length ? this.hitsPerBlock[blockId] : 0;
+    }
+
+    /**
+     * Returns a one-line summary of the aggregated statistics.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        int mostHit = 0;
+        for (int i = 1; i < this.hitsPerBlock.length; i++) {
+            if (this.hitsPerBlock[i] > this.hitsPerBlock[mostHit]) {
+                mostHit = i;
+            }
+        }
+        return "Hits: " + getCount(EventType.HIT) + ", balls lost: " + getCount(EventType.BALL_LOST)
+                + ", balls stuck: " + getCount(EventType.BALL_STUCK)
+                + ", levels cleared: " + getCount(EventType.LEVEL_CLEAR) + ", last tick: " + this.lastTick
+                + ", most hit block: " + mostHit + " (" + this.hitsPerBlock[mostHit] + " hits)";
+    }
+}
@@ -0,0 +1,20 @@
+package events;
+
+/**
+ * Decides what an {@link EventPipeline} does when its consumers fall behind the game thread.
+ */
+public enum BackPressurePolicy {
+    /**
+     * The producer waits until the slowest consumer frees a slot. No event is ever lost.
+     */
+    BLOCK,
+    /**
+     * Events published while the ring is full are dropped. The producer never waits.
+     */
+    DROP,
+    /**
+     * Once the ring is more than half full only every n-th event is kept, and events published
+     * while the ring is full are dropped. The producer never waits.
+     */
+    SAMPLE
+}
@@ -0,0 +1,23 @@
+package events;
+
+/**
+ * An {@code EventHandler} consumes the events of an {@link EventPipeline} on its own thread.
+ * Every handler sees every published event, in publication order.
+ */
+public interface EventHandler {
+
+    /**
+     * Called for every event, on the handler's own thread.
+     * The view is only valid for the duration of the call.
+     *
+     * @param event      a view of the event being consumed
+     * @param endOfBatch {@code true} if this is the last event currently available
+     */
+    void onEvent(EventView event, boolean endOfBatch);
+
+    /**
+     * Called once, on the handler's own thread, after the last event was consumed.
+     */
+    default void onShutdown() {
+    }
+}
@@ -0,0 +1,295 @@
+package events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code EventPipeline} moves game events from the game thread to consumers that run on their own
+ * threads, such as logging, analytics or replay writing.
+ *
+ * <p>
+ * It follows the design of the LMAX Disruptor: a single producer writes events into a shared
+ * {@link EventRing} and advances its cursor, and every {@link EventHandler} follows the cursor with its own
+ * {@link Sequence}. The producer never overwrites a slot that the slowest consumer has not read yet; what it
+ * does instead when the ring is full is decided by the {@link BackPressurePolicy}.
+ * </p>
+ *
+ * <p>
+ * A handler that throws does not stop its consumer: the failure is counted, the event is skipped and the
+ * consumer moves on, so a broken handler can never leave the producer waiting for a slot that is never freed.
+ * </p>
+ */
+public class EventPipeline {
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 100_000L;
+
+    private final EventRing ring;
+    private final BackPressurePolicy policy;
+    private final int sampleRate;
+    private final Sequence cursor;
+    private final List<EventProcessor> processors;
+    private final List<Thread> threads;
+    private long cachedGatingSequence;
+    private long dropped;
+    private long sampleCounter;
+    private volatile boolean running;
+
+    /**
+     * Constructs an {@code EventPipeline} that blocks the producer when the ring is full.
+     *
+     * @param capacity the minimal number of events the ring can hold
+     */
+    public EventPipeline(int capacity) {
+        this(capacity, BackPressurePolicy.BLOCK, 1);
+    }
+
+    /**
+     * Constructs an {@code EventPipeline}.
+     *
+     * @param capacity   the minimal number of events the ring can hold
+     * @param policy     what to do when the consumers fall behind
+     * @param sampleRate with {@link BackPressurePolicy#SAMPLE}, keep one of every {@code sampleRate} events
+     *                   while the ring is more than half full
+     */
+    public EventPipeline(int capacity, BackPressurePolicy policy, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sample rate must be positive: " + sampleRate);
+        }
+        this.ring = new EventRing(capacity);
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.cursor = new Sequence();
+        this.processors = new ArrayList<>();
+        this.threads = new ArrayList<>();
+        this.cachedGatingSequence = -1;
+    }
+
+    /**
+     * Adds a consumer to the pipeline. Must be called before {@link #start()}.
+     *
+     * @param handler the handler that consumes the events
+     */
+    public void addHandler(EventHandler handler) {
+        if (this.running) {
+            throw new IllegalStateException("handlers must be added before the pipeline is started");
+        }
+        this.processors.add(new EventProcessor(handler));
+    }
+
+    /**
+     * Starts one daemon thread per handler.
+     */
+    public void start() {
+        this.running = true;
+        for (int i = 0; i < this.processors.size(); i++) {
+            Thread t = new Thread(this.processors.get(i), "event-consumer-" + i);
+            t.setDaemon(true);
+            this.threads.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Publishes an event. Must only be called from the single producer thread.
+     *
+     * @param type    the type of the event
+     * @param blockId the id of the block involved, or -1
+     * @param ballId  the id of the ball involved, or -1
+     * @param tick    the tick in which the event happened
+     * @param x       the x-coordinate where the event happened
+     * @param y       the y-coordinate where the event happened
+     * @return {@code true} if the event was published, {@code false} if the policy discarded it
+     */
+    public boolean publish(EventType type, int blockId, int ballId, long tick, double x, double y) {
+        long next = this.cursor.get() + 1;
+        long free = this.ring.capacity() - (next - 1 - gatingSequence(next));
+        if (this.policy == BackPressurePolicy.SAMPLE && free < this.ring.capacity() / 2) {
+            free = this.ring.capacity() - (next - 1 - refreshGatingSequence(next));
+        }
+        if (this.policy == BackPressurePolicy.SAMPLE && free < this.ring.capacity() / 2
+                && this.sampleCounter++ % this.sampleRate != 0) {
+            this.dropped++;
+            return false;
+        }
+        if (free <= 0) {
+            if (this.policy != BackPressurePolicy.BLOCK) {
+                this.dropped++;
+                return false;
+            }
+            waitForFreeSlot(next);
+        }
+        this.ring.write(next, type, blockId, ballId, tick, x, y);
+        this.cursor.set(next);
+        return true;
+    }
+
+    /**
+     * Returns the number of events the back-pressure policy discarded so far.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return this.dropped;
+    }
+
+    /**
+     * Returns the number of events a handler failed on, over all handlers.
+     *
+     * @return the number of failed events
+     */
+    public long getFailureCount() {
+        long failures = 0;
+        for (int i = 0; i < this.processors.size(); i++) {
+            failures += this.processors.get(i).failures;
+        }
+        return failures;
+    }
+
+    /**
+     * Returns the last exception a handler threw.
+     *
+     * @return the last failure, or {@code null} if no handler failed
+     */
+    public RuntimeException getLastFailure() {
+        RuntimeException last = null;
+        for (int i = 0; i < this.processors.size(); i++) {
+            if (this.processors.get(i).lastFailure != null) {
+                last = this.processors.get(i).lastFailure;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Lets every consumer drain the events published so far, then stops the consumer threads
+     * and waits for them to finish.
+     */
+    public void shutdown() {
+        this.running = false;
+        for (Thread t : this.threads) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the sequence of the slowest consumer, re-reading the consumer sequences only when
+     * the cached value is no longer enough to prove that the next slot is free.
+     *
+     * @param next the sequence the producer wants to write
+     * @return the (possibly cached) sequence of the slowest consumer
+     */
+    private long gatingSequence(long next) {
+        if (next - this.ring.capacity() > this.cachedGatingSequence) {
+            return refreshGatingSequence(next);
+        }
+        return this.cachedGatingSequence;
+    }
+
+    /**
+     * Re-reads the sequences of all consumers and caches the slowest one.
+     *
+     * @param next the sequence the producer wants to write
+     * @return the sequence of the slowest consumer
+     */
+    private long refreshGatingSequence(long next) {
+        long min = next - 1;
+        for (int i = 0; i < this.processors.size(); i++) {
+            min = Math.min(min, this.processors.get(i).sequence.get());
+        }
+        this.cachedGatingSequence = min;
+        return min;
+    }
+
+    /**
+     * Waits until the slowest consumer has read the event that currently occupies the slot of {@code next}.
+     *
+     * @param next the sequence the producer wants to write
+     */
+    private void waitForFreeSlot(long next) {
+        int tries = 0;
+        while (next - this.ring.capacity() > gatingSequence(next)) {
+            if (++tries > SPIN_TRIES) {
+                LockSupport.parkNanos(PARK_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Runs a single handler: follows the producer cursor and hands every available event to the handler
+     * in one batch, then publishes its own progress.
+     */
+    private final class EventProcessor implements Runnable {
+        private final EventHandler handler;
+        private final Sequence sequence;
+        private final EventView view;
+        private volatile long failures;
+        private volatile RuntimeException lastFailure;
+
+        /**
+         * Constructs an {@code EventProcessor} for the given handler.
+         *
+         * @param handler the handler to run
+         */
+        private EventProcessor(EventHandler handler) {
+            this.handler = handler;
+            this.sequence = new Sequence();
+            this.view = new EventView(ring);
+        }
+
+        @Override
+        public void run() {
+            long next = this.sequence.get() + 1;
+            int idle = 0;
+            while (true) {
+                boolean stopping = !running;
+                long available = cursor.get();
+                if (available >= next) {
+                    for (long s = next; s <= available; s++) {
+                        this.view.moveTo(s);
+                        try {
+                            this.handler.onEvent(this.view, s == available);
+                        } catch (RuntimeException e) {
+                            fail(e);
+                        }
+                    }
+                    this.sequence.set(available);
+                    next = available + 1;
+                    idle = 0;
+                } else if (stopping) {
+                    break;
+                } else if (++idle > SPIN_TRIES) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                } else {
+                    Thread.yield();
+                }
+            }
+            try {
+                this.handler.onShutdown();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Records a failure of the handler. The first one is reported on the standard error stream.
+         *
+         * @param e what the handler threw
+         */
+        private void fail(RuntimeException e) {
+            if (this.failures == 0) {
+                System.err.println(Thread.currentThread().getName() + ": handler failed, skipping its events: " + e);
+            }
+            this.lastFailure = e;
+            this.failures = this.failures + 1;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package events;
+
+/**
+ * The {@code EventRing} stores published events as primitive records in preallocated parallel arrays.
+ * Slot {@code sequence & mask} holds the event with the given sequence number, so no event object is
+ * ever allocated by the producer or the consumers.
+ */
+public class EventRing {
+    private final int[] types;
+    private final int[] blockIds;
+    private final int[] ballIds;
+    private final long[] ticks;
+    private final double[] xs;
+    private final double[] ys;
+    private final int mask;
+
+    /**
+     * Constructs an {@code EventRing}. The capacity is rounded up to the next power of two.
+     *
+     * @param capacity the minimal number of events the ring can hold
+     */
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.types = new int[size];
+        this.blockIds = new int[size];
+        this.ballIds = new int[size];
+        this.ticks = new long[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the number of slots in the ring.
+     *
+     * @return the capacity of the ring
+     */
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Writes an event into the slot of the given sequence number.
+     *
+     * @param sequence the sequence number of the event
+     * @param type     the type of the event
+     * @param blockId  the id of the block involved, or -1
+     * @param ballId   the id of the ball involved, or -1
+     * @param tick     the tick in which the event happened
+     * @param x        the x-coordinate where the event happened
+     * @param y        the y-coordinate where the event happened
+     */
+    void write(long sequence, EventType type, int blockId, int ballId, long tick, double x, double y) {
+        int slot = (int) (sequence & this.mask);
+        this.types[slot] = type.ordinal();
+        this.blockIds[slot] = blockId;
+        this.ballIds[slot] = ballId;
+        this.ticks[slot] = tick;
+        this.xs[slot] = x;
+        this.ys[slot] = y;
+    }
+
+    /**
+     * Returns the index of the slot that holds the given sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the slot index
+     */
+    int slot(long sequence) {
+        return (int) (sequence & this.mask);
+    }
+
+    /**
+     * Returns the type ordinal stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the ordinal of the event type
+     */
+    int type(int slot) {
+        return this.types[slot];
+    }
+
+    /**
+     * Returns the block id stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the block id
+     */
+    int blockId(int slot) {
+        return this.blockIds[slot];
+    }
+
+    /**
+     * Returns the ball id stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the ball id
+     */
+    int ballId(int slot) {
+        return this.ballIds[slot];
+    }
+
+    /**
+     * Returns the tick stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the tick
+     */
+    long tick(int slot) {
+        return this.ticks[slot];
+    }
+
+    /**
+     * Returns the x-coordinate stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the x-coordinate
+     */
+    double x(int slot) {
+        return this.xs[slot];
+    }
+
+    /**
+     * Returns the y-coordinate stored in a slot.
+     *
+     * @param slot the slot index
+     * @return the y-coordinate
+     */
+    double y(int slot) {
+        return this.ys[slot];
+    }
+}
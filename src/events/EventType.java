@@ -0,0 +1,23 @@
+package events;
+
+/**
+ * The kinds of game events that can be published through an {@link EventPipeline}.
+ */
+public enum EventType {
+    /**
+     * A ball hit a block that has hit listeners.
+     */
+    HIT,
+    /**
+     * A ball fell into the death zone and was removed from the game.
+     */
+    BALL_LOST,
+    /**
+     * The last block of the level was removed.
+     */
+    LEVEL_CLEAR,
+    /**
+     * A ball was found bouncing in a cycle that never breaks a block.
+     */
+    BALL_STUCK
+}
@@ -0,0 +1,95 @@
+package events;
+
+/**
+ * An {@code EventView} is a reusable, read-only cursor over one slot of an {@link EventRing}.
+ * Each consumer owns a single view, which is moved from event to event.
+ */
+public class EventView {
+    private static final EventType[] TYPES = EventType.values();
+
+    private final EventRing ring;
+    private long sequence;
+    private int slot;
+
+    /**
+     * Constructs an {@code EventView} over the given ring.
+     *
+     * @param ring the ring to read events from
+     */
+    EventView(EventRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Moves the view to the event with the given sequence number.
+     *
+     * @param seq the sequence number of the event
+     */
+    void moveTo(long seq) {
+        this.sequence = seq;
+        this.slot = this.ring.slot(seq);
+    }
+
+    /**
+     * Returns the sequence number of the event.
+     *
+     * @return the sequence number
+     */
+    public long sequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Returns the type of the event.
+     *
+     * @return the event type
+     */
+    public EventType type() {
+        return TYPES[this.ring.type(this.slot)];
+    }
+
+    /**
+     * Returns the id of the block involved in the event, or -1 if there is none.
+     *
+     * @return the block id
+     */
+    public int blockId() {
+        return this.ring.blockId(this.slot);
+    }
+
+    /**
+     * Returns the id of the ball involved in the event, or -1 if there is none.
+     *
+     * @return the ball id
+     */
+    public int ballId() {
+        return this.ring.ballId(this.slot);
+    }
+
+    /**
+     * Returns the tick in which the event happened.
+     *
+     * @return the tick
+     */
+    public long tick() {
+        return this.ring.tick(this.slot);
+    }
+
+    /**
+     * Returns the x-coordinate where the event happened.
+     *
+     * @return the x-coordinate
+     */
+    public double x() {
+        return this.ring.x(this.slot);
+    }
+
+    /**
+     * Returns the y-coordinate where the event happened.
+     *
+     * @return the y-coordinate
+     */
+    public double y() {
+        return this.ring.y(this.slot);
+    }
+}
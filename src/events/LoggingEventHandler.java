@@ -0,0 +1,51 @@
+package events;
+
+import java.io.PrintStream;
+
+/**
+ * An {@link EventHandler} that prints a line for every event.
+ * Unlike a hit listener that prints directly, a slow output stream only delays this handler's thread
+ * and never the game thread.
+ */
+public class LoggingEventHandler implements EventHandler {
+    private final PrintStream out;
+    private final StringBuilder line;
+
+    /**
+     * Constructs a {@code LoggingEventHandler} that prints to the given stream.
+     *
+     * @param out the stream to print the events to
+     */
+    public LoggingEventHandler(PrintStream out) {
+        this.out = out;
+        this.line = new StringBuilder();
+    }
+
+    @Override
+    public void onEvent(EventView event, boolean endOfBatch) {
+        this.line.setLength(0);
+        this.line.append('[').append(event.tick()).append("] ");
+        switch (event.type()) {
+            case HIT:
+                this.line.append("A Block was hit. block=").append(event.blockId()).append(" ball=")
+                        .append(event.ballId());
+                break;
+            case BALL_LOST:
+                this.line.append("A Ball was lost. ball=").append(event.ballId());
+                break;
+            case LEVEL_CLEAR:
+                this.line.append("The level was cleared.");
+                break;
+            case BALL_STUCK:
+                this.line.append("A Ball was stuck in a loop. ball=").append(event.ballId());
+                break;
+            default:
+                this.line.append(event.type());
+                break;
+        }
+        this.out.println(this.line);
+        if (endOfBatch) {
+            this.out.flush();
+        }
+    }
+}
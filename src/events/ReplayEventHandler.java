@@ -0,0 +1,55 @@
+package events;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * An {@link EventHandler} that appends every event to a binary replay stream.
+ *
+ * <p>
+ * Each event is written as a fixed-size record: type ordinal (byte), tick (long), block id (int),
+ * ball id (int), x (double) and y (double). The stream is flushed at the end of every batch and closed
+ * when the pipeline shuts down.
+ * </p>
+ */
+public class ReplayEventHandler implements EventHandler {
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a {@code ReplayEventHandler} that writes to the given stream.
+     *
+     * @param out the stream to write the replay to
+     */
+    public ReplayEventHandler(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    @Override
+    public void onEvent(EventView event, boolean endOfBatch) {
+        try {
+            this.out.writeByte(event.type().ordinal());
+            this.out.writeLong(event.tick());
+            this.out.writeInt(event.blockId());
+            this.out.writeInt(event.ballId());
+            this.out.writeDouble(event.x());
+            this.out.writeDouble(event.y());
+            if (endOfBatch) {
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        try {
+            this.out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
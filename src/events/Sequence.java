@@ -0,0 +1,36 @@
+package events;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code Sequence} tracks how far a producer or a consumer has progressed along an {@link EventRing}.
+ * It is written by a single thread and read by others.
+ */
+public class Sequence {
+    private final AtomicLong value;
+
+    /**
+     * Constructs a {@code Sequence} that starts before the first slot of the ring.
+     */
+    public Sequence() {
+        this.value = new AtomicLong(-1);
+    }
+
+    /**
+     * Returns the last sequence number that was published or consumed.
+     *
+     * @return the current value of the sequence
+     */
+    public long get() {
+        return this.value.get();
+    }
+
+    /**
+     * Advances the sequence. Only the owning thread may call this method.
+     *
+     * @param sequence the new value of the sequence
+     */
+    public void set(long sequence) {
+        this.value.lazySet(sequence);
+    }
+}
@@ -0,0 +1,328 @@
+package game;
+
+import biuoop.KeyboardSensor;
+import geometry.Line;
+import geometry.Point;
+import geometry.Rectangle;
+import physics.CollisionInfo;
+import physics.Velocity;
+import sprites.Ball;
+import sprites.Paddle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@code AutopilotSensor} is a {@link KeyboardSensor} that plays the game: given to the {@link Paddle}
+ * in place of the keyboard, it presses left and right to put the paddle under the ball that will reach it
+ * first. It is used for demos and to run bot games headless.
+ *
+ * <p>
+ * Where a ball will cross the paddle's line is predicted analytically. The side walls are mirrors, so
+ * instead of following the ball from bounce to bounce, its straight path is continued through them into
+ * mirrored copies of the field ("unfolded"), and the crossing point is folded back into the real field.
+ * Before trusting the prediction, the first leg of the path is ray-cast through the {@link GameEnvironment}
+ * to see whether a block is in the way. A falling ball moves in a straight line until its next collision,
+ * so a prediction stays valid until then: it is cached per ball together with the velocity and the line it
+ * was made on, and only made again once the ball's velocity changes or it leaves that line, which costs one
+ * prediction per ball per collision.
+ * </p>
+ *
+ * <p>
+ * With many balls in play the most urgent one wins: a falling ball whose path is clear comes before one
+ * heading into a block, which comes before a rising ball, and among them the one with the least time left
+ * to reach the paddle. The paddle aims to catch the ball a little off center, so the ball is sent back
+ * towards the middle of the field instead of straight up.
+ * </p>
+ */
+public class AutopilotSensor implements KeyboardSensor {
+    private static final double EPSILON = 0.001;
+    private static final byte CLEAR = 0;
+    private static final byte OBSTRUCTED = 1;
+    private static final byte RISING = 2;
+    private static final byte NONE = 3;
+
+    private final Game game;
+    private double[] velocityX;
+    private double[] velocityY;
+    private double[] originX;
+    private double[] originY;
+    private double[] predictedX;
+    private byte[] kinds;
+    private long decidedTick = -1;
+    private int decision;
+    private long predictions;
+
+    /**
+     * Constructs an {@code AutopilotSensor} that plays the given game. The game's paddle is looked up when
+     * the sensor is first read, so the sensor can be passed to {@link Game#initialize(KeyboardSensor)}.
+     *
+     * @param game the game to play
+     */
+    public AutopilotSensor(Game game) {
+        this.game = game;
+        this.velocityX = new double[16];
+        this.velocityY = new double[16];
+        // NaN never equals a velocity, so an empty slot never passes for a cached prediction
+        Arrays.fill(this.velocityX, Double.NaN);
+        this.originX = new double[16];
+        this.originY = new double[16];
+        this.predictedX = new double[16];
+        this.kinds = new byte[16];
+    }
+
+    /**
+     * Reports the left key as pressed while the paddle should move left, and the right key while it should
+     * move right. Every other key is never pressed.
+     *
+     * @param key the key to check
+     * @return {@code true} if the key is pressed
+     */
+    @Override
+    public boolean isPressed(String key) {
+        if (LEFT_KEY.equals(key)) {
+            return decide() < 0;
+        }
+        if (RIGHT_KEY.equals(key)) {
+            return decide() > 0;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of predictions made so far, that is, the number of times a cached prediction could
+     * not be used.
+     *
+     * @return the number of predictions
+     */
+    public long getPredictionCount() {
+        return this.predictions;
+    }
+
+    /**
+     * Decides which way the paddle should move on the current tick. The decision is made once per tick and
+     * reused for the second key the paddle asks about.
+     *
+     * @return -1 to move left, 1 to move right, 0 to stay
+     */
+    private int decide() {
+        long tick = this.game.getHitEvents().getTick();
+        if (tick != this.decidedTick) {
+            this.decision = steer();
+            this.decidedTick = tick;
+        }
+        return this.decision;
+    }
+
+    /**
+     * Finds the most urgent ball and steers the paddle towards where it will cross the paddle's line.
+     *
+     * @return -1 to move left, 1 to move right, 0 to stay
+     */
+    private int steer() {
+        Paddle paddle = this.game.getPaddle();
+        Rectangle rect = paddle.getCollisionRectangle();
+        double lineY = rect.getUpperLeft().getY();
+        List<Ball> balls = this.game.getBalls();
+
+        byte bestKind = NONE;
+        double bestTime = Double.MAX_VALUE;
+        double bestX = 0;
+        for (int i = 0; i < balls.size(); i++) {
+            Ball b = balls.get(i);
+            int slot = predict(b, lineY);
+            byte kind = this.kinds[slot];
+            if (kind > bestKind) {
+                continue;
+            }
+            double time = timeToLine(b, lineY, kind);
+            if (kind < bestKind || time < bestTime) {
+                bestKind = kind;
+                bestTime = time;
+                bestX = this.predictedX[slot];
+            }
+        }
+        if (bestKind == NONE) {
+            return 0;
+        }
+
+        double width = rect.getWidth();
+        double fieldWidth = this.game.getWorld().getWidth();
+        // catch the ball on the paddle's second or fourth fifth, which sends it back towards the middle
+        double target = bestX < fieldWidth / 2 ? bestX - width / 5 : bestX + width / 5;
+        double speed = paddle.getSpeed();
+        // keep clear of the edges, where the paddle wraps around to the other side
+        target = Math.max(width / 2 + speed, Math.min(fieldWidth - width / 2 - speed, target));
+        double error = target - (rect.getUpperLeft().getX() + width / 2);
+        if (error < -speed / 2) {
+            return -1;
+        }
+        return error > speed / 2 ? 1 : 0;
+    }
+
+    /**
+     * Returns the number of ticks until a ball reaches the paddle's line, following its predicted path.
+     *
+     * @param b     the ball
+     * @param lineY the y-coordinate of the paddle's top edge
+     * @param kind  the kind of the ball's prediction
+     * @return the number of ticks
+     */
+    private double timeToLine(Ball b, double lineY, byte kind) {
+        double y = b.getCenter().getY();
+        double dy = b.getVelocity().getDy();
+        if (kind == RISING) {
+            double ceiling = this.game.getWorld().getCeiling()
+                    + b.getSize() * Math.abs(dy) / speedOf(b.getVelocity());
+            return (y - ceiling + lineY - ceiling) / -dy;
+        }
+        return (lineY - y) / dy;
+    }
+
+    /**
+     * Makes sure the cached prediction of a ball is up to date, predicting again if the ball has left the
+     * line the prediction was made on.
+     *
+     * @param b     the ball
+     * @param lineY the y-coordinate of the paddle's top edge
+     * @return the ball's slot in the prediction cache
+     */
+    private int predict(Ball b, double lineY) {
+        int slot = Math.max(b.getId(), 0);
+        if (slot >= this.kinds.length) {
+            grow(Math.max(slot + 1, this.kinds.length * 2));
+        }
+        Velocity v = b.getVelocity();
+        double x = b.getCenter().getX();
+        double y = b.getCenter().getY();
+        double dx = v.getDx();
+        double dy = v.getDy();
+        if (this.velocityX[slot] == dx && this.velocityY[slot] == dy && onLine(slot, v, x, y)) {
+            return slot;
+        }
+
+        this.predictions++;
+        this.velocityX[slot] = dx;
+        this.velocityY[slot] = dy;
+        this.originX[slot] = x;
+        this.originY[slot] = y;
+        double speed = speedOf(v);
+        // the ball backs off by its radius along its path when it hits a wall, so its center turns earlier
+        double inset = speed == 0 ? 0 : b.getSize() * Math.abs(dx) / speed;
+        double left = this.game.getWorld().getLeftWall() + inset;
+        double right = this.game.getWorld().getRightWall() - inset;
+
+        if (dy > EPSILON && y < lineY) {
+            double time = (lineY - y) / dy;
+            this.predictedX[slot] = fold(x + dx * time, left, right);
+            this.kinds[slot] = blocked(x, y, dx, dy, time, left, right) ? OBSTRUCTED : CLEAR;
+        } else if (dy < -EPSILON) {
+            // rising: bounce off the ceiling, unfolded the same way as the side walls
+            double ceiling = this.game.getWorld().getCeiling() + b.getSize() * Math.abs(dy) / speed;
+            double time = (y - ceiling + lineY - ceiling) / -dy;
+            this.predictedX[slot] = fold(x + dx * time, left, right);
+            this.kinds[slot] = RISING;
+        } else {
+            this.kinds[slot] = NONE;
+        }
+        return slot;
+    }
+
+    /**
+     * Checks whether a ball is still on the straight line its cached prediction was made on, moving with the
+     * same velocity.
+     *
+     * @param slot the ball's slot in the prediction cache
+     * @param v    the ball's velocity
+     * @param x    the x-coordinate of the ball's center
+     * @param y    the y-coordinate of the ball's center
+     * @return {@code true} if the cached prediction still holds
+     */
+    private boolean onLine(int slot, Velocity v, double x, double y) {
+        // a ball that bounced back and forth to the same velocity, or a pooled ball reused with it, is not on
+        // the line any more: the cross product measures the distance from it
+        double cross = (x - this.originX[slot]) * v.getDy() - (y - this.originY[slot]) * v.getDx();
+        return Math.abs(cross) < EPSILON * (1 + speedOf(v));
+    }
+
+    /**
+     * Ray-casts the first leg of a falling ball's path, up to the paddle's line or the first side wall,
+     * and checks whether anything other than the walls and the paddle is in the way.
+     *
+     * @param x     the x-coordinate of the ball's center
+     * @param y     the y-coordinate of the ball's center
+     * @param dx    the velocity component in the x direction
+     * @param dy    the velocity component in the y direction
+     * @param time  the number of ticks until the ball reaches the paddle's line
+     * @param left  the smallest x-coordinate the ball's center can reach
+     * @param right the largest x-coordinate the ball's center can reach
+     * @return {@code true} if a block is in the way
+     */
+    private boolean blocked(double x, double y, double dx, double dy, double time, double left, double right) {
+        double leg = time;
+        if (dx < 0) {
+            leg = Math.min(leg, (left - x) / dx);
+        } else if (dx > 0) {
+            leg = Math.min(leg, (right - x) / dx);
+        }
+        if (leg <= 0) {
+            return false;
+        }
+        Line path = new Line(new Point(x, y), new Point(x + dx * leg, y + dy * leg));
+        CollisionInfo info = this.game.getEnvironment().getClosestCollision(path);
+        if (info == null) {
+            return false;
+        }
+        Point p = info.collisionPoint();
+        WorldConfig world = this.game.getWorld();
+        return p.getX() > world.getLeftWall() + EPSILON && p.getX() < world.getRightWall() - EPSILON
+                && p.getY() < y + dy * time - EPSILON;
+    }
+
+    /**
+     * Folds an x-coordinate of the unfolded field back into the real one, reflecting it off the side walls.
+     *
+     * @param x     the unfolded x-coordinate
+     * @param left  the smallest x-coordinate the ball's center can reach
+     * @param right the largest x-coordinate the ball's center can reach
+     * @return the x-coordinate in the real field
+     */
+    private static double fold(double x, double left, double right) {
+        double width = right - left;
+        if (width <= 0) {
+            return left;
+        }
+        double m = (x - left) % (2 * width);
+        if (m < 0) {
+            m += 2 * width;
+        }
+        return left + (m > width ? 2 * width - m : m);
+    }
+
+    /**
+     * Returns the speed of a velocity.
+     *
+     * @param v the velocity
+     * @return the length of the velocity vector
+     */
+    private static double speedOf(Velocity v) {
+        return Math.sqrt(v.getDx() * v.getDx() + v.getDy() * v.getDy());
+    }
+
+    /**
+     * Grows the prediction cache.
+     *
+     * @param capacity the new number of slots
+     */
+    private void grow(int capacity) {
+        int old = this.kinds.length;
+        this.velocityX = Arrays.copyOf(this.velocityX, capacity);
+        this.velocityY = Arrays.copyOf(this.velocityY, capacity);
+        Arrays.fill(this.velocityX, old, capacity, Double.NaN);
+        this.originX = Arrays.copyOf(this.originX, capacity);
+        this.originY = Arrays.copyOf(this.originY, capacity);
+        this.predictedX = Arrays.copyOf(this.predictedX, capacity);
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        Arrays.fill(this.kinds, old, capacity, NONE);
+    }
+}
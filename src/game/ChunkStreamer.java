@@ -0,0 +1,254 @@
+package game;
+
+import levels.ChunkedLevel;
+import listeners.CellHitListener;
+import sprites.BlockGrid;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code ChunkStreamer} pages the chunks of a {@link ChunkedLevel} in and out of a game as a viewport moves
+ * over the level, so that a level of any height plays in bounded memory.
+ *
+ * <p>
+ * A fixed number of {@link BlockGrid}s, one per resident chunk, are created up front and recycled. Every call
+ * to {@link #update(double, double)} makes the chunks that overlap the viewport resident, filling a free grid
+ * from the memory-mapped level file and adding it to the game; once every grid is taken, the least recently
+ * used chunk outside the viewport is evicted and its grid removed from the game. Only resident chunks take
+ * part in collision queries and drawing.
+ * </p>
+ *
+ * <p>
+ * The blocks broken in a chunk must not come back when it is paged in again, so an evicted chunk that lost
+ * blocks leaves behind a copy of its bitset of live cells (a few words per chunk). This is the only memory
+ * that grows, and only with the number of chunks the balls actually broke blocks in, not with the size of the
+ * level. Chunks must only be paged between ticks, when no hits are pending.
+ * </p>
+ *
+ * <p>
+ * The breakable blocks of the whole level are added to the game's count of remaining blocks and to the
+ * palette's per-color counts once, when the streamer is constructed, and paging chunks in and out leaves
+ * both alone, so the game is only over once every block of the level is broken, resident or not. Blocks
+ * broken while resident must be counted down by the listeners, as {@link listeners.BlockRemover} does. The
+ * per-color counts take one pass over the level file. The streamed grids are sprites of the game and are drawn by
+ * {@link Game#drawFrame(biuoop.DrawSurface)}, but {@link Game#run()} renders snapshots of the level's own grid
+ * only, so until there is a camera that scrolls over the level the streamer is used standalone, as by the
+ * {@link ChunkStreamerHarness}.
+ * </p>
+ */
+public class ChunkStreamer {
+    private final Game game;
+    private final ChunkedLevel level;
+    private final BlockGrid[] grids;
+    private final int[] chunkOf;
+    private final int[] loadedCells;
+    private final int[] colorIndices;
+    private final byte[] cells;
+    private final double chunkHeight;
+    // resident chunk -> grid, in least recently used order
+    private final LinkedHashMap<Integer, Integer> resident;
+    private final Map<Integer, long[]> broken;
+    private int free;
+    private int firstVisible = -1;
+    private int lastVisible = -1;
+    private long loads;
+    private long evictions;
+
+    /**
+     * Constructs a {@code ChunkStreamer} and counts the breakable blocks of the level into the game. No chunk
+     * is resident until the first {@link #update(double, double)}.
+     *
+     * @param game     the game the chunks are added to
+     * @param level    the level to stream
+     * @param capacity the number of chunks that may be resident at once
+     * @throws ArithmeticException if the level has more breakable blocks than a counter can hold
+     */
+    public ChunkStreamer(Game game, ChunkedLevel level, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("at least one chunk must be resident");
+        }
+        this.game = game;
+        this.level = level;
+        this.grids = new BlockGrid[capacity];
+        this.chunkOf = new int[capacity];
+        this.loadedCells = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.grids[i] = new BlockGrid(level.getOriginX(), level.getOriginY(), level.getColumns(),
+                    level.getChunkRows(), level.getPitchX(), level.getPitchY(), level.getBlockWidth(),
+                    level.getBlockHeight(), game.getPalette());
+        }
+        this.colorIndices = new int[level.getColorCount() + 1];
+        for (int number = 1; number <= level.getColorCount(); number++) {
+            this.colorIndices[number] = game.getPalette().indexOf(level.getColor(number));
+        }
+        this.cells = new byte[level.getChunkRows() * level.getColumns()];
+        this.chunkHeight = level.getChunkRows() * level.getPitchY();
+        this.resident = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.broken = new HashMap<>();
+        countBlocks();
+    }
+
+    /**
+     * Adds the breakable blocks of the whole level to the game's count of remaining blocks and to the
+     * palette's per-color counts, reading every chunk once.
+     */
+    private void countBlocks() {
+        this.game.getRemainingBlocksCounter().increase(Math.toIntExact(this.level.getBreakableCount()));
+        for (int chunk = 0; chunk < this.level.getChunkCount(); chunk++) {
+            int n = this.level.readChunk(chunk, this.cells) * this.level.getColumns();
+            for (int i = 0; i < n; i++) {
+                int b = this.cells[i] & 0xFF;
+                if (b != 0 && (b & ChunkedLevel.SOLID) == 0) {
+                    this.game.getPalette().blockAdded(this.colorIndices[b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a listener to the grids of all chunks, which is notified when a block of a resident chunk is hit.
+     *
+     * @param listener the listener
+     */
+    public void addCellHitListener(CellHitListener listener) {
+        for (BlockGrid grid : this.grids) {
+            grid.addCellHitListener(listener);
+        }
+    }
+
+    /**
+     * Makes the chunks that overlap a viewport resident, evicting the least recently used chunks outside it
+     * if there is no room for them.
+     *
+     * @param top    the y-coordinate of the top of the viewport
+     * @param bottom the y-coordinate of the bottom of the viewport
+     * @throws IllegalStateException if the viewport overlaps more chunks than may be resident at once
+     */
+    public void update(double top, double bottom) {
+        int first = Math.max(0, (int) Math.floor((top - this.level.getOriginY()) / this.chunkHeight));
+        int last = Math.min(this.level.getChunkCount() - 1,
+                (int) Math.floor((bottom - this.level.getOriginY()) / this.chunkHeight));
+        if (first == this.firstVisible && last == this.lastVisible) {
+            return;
+        }
+        if (last - first + 1 > this.grids.length) {
+            throw new IllegalStateException("the viewport overlaps " + (last - first + 1) + " chunks, but only "
+                    + this.grids.length + " can be resident");
+        }
+        this.firstVisible = first;
+        this.lastVisible = last;
+        // touch the visible chunks first, so none of them is the least recently used
+        for (int chunk = first; chunk <= last; chunk++) {
+            this.resident.get(chunk);
+        }
+        for (int chunk = first; chunk <= last; chunk++) {
+            if (!this.resident.containsKey(chunk)) {
+                load(chunk);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of resident chunks.
+     *
+     * @return the number of chunks whose blocks are in the game
+     */
+    public int getResidentCount() {
+        return this.resident.size();
+    }
+
+    /**
+     * Returns the number of times a chunk was paged in.
+     *
+     * @return the number of loads
+     */
+    public long getLoadCount() {
+        return this.loads;
+    }
+
+    /**
+     * Returns the number of times a chunk was evicted.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the number of evicted chunks whose broken blocks are remembered.
+     *
+     * @return the number of remembered chunks
+     */
+    public int getRememberedCount() {
+        return this.broken.size();
+    }
+
+    /**
+     * Pages a chunk in, evicting the least recently used chunk if every grid is taken.
+     *
+     * @param chunk the number of the chunk
+     */
+    private void load(int chunk) {
+        int slot;
+        if (this.free < this.grids.length) {
+            slot = this.free++;
+        } else {
+            Iterator<Map.Entry<Integer, Integer>> eldest = this.resident.entrySet().iterator();
+            slot = eldest.next().getValue();
+            eldest.remove();
+            evict(slot);
+        }
+
+        BlockGrid grid = this.grids[slot];
+        grid.reset(this.level.getOriginX(), this.level.getOriginY() + chunk * this.chunkHeight);
+        int columns = this.level.getColumns();
+        int rows = this.level.readChunk(chunk, this.cells);
+        for (int i = 0; i < rows * columns; i++) {
+            int b = this.cells[i] & 0xFF;
+            if (b == 0) {
+                continue;
+            }
+            int colorIndex = this.colorIndices[b & ~ChunkedLevel.SOLID];
+            if ((b & ChunkedLevel.SOLID) != 0) {
+                grid.setSolidCell(i / columns, i % columns, colorIndex);
+            } else {
+                grid.setCell(i / columns, i % columns, colorIndex);
+            }
+        }
+        long[] live = this.broken.get(chunk);
+        if (live != null) {
+            for (int cell = 0; cell < rows * columns; cell++) {
+                if ((live[cell >>> 6] & (1L << cell)) == 0) {
+                    grid.removeCell(cell);
+                }
+            }
+        }
+        this.chunkOf[slot] = chunk;
+        this.loadedCells[slot] = grid.getLiveCells();
+        this.resident.put(chunk, slot);
+        grid.addToGame(this.game);
+        this.loads++;
+    }
+
+    /**
+     * Takes the grid of an evicted chunk out of the game, remembering the chunk's live cells if blocks were
+     * broken in it.
+     *
+     * @param slot the grid of the chunk
+     */
+    private void evict(int slot) {
+        BlockGrid grid = this.grids[slot];
+        grid.removeFromGame(this.game);
+        int chunk = this.chunkOf[slot];
+        if (grid.getLiveCells() != this.loadedCells[slot] || this.broken.containsKey(chunk)) {
+            long[] live = new long[grid.getLiveCellWords()];
+            grid.copyLiveCells(live);
+            this.broken.put(chunk, live);
+        }
+        this.evictions++;
+    }
+}
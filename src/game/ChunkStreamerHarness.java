@@ -0,0 +1,117 @@
+package game;
+
+import geometry.Line;
+import geometry.Point;
+import levels.ChunkedLevel;
+import physics.CollisionInfo;
+import sprites.BlockGrid;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * A {@code ChunkStreamerHarness} scrolls a viewport over a whole {@link ChunkedLevel} through a
+ * {@link ChunkStreamer}, casting rays as balls would and breaking the blocks they hit, and reports how fast
+ * chunks are paged in.
+ *
+ * <p>
+ * Usage: {@code java game.ChunkStreamerHarness <level file> [resident chunks]}
+ * </p>
+ */
+public final class ChunkStreamerHarness {
+    /**
+     * Not instantiable.
+     */
+    private ChunkStreamerHarness() {
+    }
+
+    /**
+     * Breaks the breakable block whose center is nearest to a point, standing in for a ball hitting it, and
+     * counts it down like a {@link listeners.BlockRemover} would.
+     *
+     * @param game the game the grid is in
+     * @param grid the grid that was hit
+     * @param p    the point of the hit
+     * @return {@code true} if a block was broken
+     */
+    private static boolean breakNearest(Game game, BlockGrid grid, Point p) {
+        int nearest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int cell = 0; cell < grid.getColumns() * grid.getRows(); cell++) {
+            if (grid.isAlive(cell) && !grid.isSolid(cell)) {
+                double d = p.distance(new Point(grid.getCellCenterX(cell), grid.getCellCenterY(cell)));
+                if (d < best) {
+                    best = d;
+                    nearest = cell;
+                }
+            }
+        }
+        if (nearest >= 0) {
+            grid.removeCell(nearest);
+            game.getRemainingBlocksCounter().decrease(1);
+            game.getPalette().blockRemoved(grid.getColorIndex(nearest));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scrolls a viewport over a level file, breaking a few blocks on the way, and prints how fast chunks are
+     * paged in and how much memory is used.
+     *
+     * @param args the level file and the number of resident chunks
+     * @throws IOException if the level cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ChunkStreamerHarness <level file> [resident chunks]");
+            return;
+        }
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        try (ChunkedLevel level = new ChunkedLevel(Paths.get(args[0]))) {
+            Game game = new Game();
+            ChunkStreamer streamer = new ChunkStreamer(game, level, capacity);
+            SplittableRandom random = new SplittableRandom(1);
+            double height = level.getRows() * level.getPitchY();
+            WorldConfig world = game.getWorld();
+            double viewport = world.getHeight();
+            long queries = 0;
+            long hits = 0;
+            long broken = 0;
+            long paging = 0;
+            long start = System.nanoTime();
+            for (double top = level.getOriginY() - viewport; top < level.getOriginY() + height; top += 8) {
+                long before = System.nanoTime();
+                streamer.update(top, top + viewport);
+                paging += System.nanoTime() - before;
+                // a few rays through the viewport, as balls would cast them
+                for (int i = 0; i < 4; i++) {
+                    double x = world.getLeftWall() + random.nextDouble() * (world.getRightWall() - world.getLeftWall());
+                    double y = top + random.nextDouble() * viewport;
+                    Line ray = new Line(new Point(x, y), new Point(x + random.nextDouble() * 20 - 10, y - 10));
+                    CollisionInfo info = game.getEnvironment().getClosestCollision(ray);
+                    queries++;
+                    if (info != null) {
+                        hits++;
+                        if (info.collisionObject() instanceof BlockGrid
+                                && breakNearest(game, (BlockGrid) info.collisionObject(), info.collisionPoint())) {
+                            broken++;
+                        }
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            System.out.printf("%d rows, %d chunks; %d loads, %d evictions, %d resident, %d remembered%n",
+                    level.getRows(), level.getChunkCount(), streamer.getLoadCount(), streamer.getEvictionCount(),
+                    streamer.getResidentCount(), streamer.getRememberedCount());
+            System.out.printf("%d blocks counted as remaining: %d in the level, %d broken%n",
+                    game.getRemainingBlocks(), level.getBreakableCount(), broken);
+            System.out.printf("%d queries (%d hits) in %.2f s, %.1f us per load; heap in use %.1f MB%n", queries,
+                    hits, seconds, paging / 1e3 / streamer.getLoadCount(),
+                    (runtime.totalMemory() - runtime.freeMemory()) / 1e6);
+        }
+    }
+}
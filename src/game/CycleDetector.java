@@ -0,0 +1,290 @@
+package game;
+
+import events.EventType;
+import physics.Velocity;
+import sprites.Ball;
+
+import java.util.Arrays;
+
+/**
+ * A {@code CycleDetector} finds balls that are trapped in a periodic bounce cycle, such as a ball bouncing
+ * back and forth in a corridor of the level without ever breaking a block, and deals with them according to
+ * a {@link NudgePolicy}.
+ *
+ * <p>
+ * Every time a ball collides, the detector hashes its state, quantized so that the float noise of a repeated
+ * path does not hide the repetition: its position, its velocity, and the number of blocks left, so that a path
+ * that still breaks blocks never repeats. The sequence of hashes of each ball is searched for a cycle with
+ * Brent's algorithm, which keeps only a few numbers per ball however long the cycle is. A cycle must come
+ * around {@link #CONFIRMATIONS} times in a row before the ball is taken to be stuck, which rules out chance
+ * collisions of the quantized states.
+ * </p>
+ *
+ * <p>
+ * Stuck balls are collected while the balls move and handled at the end of the tick, when a
+ * {@link EventType#BALL_STUCK} event is published and the policy is applied.
+ * </p>
+ */
+public class CycleDetector {
+    /**
+     * The number of times in a row a cycle must repeat before a ball is taken to be stuck.
+     */
+    public static final int CONFIRMATIONS = 3;
+
+    private static final double POSITION_QUANTUM = 2;
+    private static final double VELOCITY_QUANTUM = 1.0 / 16;
+    private static final int MAX_POWER = 1 << 12;
+    private static final double MIN_DEFLECTION = Math.toRadians(3);
+    private static final double MAX_DEFLECTION = Math.toRadians(10);
+
+    private final Game game;
+    private NudgePolicy policy;
+    private long[] tortoises;
+    private int[] powers;
+    private int[] lengths;
+    private int[] periods;
+    private int[] repeats;
+    private Ball[] stuck;
+    private int stuckCount;
+    private long detections;
+    private long lastDetectionTick = -1;
+    private final Xorshift random;
+
+    /**
+     * Constructs a {@code CycleDetector}.
+     *
+     * @param game   the game whose balls are watched
+     * @param policy what to do with stuck balls
+     * @param seed   the seed of the random deflections
+     */
+    public CycleDetector(Game game, NudgePolicy policy, long seed) {
+        this.game = game;
+        this.policy = policy;
+        this.random = new Xorshift(seed);
+        this.tortoises = new long[16];
+        this.powers = new int[16];
+        this.lengths = new int[16];
+        this.periods = new int[16];
+        this.repeats = new int[16];
+        Arrays.fill(this.powers, 1);
+        this.stuck = new Ball[8];
+    }
+
+    /**
+     * Sets what is done with stuck balls.
+     *
+     * @param nudgePolicy the policy
+     */
+    public void setPolicy(NudgePolicy nudgePolicy) {
+        this.policy = nudgePolicy;
+    }
+
+    /**
+     * Forgets what is known about a ball, e.g. because it was brought back into play at a new position.
+     *
+     * @param b the ball
+     */
+    public void reset(Ball b) {
+        int id = b.getId();
+        if (id >= 0 && id < this.powers.length) {
+            this.tortoises[id] = 0;
+            this.powers[id] = 1;
+            this.lengths[id] = 0;
+            this.periods[id] = 0;
+            this.repeats[id] = 0;
+        }
+    }
+
+    /**
+     * Called by a ball after it collided and its velocity was updated. Takes one step of Brent's algorithm
+     * on the ball's sequence of states.
+     *
+     * @param b the ball
+     */
+    public void collided(Ball b) {
+        int id = b.getId();
+        if (id < 0) {
+            return;
+        }
+        if (id >= this.powers.length) {
+            grow(Math.max(id + 1, this.powers.length * 2));
+        }
+        long h = hash(b);
+        int length = ++this.lengths[id];
+        if (h == this.tortoises[id]) {
+            // the state came back after `length` collisions: a cycle, or the same cycle once more
+            if (length == this.periods[id]) {
+                this.repeats[id]++;
+            } else {
+                this.periods[id] = length;
+                this.repeats[id] = 1;
+            }
+            this.lengths[id] = 0;
+            if (this.repeats[id] >= CONFIRMATIONS) {
+                reset(b);
+                this.tortoises[id] = h;
+                flag(b);
+            }
+        } else if (length >= this.powers[id]) {
+            // Brent: move the tortoise to the hare and double the distance it may run ahead
+            this.tortoises[id] = h;
+            this.powers[id] = this.powers[id] >= MAX_POWER ? 1 : this.powers[id] * 2;
+            this.lengths[id] = 0;
+            this.periods[id] = 0;
+            this.repeats[id] = 0;
+        }
+    }
+
+    /**
+     * Handles the balls found stuck during the tick: publishes an event for each and applies the policy.
+     */
+    public void endTick() {
+        for (int i = 0; i < this.stuckCount; i++) {
+            Ball b = this.stuck[i];
+            this.stuck[i] = null;
+            // the ball may have been lost later in the tick
+            if (!this.game.isInPlay(b)) {
+                continue;
+            }
+            this.detections++;
+            // the hits of the tick were already dispatched, which advanced the tick counter
+            this.lastDetectionTick = this.game.getHitEvents().getTick() - 1;
+            this.game.publishEvent(EventType.BALL_STUCK, -1, b.getId(), b.getCenter().getX(),
+                    b.getCenter().getY());
+            if (this.policy == NudgePolicy.DEFLECT) {
+                deflect(b);
+            } else if (this.policy == NudgePolicy.REMOVE) {
+                this.game.loseBall(b);
+            }
+        }
+        this.stuckCount = 0;
+    }
+
+    /**
+     * Returns the number of times a stuck ball was found.
+     *
+     * @return the number of detections
+     */
+    public long getDetections() {
+        return this.detections;
+    }
+
+    /**
+     * Returns the tick in which a stuck ball was last found.
+     *
+     * @return the tick of the last detection, or -1 if there was none
+     */
+    public long getLastDetectionTick() {
+        return this.lastDetectionTick;
+    }
+
+    /**
+     * Copies what the detector knows about the balls into a saved game state. Must only be called between
+     * ticks, when no ball is queued.
+     *
+     * @param state the state to copy into
+     */
+    void save(GameState state) {
+        int n = this.powers.length;
+        if (state.cyclePowers.length != n) {
+            state.cycleTortoises = new long[n];
+            state.cyclePowers = new int[n];
+            state.cycleLengths = new int[n];
+            state.cyclePeriods = new int[n];
+            state.cycleRepeats = new int[n];
+        }
+        System.arraycopy(this.tortoises, 0, state.cycleTortoises, 0, n);
+        System.arraycopy(this.powers, 0, state.cyclePowers, 0, n);
+        System.arraycopy(this.lengths, 0, state.cycleLengths, 0, n);
+        System.arraycopy(this.periods, 0, state.cyclePeriods, 0, n);
+        System.arraycopy(this.repeats, 0, state.cycleRepeats, 0, n);
+        state.cycleDetections = this.detections;
+        state.cycleLastDetection = this.lastDetectionTick;
+        state.cycleSeed = this.random.getState();
+    }
+
+    /**
+     * Puts the detector back to what it knew when a game state was saved. Balls registered since then are
+     * forgotten.
+     *
+     * @param state the saved state
+     */
+    void restore(GameState state) {
+        int n = state.cyclePowers.length;
+        if (this.powers.length != n) {
+            this.tortoises = new long[n];
+            this.powers = new int[n];
+            this.lengths = new int[n];
+            this.periods = new int[n];
+            this.repeats = new int[n];
+        }
+        System.arraycopy(state.cycleTortoises, 0, this.tortoises, 0, n);
+        System.arraycopy(state.cyclePowers, 0, this.powers, 0, n);
+        System.arraycopy(state.cycleLengths, 0, this.lengths, 0, n);
+        System.arraycopy(state.cyclePeriods, 0, this.periods, 0, n);
+        System.arraycopy(state.cycleRepeats, 0, this.repeats, 0, n);
+        this.detections = state.cycleDetections;
+        this.lastDetectionTick = state.cycleLastDetection;
+        this.random.setState(state.cycleSeed);
+    }
+
+    /**
+     * Queues a ball to be handled at the end of the tick.
+     *
+     * @param b the stuck ball
+     */
+    private void flag(Ball b) {
+        if (this.stuckCount == this.stuck.length) {
+            this.stuck = Arrays.copyOf(this.stuck, this.stuck.length * 2);
+        }
+        this.stuck[this.stuckCount++] = b;
+    }
+
+    /**
+     * Turns the direction of a ball by a small random angle, keeping its speed.
+     *
+     * @param b the ball
+     */
+    private void deflect(Ball b) {
+        double dx = b.getVelocity().getDx();
+        double dy = b.getVelocity().getDy();
+        double angle = MIN_DEFLECTION + this.random.nextDouble() * (MAX_DEFLECTION - MIN_DEFLECTION);
+        if (this.random.nextDouble() < 0.5) {
+            angle = -angle;
+        }
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        b.setVelocity(dx * cos - dy * sin, dx * sin + dy * cos);
+    }
+
+    /**
+     * Hashes the quantized state of a ball.
+     *
+     * @param b the ball
+     * @return the hash of the ball's state
+     */
+    private long hash(Ball b) {
+        Velocity v = b.getVelocity();
+        long h = this.game.getRemainingBlocks();
+        h = Xorshift.mix(h * 31 + (long) Math.floor(b.getCenter().getX() / POSITION_QUANTUM));
+        h = Xorshift.mix(h * 31 + (long) Math.floor(b.getCenter().getY() / POSITION_QUANTUM));
+        h = Xorshift.mix(h * 31 + Math.round(v.getDx() / VELOCITY_QUANTUM));
+        h = Xorshift.mix(h * 31 + Math.round(v.getDy() / VELOCITY_QUANTUM));
+        return h;
+    }
+
+    /**
+     * Grows the per-ball arrays.
+     *
+     * @param capacity the new number of balls
+     */
+    private void grow(int capacity) {
+        int old = this.powers.length;
+        this.tortoises = Arrays.copyOf(this.tortoises, capacity);
+        this.powers = Arrays.copyOf(this.powers, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+        this.periods = Arrays.copyOf(this.periods, capacity);
+        this.repeats = Arrays.copyOf(this.repeats, capacity);
+        Arrays.fill(this.powers, old, capacity, 1);
+    }
+}
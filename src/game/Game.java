@@ -2,41 +2,109 @@ package game;
 
 import biuoop.DrawSurface;
 import biuoop.GUI;
+import biuoop.KeyboardSensor;
 import biuoop.Sleeper;
+import events.EventPipeline;
+import events.EventType;
 import geometry.Point;
 import geometry.Rectangle;
 import listeners.Counter;
 import listeners.BallRemover;
 import listeners.BlockRemover;
 import listeners.ScoreTrackingListener;
-import listeners.HitListener;
+import listeners.HitEventBuffer;
+import listeners.ParticleBurstListener;
+import listeners.PowerUpDropListener;
+import levels.LevelDefinition;
 import sprites.Ball;
+import sprites.BallPool;
 import sprites.Block;
+import sprites.BlockGrid;
+import sprites.Palette;
 import sprites.Sprite;
 import sprites.ScoreIndicator;
 import sprites.SpriteCollection;
 import sprites.Paddle;
+import sprites.ParticleSystem;
+import sprites.PowerUpField;
 import physics.Collidable;
+import render.FrameRecorder;
+import render.RasterDrawSurface;
+import render.ScaledDrawSurface;
+import render.SnapshotRenderer;
+import render.Textures;
+import render.TripleBuffer;
+import render.WorldSnapshot;
+import telemetry.TelemetryRecorder;
 
 
 import java.awt.Color;
 import java.awt.Image;
-import java.awt.Toolkit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The Game class manages the overall game environment, including all sprites,
  * collidables, and the game loop. It initializes the game objects and runs
  * the game with a consistent frame rate, drawing sprites and handling
  * collisions between them.
+ *
+ * <p>
+ * The simulation can be advanced one tick at a time with {@link #tick()}, which does not need a window,
+ * so a game can also run headless.
+ * </p>
  */
 public class Game {
+    /**
+     * The most balls that can be in play at once; splitting stops there.
+     */
+    public static final int MAX_BALLS = 4096;
+    /**
+     * How long a wide-paddle power-up lasts, in ticks.
+     */
+    public static final int WIDE_PADDLE_TICKS = 600;
+
+    private static final double PADDLE_WIDTH = 125;
+
     private final SpriteCollection sprites;
     private final GameEnvironment environment;
     private GUI gui;
     private final Counter remainingBlocks;
     private final Counter remainingBalls;
     private final Counter score;
+    private final HitEventBuffer hitEvents;
+    private EventPipeline events;
+    private TelemetryRecorder telemetry;
+    private final Palette palette;
+    private final List<Ball> balls;
+    private long[] lostBalls;
+    private int lostCount;
+    private long[] inPlay;
+    private final List<Sprite> scenery;
+    private Paddle paddle;
+    private final List<Paddle> paddles;
+    private BlockGrid grid;
+    private ScoreIndicator scoreIndicator;
+    private ParticleSystem particles;
+    private final BallPool ballPool;
+    private PowerUpField powerUps;
+    private PowerUpDropListener drops;
+    private TimingWheel.Callback restorePaddle;
+    private int paddleRestore = -1;
+    private int ticksPerSecond;
+    private FrameRecorder recorder;
+    private boolean autopilot;
+    private boolean powerUpsOn;
+    private boolean cosmetics;
+    private GameState start;
+    private LevelDefinition level;
+    private WorldConfig world;
+    private final CycleDetector cycles;
+    private Throwable simulationFailure;
+    private Image background;
+    private int backgroundX;
+    private int backgroundY;
 
     /**
      * Constructs a new Game with an empty sprite collection and collision environment.
@@ -44,9 +112,23 @@ public class Game {
     public Game() {
         sprites = new SpriteCollection();
         environment = new GameEnvironment();
+        this.hitEvents = new HitEventBuffer();
+        this.palette = new Palette();
         this.remainingBlocks = new Counter();
         this.remainingBalls = new Counter();
         this.score = new Counter();
+        this.balls = new ArrayList<>();
+        this.lostBalls = new long[1];
+        this.inPlay = new long[1];
+        this.scenery = new ArrayList<>();
+        this.paddles = new ArrayList<>();
+        this.ballPool = new BallPool(this.palette, this.environment);
+        this.ticksPerSecond = 60;
+        this.level = LevelDefinition.spiral();
+        this.world = WorldConfig.STANDARD;
+        this.powerUpsOn = true;
+        this.cosmetics = true;
+        this.cycles = new CycleDetector(this, NudgePolicy.NONE, 11);
     }
 
     /**
@@ -67,150 +149,752 @@ public class Game {
         sprites.addSprite(s);
     }
 
+    /**
+     * Adds a ball to the game so it will be drawn, moved and tracked as one of the balls in play.
+     *
+     * @param b the Ball to add
+     */
+    public void addBall(Ball b) {
+        // the ball may be one from the pool that was lost this tick
+        dropLostBalls();
+        this.sprites.addSprite(b);
+        this.balls.add(b);
+        setInPlay(b, true);
+        this.cycles.reset(b);
+    }
+
+    /**
+     * Brings a ball into play, reusing a lost ball from the pool if there is one, and counts it
+     * as one of the remaining balls.
+     *
+     * @param x          the x-coordinate of the ball's center
+     * @param y          the y-coordinate of the ball's center
+     * @param radius     the radius of the ball
+     * @param colorIndex the palette index of the ball's color
+     * @param dx         the velocity component in the x direction
+     * @param dy         the velocity component in the y direction
+     * @return the ball
+     */
+    public Ball spawnBall(double x, double y, int radius, int colorIndex, double dx, double dy) {
+        Ball b = this.ballPool.acquire(x, y, radius, colorIndex, dx, dy);
+        b.addToGame(this);
+        this.remainingBalls.increase(1);
+        return b;
+    }
+
+    /**
+     * Splits every ball in play into {@code factor} balls at the same position, fanned out evenly
+     * around the direction of the original ball at the same speed. No more than {@link #MAX_BALLS}
+     * balls are ever in play.
+     *
+     * @param factor the number of balls each ball becomes
+     */
+    public void splitBalls(int factor) {
+        dropLostBalls();
+        int n = this.balls.size();
+        for (int i = 0; i < n; i++) {
+            Ball b = this.balls.get(i);
+            double dx = b.getVelocity().getDx();
+            double dy = b.getVelocity().getDy();
+            for (int k = 1; k < factor && this.balls.size() < MAX_BALLS; k++) {
+                double angle = 2 * Math.PI * k / factor;
+                double cos = Math.cos(angle);
+                double sin = Math.sin(angle);
+                spawnBall(b.getCenter().getX(), b.getCenter().getY(), b.getSize(), b.getColorIndex(),
+                        dx * cos - dy * sin, dx * sin + dy * cos);
+            }
+        }
+    }
+
+    /**
+     * Makes the paddle wider for {@link #WIDE_PADDLE_TICKS} ticks. Catching another wide-paddle power-up
+     * while the paddle is wide restarts the timer.
+     */
+    public void widenPaddle() {
+        getTimers().cancel(this.paddleRestore);
+        this.paddle.setWidth(PADDLE_WIDTH * 1.6);
+        this.paddleRestore = getTimers().schedule(WIDE_PADDLE_TICKS, this.restorePaddle);
+    }
+
+    /**
+     * Returns the timing wheel that timed effects are scheduled on. It advances once per tick.
+     *
+     * @return the game's timing wheel
+     */
+    public TimingWheel getTimers() {
+        return this.sprites.getTimers();
+    }
+
+    /**
+     * Returns the balls in play. The list is the game's own, not a copy, and must not be modified.
+     *
+     * @return the balls in play
+     */
+    public List<Ball> getBalls() {
+        dropLostBalls();
+        return this.balls;
+    }
+
+    /**
+     * Returns the paddle.
+     *
+     * @return the paddle, or {@code null} before the game is initialized
+     */
+    public Paddle getPaddle() {
+        return this.paddle;
+    }
+
+    /**
+     * Returns every paddle, the one made by {@link #initialize(KeyboardSensor)} first.
+     *
+     * @return the paddles, in the order they were added
+     */
+    public List<Paddle> getPaddles() {
+        return this.paddles;
+    }
+
+    /**
+     * Adds another paddle defending the same field, e.g. for a second player. The paddles are then spread
+     * evenly over the width of the field. Must be called after {@link #initialize(KeyboardSensor)} and before
+     * the first tick.
+     *
+     * @param keyboard the sensor the new paddle reads its input from
+     * @return the new paddle
+     */
+    public Paddle addPaddle(KeyboardSensor keyboard) {
+        Rectangle rect = this.paddle.getCollisionRectangle();
+        Paddle p = new Paddle(keyboard, new Rectangle(rect.getUpperLeft(), PADDLE_WIDTH, rect.getHeight()),
+                new Color(41, 106, 152), this.paddle.getSpeed(), this.world.getWidth());
+        p.addToGame(this);
+        this.paddles.add(p);
+        for (int i = 0; i < this.paddles.size(); i++) {
+            Paddle each = this.paddles.get(i);
+            double center = (i + 0.5) * this.world.getWidth() / this.paddles.size();
+            each.setX(center - each.getCollisionRectangle().getWidth() / 2);
+        }
+        saveState(this.start);
+        return p;
+    }
+
+    /**
+     * Returns the grid of blocks.
+     *
+     * @return the block grid, or {@code null} before the game is initialized
+     */
+    public BlockGrid getBlockGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Returns the current score.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return this.score.getValue();
+    }
+
+    /**
+     * Returns the environment of collidables the balls move in.
+     *
+     * @return the game environment
+     */
+    public GameEnvironment getEnvironment() {
+        return this.environment;
+    }
+
+    /**
+     * Takes a ball out of play as if it had been lost: it is removed from the game, no longer counted as
+     * one of the remaining balls, and released to the pool. Must not be called while the balls are moving.
+     *
+     * @param b the ball to take out of play
+     */
+    public void loseBall(Ball b) {
+        b.removeFromGame(this);
+        this.remainingBalls.decrease(1);
+        this.ballPool.release(b);
+    }
+
+    /**
+     * Returns the detector that finds balls stuck in bounce cycles. Its policy can be changed with
+     * {@link CycleDetector#setPolicy(NudgePolicy)}; by default stuck balls are only reported, so the physics a
+     * player sees never change, and headless runs opt into {@link NudgePolicy#DEFLECT} or
+     * {@link NudgePolicy#REMOVE}.
+     *
+     * @return the game's cycle detector
+     */
+    public CycleDetector getCycleDetector() {
+        return this.cycles;
+    }
+
+    /**
+     * Returns the number of blocks left.
+     *
+     * @return the number of remaining blocks
+     */
+    public int getRemainingBlocks() {
+        return this.remainingBlocks.getValue();
+    }
+
+    /**
+     * Returns the number of breakable blocks left of one color, e.g. of a ball's color, in constant time.
+     *
+     * @param colorIndex the index of the color in the game's palette
+     * @return the number of remaining blocks of that color
+     */
+    public int getRemainingBlocks(int colorIndex) {
+        return this.palette.remainingBlocks(colorIndex);
+    }
+
+    /**
+     * Returns the counter of the blocks left, for the {@link ChunkStreamer} to count in the blocks of a
+     * streamed level.
+     *
+     * @return the counter of remaining blocks
+     */
+    Counter getRemainingBlocksCounter() {
+        return this.remainingBlocks;
+    }
+
+    /**
+     * Returns the number of balls still in play.
+     *
+     * @return the number of remaining balls
+     */
+    public int getRemainingBalls() {
+        return this.remainingBalls.getValue();
+    }
+
+    /**
+     * Returns the pool lost balls are released to, so they can be reused.
+     *
+     * @return the game's ball pool
+     */
+    public BallPool getBallPool() {
+        return this.ballPool;
+    }
+
+    /**
+     * Removes a ball from the game. Balls that have an id are only marked as lost, and all the balls lost in a
+     * tick are taken out of the sprite and ball lists together at the end of it (or before the lists are
+     * next needed), so losing many balls at once costs one pass over the lists rather than one per ball.
+     *
+     * @param b the Ball to remove
+     */
+    public void removeBall(Ball b) {
+        setInPlay(b, false);
+        int id = b.getId();
+        if (id < 0) {
+            this.sprites.getSprites().remove(b);
+            this.balls.remove(b);
+            return;
+        }
+        if (id >>> 6 >= this.lostBalls.length) {
+            this.lostBalls = Arrays.copyOf(this.lostBalls, Math.max((id >>> 6) + 1, 2 * this.lostBalls.length));
+        }
+        long bit = 1L << id;
+        if ((this.lostBalls[id >>> 6] & bit) == 0) {
+            this.lostBalls[id >>> 6] |= bit;
+            this.lostCount++;
+        }
+    }
+
+    /**
+     * Takes the balls marked as lost by {@link #removeBall(Ball)} out of the sprite and ball lists, keeping
+     * the order of everything else.
+     */
+    private void dropLostBalls() {
+        if (this.lostCount == 0) {
+            return;
+        }
+        dropLost(this.balls);
+        dropLost(this.sprites.getSprites());
+        Arrays.fill(this.lostBalls, 0);
+        this.lostCount = 0;
+    }
+
+    /**
+     * Removes the balls marked as lost from a list in one pass.
+     *
+     * @param list the list to compact
+     * @param <T>  the type of the elements
+     */
+    private <T> void dropLost(List<T> list) {
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            T item = list.get(i);
+            if (item instanceof Ball && isLost((Ball) item)) {
+                continue;
+            }
+            list.set(kept++, item);
+        }
+        list.subList(kept, list.size()).clear();
+    }
+
+    /**
+     * Marks a ball as in play or not, by its id.
+     *
+     * @param b      the ball
+     * @param played whether the ball is in play
+     */
+    private void setInPlay(Ball b, boolean played) {
+        int id = b.getId();
+        if (id < 0) {
+            return;
+        }
+        if (id >>> 6 >= this.inPlay.length) {
+            this.inPlay = Arrays.copyOf(this.inPlay, Math.max((id >>> 6) + 1, 2 * this.inPlay.length));
+        }
+        if (played) {
+            this.inPlay[id >>> 6] |= 1L << id;
+        } else {
+            this.inPlay[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Checks in constant time whether a ball is in play, i.e. was added to the game and not removed since.
+     *
+     * @param b the ball, which must have an id
+     * @return {@code true} if the ball is in play
+     */
+    boolean isInPlay(Ball b) {
+        int id = b.getId();
+        return id >>> 6 < this.inPlay.length && (this.inPlay[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Checks whether a ball is marked as lost.
+     *
+     * @param b the ball
+     * @return {@code true} if the ball was removed but is still in the lists
+     */
+    private boolean isLost(Ball b) {
+        int id = b.getId();
+        return id >= 0 && id >>> 6 < this.lostBalls.length && (this.lostBalls[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Opens the game window and initializes the game with the window's keyboard controlling the paddle,
+     * or an {@link AutopilotSensor} if the autopilot is on.
+     *
+     * @see #initialize(KeyboardSensor)
+     * @see #setAutopilot(boolean)
+     */
+    public void initialize() {
+        this.gui = new GUI("Ass5Game", this.world.getWindowWidth(), this.world.getWindowHeight());
+        initialize(this.autopilot ? new AutopilotSensor(this) : this.gui.getKeyboardSensor());
+    }
+
+    /**
+     * Sets the level the game is played on. Must be called before {@link #initialize()}; the default is
+     * {@link LevelDefinition#spiral()}.
+     *
+     * @param definition the level to play
+     */
+    public void setLevel(LevelDefinition definition) {
+        this.level = definition;
+    }
+
+    /**
+     * Sets the playing field and the render scale. Must be called before {@link #initialize()}; the default is
+     * {@link WorldConfig#STANDARD}.
+     *
+     * @param config the world configuration
+     */
+    public void setWorld(WorldConfig config) {
+        this.world = config;
+    }
+
+    /**
+     * Returns the playing field and the render scale of the game.
+     *
+     * @return the world configuration
+     */
+    public WorldConfig getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Lets the game play itself: {@link #initialize()} gives the paddle an {@link AutopilotSensor} instead of
+     * the window's keyboard. Must be called before {@link #initialize()}.
+     *
+     * @param on {@code true} to play the game with the autopilot
+     */
+    public void setAutopilot(boolean on) {
+        this.autopilot = on;
+    }
+
+    /**
+     * Sets whether broken blocks drop power-up capsules. A game that is rolled back with
+     * {@link #restoreState(GameState)} must be played without them. Must be called before the game is
+     * initialized.
+     *
+     * @param on {@code false} to play the game without power-ups
+     */
+    public void setPowerUps(boolean on) {
+        this.powerUpsOn = on;
+    }
+
+    /**
+     * Sets whether broken blocks burst into particles. Particles are only drawn and do not change the
+     * simulation, so headless games that are never drawn can leave them out and skip allocating the particle
+     * system. Must be called before the game is initialized.
+     *
+     * @param on {@code false} to play the game without particles
+     */
+    public void setCosmetics(boolean on) {
+        this.cosmetics = on;
+    }
+
     /**
      * Initializes the game by creating all game objects: balls, blocks, paddle, and borders.
      * Adds them to the game so they will be drawn and take part in collisions.
+     * No window is needed, so this also sets up headless games.
      *
      * <p>The setup includes:
      * <ul>
-     *   <li>Two black balls with velocity (5, 5)</li>
-     *   <li>Four border blocks around the screen edges</li>
+     *   <li>The black balls of the level, at their start positions and velocities</li>
+     *   <li>Walls on three sides of the field and the death zone along the bottom, as the
+     *   {@link WorldConfig} defines them</li>
      *   <li>A player-controlled paddle</li>
-     *   <li>Multiple rows of colored blocks arranged in decreasing count per row</li>
+     *   <li>The colored blocks of the level (the spiral unless {@link #setLevel(LevelDefinition)} chose
+     *   another), packed into a single {@link BlockGrid}</li>
+     *   <li>Particle bursts (unless {@link #setCosmetics(boolean)} turned them off) and multi-ball capsules
+     *   dropped by broken blocks</li>
      * </ul>
+     *
+     * @param keyboard the sensor the paddle reads its input from
      */
-    public void initialize() {
-        this.gui = new GUI("Ass5Game", 800, 600);
-
-        //2 balls
-        Ball ball1 = new Ball(400, 500, 5, Color.black, this.environment);
-        ball1.setVelocity(3, 3);
-        ball1.addToGame(this);
-        this.remainingBalls.increase(1);
-        Ball ball2 = new Ball(350, 500, 5, Color.black, this.environment);
-        ball2.setVelocity(3, 3);
-        this.remainingBalls.increase(1);
-        ball2.addToGame(this);
-        Ball ball3 = new Ball(450, 500, 5, Color.black, this.environment);
-        ball3.setVelocity(3, 3);
-        this.remainingBalls.increase(1);
-        ball3.addToGame(this);
+    public void initialize(KeyboardSensor keyboard) {
+        //balls
+        int black = this.palette.indexOf(Color.black);
+        for (int i = 0; i < this.level.getBallCount(); i++) {
+            spawnBall(this.level.getBallX(i), this.level.getBallY(i), 5, black, this.level.getBallDx(i),
+                    this.level.getBallDy(i));
+        }
 
         //borders
-        Color brown = new Color(40, 46, 60);
-        Block b1 = new Block(new Rectangle(new Point(0, 0), 25, 600), brown, 2);
-        Block b2 = new Block(new Rectangle(new Point(0, 0), 800, 25), brown, 1);
-        Block b3 = new Block(new Rectangle(new Point(775, 0), 25, 600), brown, 2);
+        WorldConfig w = this.world;
+        int brown = this.palette.indexOf(new Color(40, 46, 60));
+        Block b1 = new Block(new Rectangle(new Point(0, 0), w.getBorder(), w.getHeight()), this.palette, brown, 2);
+        Block b2 = new Block(new Rectangle(new Point(0, 0), w.getWidth(), w.getBorder()), this.palette, brown, 1);
+        Block b3 = new Block(new Rectangle(new Point(w.getRightWall(), 0), w.getBorder(), w.getHeight()),
+                this.palette, brown, 2);
         b1.addToGame(this);
         b2.addToGame(this);
         b3.addToGame(this);
+        this.scenery.add(b1);
+        this.scenery.add(b2);
+        this.scenery.add(b3);
 
         //death zone
-        Block doom = new Block(new Rectangle(new Point(0, 575), 800, 25), Color.lightGray, 1);
+        Block doom = new Block(new Rectangle(new Point(0, w.getDeathZoneY()), w.getWidth(), w.getBorder()),
+                this.palette, this.palette.indexOf(Color.lightGray), 1);
         doom.addHitListener(new BallRemover(this, remainingBalls));
         doom.addToGame(this);
+        this.scenery.add(doom);
 
         //score
         ScoreTrackingListener scoreTracking = new ScoreTrackingListener(this.score);
-        ScoreIndicator scoreIndicator = new ScoreIndicator(this.score);
-        scoreIndicator.addToGame(this);
+        this.scoreIndicator = new ScoreIndicator(this.score);
+        this.scoreIndicator.addToGame(this);
 
         //paddle
-        biuoop.KeyboardSensor keyboard = gui.getKeyboardSensor();
-        Paddle paddle = new Paddle(keyboard, new Rectangle(new Point(370, 560),
-                125, 30), new Color(152, 136, 41), 7);
-        paddle.addToGame(this);
-
-        HitListener blockRemover = new BlockRemover(this, remainingBlocks);
-        //blocks
-        ArrayList<Color> colors = new ArrayList<>();
-        colors.add(new Color(57, 53, 88));
-        colors.add(new Color(100, 102, 159));
-        colors.add(new Color(255, 204, 138));
-        colors.add(new Color(255, 159, 128));
-        colors.add(new Color(230, 135, 124));
-        colors.add(new Color(211, 118, 132));
-
-        /*int heightB = 50;
-        for (int i = 12; i > 6; i--) {
-            //Color c = new Color(255 - 15 * i, 255 - 19 * i, 3 * i);
-            Color c = colors.get(12 - i);
-            for (int j = 0; j < 10; j++) {
-                Block b = new Block(new Rectangle(new Point(715 - j * 75, heightB),
-                        50, 25), c);
-                b.addHitListener(blockRemover);
-                b.addHitListener(scoreTracking);
-                b.addToGame(this);
-                this.remainingBlocks.increase(1);
-            }
-            heightB += 40;
-        }*/
-
-        int blockWidth = 50;
-        int blockHeight = 25;
-        int spacingX = 75;
-        int spacingY = 35;
-        int startX = 25; // (10 blocks × 75 = 750; (800 - 750)/2 = 25)
-        int startY = 50;
-
-        boolean[][] spiral = {
-                {true, true, true, true, true, true, true, true, true, true},   // Row 0
-                {true, false, false, false, false, false, false, false, false, true},
-                {true, false, true, true, true, true, true, false, false, true},
-                {true, false, true, false, false, false, true, false, false, true},
-                {true, false, true, false, true, true, true, false, false, true},
-                {true, false, true, false, true, false, false, false, false, true},
-                {true, false, true, true, true, true, true, true, false, true},
-                {true, true, true, true, true, true, true, true, true, true}
-        };
-
-        for (int i = 0; i < spiral.length; i++) {
-            Color c = colors.get(i % colors.size()); // cycle through colors
-            for (int j = 0; j < spiral[i].length; j++) {
-                if (!spiral[i][j]) {
+        // the paddle starts a little left of the middle, just above the death zone
+        this.paddle = new Paddle(keyboard, new Rectangle(new Point(w.getWidth() / 2 - 30, w.getDeathZoneY() - 15),
+                PADDLE_WIDTH, 30), new Color(152, 136, 41), 7, w.getWidth());
+        this.paddle.addToGame(this);
+        this.paddles.add(this.paddle);
+        this.restorePaddle = handle -> this.paddle.setWidth(PADDLE_WIDTH);
+
+        BlockRemover blockRemover = new BlockRemover(this, remainingBlocks);
+        //blocks, packed into a single BlockGrid
+        LevelDefinition l = this.level;
+        this.grid = new BlockGrid(l.getOriginX(), l.getOriginY(), l.getColumns(), l.getRows(), l.getPitchX(),
+                l.getPitchY(), l.getBlockWidth(), l.getBlockHeight(), this.palette);
+        for (int i = 0; i < l.getRows(); i++) {
+            for (int j = 0; j < l.getColumns(); j++) {
+                if (l.getCell(i, j) == LevelDefinition.EMPTY) {
                     continue;
                 }
-
-                int x = startX + j * spacingX;
-                int y = startY + i * spacingY;
-
-                Block b = new Block(new Rectangle(new Point(x, y), blockWidth, blockHeight), c);
-                b.addHitListener(blockRemover);
-                b.addHitListener(scoreTracking);
-                b.addToGame(this);
+                int c = this.palette.indexOf(new Color(l.getCell(i, j)));
+                if (l.isSolid(i, j)) {
+                    // solid blocks never break, so they are not counted
+                    this.grid.setSolidCell(i, j, c);
+                    continue;
+                }
+                this.grid.setCell(i, j, c);
                 this.remainingBlocks.increase(1);
+                this.palette.blockAdded(c);
             }
         }
+        this.grid.addCellHitListener(blockRemover);
+        this.grid.addCellHitListener(scoreTracking);
+        this.grid.addToGame(this);
+
+        //block-break particles
+        if (this.cosmetics) {
+            this.particles = new ParticleSystem(32768, this.palette, 42);
+            this.grid.addCellHitListener(new ParticleBurstListener(this.particles, 24));
+            this.particles.addToGame(this);
+        }
+
+        //multi-ball power-ups
+        this.powerUps = new PowerUpField(this, this.paddle, w.getDeathZoneY(), 64);
+        if (this.powerUpsOn) {
+            this.drops = new PowerUpDropListener(this.powerUps, 0.15, 7);
+            this.grid.addCellHitListener(this.drops);
+        }
+        this.powerUps.addToGame(this);
+
+        // what reset() goes back to
+        this.start = new GameState();
+        saveState(this.start);
+    }
+
+    /**
+     * Starts the game over in place, as it was right after it was initialized, without allocating a new one.
+     * Must not be called while a tick is being simulated. Falling capsules, a timed paddle widening and
+     * particles are removed, and the random power-up drops start their sequence over, so the game plays out
+     * just like a new one would.
+     */
+    public void reset() {
+        if (this.start == null) {
+            throw new IllegalStateException("the game was not initialized");
+        }
+        getTimers().cancel(this.paddleRestore);
+        this.paddleRestore = -1;
+        this.powerUps.clear();
+        if (this.drops != null) {
+            this.drops.reset();
+        }
+        if (this.particles != null) {
+            this.particles.clear();
+        }
+        restoreState(this.start);
+    }
+
+    /**
+     * Advances the simulation by one tick: all sprites are notified that time has passed, then
+     * the hits recorded during the tick are dispatched to their listeners, and finally the balls found
+     * stuck in a bounce cycle are handled.
+     */
+    public void tick() {
+        if (this.telemetry != null) {
+            this.telemetry.setTick(this.hitEvents.getTick());
+        }
+        dropLostBalls();
+        this.sprites.notifyAllTimePassed();
+        this.hitEvents.endTick();
+        // after the hits, so a ball that fell into the death zone is not also handled as stuck
+        this.cycles.endTick();
+        dropLostBalls();
+    }
+
+    /**
+     * Checks whether the game is over, either because all blocks were removed or because all balls were lost.
+     *
+     * @return {@code true} if the game is over
+     */
+    public boolean isOver() {
+        return this.remainingBlocks.getValue() == 0 || this.remainingBalls.getValue() == 0;
+    }
+
+    /**
+     * Draws the current state of the game: the background followed by all sprites.
+     *
+     * @param d the surface to draw on
+     */
+    public void drawFrame(DrawSurface d) {
+        //d.setColor(new Color(80, 92, 124));
+        //d.fillRectangle(0, 0, 800, 600);
+        if (this.background == null) {
+            // scaled once to cover the field, if it is larger than the image covers
+            Image img = Textures.get(Textures.BACKGROUND);
+            int width = img.getWidth(null);
+            int height = img.getHeight(null);
+            double scale = this.world.getBackgroundScale(width, height);
+            this.background = scale == 1 ? img : ScaledDrawSurface.resample(img, scale);
+            this.backgroundX = this.world.getBackgroundX(width, height);
+            this.backgroundY = this.world.getBackgroundY(width, height);
+        }
+        d.drawImage(this.backgroundX, this.backgroundY, this.background);
+        dropLostBalls();
+        this.sprites.drawAllOn(d);
+    }
+
+    /**
+     * Copies the state the render thread needs into a snapshot.
+     *
+     * @param snapshot the snapshot to fill
+     */
+    public void writeSnapshot(WorldSnapshot snapshot) {
+        dropLostBalls();
+        snapshot.begin(this.hitEvents.getTick(), this.score.getValue(), isOver());
+        for (int i = 0; i < this.balls.size(); i++) {
+            Ball b = this.balls.get(i);
+            snapshot.addBall(b.getCenter().getX(), b.getCenter().getY(), b.getPreviousCenter().getX(),
+                    b.getPreviousCenter().getY(), b.getSize(), b.getColorIndex());
+        }
+        Rectangle rect = this.paddle.getCollisionRectangle();
+        snapshot.setPaddle(rect.getUpperLeft().getX(), this.paddle.getPreviousX(), rect.getUpperLeft().getY(),
+                rect.getWidth(), rect.getHeight());
+        this.grid.copyLiveCells(snapshot.liveCellsBuffer(this.grid.getLiveCellWords()));
+        if (this.particles != null) {
+            this.particles.writeTo(snapshot);
+        }
+        this.powerUps.writeTo(snapshot);
+    }
+
+    /**
+     * Saves the state of the simulation between two ticks, so it can later be restored with
+     * {@link #restoreState(GameState)}. Nothing is allocated once the state's arrays are large enough.
+     *
+     * @param state the state to save into
+     */
+    public void saveState(GameState state) {
+        dropLostBalls();
+        state.tick = this.hitEvents.getTick();
+        state.score = this.score.getValue();
+        state.remainingBlocks = this.remainingBlocks.getValue();
+        state.remainingBalls = this.remainingBalls.getValue();
+        List<Sprite> all = this.sprites.getSprites();
+        state.sprites.clear();
+        for (int i = 0; i < all.size(); i++) {
+            state.sprites.add(all.get(i));
+        }
+        state.balls.clear();
+        state.ensureBalls(this.balls.size());
+        for (int i = 0; i < this.balls.size(); i++) {
+            Ball b = this.balls.get(i);
+            state.balls.add(b);
+            state.ballState[4 * i] = b.getCenter().getX();
+            state.ballState[4 * i + 1] = b.getCenter().getY();
+            state.ballState[4 * i + 2] = b.getVelocity().getDx();
+            state.ballState[4 * i + 3] = b.getVelocity().getDy();
+            state.ballLooks[2 * i] = b.getSize();
+            state.ballLooks[2 * i + 1] = b.getColorIndex();
+        }
+        this.ballPool.saveFree(state.free);
+        if (state.paddleState.length != 2 * this.paddles.size()) {
+            state.paddleState = new double[2 * this.paddles.size()];
+        }
+        for (int i = 0; i < this.paddles.size(); i++) {
+            Rectangle r = this.paddles.get(i).getCollisionRectangle();
+            state.paddleState[2 * i] = r.getUpperLeft().getX();
+            state.paddleState[2 * i + 1] = r.getWidth();
+        }
+        if (state.cells.length != this.grid.getLiveCellWords()) {
+            state.cells = new long[this.grid.getLiveCellWords()];
+        }
+        this.grid.copyLiveCells(state.cells);
+        this.cycles.save(state);
+    }
+
+    /**
+     * Puts the simulation back to a state saved with {@link #saveState(GameState)}. The next tick simulated
+     * is the tick the state was saved before. Balls and paddles are not interpolated from where they were.
+     *
+     * @param state the saved state
+     */
+    public void restoreState(GameState state) {
+        // the lists are replaced as a whole
+        Arrays.fill(this.lostBalls, 0);
+        this.lostCount = 0;
+        Arrays.fill(this.inPlay, 0);
+        this.hitEvents.rewind(state.tick);
+        this.score.setValue(state.score);
+        this.remainingBlocks.setValue(state.remainingBlocks);
+        this.remainingBalls.setValue(state.remainingBalls);
+        List<Sprite> all = this.sprites.getSprites();
+        all.clear();
+        for (int i = 0; i < state.sprites.size(); i++) {
+            all.add(state.sprites.get(i));
+        }
+        this.balls.clear();
+        for (int i = 0; i < state.balls.size(); i++) {
+            Ball b = state.balls.get(i);
+            b.reset(state.ballState[4 * i], state.ballState[4 * i + 1], state.ballLooks[2 * i],
+                    state.ballLooks[2 * i + 1], state.ballState[4 * i + 2], state.ballState[4 * i + 3]);
+            this.balls.add(b);
+            setInPlay(b, true);
+        }
+        this.ballPool.restoreFree(state.free);
+        for (int i = 0; i < this.paddles.size(); i++) {
+            Paddle p = this.paddles.get(i);
+            p.setWidth(state.paddleState[2 * i + 1]);
+            p.setX(state.paddleState[2 * i]);
+        }
+        this.grid.restoreLiveCells(state.cells);
+        this.cycles.restore(state);
     }
 
     /**
-     * Runs the game loop: repeatedly draws all sprites and updates their state.
+     * Runs the game until it is over.
      *
-     * <p>The loop runs at a fixed frame rate of 60 frames per second. In each frame:
+     * <p>The simulation runs on its own thread at a fixed rate (60 ticks per second unless changed with
+     * {@link #setTickRate(int)}). After every tick it publishes a {@link WorldSnapshot} through a lock-free
+     * triple buffer. The calling thread renders the latest snapshot at up to 60 frames per second:
      * <ul>
-     *   <li>The background is drawn</li>
-     *   <li>All sprites are drawn onto the surface</li>
+     *   <li>The background and the scenery are drawn</li>
+     *   <li>The blocks, balls, paddle and score of the snapshot are drawn onto the surface, with the moving
+     *   objects interpolated between the last two ticks by how far the frame is into the current tick</li>
      *   <li>The surface is shown on the GUI</li>
-     *   <li>All sprites are notified that time has passed</li>
      * </ul>
-     * The method uses {@code Sleeper} to ensure consistent frame timing.
+     * A slow frame therefore never delays the physics, and the simulation never waits for the renderer.
+     * If a {@link FrameRecorder} is attached, every frame is rendered into a {@link RasterDrawSurface},
+     * recorded, and then copied onto the window.
+     * The method uses {@code Sleeper} to pace both loops.
+     *
+     * @throws RuntimeException if a tick of the simulation failed; the window is closed and the failure of the
+     *                          simulation thread is rethrown
      */
     public void run() {
-        Sleeper sleeper = new Sleeper();
+        TripleBuffer<WorldSnapshot> snapshots = new TripleBuffer<>(new WorldSnapshot(), new WorldSnapshot(),
+                new WorldSnapshot());
+        writeSnapshot(snapshots.writeBuffer());
+        snapshots.writeBuffer().setPublishedNanos(System.nanoTime());
+        snapshots.publish();
 
+        // the renderer copies the grid's cells, so it must be built before the simulation changes them
+        SnapshotRenderer renderer = new SnapshotRenderer(
+                Textures.get(Textures.BACKGROUND), this.scenery, this.grid,
+                this.paddle, this.scoreIndicator, this.palette, this.world);
+        Thread simulation = new Thread(() -> simulate(snapshots), "simulation");
+        simulation.start();
+        Sleeper sleeper = new Sleeper();
         int framesPerSecond = 60;
         int millisecondsPerFrame = 1000 / framesPerSecond;
+        double nanosPerTick = 1_000_000_000.0 / this.ticksPerSecond;
+        RasterDrawSurface raster = this.recorder != null
+                ? new RasterDrawSurface(this.world.getWindowWidth(), this.world.getWindowHeight()) : null;
+        // sprites draw in logical units, which are scaled to window pixels unless they are the same
+        ScaledDrawSurface scaled = this.world.getRenderScale() != 1
+                ? new ScaledDrawSurface(raster, this.world.getRenderScale()) : null;
         while (true) {
             long startTime = System.currentTimeMillis(); // timing
 
-            DrawSurface d = gui.getDrawSurface();
-            //d.setColor(new Color(80, 92, 124));
-            //d.fillRectangle(0, 0, 800, 600);
-            Image img = Toolkit.getDefaultToolkit().getImage("assets/air_temple.jpg");
-            d.drawImage(-200, -20, img);
-            this.sprites.drawAllOn(d);
-            gui.show(d);
-            this.sprites.notifyAllTimePassed();
+            WorldSnapshot snapshot = snapshots.readLatest();
+            DrawSurface window = gui.getDrawSurface();
+            // with a recorder, render into the raster first, so the very pixels that are recorded are also shown
+            DrawSurface d = this.recorder != null ? raster : window;
+            if (scaled != null) {
+                scaled.setTarget(d);
+                d = scaled;
+            }
+            // the time since the snapshot was published is the accumulator of a fixed-step loop:
+            // alpha is the fraction of the next tick that has already elapsed
+            double alpha = (System.nanoTime() - snapshot.getPublishedNanos()) / nanosPerTick;
+            renderer.draw(d, snapshot, Math.max(0, Math.min(1, alpha)));
+            if (this.recorder != null) {
+                this.recorder.record(raster.getPixels(), snapshot.getTick());
+                window.drawImage(0, 0, raster.getImage());
+            }
+            gui.show(window);
+            if (snapshot.isFinished()) {
+                break;
+            }
 
             // timing
             long usedTime = System.currentTimeMillis() - startTime;
@@ -218,17 +902,168 @@ public class Game {
             if (milliSecondLeftToSleep > 0) {
                 sleeper.sleepFor(milliSecondLeftToSleep);
             }
+        }
 
-            if (this.remainingBlocks.getValue() == 0 || this.remainingBalls.getValue() == 0) {
-                if (this.remainingBlocks.getValue() == 0) {
-                    this.score.increase(100);
-                    System.out.println("You Win!\nYour score is: " + score.getValue());
-                } else {
-                    System.out.println("Game Over.\nYour score is: " + score.getValue());
+        try {
+            simulation.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.simulationFailure != null) {
+            gui.close();
+            if (this.simulationFailure instanceof Error) {
+                throw (Error) this.simulationFailure;
+            }
+            throw (RuntimeException) this.simulationFailure;
+        }
+        if (this.remainingBlocks.getValue() == 0) {
+            System.out.println("You Win!\nYour score is: " + score.getValue());
+        } else {
+            System.out.println("Game Over.\nYour score is: " + score.getValue());
+        }
+        gui.close();
+    }
+
+    /**
+     * The body of the simulation thread: ticks at a fixed rate until the game is over, publishing a snapshot
+     * after every tick. If it falls behind, it catches up by ticking without sleeping.
+     *
+     * <p>
+     * If a tick fails, the failure is kept for {@link #run()} to rethrow, and a finished snapshot without
+     * balls is published, so the render loop stops instead of waiting for a game that will never end.
+     * </p>
+     *
+     * @param snapshots the triple buffer to publish the snapshots through
+     */
+    private void simulate(TripleBuffer<WorldSnapshot> snapshots) {
+        Sleeper sleeper = new Sleeper();
+        long nanosPerTick = 1_000_000_000L / this.ticksPerSecond;
+        long nextTick = System.nanoTime();
+        try {
+            while (true) {
+                tick();
+                if (isOver()) {
+                    endGame();
+                }
+                WorldSnapshot snapshot = snapshots.writeBuffer();
+                writeSnapshot(snapshot);
+                snapshot.setPublishedNanos(System.nanoTime());
+                snapshots.publish();
+                if (isOver()) {
+                    return;
+                }
+
+                nextTick += nanosPerTick;
+                long milliSecondLeftToSleep = (nextTick - System.nanoTime()) / 1_000_000L;
+                if (milliSecondLeftToSleep > 0) {
+                    sleeper.sleepFor(milliSecondLeftToSleep);
                 }
-                gui.close();
-                return;
             }
+        } catch (RuntimeException | Error e) {
+            this.simulationFailure = e;
+            WorldSnapshot snapshot = snapshots.writeBuffer();
+            snapshot.begin(this.hitEvents.getTick(), this.score.getValue(), true);
+            snapshot.setPublishedNanos(System.nanoTime());
+            snapshots.publish();
+        }
+    }
+
+    /**
+     * Applies the end-of-game rules: clearing all blocks is worth 100 extra points.
+     */
+    public void endGame() {
+        if (this.remainingBlocks.getValue() == 0) {
+            this.score.increase(100);
+            publishEvent(EventType.LEVEL_CLEAR, -1, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the buffer that collects the hits of the current tick until they are dispatched.
+     *
+     * @return the game's hit event buffer
+     */
+    public HitEventBuffer getHitEvents() {
+        return this.hitEvents;
+    }
+
+    /**
+     * Attaches an event pipeline to the game. Hits, lost balls and cleared levels are published to it,
+     * so its consumers can process them on their own threads. The caller owns the pipeline and is
+     * responsible for starting and shutting it down.
+     *
+     * @param pipeline the pipeline to publish the game's events to
+     */
+    public void attachEventPipeline(EventPipeline pipeline) {
+        this.events = pipeline;
+        this.hitEvents.setPipeline(pipeline);
+    }
+
+    /**
+     * Sets the rate the physics is simulated at by {@link #run()}. The display rate stays at 60 frames per
+     * second, and the renderer interpolates the moving objects between ticks. Since velocities are given
+     * per tick, a lower tick rate also makes the game run slower.
+     *
+     * @param ticks the number of ticks per second
+     */
+    public void setTickRate(int ticks) {
+        if (ticks <= 0) {
+            throw new IllegalArgumentException("tick rate must be positive: " + ticks);
+        }
+        this.ticksPerSecond = ticks;
+    }
+
+    /**
+     * Attaches a recorder that every frame drawn by {@link #run()} is recorded to. The caller owns the
+     * recorder and is responsible for closing it.
+     *
+     * @param frameRecorder the recorder for frames of the window's size, or {@code null} to stop recording
+     */
+    public void attachFrameRecorder(FrameRecorder frameRecorder) {
+        this.recorder = frameRecorder;
+    }
+
+    /**
+     * Returns the level-wide palette that blocks and balls take their color indices from.
+     *
+     * @return the game's palette
+     */
+    public Palette getPalette() {
+        return this.palette;
+    }
+
+    /**
+     * Attaches a telemetry recorder to the game. Must be called before {@link #initialize()}, since balls and
+     * blocks pick up the recorder when they are added to the game. The caller owns the recorder and is
+     * responsible for closing it.
+     *
+     * @param recorder the recorder that collects hit counts, the heatmap and ball trajectories
+     */
+    public void attachTelemetry(TelemetryRecorder recorder) {
+        this.telemetry = recorder;
+    }
+
+    /**
+     * Returns the telemetry recorder attached to the game.
+     *
+     * @return the telemetry recorder, or {@code null} if none is attached
+     */
+    public TelemetryRecorder getTelemetry() {
+        return this.telemetry;
+    }
+
+    /**
+     * Publishes an event of the current tick to the attached event pipeline, if there is one.
+     *
+     * @param type    the type of the event
+     * @param blockId the id of the block involved, or -1
+     * @param ballId  the id of the ball involved, or -1
+     * @param x       the x-coordinate where the event happened
+     * @param y       the y-coordinate where the event happened
+     */
+    public void publishEvent(EventType type, int blockId, int ballId, double x, double y) {
+        if (this.events != null) {
+            this.events.publish(type, blockId, ballId, this.hitEvents.getTick(), x, y);
         }
     }
 
@@ -44,9 +44,9 @@ public class GameEnvironment {
         CollisionInfo closestCollision = null;
         double closestDistance = Double.MAX_VALUE;
 
-        List<Collidable> collidables2 = new ArrayList<>(this.collidables);
-        for (Collidable c : collidables2) {
-            Point intersection = trajectory.closestIntersectionToStartOfLine(c.getCollisionRectangle());
+        for (int i = 0; i < this.collidables.size(); i++) {
+            Collidable c = this.collidables.get(i);
+            Point intersection = c.closestIntersection(trajectory);
 
             if (intersection != null) {
                 double distance = trajectory.start().distance(intersection);
@@ -0,0 +1,93 @@
+package game;
+
+import sprites.Ball;
+import sprites.Sprite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@code GameState} is a copy of everything a tick of a {@link Game} depends on, so the game can be put back
+ * to the moment it was saved and simulated again from there, e.g. to roll back a wrongly predicted input.
+ *
+ * <p>
+ * The state is saved with {@link Game#saveState(GameState)} and restored with
+ * {@link Game#restoreState(GameState)}. It holds the tick, the counters, the order of the sprites, the balls
+ * in play and in the pool with the position and velocity of each, the paddles, the live cells, and the
+ * cycle detector. Power-up capsules, timed effects and particles are not part of it, so a game that is
+ * rolled back must be played without power-ups; particles are only drawn and do not change the simulation.
+ * </p>
+ *
+ * <p>
+ * A state is meant to be reused: saving over it only grows its arrays, so a ring of states saved every tick
+ * allocates nothing once the number of balls stops growing.
+ * </p>
+ */
+public class GameState {
+    private static final int BALL_FIELDS = 4;
+
+    long tick = -1;
+    int score;
+    int remainingBlocks;
+    int remainingBalls;
+    final List<Sprite> sprites = new ArrayList<>();
+    final List<Ball> balls = new ArrayList<>();
+    final List<Ball> free = new ArrayList<>();
+    double[] ballState = new double[16 * BALL_FIELDS];
+    int[] ballLooks = new int[16 * 2];
+    double[] paddleState = new double[4];
+    long[] cells = new long[0];
+
+    long[] cycleTortoises = new long[0];
+    int[] cyclePowers = new int[0];
+    int[] cycleLengths = new int[0];
+    int[] cyclePeriods = new int[0];
+    int[] cycleRepeats = new int[0];
+    long cycleDetections;
+    long cycleLastDetection;
+    long cycleSeed;
+
+    /**
+     * Returns the tick that is simulated next from this state.
+     *
+     * @return the tick, or -1 if nothing was saved yet
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Makes room for the per-ball fields of a number of balls.
+     *
+     * @param count the number of balls
+     */
+    void ensureBalls(int count) {
+        if (this.ballLooks.length < 2 * count) {
+            this.ballState = new double[Math.max(2 * this.ballState.length, count * BALL_FIELDS)];
+            this.ballLooks = new int[this.ballState.length / BALL_FIELDS * 2];
+        }
+    }
+
+    /**
+     * Returns a checksum of the state, for comparing the states of two peers that should be in sync.
+     *
+     * @return a 64-bit hash of the tick, the counters, the balls, the paddles and the live cells
+     */
+    public long checksum() {
+        long h = Xorshift.mix(this.tick);
+        h = Xorshift.mix(h * 31 + this.score);
+        h = Xorshift.mix(h * 31 + this.remainingBlocks);
+        h = Xorshift.mix(h * 31 + this.remainingBalls);
+        h = Xorshift.mix(h * 31 + this.balls.size());
+        for (int i = 0; i < this.balls.size() * BALL_FIELDS; i++) {
+            h = Xorshift.mix(h * 31 + Double.doubleToLongBits(this.ballState[i]));
+        }
+        for (double v : this.paddleState) {
+            h = Xorshift.mix(h * 31 + Double.doubleToLongBits(v));
+        }
+        for (long word : this.cells) {
+            h = Xorshift.mix(h * 31 + word);
+        }
+        return h;
+    }
+}
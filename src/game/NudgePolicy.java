@@ -0,0 +1,19 @@
+package game;
+
+/**
+ * What a {@link CycleDetector} does with a ball it finds stuck in a bounce cycle.
+ */
+public enum NudgePolicy {
+    /**
+     * The ball is left alone; only a {@link events.EventType#BALL_STUCK} event is published.
+     */
+    NONE,
+    /**
+     * The ball's direction is turned by a small random angle, which breaks the cycle.
+     */
+    DEFLECT,
+    /**
+     * The ball is taken out of play, as if it had been lost.
+     */
+    REMOVE
+}
@@ -0,0 +1,267 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A {@code TimingWheel} schedules callbacks a number of ticks into the future, for timed effects such as
+ * power-up expiry or respawn timers.
+ *
+ * <p>
+ * It is a hierarchical timing wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots each, where a slot of
+ * the first wheel covers one tick and a slot of every further wheel covers a whole turn of the wheel below
+ * it. A timer goes into the lowest wheel whose range its deadline falls into. Advancing one tick only looks
+ * at the current slot of the first wheel; whenever a wheel completes a turn, the timers of the next slot of
+ * the wheel above are moved down ("cascaded") to finer slots. Scheduling and cancelling are O(1), and
+ * advancing is amortised O(1) per timer, no matter how many timers are pending.
+ * </p>
+ *
+ * <p>
+ * Timers are not objects: each is a slot in parallel arrays, linked into its wheel slot through
+ * {@code int} next/previous indices (an intrusive doubly-linked list), and freed slots are recycled
+ * through a free list. The arrays only grow, by doubling, when more timers are pending than ever before,
+ * so advancing the wheel never allocates. A handle returned by {@link #schedule(int, Callback)} carries
+ * a generation, so cancelling a timer that already fired or was cancelled is a harmless no-op.
+ * </p>
+ */
+public class TimingWheel {
+    /**
+     * The number of wheels.
+     */
+    public static final int LEVELS = 4;
+    /**
+     * The number of slots of each wheel.
+     */
+    public static final int SLOTS = 64;
+    /**
+     * The longest delay that can be scheduled, in ticks.
+     */
+    public static final int MAX_DELAY = (1 << (6 * LEVELS)) - 1;
+
+    private static final int SHIFT = 6;
+    private static final int MASK = SLOTS - 1;
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int NONE = -1;
+
+    /**
+     * A callback that runs when its timer expires.
+     */
+    public interface Callback {
+        /**
+         * Called on the tick the timer was scheduled for.
+         *
+         * @param handle the handle of the timer that expired
+         */
+        void expired(int handle);
+    }
+
+    private final int[] heads;
+    private long[] deadlines;
+    private int[] next;
+    private int[] prev;
+    private int[] buckets;
+    private int[] generations;
+    private Callback[] callbacks;
+    private int free;
+    private int pending;
+    private long now;
+
+    /**
+     * Constructs an empty {@code TimingWheel} with room for 256 timers before it has to grow.
+     */
+    public TimingWheel() {
+        this(256);
+    }
+
+    /**
+     * Constructs an empty {@code TimingWheel}.
+     *
+     * @param capacity the number of pending timers the wheel can hold before it has to grow
+     */
+    public TimingWheel(int capacity) {
+        this.heads = new int[LEVELS * SLOTS];
+        Arrays.fill(this.heads, NONE);
+        this.deadlines = new long[0];
+        this.next = new int[0];
+        this.prev = new int[0];
+        this.buckets = new int[0];
+        this.generations = new int[0];
+        this.callbacks = new Callback[0];
+        this.free = NONE;
+        grow(Math.max(1, capacity));
+    }
+
+    /**
+     * Schedules a callback to run after the given number of ticks.
+     *
+     * @param delay    the number of ticks from now, between 1 and {@link #MAX_DELAY}
+     * @param callback the callback to run
+     * @return the handle of the timer, for {@link #cancel(int)}
+     */
+    public int schedule(int delay, Callback callback) {
+        if (delay < 1 || delay > MAX_DELAY) {
+            throw new IllegalArgumentException("delay must be between 1 and " + MAX_DELAY + ": " + delay);
+        }
+        if (this.free == NONE) {
+            grow(this.deadlines.length * 2);
+        }
+        int timer = this.free;
+        this.free = this.next[timer];
+        this.deadlines[timer] = this.now + delay;
+        this.callbacks[timer] = callback;
+        insert(timer);
+        this.pending++;
+        return (this.generations[timer] << INDEX_BITS) | timer;
+    }
+
+    /**
+     * Cancels a pending timer. Cancelling a timer that already expired or was cancelled does nothing.
+     *
+     * @param handle the handle returned by {@link #schedule(int, Callback)}
+     * @return {@code true} if the timer was pending and is now cancelled
+     */
+    public boolean cancel(int handle) {
+        int timer = handle & INDEX_MASK;
+        if (timer >= this.deadlines.length || this.buckets[timer] == NONE
+                || this.generations[timer] != handle >>> INDEX_BITS) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        return true;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs the callbacks of the timers that expire on it, in no
+     * particular order. Callbacks may schedule and cancel timers.
+     */
+    public void advance() {
+        this.now++;
+        // cascade from the coarsest wheel down, so timers end up in the first wheel in time to expire
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((this.now & ((1L << (SHIFT * level)) - 1)) == 0) {
+                cascade(level * SLOTS + (int) ((this.now >>> (SHIFT * level)) & MASK));
+            }
+        }
+        int bucket = (int) (this.now & MASK);
+        while (this.heads[bucket] != NONE) {
+            int timer = this.heads[bucket];
+            int handle = (this.generations[timer] << INDEX_BITS) | timer;
+            Callback callback = this.callbacks[timer];
+            unlink(timer);
+            release(timer);
+            callback.expired(handle);
+        }
+    }
+
+    /**
+     * Returns the number of ticks the wheel has advanced.
+     *
+     * @return the current tick
+     */
+    public long getTick() {
+        return this.now;
+    }
+
+    /**
+     * Returns the number of pending timers.
+     *
+     * @return the number of timers that have neither expired nor been cancelled
+     */
+    public int getPendingCount() {
+        return this.pending;
+    }
+
+    /**
+     * Moves every timer of a slot into the slot its remaining delay now belongs to.
+     *
+     * @param bucket the index of the slot
+     */
+    private void cascade(int bucket) {
+        int timer = this.heads[bucket];
+        this.heads[bucket] = NONE;
+        while (timer != NONE) {
+            int following = this.next[timer];
+            insert(timer);
+            timer = following;
+        }
+    }
+
+    /**
+     * Links a timer into the slot of the lowest wheel whose range covers its deadline.
+     *
+     * @param timer the index of the timer
+     */
+    private void insert(int timer) {
+        long deadline = this.deadlines[timer];
+        long delay = deadline - this.now;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SHIFT * (level + 1))) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((deadline >>> (SHIFT * level)) & MASK);
+        int head = this.heads[bucket];
+        this.next[timer] = head;
+        this.prev[timer] = NONE;
+        if (head != NONE) {
+            this.prev[head] = timer;
+        }
+        this.heads[bucket] = timer;
+        this.buckets[timer] = bucket;
+    }
+
+    /**
+     * Unlinks a timer from its slot.
+     *
+     * @param timer the index of the timer
+     */
+    private void unlink(int timer) {
+        int before = this.prev[timer];
+        int after = this.next[timer];
+        if (before == NONE) {
+            this.heads[this.buckets[timer]] = after;
+        } else {
+            this.next[before] = after;
+        }
+        if (after != NONE) {
+            this.prev[after] = before;
+        }
+        this.buckets[timer] = NONE;
+    }
+
+    /**
+     * Returns an unlinked timer to the free list and invalidates its handle.
+     *
+     * @param timer the index of the timer
+     */
+    private void release(int timer) {
+        this.callbacks[timer] = null;
+        this.generations[timer] = (this.generations[timer] + 1) & ((1 << (32 - INDEX_BITS - 1)) - 1);
+        this.next[timer] = this.free;
+        this.free = timer;
+        this.pending--;
+    }
+
+    /**
+     * Grows the timer arrays and adds the new slots to the free list.
+     *
+     * @param capacity the new number of timers
+     */
+    private void grow(int capacity) {
+        if (capacity > INDEX_MASK + 1) {
+            throw new IllegalStateException("too many pending timers");
+        }
+        int old = this.deadlines.length;
+        this.deadlines = Arrays.copyOf(this.deadlines, capacity);
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.prev = Arrays.copyOf(this.prev, capacity);
+        this.buckets = Arrays.copyOf(this.buckets, capacity);
+        this.generations = Arrays.copyOf(this.generations, capacity);
+        this.callbacks = Arrays.copyOf(this.callbacks, capacity);
+        for (int i = capacity - 1; i >= old; i--) {
+            this.buckets[i] = NONE;
+            this.next[i] = this.free;
+            this.free = i;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package game;
+
+/**
+ * A {@code WorldConfig} defines the logical playing field of a game, in the units the simulation works in,
+ * and the render scale that maps those units to pixels of the window.
+ *
+ * <p>
+ * The field is enclosed by a border of walls on the left, the right and the top, and balls are lost in the
+ * death zone, a strip as high as the border along the bottom. The simulation only ever sees logical units, so
+ * the same game can be shown at a reduced resolution on weak hardware, or played on a huge field for stress
+ * tests, by changing the configuration alone.
+ * </p>
+ */
+public class WorldConfig {
+    /**
+     * The field the game was designed for: 800 by 600, with a border of 25, drawn one pixel per unit.
+     */
+    public static final WorldConfig STANDARD = new WorldConfig(800, 600, 25, 1);
+
+    // where the top-left corner of the background image goes on the standard field, so the temple sits
+    // behind the blocks
+    private static final int BACKGROUND_X = -200;
+    private static final int BACKGROUND_Y = -20;
+
+    private final double width;
+    private final double height;
+    private final double border;
+    private final double renderScale;
+
+    /**
+     * Constructs a {@code WorldConfig}.
+     *
+     * @param width       the width of the field, in logical units
+     * @param height      the height of the field, in logical units
+     * @param border      the thickness of the walls and of the death zone, in logical units
+     * @param renderScale the number of window pixels per logical unit
+     */
+    public WorldConfig(double width, double height, double border, double renderScale) {
+        if (width <= 2 * border || height <= 2 * border || border <= 0) {
+            throw new IllegalArgumentException("the field must be larger than its borders");
+        }
+        if (renderScale <= 0) {
+            throw new IllegalArgumentException("the render scale must be positive: " + renderScale);
+        }
+        this.width = width;
+        this.height = height;
+        this.border = border;
+        this.renderScale = renderScale;
+    }
+
+    /**
+     * Returns a configuration with the same field and another render scale.
+     *
+     * @param scale the number of window pixels per logical unit
+     * @return the new configuration
+     */
+    public WorldConfig withRenderScale(double scale) {
+        return new WorldConfig(this.width, this.height, this.border, scale);
+    }
+
+    /**
+     * Parses a field size of the form {@code <width>x<height>}, e.g. {@code 1600x1200}, keeping the standard
+     * border and a render scale of 1.
+     *
+     * @param size the size
+     * @return the configuration
+     * @throws IllegalArgumentException if the size is malformed
+     */
+    public static WorldConfig parse(String size) {
+        String[] parts = size.toLowerCase().split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("expected <width>x<height>, not " + size);
+        }
+        return new WorldConfig(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), STANDARD.border, 1);
+    }
+
+    /**
+     * Returns the width of the field.
+     *
+     * @return the width, in logical units
+     */
+    public double getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the field.
+     *
+     * @return the height, in logical units
+     */
+    public double getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the thickness of the walls and of the death zone.
+     *
+     * @return the border, in logical units
+     */
+    public double getBorder() {
+        return this.border;
+    }
+
+    /**
+     * Returns the x-coordinate of the inner face of the left wall.
+     *
+     * @return the left edge of the open field
+     */
+    public double getLeftWall() {
+        return this.border;
+    }
+
+    /**
+     * Returns the x-coordinate of the inner face of the right wall.
+     *
+     * @return the right edge of the open field
+     */
+    public double getRightWall() {
+        return this.width - this.border;
+    }
+
+    /**
+     * Returns the y-coordinate of the lower face of the ceiling.
+     *
+     * @return the top edge of the open field
+     */
+    public double getCeiling() {
+        return this.border;
+    }
+
+    /**
+     * Returns the y-coordinate of the top of the death zone; a ball that reaches it is lost.
+     *
+     * @return the bottom edge of the open field
+     */
+    public double getDeathZoneY() {
+        return this.height - this.border;
+    }
+
+    /**
+     * Returns the number of window pixels per logical unit.
+     *
+     * @return the render scale
+     */
+    public double getRenderScale() {
+        return this.renderScale;
+    }
+
+    /**
+     * Returns the width of the window the field is shown in.
+     *
+     * @return the width, in pixels
+     */
+    public int getWindowWidth() {
+        return (int) Math.round(this.width * this.renderScale);
+    }
+
+    /**
+     * Returns the height of the window the field is shown in.
+     *
+     * @return the height, in pixels
+     */
+    public int getWindowHeight() {
+        return (int) Math.round(this.height * this.renderScale);
+    }
+
+    /**
+     * Returns how much the background image is enlarged so that, placed as on the standard field, it still
+     * covers the field up to the walls on the right and the death zone at the bottom. On fields no larger than
+     * the image covers unscaled, such as the standard one, it is not scaled.
+     *
+     * @param imageWidth  the width of the background image, in logical units
+     * @param imageHeight the height of the background image, in logical units
+     * @return the scale, at least 1
+     */
+    public double getBackgroundScale(int imageWidth, int imageHeight) {
+        return Math.max(1, Math.max(this.width / (imageWidth + BACKGROUND_X),
+                getDeathZoneY() / (imageHeight + BACKGROUND_Y)));
+    }
+
+    /**
+     * Returns the x-coordinate the background image is drawn at, once scaled by
+     * {@link #getBackgroundScale(int, int)}.
+     *
+     * @param imageWidth  the width of the background image before scaling, in logical units
+     * @param imageHeight the height of the background image before scaling, in logical units
+     * @return the left edge of the background, in logical units
+     */
+    public int getBackgroundX(int imageWidth, int imageHeight) {
+        return (int) Math.round(BACKGROUND_X * getBackgroundScale(imageWidth, imageHeight));
+    }
+
+    /**
+     * Returns the y-coordinate the background image is drawn at, once scaled by
+     * {@link #getBackgroundScale(int, int)}.
+     *
+     * @param imageWidth  the width of the background image before scaling, in logical units
+     * @param imageHeight the height of the background image before scaling, in logical units
+     * @return the top edge of the background, in logical units
+     */
+    public int getBackgroundY(int imageWidth, int imageHeight) {
+        return (int) Math.round(BACKGROUND_Y * getBackgroundScale(imageWidth, imageHeight));
+    }
+}
@@ -0,0 +1,86 @@
+package game;
+
+/**
+ * A {@code Xorshift} is a 64-bit xorshift pseudo-random generator. It is much cheaper than
+ * {@link java.util.Random} and, unlike {@link java.util.SplittableRandom}, its whole state is one {@code long}
+ * that can be read and set, so a generator that drives the simulation can be saved and restored with a
+ * {@link GameState}. It is not thread safe.
+ *
+ * <p>
+ * The class also holds {@link #mix(long)}, the finalizer of SplitMix64, for hashing.
+ * </p>
+ */
+public class Xorshift {
+    private long state;
+
+    /**
+     * Constructs a {@code Xorshift} generator.
+     *
+     * @param seed the seed; 0, which xorshift cannot leave, is replaced by 1
+     */
+    public Xorshift(long seed) {
+        this.state = seed == 0 ? 1 : seed;
+    }
+
+    /**
+     * Returns the next number of the generator.
+     *
+     * @return a pseudo-random long, never 0
+     */
+    public long nextLong() {
+        long s = this.state;
+        s ^= s << 13;
+        s ^= s >>> 7;
+        s ^= s << 17;
+        this.state = s;
+        return s;
+    }
+
+    /**
+     * Returns the next number of the generator, scaled to [0, 1).
+     *
+     * @return a pseudo-random double between 0 (inclusive) and 1 (exclusive)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns the next number of the generator, scaled to [0, 1) with float precision.
+     *
+     * @return a pseudo-random float between 0 (inclusive) and 1 (exclusive)
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Returns the state of the generator, from which {@link #setState(long)} continues the same sequence.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return this.state;
+    }
+
+    /**
+     * Sets the state of the generator to one returned by {@link #getState()}.
+     *
+     * @param newState the state
+     */
+    public void setState(long newState) {
+        this.state = newState;
+    }
+
+    /**
+     * Scrambles the bits of a number (the finalizer of SplitMix64).
+     *
+     * @param z the number
+     * @return the scrambled number
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,441 @@
+package levels;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code ChunkedLevel} is a tall scrolling level, possibly with millions of blocks, stored in a binary file
+ * that is memory-mapped rather than read into the heap. The rows of the level are split into chunks of a
+ * fixed number of rows, and {@link #readChunk(int, byte[])} copies one chunk out of the mapping, so only the
+ * pages of the chunks in use are ever brought into memory.
+ *
+ * <p>
+ * The file starts with a fixed-size header (the grid geometry, the number of breakable blocks and a table of
+ * up to {@link #MAX_COLORS} colors) followed by one byte per cell, row by row: 0 for an empty cell, the
+ * color number (from 1) for a breakable block, and the color number with {@link #SOLID} set for a solid one.
+ * Files are written with a {@link Writer}, which stacks {@link LevelDefinition}s on top of each other.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java levels.ChunkedLevel <file> [sections] [seed]} writes a level of {@code sections}
+ * generated levels stacked on top of each other.
+ * </p>
+ */
+public class ChunkedLevel implements AutoCloseable {
+    /**
+     * The most colors a level can have.
+     */
+    public static final int MAX_COLORS = 127;
+    /**
+     * The bit of a cell byte that marks a solid block.
+     */
+    public static final int SOLID = 0x80;
+
+    private static final int MAGIC = 0x41524B43;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 1024;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int chunksPerSegment;
+    private final int columns;
+    private final int rows;
+    private final int chunkRows;
+    private final double originX;
+    private final double originY;
+    private final double pitchX;
+    private final double pitchY;
+    private final double blockWidth;
+    private final double blockHeight;
+    private final long breakableCount;
+    private final int[] colors;
+
+    /**
+     * Opens a level file and maps its cells into memory.
+     *
+     * @param file the file to open
+     * @throws IOException if the file cannot be read or is not a chunked level
+     */
+    public ChunkedLevel(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && this.channel.read(header) >= 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a chunked level");
+            }
+            this.columns = header.getInt();
+            this.rows = header.getInt();
+            this.chunkRows = header.getInt();
+            this.originX = header.getDouble();
+            this.originY = header.getDouble();
+            this.pitchX = header.getDouble();
+            this.pitchY = header.getDouble();
+            this.blockWidth = header.getDouble();
+            this.blockHeight = header.getDouble();
+            this.breakableCount = header.getLong();
+            int colorCount = header.getInt();
+            if (this.columns <= 0 || this.rows < 0 || this.chunkRows <= 0 || colorCount < 0
+                    || colorCount > MAX_COLORS) {
+                throw new IOException(file + " has a corrupt header");
+            }
+            this.colors = new int[colorCount];
+            for (int i = 0; i < colorCount; i++) {
+                this.colors[i] = header.getInt();
+            }
+            long chunkBytes = (long) this.chunkRows * this.columns;
+            if (HEADER_BYTES + (long) this.rows * this.columns > this.channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+
+            // a mapping is limited to 2 GB, so large files are mapped as several segments of whole chunks
+            this.chunksPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / chunkBytes);
+            int chunks = getChunkCount();
+            this.segments = new MappedByteBuffer[(chunks + this.chunksPerSegment - 1) / this.chunksPerSegment];
+            for (int s = 0; s < this.segments.length; s++) {
+                long start = HEADER_BYTES + s * this.chunksPerSegment * chunkBytes;
+                long size = Math.min(this.chunksPerSegment * chunkBytes,
+                        HEADER_BYTES + (long) this.rows * this.columns - start);
+                this.segments[s] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the cells of a chunk, row by row, into an array. The cells past the last row of the level are
+     * set to empty.
+     *
+     * @param chunk the number of the chunk
+     * @param dest  an array of at least {@code getChunkRows() * getColumns()} bytes
+     * @return the number of rows of the chunk that are part of the level
+     */
+    public int readChunk(int chunk, byte[] dest) {
+        int chunkRowCount = Math.min(this.chunkRows, this.rows - chunk * this.chunkRows);
+        int length = chunkRowCount * this.columns;
+        ByteBuffer segment = this.segments[chunk / this.chunksPerSegment].duplicate();
+        segment.position((chunk % this.chunksPerSegment) * this.chunkRows * this.columns);
+        segment.get(dest, 0, length);
+        for (int i = length; i < this.chunkRows * this.columns; i++) {
+            dest[i] = 0;
+        }
+        return chunkRowCount;
+    }
+
+    /**
+     * Returns the color of a color number used in the cell bytes.
+     *
+     * @param number a color number, from 1
+     * @return the color
+     */
+    public Color getColor(int number) {
+        return new Color(this.colors[number - 1]);
+    }
+
+    /**
+     * Returns the number of colors of the level.
+     *
+     * @return the number of colors
+     */
+    public int getColorCount() {
+        return this.colors.length;
+    }
+
+    /**
+     * Returns the number of chunks of the level.
+     *
+     * @return the number of chunks, the last of which may be partly past the end of the level
+     */
+    public int getChunkCount() {
+        return (this.rows + this.chunkRows - 1) / this.chunkRows;
+    }
+
+    /**
+     * Returns the number of rows of a chunk.
+     *
+     * @return the number of rows of a chunk
+     */
+    public int getChunkRows() {
+        return this.chunkRows;
+    }
+
+    /**
+     * Returns the number of columns of the grid.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Returns the number of rows of the grid.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the number of blocks that have to be broken to clear the level.
+     *
+     * @return the number of breakable blocks
+     */
+    public long getBreakableCount() {
+        return this.breakableCount;
+    }
+
+    /**
+     * Returns the x-coordinate of the top-left corner of the first cell.
+     *
+     * @return the x-coordinate of the grid's origin
+     */
+    public double getOriginX() {
+        return this.originX;
+    }
+
+    /**
+     * Returns the y-coordinate of the top-left corner of the first cell.
+     *
+     * @return the y-coordinate of the grid's origin
+     */
+    public double getOriginY() {
+        return this.originY;
+    }
+
+    /**
+     * Returns the horizontal distance between the left edges of two neighbouring cells.
+     *
+     * @return the horizontal pitch
+     */
+    public double getPitchX() {
+        return this.pitchX;
+    }
+
+    /**
+     * Returns the vertical distance between the top edges of two neighbouring cells.
+     *
+     * @return the vertical pitch
+     */
+    public double getPitchY() {
+        return this.pitchY;
+    }
+
+    /**
+     * Returns the width of a block.
+     *
+     * @return the block width
+     */
+    public double getBlockWidth() {
+        return this.blockWidth;
+    }
+
+    /**
+     * Returns the height of a block.
+     *
+     * @return the block height
+     */
+    public double getBlockHeight() {
+        return this.blockHeight;
+    }
+
+    /**
+     * Closes the file. The mappings stay readable until they are garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Writes a level of generated sections stacked on top of each other.
+     *
+     * @param args the file to write, the number of sections, and the seed of the generator
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ChunkedLevel <file> [sections] [seed]");
+            return;
+        }
+        int sections = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        LevelGenerator generator = new LevelGenerator(seed, 0.4);
+        long start = System.nanoTime();
+        int batch = 4096;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (Writer writer = new Writer(Paths.get(args[0]), generator.generate(0), 64)) {
+            for (int first = 0; first < sections; first += batch) {
+                for (LevelDefinition section : generator.generate(first, Math.min(batch, sections - first), threads)) {
+                    writer.append(section);
+                }
+            }
+            System.out.printf("Wrote %d rows, %d breakable blocks in %.1f s%n", writer.getRowCount(),
+                    writer.getBreakableCount(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * A {@code Writer} streams a chunked level to a file, one section at a time, so a level of any size can
+     * be written in bounded memory. The header is filled in when the writer is closed.
+     */
+    public static class Writer implements AutoCloseable {
+        private final FileChannel out;
+        private final LevelDefinition geometry;
+        private final int chunkRows;
+        private final Map<Integer, Integer> colorNumbers;
+        private final ByteBuffer buffer;
+        private int rowCount;
+        private long breakable;
+
+        /**
+         * Creates a level file.
+         *
+         * @param file      the file to write
+         * @param geometry  a level whose columns, origin, pitch and block size the whole level has
+         * @param chunkRows the number of rows of a chunk
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(Path file, LevelDefinition geometry, int chunkRows) throws IOException {
+            if (chunkRows <= 0) {
+                throw new IllegalArgumentException("a chunk needs at least one row");
+            }
+            this.out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.geometry = geometry;
+            this.chunkRows = chunkRows;
+            this.colorNumbers = new LinkedHashMap<>();
+            this.buffer = ByteBuffer.allocate(1 << 16);
+            this.out.position(HEADER_BYTES);
+        }
+
+        /**
+         * Appends the rows of a level below the rows written so far. Its balls are ignored.
+         *
+         * @param section a level with the same number of columns as the geometry
+         * @throws IOException if the file cannot be written
+         */
+        public void append(LevelDefinition section) throws IOException {
+            int columns = this.geometry.getColumns();
+            if (section.getColumns() != columns) {
+                throw new IllegalArgumentException("a section has " + section.getColumns() + " columns, not "
+                        + columns);
+            }
+            for (int row = 0; row < section.getRows(); row++) {
+                if (this.buffer.remaining() < columns) {
+                    flush();
+                }
+                for (int column = 0; column < columns; column++) {
+                    int rgb = section.getCell(row, column);
+                    if (rgb == LevelDefinition.EMPTY) {
+                        this.buffer.put((byte) 0);
+                        continue;
+                    }
+                    boolean solid = section.isSolid(row, column);
+                    this.buffer.put((byte) (colorNumber(rgb) | (solid ? SOLID : 0)));
+                    if (!solid) {
+                        this.breakable++;
+                    }
+                }
+                this.rowCount++;
+            }
+        }
+
+        /**
+         * Returns the number of rows written so far.
+         *
+         * @return the number of rows
+         */
+        public int getRowCount() {
+            return this.rowCount;
+        }
+
+        /**
+         * Returns the number of breakable blocks written so far.
+         *
+         * @return the number of breakable blocks
+         */
+        public long getBreakableCount() {
+            return this.breakable;
+        }
+
+        /**
+         * Writes the header and closes the file.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION);
+                header.putInt(this.geometry.getColumns()).putInt(this.rowCount).putInt(this.chunkRows);
+                header.putDouble(this.geometry.getOriginX()).putDouble(this.geometry.getOriginY());
+                header.putDouble(this.geometry.getPitchX()).putDouble(this.geometry.getPitchY());
+                header.putDouble(this.geometry.getBlockWidth()).putDouble(this.geometry.getBlockHeight());
+                header.putLong(this.breakable);
+                header.putInt(this.colorNumbers.size());
+                for (int rgb : this.colorNumbers.keySet()) {
+                    header.putInt(rgb);
+                }
+                header.clear();
+                long position = 0;
+                while (header.hasRemaining()) {
+                    position += this.out.write(header, position);
+                }
+            } finally {
+                this.out.close();
+            }
+        }
+
+        /**
+         * Returns the number of a color, numbering new colors as they first appear.
+         *
+         * @param rgb the color
+         * @return the color number, from 1
+         */
+        private int colorNumber(int rgb) {
+            Integer number = this.colorNumbers.get(rgb);
+            if (number == null) {
+                if (this.colorNumbers.size() == MAX_COLORS) {
+                    throw new IllegalStateException("a chunked level can have at most " + MAX_COLORS + " colors");
+                }
+                number = this.colorNumbers.size() + 1;
+                this.colorNumbers.put(rgb, number);
+            }
+            return number;
+        }
+
+        /**
+         * Writes the buffered cells to the file.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.out.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package levels;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code LevelDefinition} describes a level: the layout of its block grid, the color of every block and
+ * whether it is solid (never breaks), and where the balls start and how fast they move.
+ * {@link game.Game#setLevel(LevelDefinition)} plays it.
+ *
+ * <p>
+ * Levels are stored as text, one directive per line; empty lines and lines starting with {@code #} are
+ * ignored:
+ * </p>
+ * <pre>
+ * name Spiral
+ * grid 10 8 25 50 75 35 50 25      (columns rows originX originY pitchX pitchY blockWidth blockHeight)
+ * ball 400 500 3 3                 (x y dx dy, once per ball)
+ * color a 393558                   (a one-character key and an RRGGBB color)
+ * solid s 808080                   (the same, for blocks that never break)
+ * row aaaaaaaaaa                   (once per row, top to bottom; '.' is an empty cell)
+ * </pre>
+ *
+ * <p>
+ * {@link #hash()} identifies the content of a level, so results computed for a level (such as a balancing
+ * report) can be cached and reused until the level changes.
+ * </p>
+ */
+public class LevelDefinition {
+    /**
+     * The color of an empty cell.
+     */
+    public static final int EMPTY = -1;
+
+    private static final char EMPTY_KEY = '.';
+    private static final int SOLID_FLAG = 1 << 24;
+    private static final String KEYS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private String name;
+    private final int columns;
+    private final int rows;
+    private final double originX;
+    private final double originY;
+    private final double pitchX;
+    private final double pitchY;
+    private final double blockWidth;
+    private final double blockHeight;
+    private final int[] cells;
+    private final boolean[] solid;
+    private double[] balls;
+    private int ballCount;
+
+    /**
+     * Constructs a level with an empty grid and no balls.
+     *
+     * @param name        the name of the level
+     * @param columns     the number of columns of the grid
+     * @param rows        the number of rows of the grid
+     * @param originX     the x-coordinate of the top-left corner of the first cell
+     * @param originY     the y-coordinate of the top-left corner of the first cell
+     * @param pitchX      the horizontal distance between the left edges of two neighbouring cells
+     * @param pitchY      the vertical distance between the top edges of two neighbouring cells
+     * @param blockWidth  the width of a block, at most {@code pitchX}
+     * @param blockHeight the height of a block, at most {@code pitchY}
+     */
+    public LevelDefinition(String name, int columns, int rows, double originX, double originY, double pitchX,
+                           double pitchY, double blockWidth, double blockHeight) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("a level needs at least one cell");
+        }
+        this.name = name;
+        this.columns = columns;
+        this.rows = rows;
+        this.originX = originX;
+        this.originY = originY;
+        this.pitchX = pitchX;
+        this.pitchY = pitchY;
+        this.blockWidth = blockWidth;
+        this.blockHeight = blockHeight;
+        this.cells = new int[columns * rows];
+        Arrays.fill(this.cells, EMPTY);
+        this.solid = new boolean[columns * rows];
+        this.balls = new double[4 * 4];
+    }
+
+    /**
+     * Returns the spiral level the game was first designed with.
+     *
+     * @return a new definition of the spiral level
+     */
+    public static LevelDefinition spiral() {
+        LevelDefinition level = new LevelDefinition("Spiral", 10, 8, 25, 50, 75, 35, 50, 25);
+        level.addBall(400, 500, 3, 3);
+        level.addBall(350, 500, 3, 3);
+        level.addBall(450, 500, 3, 3);
+
+        Color[] colors = {
+                new Color(57, 53, 88),
+                new Color(100, 102, 159),
+                new Color(255, 204, 138),
+                new Color(255, 159, 128),
+                new Color(230, 135, 124),
+                new Color(211, 118, 132)
+        };
+        String[] spiral = {
+                "##########",
+                "#........#",
+                "#.#####..#",
+                "#.#...#..#",
+                "#.#.###..#",
+                "#.#.#....#",
+                "#.######.#",
+                "##########"
+        };
+        for (int row = 0; row < spiral.length; row++) {
+            Color c = colors[row % colors.length]; // cycle through colors
+            for (int column = 0; column < spiral[row].length(); column++) {
+                if (spiral[row].charAt(column) == '#') {
+                    level.setCell(row, column, c);
+                }
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Reads a level from a text file.
+     *
+     * @param file the file to read
+     * @return the level
+     * @throws IOException if the file cannot be read or is not a valid level
+     */
+    public static LevelDefinition read(Path file) throws IOException {
+        try {
+            return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses a level from the lines of its text form.
+     *
+     * @param lines the lines of the level
+     * @return the level
+     * @throws IllegalArgumentException if the lines are not a valid level
+     */
+    public static LevelDefinition parse(List<String> lines) {
+        String levelName = "";
+        LevelDefinition level = null;
+        // a key maps to its RGB color, with SOLID_FLAG set for solid blocks
+        Map<Character, Integer> colors = new LinkedHashMap<>();
+        List<double[]> ballStarts = new ArrayList<>();
+        int row = 0;
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "name":
+                        levelName = line.substring(4).trim();
+                        break;
+                    case "grid":
+                        level = new LevelDefinition(levelName, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                                Double.parseDouble(parts[3]), Double.parseDouble(parts[4]),
+                                Double.parseDouble(parts[5]), Double.parseDouble(parts[6]),
+                                Double.parseDouble(parts[7]), Double.parseDouble(parts[8]));
+                        break;
+                    case "ball":
+                        ballStarts.add(new double[] {Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                                Double.parseDouble(parts[3]), Double.parseDouble(parts[4])});
+                        break;
+                    case "color":
+                    case "solid":
+                        if (parts[1].length() != 1 || parts[1].charAt(0) == EMPTY_KEY) {
+                            throw new IllegalArgumentException("bad color key '" + parts[1] + "'");
+                        }
+                        colors.put(parts[1].charAt(0), (Integer.parseInt(parts[2], 16) & 0xFFFFFF)
+                                | ("solid".equals(parts[0]) ? SOLID_FLAG : 0));
+                        break;
+                    case "row":
+                        if (level == null) {
+                            throw new IllegalArgumentException("row before grid");
+                        }
+                        String cellKeys = parts.length > 1 ? parts[1] : "";
+                        if (row >= level.rows || cellKeys.length() != level.columns) {
+                            throw new IllegalArgumentException("row does not fit the grid");
+                        }
+                        for (int column = 0; column < cellKeys.length(); column++) {
+                            char key = cellKeys.charAt(column);
+                            if (key == EMPTY_KEY) {
+                                continue;
+                            }
+                            Integer rgb = colors.get(key);
+                            if (rgb == null) {
+                                throw new IllegalArgumentException("unknown color key '" + key + "'");
+                            }
+                            level.cells[row * level.columns + column] = rgb & 0xFFFFFF;
+                            level.solid[row * level.columns + column] = (rgb & SOLID_FLAG) != 0;
+                        }
+                        row++;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown directive " + parts[0]);
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("line " + (n + 1) + ": missing values", e);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (level == null) {
+            throw new IllegalArgumentException("no grid");
+        }
+        level.name = levelName;
+        for (double[] b : ballStarts) {
+            level.addBall(b[0], b[1], b[2], b[3]);
+        }
+        return level;
+    }
+
+    /**
+     * Writes the level to a text file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Files.write(file, toText().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the text form of the level.
+     *
+     * @return the level as text
+     * @throws IllegalStateException if the level uses more colors than there are color keys
+     */
+    public String toText() {
+        return "name " + this.name + '\n' + body();
+    }
+
+    /**
+     * Returns a 64-bit hash of the content of the level: its grid, blocks and balls, but not its name.
+     *
+     * @return the hash of the level
+     */
+    public long hash() {
+        // FNV-1a over the text form
+        long h = 0xcbf29ce484222325L;
+        String text = body();
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns a copy of the level that can be changed without affecting this one.
+     *
+     * @return the copy
+     */
+    public LevelDefinition copy() {
+        LevelDefinition copy = new LevelDefinition(this.name, this.columns, this.rows, this.originX, this.originY,
+                this.pitchX, this.pitchY, this.blockWidth, this.blockHeight);
+        System.arraycopy(this.cells, 0, copy.cells, 0, this.cells.length);
+        System.arraycopy(this.solid, 0, copy.solid, 0, this.solid.length);
+        copy.balls = this.balls.clone();
+        copy.ballCount = this.ballCount;
+        return copy;
+    }
+
+    /**
+     * Puts a block of the given color into a cell.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @param color  the color of the block
+     */
+    public void setCell(int row, int column, Color color) {
+        this.cells[row * this.columns + column] = color.getRGB() & 0xFFFFFF;
+        this.solid[row * this.columns + column] = false;
+    }
+
+    /**
+     * Puts a solid block of the given color into a cell. Solid blocks never break and need not be broken
+     * to clear the level.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @param color  the color of the block
+     */
+    public void setSolidCell(int row, int column, Color color) {
+        this.cells[row * this.columns + column] = color.getRGB() & 0xFFFFFF;
+        this.solid[row * this.columns + column] = true;
+    }
+
+    /**
+     * Checks whether a cell holds a solid block.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return {@code true} if the cell holds a block that never breaks
+     */
+    public boolean isSolid(int row, int column) {
+        return this.solid[row * this.columns + column];
+    }
+
+    /**
+     * Empties a cell.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     */
+    public void clearCell(int row, int column) {
+        this.cells[row * this.columns + column] = EMPTY;
+        this.solid[row * this.columns + column] = false;
+    }
+
+    /**
+     * Returns the color of the block in a cell.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return the RGB value of the block's color, or {@link #EMPTY} if the cell is empty
+     */
+    public int getCell(int row, int column) {
+        return this.cells[row * this.columns + column];
+    }
+
+    /**
+     * Returns the number of blocks that have to be broken to clear the level.
+     *
+     * @return the number of cells that hold a block that is not solid
+     */
+    public int getBlockCount() {
+        int count = 0;
+        for (int i = 0; i < this.cells.length; i++) {
+            if (this.cells[i] != EMPTY && !this.solid[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a ball that starts at the given position with the given velocity.
+     *
+     * @param x  the x-coordinate of the ball's center
+     * @param y  the y-coordinate of the ball's center
+     * @param dx the velocity component in the x direction
+     * @param dy the velocity component in the y direction
+     */
+    public void addBall(double x, double y, double dx, double dy) {
+        if (4 * (this.ballCount + 1) > this.balls.length) {
+            this.balls = Arrays.copyOf(this.balls, this.balls.length * 2);
+        }
+        this.ballCount++;
+        setBall(this.ballCount - 1, x, y, dx, dy);
+    }
+
+    /**
+     * Changes where a ball starts and how it moves.
+     *
+     * @param i  the index of the ball
+     * @param x  the x-coordinate of the ball's center
+     * @param y  the y-coordinate of the ball's center
+     * @param dx the velocity component in the x direction
+     * @param dy the velocity component in the y direction
+     */
+    public void setBall(int i, double x, double y, double dx, double dy) {
+        if (i < 0 || i >= this.ballCount) {
+            throw new IndexOutOfBoundsException("no ball " + i);
+        }
+        this.balls[4 * i] = x;
+        this.balls[4 * i + 1] = y;
+        this.balls[4 * i + 2] = dx;
+        this.balls[4 * i + 3] = dy;
+    }
+
+    /**
+     * Returns the number of balls.
+     *
+     * @return the number of balls
+     */
+    public int getBallCount() {
+        return this.ballCount;
+    }
+
+    /**
+     * Returns the x-coordinate a ball starts at.
+     *
+     * @param i the index of the ball
+     * @return the x-coordinate of the ball's center
+     */
+    public double getBallX(int i) {
+        return this.balls[4 * i];
+    }
+
+    /**
+     * Returns the y-coordinate a ball starts at.
+     *
+     * @param i the index of the ball
+     * @return the y-coordinate of the ball's center
+     */
+    public double getBallY(int i) {
+        return this.balls[4 * i + 1];
+    }
+
+    /**
+     * Returns the horizontal velocity a ball starts with.
+     *
+     * @param i the index of the ball
+     * @return the velocity component in the x direction
+     */
+    public double getBallDx(int i) {
+        return this.balls[4 * i + 2];
+    }
+
+    /**
+     * Returns the vertical velocity a ball starts with.
+     *
+     * @param i the index of the ball
+     * @return the velocity component in the y direction
+     */
+    public double getBallDy(int i) {
+        return this.balls[4 * i + 3];
+    }
+
+    /**
+     * Returns the name of the level.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of columns of the grid.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Returns the number of rows of the grid.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the x-coordinate of the top-left corner of the first cell.
+     *
+     * @return the x-coordinate of the grid's origin
+     */
+    public double getOriginX() {
+        return this.originX;
+    }
+
+    /**
+     * Returns the y-coordinate of the top-left corner of the first cell.
+     *
+     * @return the y-coordinate of the grid's origin
+     */
+    public double getOriginY() {
+        return this.originY;
+    }
+
+    /**
+     * Returns the horizontal distance between the left edges of two neighbouring cells.
+     *
+     * @return the horizontal pitch
+     */
+    public double getPitchX() {
+        return this.pitchX;
+    }
+
+    /**
+     * Returns the vertical distance between the top edges of two neighbouring cells.
+     *
+     * @return the vertical pitch
+     */
+    public double getPitchY() {
+        return this.pitchY;
+    }
+
+    /**
+     * Returns the width of a block.
+     *
+     * @return the block width
+     */
+    public double getBlockWidth() {
+        return this.blockWidth;
+    }
+
+    /**
+     * Returns the height of a block.
+     *
+     * @return the block height
+     */
+    public double getBlockHeight() {
+        return this.blockHeight;
+    }
+
+    /**
+     * Returns the text form of everything but the name.
+     *
+     * @return the grid, balls, colors and rows as text
+     */
+    private String body() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("grid ").append(this.columns).append(' ').append(this.rows).append(' ')
+                .append(format(this.originX)).append(' ').append(format(this.originY)).append(' ')
+                .append(format(this.pitchX)).append(' ').append(format(this.pitchY)).append(' ')
+                .append(format(this.blockWidth)).append(' ').append(format(this.blockHeight)).append('\n');
+        for (int i = 0; i < this.ballCount; i++) {
+            sb.append("ball ").append(format(getBallX(i))).append(' ').append(format(getBallY(i))).append(' ')
+                    .append(format(getBallDx(i))).append(' ').append(format(getBallDy(i))).append('\n');
+        }
+        // keys are given to colors, solid or not, in the order they first appear
+        Map<Integer, Character> keys = new LinkedHashMap<>();
+        for (int i = 0; i < this.cells.length; i++) {
+            int kind = keyOf(i);
+            if (kind != EMPTY && !keys.containsKey(kind)) {
+                if (keys.size() == KEYS.length()) {
+                    throw new IllegalStateException("a level can have at most " + KEYS.length() + " colors");
+                }
+                keys.put(kind, KEYS.charAt(keys.size()));
+            }
+        }
+        for (Map.Entry<Integer, Character> e : keys.entrySet()) {
+            sb.append((e.getKey() & SOLID_FLAG) != 0 ? "solid " : "color ").append(e.getValue()).append(' ')
+                    .append(String.format("%06X", e.getKey() & 0xFFFFFF)).append('\n');
+        }
+        for (int row = 0; row < this.rows; row++) {
+            sb.append("row ");
+            for (int column = 0; column < this.columns; column++) {
+                int kind = keyOf(row * this.columns + column);
+                sb.append(kind == EMPTY ? EMPTY_KEY : keys.get(kind));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns what tells a cell's key apart from the others: its color, with {@code SOLID_FLAG} set if it is
+     * solid.
+     *
+     * @param cell the index of the cell
+     * @return the kind of the cell, or {@link #EMPTY}
+     */
+    private int keyOf(int cell) {
+        int rgb = this.cells[cell];
+        return rgb == EMPTY || !this.solid[cell] ? rgb : rgb | SOLID_FLAG;
+    }
+
+    /**
+     * Formats a number for the text form, without a fraction if it is whole.
+     *
+     * @param value the number
+     * @return the number as text
+     */
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
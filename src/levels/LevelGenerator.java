@@ -0,0 +1,468 @@
+package levels;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code LevelGenerator} makes random levels for endless play: mirror-symmetric patterns, mazes, and
+ * spirals like the original level, filled with breakable blocks up to a target density and sprinkled with
+ * solid blocks that never break.
+ *
+ * <p>
+ * Candidates are built directly in a compact form, one bit mask per row for the breakable cells and one for
+ * the solid cells, and only the ones that pass validation are turned into {@link LevelDefinition}s. A
+ * candidate is valid if every breakable block can be reached by a ball coming from the paddle zone below the
+ * grid, which is checked conservatively: a ball may only move between the pitch cells of the grid, through
+ * cells that are empty or breakable (it breaks its way through), and along the gap between the top row and
+ * the ceiling, never through the narrower gaps between blocks. The flood fill works on whole rows at a time
+ * with shifts and masks. A rejected candidate is replaced by the next one from the same random stream.
+ * </p>
+ *
+ * <p>
+ * Level {@code n} of a generator depends only on its seed, its density and {@code n}, so levels can be
+ * generated on any number of threads in any order and still come out the same.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java levels.LevelGenerator [count] [threads] [output directory]}; prints how many levels were
+ * generated per second, and writes them to the directory if one is given.
+ * </p>
+ */
+public class LevelGenerator {
+    /**
+     * The kinds of layouts the generator makes.
+     */
+    public enum Style {
+        /**
+         * A random pattern, mirrored about the vertical center line.
+         */
+        SYMMETRIC,
+        /**
+         * The walls of a random maze whose corridors are one cell wide.
+         */
+        MAZE,
+        /**
+         * A spiral wound inward from a random corner, like the original level.
+         */
+        SPIRAL
+    }
+
+    private static final int COLUMNS = 10;
+    private static final int ROWS = 8;
+    private static final long FULL_ROW = (1L << COLUMNS) - 1;
+    private static final double SOLID_RATE = 0.08;
+    private static final double MAZE_SOLID_RATE = 0.25;
+    private static final int MAX_ATTEMPTS = 10000;
+    private static final Color SOLID_COLOR = new Color(128, 128, 140);
+    private static final Color[][] SCHEMES = {
+            {new Color(57, 53, 88), new Color(100, 102, 159), new Color(255, 204, 138), new Color(255, 159, 128),
+                    new Color(230, 135, 124), new Color(211, 118, 132)},
+            {new Color(38, 70, 83), new Color(42, 157, 143), new Color(233, 196, 106), new Color(244, 162, 97),
+                    new Color(231, 111, 81)},
+            {new Color(94, 48, 35), new Color(140, 86, 55), new Color(186, 128, 72), new Color(219, 179, 113)}
+    };
+
+    private final long seed;
+    private final double density;
+    private final AtomicLong candidates;
+
+    /**
+     * Constructs a {@code LevelGenerator}.
+     *
+     * @param seed    the seed all levels are derived from
+     * @param density the target fraction of cells that hold breakable blocks, between 0 and 1
+     */
+    public LevelGenerator(long seed, double density) {
+        if (density <= 0 || density > 1) {
+            throw new IllegalArgumentException("the density must be in (0, 1]: " + density);
+        }
+        this.seed = seed;
+        this.density = density;
+        this.candidates = new AtomicLong();
+    }
+
+    /**
+     * Generates one level.
+     *
+     * @param index the number of the level
+     * @return the level
+     * @throws IllegalStateException if no valid candidate was found, which only happens for extreme densities
+     */
+    public LevelDefinition generate(long index) {
+        SplittableRandom random = new SplittableRandom(this.seed ^ (index * 0x9E3779B97F4A7C15L));
+        Style style = Style.values()[random.nextInt(Style.values().length)];
+        long[] breakable = new long[ROWS];
+        long[] solid = new long[ROWS];
+        long[] reach = new long[ROWS];
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            this.candidates.incrementAndGet();
+            switch (style) {
+                case SYMMETRIC:
+                    symmetric(breakable, solid, random);
+                    break;
+                case MAZE:
+                    maze(breakable, solid, random);
+                    break;
+                default:
+                    spiral(breakable, solid, random);
+                    break;
+            }
+            if (isReachable(breakable, solid, reach)) {
+                return toLevel(index, style, breakable, solid, random);
+            }
+        }
+        throw new IllegalStateException("no valid " + style + " level " + index + " at density " + this.density);
+    }
+
+    /**
+     * Generates a range of levels on a pool of worker threads. The range is split into batches, and every
+     * batch is generated and validated on its own thread.
+     *
+     * @param first   the number of the first level
+     * @param count   the number of levels
+     * @param threads the number of worker threads
+     * @return the levels, in order
+     */
+    public List<LevelDefinition> generate(long first, int count, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int batches = Math.max(1, Math.min(count, threads * 4));
+            List<Future<List<LevelDefinition>>> parts = new ArrayList<>();
+            for (int b = 0; b < batches; b++) {
+                long from = first + (long) count * b / batches;
+                long to = first + (long) count * (b + 1) / batches;
+                parts.add(pool.submit(() -> {
+                    List<LevelDefinition> batch = new ArrayList<>((int) (to - from));
+                    for (long i = from; i < to; i++) {
+                        batch.add(generate(i));
+                    }
+                    return batch;
+                }));
+            }
+            List<LevelDefinition> levels = new ArrayList<>(count);
+            for (Future<List<LevelDefinition>> part : parts) {
+                levels.addAll(part.get());
+            }
+            return levels;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while generating levels", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of candidates built so far, valid or not.
+     *
+     * @return the number of candidates
+     */
+    public long getCandidateCount() {
+        return this.candidates.get();
+    }
+
+    /**
+     * Checks that every breakable cell can be reached from below the grid. Flood fills the cells a ball can
+     * pass through, a row at a time: a row takes in the cells of its neighbours that are reached, then
+     * spreads sideways until it stops growing.
+     *
+     * @param breakable the breakable cells of every row
+     * @param solid     the solid cells of every row
+     * @param reach     scratch space for the reached cells of every row
+     * @return {@code true} if no breakable cell is cut off by solid blocks
+     */
+    static boolean isReachable(long[] breakable, long[] solid, long[] reach) {
+        int rows = reach.length;
+        for (int row = 0; row < rows; row++) {
+            reach[row] = 0;
+        }
+        // the paddle zone is one open row below the grid
+        long below = FULL_ROW;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = rows - 1; row >= 0; row--) {
+                long open = ~solid[row] & FULL_ROW;
+                long r = reach[row] | (open & (row == rows - 1 ? below : reach[row + 1]));
+                if (row > 0) {
+                    r |= open & reach[row - 1];
+                }
+                if (row == 0 && r != 0) {
+                    // the gap below the ceiling joins every open cell of the top row
+                    r = open;
+                }
+                long spread;
+                do {
+                    spread = r;
+                    r |= ((r << 1) | (r >>> 1)) & open;
+                } while (r != spread);
+                if (r != reach[row]) {
+                    reach[row] = r;
+                    changed = true;
+                }
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            if ((breakable[row] & ~reach[row]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a mirror-symmetric candidate: the left half is filled at random and copied onto the right half.
+     *
+     * @param breakable the breakable cells of every row, filled in
+     * @param solid     the solid cells of every row, filled in
+     * @param random    the source of randomness
+     */
+    private void symmetric(long[] breakable, long[] solid, SplittableRandom random) {
+        for (int row = 0; row < ROWS; row++) {
+            long b = 0;
+            long s = 0;
+            for (int column = 0; column < COLUMNS / 2; column++) {
+                double p = random.nextDouble();
+                if (p < SOLID_RATE) {
+                    s |= mirrored(column);
+                } else if (p < SOLID_RATE + this.density) {
+                    b |= mirrored(column);
+                }
+            }
+            breakable[row] = b;
+            solid[row] = s;
+        }
+    }
+
+    /**
+     * Builds a maze candidate. Rooms sit on the even rows and columns and are joined into a random spanning
+     * tree by opening the cell between two rooms; the cells left over are the walls. Walls are solid now and
+     * then, and breakable walls (and, at high densities, rooms) are kept or dropped to meet the density.
+     *
+     * @param breakable the breakable cells of every row, filled in
+     * @param solid     the solid cells of every row, filled in
+     * @param random    the source of randomness
+     */
+    private void maze(long[] breakable, long[] solid, SplittableRandom random) {
+        int roomColumns = (COLUMNS + 1) / 2;
+        int roomRows = (ROWS + 1) / 2;
+        long[] open = new long[ROWS];
+        boolean[] visited = new boolean[roomColumns * roomRows];
+        int[] stack = new int[visited.length];
+        int[] neighbours = new int[4];
+        int top = 0;
+        int start = random.nextInt(visited.length);
+        stack[top++] = start;
+        visited[start] = true;
+        open[2 * (start / roomColumns)] |= 1L << (2 * (start % roomColumns));
+        // a randomized depth-first search carves the spanning tree
+        while (top > 0) {
+            int room = stack[top - 1];
+            int x = room % roomColumns;
+            int y = room / roomColumns;
+            int count = 0;
+            if (x > 0 && !visited[room - 1]) {
+                neighbours[count++] = room - 1;
+            }
+            if (x < roomColumns - 1 && !visited[room + 1]) {
+                neighbours[count++] = room + 1;
+            }
+            if (y > 0 && !visited[room - roomColumns]) {
+                neighbours[count++] = room - roomColumns;
+            }
+            if (y < roomRows - 1 && !visited[room + roomColumns]) {
+                neighbours[count++] = room + roomColumns;
+            }
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int next = neighbours[random.nextInt(count)];
+            int nx = next % roomColumns;
+            int ny = next / roomColumns;
+            visited[next] = true;
+            open[2 * ny] |= 1L << (2 * nx);
+            open[y + ny] |= 1L << (x + nx);
+            stack[top++] = next;
+        }
+
+        int walls = 0;
+        for (int row = 0; row < ROWS; row++) {
+            walls += Long.bitCount(~open[row] & FULL_ROW);
+        }
+        int target = (int) Math.round(this.density * COLUMNS * ROWS);
+        double keepWall = Math.min(1, (double) target / walls);
+        double fillRoom = walls >= target ? 0 : (double) (target - walls) / (COLUMNS * ROWS - walls);
+        for (int row = 0; row < ROWS; row++) {
+            long b = 0;
+            long s = 0;
+            for (int column = 0; column < COLUMNS; column++) {
+                long bit = 1L << column;
+                if ((open[row] & bit) != 0) {
+                    if (random.nextDouble() < fillRoom) {
+                        b |= bit;
+                    }
+                } else if (random.nextDouble() < MAZE_SOLID_RATE) {
+                    s |= bit;
+                } else if (random.nextDouble() < keepWall) {
+                    b |= bit;
+                }
+            }
+            breakable[row] = b;
+            solid[row] = s;
+        }
+    }
+
+    /**
+     * Builds a spiral candidate: a wall wound inward from a random corner with a one-cell corridor between its
+     * turns, thinned out to meet the density, with a few of its blocks solid.
+     *
+     * @param breakable the breakable cells of every row, filled in
+     * @param solid     the solid cells of every row, filled in
+     * @param random    the source of randomness
+     */
+    private void spiral(long[] breakable, long[] solid, SplittableRandom random) {
+        long[] wall = new long[ROWS];
+        int x = 0;
+        int y = 0;
+        int dx = 1;
+        int dy = 0;
+        wall[0] |= 1L;
+        // the legs are w-1, h-1, w-1, then shrink by two every leg: h-3, w-3, h-5, w-5, ...
+        int[] legs = {COLUMNS - 1, ROWS - 1, COLUMNS - 1};
+        int leg = 0;
+        while (true) {
+            int length;
+            if (leg < legs.length) {
+                length = legs[leg];
+            } else {
+                int shrink = 2 * ((leg - 1) / 2);
+                length = (dx != 0 ? COLUMNS : ROWS) - 1 - shrink;
+            }
+            if (length <= 0) {
+                break;
+            }
+            for (int i = 0; i < length; i++) {
+                x += dx;
+                y += dy;
+                wall[y] |= 1L << x;
+            }
+            // turn clockwise
+            int t = dx;
+            dx = -dy;
+            dy = t;
+            leg++;
+        }
+
+        boolean flipX = random.nextBoolean();
+        boolean flipY = random.nextBoolean();
+        int cells = 0;
+        for (long w : wall) {
+            cells += Long.bitCount(w);
+        }
+        double keep = Math.min(1, this.density * COLUMNS * ROWS / cells);
+        for (int row = 0; row < ROWS; row++) {
+            long w = wall[flipY ? ROWS - 1 - row : row];
+            if (flipX) {
+                w = Long.reverse(w) >>> (Long.SIZE - COLUMNS);
+            }
+            long b = 0;
+            long s = 0;
+            for (long rest = w; rest != 0; rest &= rest - 1) {
+                long bit = Long.lowestOneBit(rest);
+                double p = random.nextDouble();
+                if (p < SOLID_RATE) {
+                    s |= bit;
+                } else if (p < SOLID_RATE + keep * (1 - SOLID_RATE)) {
+                    b |= bit;
+                }
+            }
+            breakable[row] = b;
+            solid[row] = s;
+        }
+    }
+
+    /**
+     * Returns the mask of a column of the left half together with its mirror image on the right half.
+     *
+     * @param column a column of the left half
+     * @return the mask of both columns
+     */
+    private static long mirrored(int column) {
+        return (1L << column) | (1L << (COLUMNS - 1 - column));
+    }
+
+    /**
+     * Turns a valid candidate into a level with the geometry and balls of the original level. Every row of
+     * breakable blocks gets a color of a randomly chosen scheme.
+     *
+     * @param index     the number of the level
+     * @param style     the style of the level
+     * @param breakable the breakable cells of every row
+     * @param solid     the solid cells of every row
+     * @param random    the source of randomness
+     * @return the level
+     */
+    private static LevelDefinition toLevel(long index, Style style, long[] breakable, long[] solid,
+                                           SplittableRandom random) {
+        LevelDefinition spiral = LevelDefinition.spiral();
+        LevelDefinition level = new LevelDefinition(style.name().charAt(0) + style.name().substring(1).toLowerCase()
+                + " " + index, COLUMNS, ROWS, spiral.getOriginX(), spiral.getOriginY(), spiral.getPitchX(),
+                spiral.getPitchY(), spiral.getBlockWidth(), spiral.getBlockHeight());
+        for (int i = 0; i < spiral.getBallCount(); i++) {
+            double dx = random.nextBoolean() ? spiral.getBallDx(i) : -spiral.getBallDx(i);
+            level.addBall(spiral.getBallX(i), spiral.getBallY(i), dx, spiral.getBallDy(i));
+        }
+        Color[] scheme = SCHEMES[random.nextInt(SCHEMES.length)];
+        int offset = random.nextInt(scheme.length);
+        for (int row = 0; row < ROWS; row++) {
+            Color c = scheme[(row + offset) % scheme.length];
+            for (int column = 0; column < COLUMNS; column++) {
+                long bit = 1L << column;
+                if ((solid[row] & bit) != 0) {
+                    level.setSolidCell(row, column, SOLID_COLOR);
+                } else if ((breakable[row] & bit) != 0) {
+                    level.setCell(row, column, c);
+                }
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Generates levels, prints how fast they were generated, and optionally writes them out.
+     *
+     * @param args the number of levels, the number of threads, and the directory to write the levels to
+     * @throws IOException if a level cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        LevelGenerator generator = new LevelGenerator(1, 0.4);
+        long start = System.nanoTime();
+        List<LevelDefinition> levels = generator.generate(0, count, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d levels (%d candidates) in %.2f s: %.0f levels/s%n", levels.size(),
+                generator.getCandidateCount(), seconds, levels.size() / seconds);
+        if (args.length > 2) {
+            Path directory = Paths.get(args[2]);
+            Files.createDirectories(directory);
+            for (int i = 0; i < levels.size(); i++) {
+                levels.get(i).write(directory.resolve(String.format("level-%06d.txt", i)));
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package listeners;
 
+import events.EventType;
 import sprites.Ball;
 import sprites.Block;
 import game.Game;
@@ -7,7 +8,8 @@ import game.Game;
 /**
  * The {@code BallRemover} class is a {@link HitListener} that removes balls from the game
  * when they hit a specific block (e.g., the "death region" at the bottom of the screen).
- * It also updates a counter that tracks the number of remaining balls.
+ * It also updates a counter that tracks the number of remaining balls, and publishes a
+ * {@link EventType#BALL_LOST} event to the game's event pipeline.
  */
 public class BallRemover implements HitListener {
     private Game game;
@@ -29,5 +31,7 @@ public class BallRemover implements HitListener {
     public void hitEvent(Block beingHit, Ball hitter) {
         hitter.removeFromGame(this.game);
         this.remainingBalls.decrease(1);
+        this.game.publishEvent(EventType.BALL_LOST, beingHit.getId(), hitter.getId(), hitter.getX(), hitter.getY());
+        this.game.getBallPool().release(hitter);
     }
 }
\ No newline at end of file
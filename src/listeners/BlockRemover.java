@@ -3,13 +3,17 @@ package listeners;
 import game.Game;
 import sprites.Ball;
 import sprites.Block;
+import sprites.BlockGrid;
 
 /**
  * The BlockRemover class is responsible for removing blocks from the game
- * when they are hit, as well as keeping track of the number of remaining blocks.
- * It implements the HitListener interface to respond to hit events on blocks.
+ * when they are hit, as well as keeping track of the number of remaining blocks,
+ * both in total and per color of the game's palette (a block that leaves the game takes itself out of the
+ * palette's count).
+ * It implements the HitListener interface to respond to hit events on blocks, and the
+ * CellHitListener interface to respond to hit events on the cells of a block grid.
  */
-public class BlockRemover implements HitListener {
+public class BlockRemover implements HitListener, CellHitListener {
     private final Game game;
     private final Counter remainingBlocks;
 
@@ -26,9 +30,17 @@ public class BlockRemover implements HitListener {
 
     @Override
     public void hitEvent(Block beingHit, Ball hitter) {
-        hitter.setColor(beingHit.getColor());
+        hitter.setColorIndex(beingHit.getColorIndex());
         beingHit.removeHitListener(this);
         beingHit.removeFromGame(this.game);
         this.remainingBlocks.decrease(1);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void cellHit(BlockGrid grid, int cell, Ball hitter) {
+        hitter.setColorIndex(grid.getColorIndex(cell));
+        grid.removeCell(cell);
+        this.remainingBlocks.decrease(1);
+        grid.getPalette().blockRemoved(grid.getColorIndex(cell));
+    }
+}
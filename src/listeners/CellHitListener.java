@@ -0,0 +1,21 @@
+package listeners;
+
+import sprites.Ball;
+import sprites.BlockGrid;
+
+/**
+ * The CellHitListener interface should be implemented by any class
+ * that wants to be notified when a cell of a BlockGrid is hit by a Ball.
+ */
+public interface CellHitListener {
+
+    /**
+     * This method is called whenever a live cell of the specified grid
+     * is hit by the specified ball (hitter).
+     *
+     * @param grid   the BlockGrid that was hit
+     * @param cell   the index of the cell that was hit
+     * @param hitter the Ball that hit the cell
+     */
+    void cellHit(BlockGrid grid, int cell, Ball hitter);
+}
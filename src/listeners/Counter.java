@@ -42,4 +42,13 @@ public class Counter {
     public int getValue() {
         return counter;
     }
+
+    /**
+     * Sets the current count, e.g. when a game is restored to an earlier state.
+     *
+     * @param value the new count
+     */
+    public void setValue(int value) {
+        counter = value;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package listeners;
+
+import events.EventPipeline;
+import events.EventType;
+import sprites.Ball;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code HitEventBuffer} collects hit events that happen during a single game tick and
+ * dispatches them to the {@link HitListener}s in one batch at the end of the tick.
+ *
+ * <p>
+ * Events are stored as primitive records (block id, ball id, tick, contact point) inside
+ * preallocated parallel arrays that are used as a ring, so recording a hit does not allocate.
+ * Blocks and balls are referred to by the ids handed out by {@link #register(HitTarget, int)} and
+ * {@link #registerBall(Ball)}. A target may own a range of block ids, e.g. one per cell of a grid.
+ * Since listeners only run at the end of the tick, they may freely remove blocks and balls from the
+ * game without disturbing the sprites that are still moving.
+ * </p>
+ */
+public class HitEventBuffer {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final List<HitTarget> targets;
+    private int[] firstIds;
+    private int nextId;
+    private final List<Ball> balls;
+    private int[] blockIds;
+    private int[] ballIds;
+    private long[] ticks;
+    private double[] contactXs;
+    private double[] contactYs;
+    private int mask;
+    private long head;
+    private long tail;
+    private long tick;
+    private int current;
+    private EventPipeline pipeline;
+
+    /**
+     * Constructs a {@code HitEventBuffer} with a default capacity.
+     */
+    public HitEventBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@code HitEventBuffer} that can hold the given number of events per tick.
+     * The capacity is rounded up to the next power of two.
+     *
+     * @param capacity the number of events the buffer can hold before it has to grow
+     */
+    public HitEventBuffer(int capacity) {
+        this.targets = new ArrayList<>();
+        this.firstIds = new int[16];
+        this.balls = new ArrayList<>();
+        allocate(Integer.highestOneBit(Math.max(2, capacity - 1)) << 1);
+        this.current = -1;
+    }
+
+    /**
+     * Registers a hit target so that hit events can refer to it by id.
+     * The target is given {@code size} consecutive ids, starting at the returned id.
+     *
+     * @param target the target to register
+     * @param size   the number of ids the target needs
+     * @return the first id assigned to the target
+     */
+    public int register(HitTarget target, int size) {
+        if (this.targets.size() == this.firstIds.length) {
+            this.firstIds = Arrays.copyOf(this.firstIds, this.firstIds.length * 2);
+        }
+        this.firstIds[this.targets.size()] = this.nextId;
+        this.targets.add(target);
+        this.nextId += size;
+        return this.firstIds[this.targets.size() - 1];
+    }
+
+    /**
+     * Registers a ball so that hit events can refer to it by id.
+     *
+     * @param ball the ball to register
+     * @return the id assigned to the ball
+     */
+    public int registerBall(Ball ball) {
+        this.balls.add(ball);
+        return this.balls.size() - 1;
+    }
+
+    /**
+     * Sets the pipeline every dispatched hit is also published to, as an {@link EventType#HIT} event.
+     *
+     * @param pipeline the pipeline to publish to, or {@code null} to stop publishing
+     */
+    public void setPipeline(EventPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Records a hit of the given ball on the given block in the current tick.
+     *
+     * @param blockId  the id of the block (or grid cell) that was hit
+     * @param ballId   the id of the ball that hit the block
+     * @param contactX the x-coordinate of the contact point
+     * @param contactY the y-coordinate of the contact point
+     */
+    public void record(int blockId, int ballId, double contactX, double contactY) {
+        if (this.tail - this.head == this.blockIds.length) {
+            grow();
+        }
+        int slot = (int) (this.tail & this.mask);
+        this.blockIds[slot] = blockId;
+        this.ballIds[slot] = ballId;
+        this.ticks[slot] = this.tick;
+        this.contactXs[slot] = contactX;
+        this.contactYs[slot] = contactY;
+        this.tail++;
+    }
+
+    /**
+     * Ends the current tick: dispatches every recorded event to the listeners of its block,
+     * in the order the hits happened, and then advances the tick counter.
+     * If a pipeline is set, every event is published to it before its listeners are notified.
+     */
+    public void endTick() {
+        while (this.head < this.tail) {
+            this.current = (int) (this.head & this.mask);
+            this.head++;
+            if (this.pipeline != null) {
+                this.pipeline.publish(EventType.HIT, this.blockIds[this.current], this.ballIds[this.current],
+                        this.ticks[this.current], this.contactXs[this.current], this.contactYs[this.current]);
+            }
+            int blockId = this.blockIds[this.current];
+            int owner = owner(blockId);
+            Ball hitter = this.balls.get(this.ballIds[this.current]);
+            this.targets.get(owner).dispatchHit(blockId - this.firstIds[owner], hitter);
+        }
+        this.current = -1;
+        this.tick++;
+    }
+
+    /**
+     * Returns the number of the tick currently being simulated.
+     *
+     * @return the current tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Sets the number of the tick to simulate next, when the game is restored to an earlier state. Must only
+     * be called between ticks, when no event is pending.
+     *
+     * @param newTick the tick to simulate next
+     */
+    public void rewind(long newTick) {
+        if (this.head != this.tail) {
+            throw new IllegalStateException("cannot rewind with events pending");
+        }
+        this.tick = newTick;
+    }
+
+    /**
+     * Returns the tick in which the event currently being dispatched happened.
+     * Only meaningful while listeners are being notified.
+     *
+     * @return the tick of the event being dispatched
+     */
+    public long eventTick() {
+        return this.ticks[this.current];
+    }
+
+    /**
+     * Returns the x-coordinate of the contact point of the event currently being dispatched.
+     * Only meaningful while listeners are being notified.
+     *
+     * @return the x-coordinate of the contact point
+     */
+    public double eventX() {
+        return this.contactXs[this.current];
+    }
+
+    /**
+     * Returns the y-coordinate of the contact point of the event currently being dispatched.
+     * Only meaningful while listeners are being notified.
+     *
+     * @return the y-coordinate of the contact point
+     */
+    public double eventY() {
+        return this.contactYs[this.current];
+    }
+
+    /**
+     * Finds the registered target that owns the given id.
+     *
+     * @param blockId the id to look up
+     * @return the index of the owning target
+     */
+    private int owner(int blockId) {
+        int found = Arrays.binarySearch(this.firstIds, 0, this.targets.size(), blockId);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Allocates the record arrays for the given power-of-two capacity.
+     *
+     * @param capacity the new capacity
+     */
+    private void allocate(int capacity) {
+        this.blockIds = new int[capacity];
+        this.ballIds = new int[capacity];
+        this.ticks = new long[capacity];
+        this.contactXs = new double[capacity];
+        this.contactYs = new double[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Doubles the capacity of the buffer, keeping the pending events in order.
+     * This only happens if a single tick produces more hits than the buffer can hold.
+     */
+    private void grow() {
+        int[] oldBlocks = this.blockIds;
+        int[] oldBalls = this.ballIds;
+        long[] oldTicks = this.ticks;
+        double[] oldXs = this.contactXs;
+        double[] oldYs = this.contactYs;
+        int oldMask = this.mask;
+        int size = (int) (this.tail - this.head);
+
+        allocate(oldBlocks.length << 1);
+        for (int i = 0; i < size; i++) {
+            int from = (int) ((this.head + i) & oldMask);
+            this.blockIds[i] = oldBlocks[from];
+            this.ballIds[i] = oldBalls[from];
+            this.ticks[i] = oldTicks[from];
+            this.contactXs[i] = oldXs[from];
+            this.contactYs[i] = oldYs[from];
+        }
+        this.head = 0;
+        this.tail = size;
+    }
+}
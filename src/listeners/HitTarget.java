@@ -0,0 +1,24 @@
+package listeners;
+
+import sprites.Ball;
+
+/**
+ * A {@code HitTarget} is an object whose hits can be recorded in a {@link HitEventBuffer} and
+ * dispatched to its listeners at the end of the tick.
+ *
+ * <p>
+ * A target owns a contiguous range of hit ids: a single block owns one id, while a block grid owns
+ * one id per cell. The index passed to {@link #dispatchHit(int, Ball)} is relative to the start of
+ * that range.
+ * </p>
+ */
+public interface HitTarget {
+
+    /**
+     * Notifies the listeners of the target that the part of it at the given index was hit.
+     *
+     * @param index  the index of the part that was hit, relative to the target's first id
+     * @param hitter the ball that hit the target
+     */
+    void dispatchHit(int index, Ball hitter);
+}
@@ -0,0 +1,40 @@
+package listeners;
+
+import geometry.Rectangle;
+import sprites.Ball;
+import sprites.Block;
+import sprites.BlockGrid;
+import sprites.ParticleSystem;
+
+/**
+ * The {@code ParticleBurstListener} throws a burst of particles in the block's color out of every block
+ * that breaks.
+ */
+public class ParticleBurstListener implements HitListener, CellHitListener {
+    private final ParticleSystem particles;
+    private final int burstSize;
+
+    /**
+     * Constructs a {@code ParticleBurstListener}.
+     *
+     * @param particles the particle system to emit the bursts into
+     * @param burstSize the number of particles in a burst
+     */
+    public ParticleBurstListener(ParticleSystem particles, int burstSize) {
+        this.particles = particles;
+        this.burstSize = burstSize;
+    }
+
+    @Override
+    public void hitEvent(Block beingHit, Ball hitter) {
+        Rectangle r = beingHit.getCollisionRectangle();
+        this.particles.emit(r.getUpperLeft().getX() + r.getWidth() / 2, r.getUpperLeft().getY() + r.getHeight() / 2,
+                beingHit.getColorIndex(), this.burstSize);
+    }
+
+    @Override
+    public void cellHit(BlockGrid grid, int cell, Ball hitter) {
+        this.particles.emit(grid.getCellCenterX(cell), grid.getCellCenterY(cell), grid.getColorIndex(cell),
+                this.burstSize);
+    }
+}
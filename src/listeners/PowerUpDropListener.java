@@ -0,0 +1,65 @@
+package listeners;
+
+import game.Xorshift;
+import geometry.Rectangle;
+import sprites.Ball;
+import sprites.Block;
+import sprites.BlockGrid;
+import sprites.PowerUpField;
+
+/**
+ * The {@code PowerUpDropListener} lets broken blocks drop a power-up capsule now and then.
+ * The kind of a capsule, a split factor or a paddle widening, is picked at random from a fixed set.
+ */
+public class PowerUpDropListener implements HitListener, CellHitListener {
+    private static final int[] FACTORS = {2, 3, 8, PowerUpField.WIDE_PADDLE};
+
+    private final PowerUpField field;
+    private final double chance;
+    private final Xorshift random;
+    private final long firstState;
+
+    /**
+     * Constructs a {@code PowerUpDropListener}.
+     *
+     * @param field  the field the capsules fall in
+     * @param chance the probability that a broken block drops a capsule, between 0 and 1
+     * @param seed   the seed of the random drops
+     */
+    public PowerUpDropListener(PowerUpField field, double chance, long seed) {
+        this.field = field;
+        this.chance = chance;
+        this.random = new Xorshift(seed);
+        this.firstState = this.random.getState();
+    }
+
+    /**
+     * Starts the random drops over from the seed the listener was constructed with.
+     */
+    public void reset() {
+        this.random.setState(this.firstState);
+    }
+
+    @Override
+    public void hitEvent(Block beingHit, Ball hitter) {
+        Rectangle r = beingHit.getCollisionRectangle();
+        maybeDrop(r.getUpperLeft().getX() + r.getWidth() / 2, r.getUpperLeft().getY() + r.getHeight() / 2);
+    }
+
+    @Override
+    public void cellHit(BlockGrid grid, int cell, Ball hitter) {
+        maybeDrop(grid.getCellCenterX(cell), grid.getCellCenterY(cell));
+    }
+
+    /**
+     * Drops a capsule at the given point with the configured probability.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     */
+    private void maybeDrop(double x, double y) {
+        if (this.random.nextDouble() < this.chance) {
+            this.field.drop(x, y, FACTORS[(int) (this.random.nextDouble() * FACTORS.length)]);
+        }
+    }
+}
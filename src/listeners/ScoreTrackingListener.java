@@ -2,12 +2,13 @@ package listeners;
 
 import sprites.Block;
 import sprites.Ball;
+import sprites.BlockGrid;
 
 /**
  * The {@code ScoreTrackingListener} class is responsible for tracking the player's score.
- * It listens to hit events and increases the score when a block is hit.
+ * It listens to hit events and increases the score when a block, or a cell of a block grid, is hit.
  */
-public class ScoreTrackingListener implements HitListener {
+public class ScoreTrackingListener implements HitListener, CellHitListener {
     private final Counter currentScore;
 
     /**
@@ -24,4 +25,9 @@ public class ScoreTrackingListener implements HitListener {
         beingHit.removeHitListener(this);
         currentScore.increase(5);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void cellHit(BlockGrid grid, int cell, Ball hitter) {
+        currentScore.increase(5);
+    }
+}
@@ -0,0 +1,77 @@
+package net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code BitReader} reads back the values a {@link BitWriter} packed.
+ */
+public class BitReader {
+    private ByteBuffer source;
+    private long pending;
+    private int pendingBits;
+
+    /**
+     * Starts reading at the position of a buffer.
+     *
+     * @param buffer the buffer to read from; its limit must be the end of the packed values
+     * @return this reader
+     */
+    public BitReader reset(ByteBuffer buffer) {
+        this.source = buffer;
+        this.pending = 0;
+        this.pendingBits = 0;
+        return this;
+    }
+
+    /**
+     * Reads a value of a number of bits.
+     *
+     * @param bits the number of bits to read, at most 56
+     * @return the value, in the lowest bits
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the value
+     */
+    public long readBits(int bits) {
+        while (this.pendingBits < bits) {
+            this.pending = (this.pending << Byte.SIZE) | (this.source.get() & 0xFF);
+            this.pendingBits += Byte.SIZE;
+        }
+        this.pendingBits -= bits;
+        return (this.pending >>> this.pendingBits) & ((1L << bits) - 1);
+    }
+
+    /**
+     * Reads a single bit.
+     *
+     * @return the bit
+     */
+    public boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Reads a number written with {@link BitWriter#writeVarint(long)}.
+     *
+     * @return the number
+     */
+    public long readVarint() {
+        long value = 0;
+        int shift = 0;
+        long group;
+        do {
+            group = readBits(BitWriter.GROUP_BITS + 1);
+            value |= (group >>> 1) << shift;
+            shift += BitWriter.GROUP_BITS;
+        } while ((group & 1) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a number written with {@link BitWriter#writeSigned(long)}.
+     *
+     * @return the number
+     */
+    public long readSigned() {
+        long zigzag = readVarint();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
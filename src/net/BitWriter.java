@@ -0,0 +1,101 @@
+package net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code BitWriter} packs values of any number of bits, most significant bit first, into a
+ * {@link ByteBuffer}.
+ *
+ * <p>
+ * Besides fixed-width fields it writes variable-length integers in groups of {@value #GROUP_BITS} bits, each
+ * followed by a bit that says whether another group follows, so the small numbers that dominate a delta
+ * take a few bits rather than a byte. Signed numbers are zigzag-encoded first, so small negative numbers are
+ * as cheap as small positive ones.
+ * </p>
+ */
+public class BitWriter {
+    /**
+     * The number of value bits in each group of a variable-length integer.
+     */
+    public static final int GROUP_BITS = 3;
+
+    private ByteBuffer target;
+    private long pending;
+    private int pendingBits;
+    private long written;
+
+    /**
+     * Starts writing at the position of a buffer. Whatever was pending for the previous buffer is dropped.
+     *
+     * @param buffer the buffer to write to
+     * @return this writer
+     */
+    public BitWriter reset(ByteBuffer buffer) {
+        this.target = buffer;
+        this.pending = 0;
+        this.pendingBits = 0;
+        this.written = 0;
+        return this;
+    }
+
+    /**
+     * Writes the lowest bits of a value.
+     *
+     * @param value the value
+     * @param bits  the number of bits to write, at most 56
+     */
+    public void writeBits(long value, int bits) {
+        this.pending = (this.pending << bits) | (value & ((1L << bits) - 1));
+        this.pendingBits += bits;
+        this.written += bits;
+        while (this.pendingBits >= Byte.SIZE) {
+            this.pendingBits -= Byte.SIZE;
+            this.target.put((byte) (this.pending >>> this.pendingBits));
+        }
+    }
+
+    /**
+     * Writes a single bit.
+     *
+     * @param bit the bit
+     */
+    public void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes a non-negative number in as few groups as it needs.
+     *
+     * @param value the number
+     */
+    public void writeVarint(long value) {
+        long rest = value;
+        while ((rest >>> GROUP_BITS) != 0) {
+            writeBits(((rest & ((1 << GROUP_BITS) - 1)) << 1) | 1, GROUP_BITS + 1);
+            rest >>>= GROUP_BITS;
+        }
+        writeBits(rest << 1, GROUP_BITS + 1);
+    }
+
+    /**
+     * Writes a signed number, zigzag-encoded so its size depends on its magnitude only.
+     *
+     * @param value the number
+     */
+    public void writeSigned(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes the bits still pending, padded with zeros to a whole byte.
+     *
+     * @return the number of bytes written since the last reset
+     */
+    public int flush() {
+        if (this.pendingBits > 0) {
+            this.target.put((byte) (this.pending << (Byte.SIZE - this.pendingBits)));
+            this.pendingBits = 0;
+        }
+        return (int) ((this.written + Byte.SIZE - 1) / Byte.SIZE);
+    }
+}
@@ -0,0 +1,207 @@
+package net;
+
+/**
+ * Encodes a {@link StateSnapshot} as the difference from a base snapshot the receiver already has, and
+ * decodes it back. Both sides compute the same predictions from the base, so only what the predictions miss
+ * is sent, bit-packed with a {@link BitWriter}:
+ * <ul>
+ *   <li>each counter: one bit if unchanged, otherwise the signed change</li>
+ *   <li>the live cells: the number of cells that changed, then the gaps between them</li>
+ *   <li>each paddle: the signed change of its x-coordinate, and one bit if its width is unchanged</li>
+ *   <li>each ball: one bit if its velocity is unchanged, and the error of its position against the position
+ *   the base velocity predicts, which is zero or close to it unless the ball bounced</li>
+ * </ul>
+ * A ball, paddle or bitset the base does not have is sent against zeros, so the empty snapshot works as the
+ * base of a client that has nothing yet.
+ */
+public final class DeltaCodec {
+    /**
+     * Not instantiable.
+     */
+    private DeltaCodec() {
+    }
+
+    /**
+     * Encodes a snapshot as its difference from a base.
+     *
+     * @param base    the snapshot the receiver has, or the empty snapshot
+     * @param current the snapshot to send
+     * @param out     the writer to encode into; the caller flushes it
+     */
+    public static void encode(StateSnapshot base, StateSnapshot current, BitWriter out) {
+        int dt = base.getTick() < 0 ? 0 : current.getTick() - base.getTick();
+        writeCounter(out, base.getScore(), current.getScore());
+        writeCounter(out, base.getRemainingBlocks(), current.getRemainingBlocks());
+        writeCounter(out, base.getRemainingBalls(), current.getRemainingBalls());
+
+        long[] cells = current.getCells();
+        long[] baseCells = base.getCells();
+        boolean resized = cells.length != baseCells.length;
+        out.writeBit(resized);
+        if (resized) {
+            out.writeVarint(cells.length);
+        }
+        int changed = 0;
+        for (int w = 0; w < cells.length; w++) {
+            changed += Long.bitCount(cells[w] ^ (resized ? 0 : baseCells[w]));
+        }
+        out.writeVarint(changed);
+        int last = -1;
+        for (int w = 0; w < cells.length && changed > 0; w++) {
+            long diff = cells[w] ^ (resized ? 0 : baseCells[w]);
+            while (diff != 0) {
+                int cell = w * Long.SIZE + Long.numberOfTrailingZeros(diff);
+                out.writeVarint(cell - last - 1);
+                last = cell;
+                diff &= diff - 1;
+            }
+        }
+
+        int paddles = current.getPaddleCount();
+        writeCount(out, base.getPaddleCount(), paddles);
+        for (int i = 0; i < paddles; i++) {
+            boolean known = i < base.getPaddleCount();
+            out.writeSigned(current.getPaddleX()[i] - (known ? base.getPaddleX()[i] : 0));
+            int width = known ? base.getPaddleWidth()[i] : 0;
+            out.writeBit(current.getPaddleWidth()[i] != width);
+            if (current.getPaddleWidth()[i] != width) {
+                out.writeSigned(current.getPaddleWidth()[i] - width);
+            }
+        }
+
+        int balls = current.getBallCount();
+        writeCount(out, base.getBallCount(), balls);
+        for (int i = 0; i < balls; i++) {
+            boolean known = i < base.getBallCount();
+            int dx = known ? base.getBallDx()[i] : 0;
+            int dy = known ? base.getBallDy()[i] : 0;
+            boolean turned = current.getBallDx()[i] != dx || current.getBallDy()[i] != dy;
+            out.writeBit(turned);
+            if (turned) {
+                out.writeSigned(current.getBallDx()[i] - dx);
+                out.writeSigned(current.getBallDy()[i] - dy);
+            }
+            out.writeSigned(current.getBallX()[i] - (known ? predict(base.getBallX()[i], dx, dt) : 0));
+            out.writeSigned(current.getBallY()[i] - (known ? predict(base.getBallY()[i], dy, dt) : 0));
+        }
+    }
+
+    /**
+     * Decodes a snapshot from its difference from a base.
+     *
+     * @param base the snapshot the sender encoded against; must not be {@code out}
+     * @param in   the reader to decode from
+     * @param tick the tick of the encoded snapshot
+     * @param out  the snapshot to decode into
+     */
+    public static void decode(StateSnapshot base, BitReader in, int tick, StateSnapshot out) {
+        int dt = base.getTick() < 0 ? 0 : tick - base.getTick();
+        out.setTick(tick);
+        out.setScore(readCounter(in, base.getScore()));
+        out.setRemainingBlocks(readCounter(in, base.getRemainingBlocks()));
+        out.setRemainingBalls(readCounter(in, base.getRemainingBalls()));
+
+        long[] baseCells = base.getCells();
+        boolean resized = in.readBit();
+        out.setCellWords(resized ? (int) in.readVarint() : baseCells.length);
+        long[] cells = out.getCells();
+        for (int w = 0; w < cells.length; w++) {
+            cells[w] = resized ? 0 : baseCells[w];
+        }
+        int changed = (int) in.readVarint();
+        int cell = -1;
+        for (int i = 0; i < changed; i++) {
+            cell += (int) in.readVarint() + 1;
+            cells[cell >>> 6] ^= 1L << cell;
+        }
+
+        int paddles = readCount(in, base.getPaddleCount());
+        out.setPaddleCount(paddles);
+        for (int i = 0; i < paddles; i++) {
+            boolean known = i < base.getPaddleCount();
+            out.getPaddleX()[i] = (known ? base.getPaddleX()[i] : 0) + (int) in.readSigned();
+            int width = known ? base.getPaddleWidth()[i] : 0;
+            out.getPaddleWidth()[i] = in.readBit() ? width + (int) in.readSigned() : width;
+        }
+
+        int balls = readCount(in, base.getBallCount());
+        out.setBallCount(balls);
+        for (int i = 0; i < balls; i++) {
+            boolean known = i < base.getBallCount();
+            int dx = known ? base.getBallDx()[i] : 0;
+            int dy = known ? base.getBallDy()[i] : 0;
+            if (in.readBit()) {
+                out.getBallDx()[i] = dx + (int) in.readSigned();
+                out.getBallDy()[i] = dy + (int) in.readSigned();
+            } else {
+                out.getBallDx()[i] = dx;
+                out.getBallDy()[i] = dy;
+            }
+            out.getBallX()[i] = (known ? predict(base.getBallX()[i], dx, dt) : 0) + (int) in.readSigned();
+            out.getBallY()[i] = (known ? predict(base.getBallY()[i], dy, dt) : 0) + (int) in.readSigned();
+        }
+    }
+
+    /**
+     * Predicts where a ball is after some ticks if it keeps its velocity.
+     *
+     * @param position the position, in position units
+     * @param velocity the velocity, in velocity units
+     * @param ticks    the number of ticks
+     * @return the predicted position, in position units
+     */
+    private static int predict(int position, int velocity, int ticks) {
+        return position + Math.floorDiv(velocity * ticks,
+                StateSnapshot.VELOCITY_SCALE / StateSnapshot.POSITION_SCALE);
+    }
+
+    /**
+     * Writes a counter: one bit if it is unchanged, otherwise the bit and the signed change.
+     *
+     * @param out   the writer
+     * @param base  the value in the base
+     * @param value the current value
+     */
+    private static void writeCounter(BitWriter out, int base, int value) {
+        out.writeBit(value != base);
+        if (value != base) {
+            out.writeSigned((long) value - base);
+        }
+    }
+
+    /**
+     * Reads a counter written by {@link #writeCounter(BitWriter, int, int)}.
+     *
+     * @param in   the reader
+     * @param base the value in the base
+     * @return the current value
+     */
+    private static int readCounter(BitReader in, int base) {
+        return in.readBit() ? (int) (base + in.readSigned()) : base;
+    }
+
+    /**
+     * Writes the number of paddles or balls: one bit if it is unchanged, otherwise the bit and the number.
+     *
+     * @param out   the writer
+     * @param base  the number in the base
+     * @param count the current number
+     */
+    private static void writeCount(BitWriter out, int base, int count) {
+        out.writeBit(count != base);
+        if (count != base) {
+            out.writeVarint(count);
+        }
+    }
+
+    /**
+     * Reads a number written by {@link #writeCount(BitWriter, int, int)}.
+     *
+     * @param in   the reader
+     * @param base the number in the base
+     * @return the current number
+     */
+    private static int readCount(BitReader in, int base) {
+        return in.readBit() ? (int) in.readVarint() : base;
+    }
+}
@@ -0,0 +1,111 @@
+package net;
+
+import game.AutopilotSensor;
+import game.Game;
+import game.NudgePolicy;
+import levels.LevelDefinition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code DeltaCodecHarness} measures the {@link DeltaCodec}: how many bytes a delta takes per tick against
+ * the snapshot a lagging client has, against the empty snapshot and in full, and how long encoding and
+ * decoding take.
+ */
+public final class DeltaCodecHarness {
+    private static final int HISTORY = 64;
+
+    /**
+     * Not instantiable.
+     */
+    private DeltaCodecHarness() {
+    }
+
+    /**
+     * Returns the size of the payload of a {@link Protocol#STATE} frame that sends a snapshot in full, with
+     * every number at its natural width, as the comparison point for the delta encoding.
+     *
+     * @param s the snapshot
+     * @return the size, in bytes
+     */
+    private static int fullSize(StateSnapshot s) {
+        return 3 * Integer.BYTES + 1 + s.getPaddleCount() * 2 * Float.BYTES + Short.BYTES
+                + s.getBallCount() * 4 * Float.BYTES + Short.BYTES + s.getCells().length * Long.BYTES;
+    }
+
+    /**
+     * Plays a game on autopilot and encodes every tick three ways: against the snapshot a client with a given
+     * acknowledgement lag would have, against the empty snapshot, and in full. Every delta is decoded and
+     * checked against the original.
+     *
+     * @param args the number of ticks (default 3000), the acknowledgement lag in ticks (default 6), and the
+     *             factor to split the balls by at the start (default 1)
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int lag = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int split = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        if (lag <= 0 || lag >= HISTORY) {
+            throw new IllegalArgumentException("the lag must be between 1 and " + (HISTORY - 1));
+        }
+        Game game = new Game();
+        game.setLevel(LevelDefinition.spiral());
+        game.setCosmetics(false);
+        game.getCycleDetector().setPolicy(NudgePolicy.DEFLECT);
+        game.initialize(new AutopilotSensor(game));
+        if (split > 1) {
+            game.splitBalls(split);
+        }
+        StateSnapshot[] history = new StateSnapshot[HISTORY];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = new StateSnapshot();
+        }
+        StateSnapshot empty = new StateSnapshot();
+        StateSnapshot decoded = new StateSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        BitWriter writer = new BitWriter();
+        BitReader reader = new BitReader();
+
+        long deltaBytes = 0;
+        long emptyBytes = 0;
+        long fullBytes = 0;
+        int maxDelta = 0;
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        int played = 0;
+        for (int t = 0; t < ticks && !game.isOver(); t++) {
+            game.tick();
+            StateSnapshot current = history[t % HISTORY];
+            current.capture(game, t);
+            StateSnapshot base = t >= lag ? history[(t - lag) % HISTORY] : empty;
+
+            buffer.clear();
+            long start = System.nanoTime();
+            DeltaCodec.encode(base, current, writer.reset(buffer));
+            int size = writer.flush();
+            encodeNanos += System.nanoTime() - start;
+            buffer.flip();
+            start = System.nanoTime();
+            DeltaCodec.decode(base, reader.reset(buffer), t, decoded);
+            decodeNanos += System.nanoTime() - start;
+            if (!decoded.sameAs(current)) {
+                throw new IllegalStateException("tick " + t + " did not decode to what was encoded");
+            }
+            deltaBytes += size;
+            maxDelta = Math.max(maxDelta, size);
+
+            buffer.clear();
+            DeltaCodec.encode(empty, current, writer.reset(buffer));
+            emptyBytes += writer.flush();
+            fullBytes += fullSize(current);
+            played++;
+        }
+        System.out.printf("%d ticks, ack lag %d, %d balls at the end%n", played, lag,
+                game.getBalls().size());
+        System.out.printf("delta:       %.1f bytes per tick (max %d), encode %.2f us, decode %.2f us%n",
+                (double) deltaBytes / played, maxDelta, encodeNanos / 1e3 / played, decodeNanos / 1e3 / played);
+        System.out.printf("packed full: %.1f bytes per tick%n", (double) emptyBytes / played);
+        System.out.printf("full:        %.1f bytes per tick (%.1fx the delta)%n", (double) fullBytes / played,
+                (double) fullBytes / deltaBytes);
+    }
+}
@@ -0,0 +1,365 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@code GameClient} is the connection of one player (or spectator) to a {@link GameServer}. It sends the
+ * buttons the player holds and keeps the latest state the server sent, which is all a client needs to draw
+ * the game.
+ *
+ * <p>
+ * The client never blocks once connected: {@link #poll()} reads whatever arrived and decodes only the newest
+ * complete state, skipping older ones. States arrive as deltas against a state the client acknowledged, so
+ * the client keeps the states it decoded recently, in reusable {@link StateSnapshot}s, as bases. Round-trip
+ * times are measured from the sequence number of the last input the server acknowledges in a state.
+ * </p>
+ */
+public class GameClient implements AutoCloseable {
+    private static final int INPUT_BUFFER_BYTES = 4 * Protocol.MAX_FRAME_BYTES;
+    private static final int SEND_TIMES = 256;
+    // at least as many as the server keeps, so every base the server picks is still here
+    private static final int HISTORY = 64;
+
+    private final SocketChannel channel;
+    private final ByteBuffer in;
+    private final ByteBuffer out;
+    private final long[] sendTimes;
+    private int player = -2;
+    private double fieldWidth;
+    private double fieldHeight;
+    private int sequence;
+    private int acknowledged;
+
+    private final StateSnapshot[] history;
+    private final StateSnapshot empty;
+    private final BitReader reader;
+    private StateSnapshot state;
+    private boolean over;
+
+    private long states;
+    private long missingBases;
+    private long bytesReceived;
+    private long roundTrips;
+    private long roundTripNanos;
+    private long lastRoundTrip;
+
+    /**
+     * Connects to a server. The connection is made blocking and then switched to non-blocking.
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     * @throws IOException if the server cannot be reached
+     */
+    public GameClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.socket().setTcpNoDelay(true);
+        this.channel.configureBlocking(false);
+        this.in = ByteBuffer.allocateDirect(INPUT_BUFFER_BYTES);
+        this.out = ByteBuffer.allocateDirect(Protocol.MAX_FRAME_BYTES);
+        this.sendTimes = new long[SEND_TIMES];
+        this.history = new StateSnapshot[HISTORY];
+        for (int i = 0; i < HISTORY; i++) {
+            this.history[i] = new StateSnapshot();
+        }
+        this.empty = new StateSnapshot();
+        this.reader = new BitReader();
+        this.state = this.empty;
+    }
+
+    /**
+     * Sends the buttons the player holds. A spectator's inputs are ignored by the server.
+     *
+     * @param buttons a combination of {@link Protocol#LEFT} and {@link Protocol#RIGHT}
+     * @throws IOException if the connection broke
+     */
+    public void sendInput(int buttons) throws IOException {
+        this.sequence++;
+        this.sendTimes[this.sequence & (SEND_TIMES - 1)] = System.nanoTime();
+        if (this.out.remaining() >= Protocol.INPUT_BYTES) {
+            this.out.putShort((short) Protocol.INPUT_BYTES).put((byte) Protocol.INPUT).putInt(this.sequence)
+                    .putInt(this.state.getTick()).put((byte) buttons);
+        }
+        this.out.flip();
+        this.channel.write(this.out);
+        this.out.compact();
+    }
+
+    /**
+     * Reads everything the server sent since the last poll and keeps the newest state.
+     *
+     * @return {@code true} if a new state arrived
+     * @throws IOException if the connection broke or the server closed it
+     */
+    public boolean poll() throws IOException {
+        int read;
+        int newest = -1;
+        int newestLength = 0;
+        boolean fresh = false;
+        while ((read = this.channel.read(this.in)) > 0) {
+            this.bytesReceived += read;
+            this.in.flip();
+            int length;
+            newest = -1;
+            while ((length = Protocol.completeFrame(this.in)) > 0) {
+                int start = this.in.position();
+                int type = Protocol.frameType(this.in);
+                if (type == Protocol.HELLO) {
+                    readHello(start);
+                } else if (type == Protocol.STATE) {
+                    newest = start;
+                    newestLength = length;
+                }
+                this.in.position(start + length);
+            }
+            if (newest >= 0) {
+                // decode before compacting moves the frame
+                readState(newest, newestLength);
+                fresh = true;
+            }
+            this.in.compact();
+        }
+        if (read < 0) {
+            throw new IOException("the server closed the connection");
+        }
+        return fresh;
+    }
+
+    /**
+     * Decodes a greeting.
+     *
+     * @param start the position of the frame
+     */
+    private void readHello(int start) {
+        int p = start + Protocol.HEADER_BYTES;
+        this.player = this.in.get(p);
+        this.fieldWidth = this.in.getFloat(p + 3);
+        this.fieldHeight = this.in.getFloat(p + 7);
+    }
+
+    /**
+     * Decodes a state against its base, unless it is older than the current state or its base is gone.
+     *
+     * @param start  the position of the frame
+     * @param length the length of the frame
+     */
+    private void readState(int start, int length) {
+        ByteBuffer b = this.in.duplicate();
+        b.limit(start + length).position(start + Protocol.HEADER_BYTES);
+        int stateTick = b.getInt();
+        int ack = b.getInt();
+        int flags = b.get();
+        int baseTick = b.getInt();
+        int current = this.state.getTick();
+        if (current >= 0 && stateTick - current <= 0) {
+            return;
+        }
+        StateSnapshot base = this.empty;
+        if (baseTick >= 0) {
+            base = this.history[baseTick & (HISTORY - 1)];
+            if (base.getTick() != baseTick || stateTick - baseTick >= HISTORY) {
+                this.missingBases++;
+                return;
+            }
+        }
+        StateSnapshot decoded = this.history[stateTick & (HISTORY - 1)];
+        DeltaCodec.decode(base, this.reader.reset(b), stateTick, decoded);
+        this.state = decoded;
+        this.over = (flags & Protocol.OVER) != 0;
+        this.states++;
+        if (ack - this.acknowledged > 0 && this.sequence - ack < SEND_TIMES) {
+            this.acknowledged = ack;
+            this.lastRoundTrip = System.nanoTime() - this.sendTimes[ack & (SEND_TIMES - 1)];
+            this.roundTrips++;
+            this.roundTripNanos += this.lastRoundTrip;
+        }
+    }
+
+    /**
+     * Returns the player number the server assigned.
+     *
+     * @return the player number, -1 for a spectator, or -2 if the greeting has not arrived yet
+     */
+    public int getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Returns the width of the field.
+     *
+     * @return the width, or 0 if the greeting has not arrived yet
+     */
+    public double getFieldWidth() {
+        return this.fieldWidth;
+    }
+
+    /**
+     * Returns the height of the field.
+     *
+     * @return the height, or 0 if the greeting has not arrived yet
+     */
+    public double getFieldHeight() {
+        return this.fieldHeight;
+    }
+
+    /**
+     * Returns the tick of the latest state.
+     *
+     * @return the tick, or -1 if no state arrived yet
+     */
+    public int getTick() {
+        return this.state.getTick();
+    }
+
+    /**
+     * Returns whether the latest state is the last one of the game.
+     *
+     * @return {@code true} if the game is over
+     */
+    public boolean isOver() {
+        return this.over;
+    }
+
+    /**
+     * Returns the score in the latest state.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return this.state.getScore();
+    }
+
+    /**
+     * Returns the number of blocks left in the latest state.
+     *
+     * @return the number of blocks left
+     */
+    public int getRemainingBlocks() {
+        return this.state.getRemainingBlocks();
+    }
+
+    /**
+     * Returns the number of paddles in the latest state.
+     *
+     * @return the number of paddles
+     */
+    public int getPaddleCount() {
+        return this.state.getPaddleCount();
+    }
+
+    /**
+     * Returns the x-coordinate of the left edge of a paddle.
+     *
+     * @param i the index of the paddle, which is also the number of the player controlling it
+     * @return the x-coordinate
+     */
+    public double getPaddleX(int i) {
+        return (double) this.state.getPaddleX()[i] / StateSnapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the width of a paddle.
+     *
+     * @param i the index of the paddle
+     * @return the width
+     */
+    public double getPaddleWidth(int i) {
+        return (double) this.state.getPaddleWidth()[i] / StateSnapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the number of balls in the latest state.
+     *
+     * @return the number of balls
+     */
+    public int getBallCount() {
+        return this.state.getBallCount();
+    }
+
+    /**
+     * Returns the x-coordinate of the center of a ball.
+     *
+     * @param i the index of the ball
+     * @return the x-coordinate
+     */
+    public double getBallX(int i) {
+        return (double) this.state.getBallX()[i] / StateSnapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the y-coordinate of the center of a ball.
+     *
+     * @param i the index of the ball
+     * @return the y-coordinate
+     */
+    public double getBallY(int i) {
+        return (double) this.state.getBallY()[i] / StateSnapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the bitset of live cells in the latest state. The array is reused by later states.
+     *
+     * @return the live cells, one bit per cell of the grid
+     */
+    public long[] getLiveCells() {
+        return this.state.getCells();
+    }
+
+    /**
+     * Returns the number of states decoded.
+     *
+     * @return the number of states
+     */
+    public long getStates() {
+        return this.states;
+    }
+
+    /**
+     * Returns the number of states dropped because the state they were encoded against was no longer kept.
+     * This stays 0 as long as the client keeps at least as many states as the server.
+     *
+     * @return the number of states
+     */
+    public long getMissingBases() {
+        return this.missingBases;
+    }
+
+    /**
+     * Returns the number of bytes received.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    /**
+     * Returns the last round-trip time measured.
+     *
+     * @return the time from sending an input to receiving the first state that applied it, in nanoseconds
+     */
+    public long getLastRoundTrip() {
+        return this.lastRoundTrip;
+    }
+
+    /**
+     * Returns the mean round-trip time.
+     *
+     * @return the mean, in nanoseconds, or 0 if none was measured
+     */
+    public long getMeanRoundTrip() {
+        return this.roundTrips == 0 ? 0 : this.roundTripNanos / this.roundTrips;
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
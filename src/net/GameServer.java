@@ -0,0 +1,437 @@
+package net;
+
+import game.Game;
+import game.WorldConfig;
+import levels.LevelDefinition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * A {@code GameServer} runs the one authoritative simulation of a multiplayer game. Clients only send the
+ * buttons their player holds, and receive the state of the world after every tick.
+ *
+ * <p>
+ * The server is a single-threaded event loop over a {@link Selector}: it accepts connections, reads inputs
+ * into each client's direct buffer, and sleeps in {@link Selector#select(long)} until the next tick is due.
+ * The first clients to connect become the players, one paddle each, all defending the same field; later
+ * clients are spectators. The game starts once every player has joined.
+ * </p>
+ *
+ * <p>
+ * After a tick the state is captured into a short history of {@link StateSnapshot}s and sent to every
+ * client as a delta ({@link DeltaCodec}) against the last state that client acknowledged, or in full if that
+ * state has left the history. The encoding goes into a direct buffer and is copied behind a short per-client
+ * header into the client's output buffer, which is written as far as the socket takes it; the rest goes out
+ * when the socket becomes writable. Nothing is allocated per message. A client too slow to take a state has
+ * it skipped, since the next state supersedes it anyway.
+ * </p>
+ */
+public class GameServer implements Runnable, AutoCloseable {
+    private static final int INPUT_BUFFER_BYTES = 4096;
+    private static final int OUTPUT_BUFFER_BYTES = 4 * Protocol.MAX_FRAME_BYTES;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final int TICK_RATE = 60;
+    // how many past states are kept as bases for the deltas; a power of two
+    private static final int HISTORY = 64;
+
+    private final Game game;
+    private final NetworkSensor[] sensors;
+    private final Connection[] players;
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private final StateSnapshot[] history;
+    private final StateSnapshot empty;
+    private final ByteBuffer encoded;
+    private final BitWriter writer;
+    private int joined;
+    private long skippedStates;
+    private long bytesSent;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a {@code GameServer} listening on the given port, with a game of one paddle per player.
+     *
+     * @param world       the playing field
+     * @param level       the level to play
+     * @param playerCount the number of players, each of whom controls a paddle
+     * @param port        the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(WorldConfig world, LevelDefinition level, int playerCount, int port) throws IOException {
+        if (playerCount <= 0) {
+            throw new IllegalArgumentException("a game needs at least one player");
+        }
+        this.game = new Game();
+        this.game.setWorld(world);
+        this.game.setLevel(level);
+        this.game.setCosmetics(false);
+        this.sensors = new NetworkSensor[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            this.sensors[i] = new NetworkSensor();
+        }
+        this.game.initialize(this.sensors[0]);
+        for (int i = 1; i < playerCount; i++) {
+            this.game.addPaddle(this.sensors[i]);
+        }
+        this.players = new Connection[playerCount];
+        this.history = new StateSnapshot[HISTORY];
+        for (int i = 0; i < HISTORY; i++) {
+            this.history[i] = new StateSnapshot();
+        }
+        this.empty = new StateSnapshot();
+        this.encoded = ByteBuffer.allocateDirect(Protocol.MAX_FRAME_BYTES);
+        this.writer = new BitWriter();
+
+        this.selector = Selector.open();
+        this.acceptor = ServerSocketChannel.open();
+        this.acceptor.bind(new InetSocketAddress("127.0.0.1", port));
+        this.acceptor.configureBlocking(false);
+        this.acceptor.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port
+     * @throws IOException if the port cannot be read
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) this.acceptor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the game the server runs. It must only be looked at from the server's thread, or after the
+     * server stopped.
+     *
+     * @return the game
+     */
+    public Game getGame() {
+        return this.game;
+    }
+
+    /**
+     * Returns the number of states not sent to a client because its output buffer was full.
+     *
+     * @return the number of skipped states
+     */
+    public long getSkippedStates() {
+        return this.skippedStates;
+    }
+
+    /**
+     * Returns the number of bytes of states queued for the clients.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    /**
+     * Runs the event loop until the game is over or the server is closed.
+     */
+    @Override
+    public void run() {
+        long period = 1_000_000_000L / TICK_RATE;
+        long next = 0;
+        try {
+            while (!this.closed) {
+                boolean started = this.joined == this.players.length;
+                if (started && next == 0) {
+                    next = System.nanoTime();
+                }
+                long wait = started ? (next - System.nanoTime()) / 1_000_000 : 0;
+                if (!started) {
+                    this.selector.select();
+                } else if (wait > 0) {
+                    this.selector.select(wait);
+                } else {
+                    this.selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                if (this.joined < this.players.length) {
+                    continue;
+                }
+                for (int i = 0; i < MAX_CATCH_UP_TICKS && System.nanoTime() >= next; i++) {
+                    this.game.tick();
+                    next += period;
+                    broadcast();
+                    if (this.game.isOver()) {
+                        flushAll();
+                        return;
+                    }
+                }
+                if (System.nanoTime() >= next) {
+                    // too far behind to catch up: drop the missed ticks
+                    next = System.nanoTime() + period;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("the server failed", e);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Stops the event loop. May be called from any thread.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.selector.wakeup();
+    }
+
+    /**
+     * Handles a ready key: a new connection, incoming inputs, or room to write.
+     *
+     * @param key the key
+     * @throws IOException if a new connection cannot be set up
+     */
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection c = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(c);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(c);
+            }
+        } catch (IOException | IllegalStateException e) {
+            disconnect(c);
+        }
+    }
+
+    /**
+     * Accepts a new connection, makes it a player if a paddle is free and a spectator otherwise, and greets
+     * it.
+     *
+     * @throws IOException if the connection cannot be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = this.acceptor.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection c = new Connection(channel);
+        for (int i = 0; i < this.players.length; i++) {
+            if (this.players[i] == null) {
+                this.players[i] = c;
+                c.player = i;
+                this.joined++;
+                break;
+            }
+        }
+        c.key = channel.register(this.selector, SelectionKey.OP_READ, c);
+        WorldConfig world = this.game.getWorld();
+        c.out.putShort((short) (Protocol.HEADER_BYTES + 11)).put((byte) Protocol.HELLO).put((byte) c.player)
+                .putShort((short) TICK_RATE).putFloat((float) world.getWidth()).putFloat((float) world.getHeight());
+        write(c);
+    }
+
+    /**
+     * Reads what a client sent and applies the inputs in it.
+     *
+     * @param c the client
+     * @throws IOException if the connection broke or the client closed it
+     */
+    private void read(Connection c) throws IOException {
+        if (c.channel.read(c.in) < 0) {
+            throw new IOException("closed");
+        }
+        c.in.flip();
+        int length;
+        while ((length = Protocol.completeFrame(c.in)) > 0) {
+            int start = c.in.position();
+            if (Protocol.frameType(c.in) == Protocol.INPUT && length == Protocol.INPUT_BYTES) {
+                int sequence = c.in.getInt(start + Protocol.HEADER_BYTES);
+                int acknowledged = c.in.getInt(start + Protocol.HEADER_BYTES + 4);
+                int buttons = c.in.get(start + Protocol.HEADER_BYTES + 8);
+                if (acknowledged - c.acknowledged > 0) {
+                    c.acknowledged = acknowledged;
+                }
+                // inputs may be lost or reordered on the way, and an old one must not undo a newer one
+                if (c.player >= 0 && sequence - c.sequence > 0) {
+                    c.sequence = sequence;
+                    this.sensors[c.player].setButtons(buttons);
+                }
+            }
+            c.in.position(start + length);
+        }
+        c.in.compact();
+    }
+
+    /**
+     * Writes as much of a client's output buffer as the socket takes, and watches for room to write the
+     * rest.
+     *
+     * @param c the client
+     * @throws IOException if the connection broke
+     */
+    private void write(Connection c) throws IOException {
+        c.out.flip();
+        c.channel.write(c.out);
+        c.out.compact();
+        c.key.interestOps(c.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Captures the state after a tick and sends it to every client, encoded against the last state the client
+     * acknowledged. Clients that acknowledged the same state share one encoding.
+     */
+    private void broadcast() {
+        int tick = (int) this.game.getHitEvents().getTick();
+        StateSnapshot current = this.history[tick & (HISTORY - 1)];
+        current.capture(this.game, tick);
+        int flags = this.game.isOver() ? Protocol.OVER : 0;
+        int encodedBase = Integer.MIN_VALUE;
+        for (SelectionKey key : this.selector.keys()) {
+            if (!(key.attachment() instanceof Connection) || !key.isValid()) {
+                continue;
+            }
+            Connection c = (Connection) key.attachment();
+            StateSnapshot base = baseOf(c, tick);
+            if (base.getTick() != encodedBase) {
+                this.encoded.clear();
+                DeltaCodec.encode(base, current, this.writer.reset(this.encoded));
+                this.writer.flush();
+                this.encoded.flip();
+                encodedBase = base.getTick();
+            }
+            int length = Protocol.STATE_HEADER_BYTES + this.encoded.remaining();
+            if (c.out.remaining() < length) {
+                this.skippedStates++;
+                continue;
+            }
+            c.out.putShort((short) length).put((byte) Protocol.STATE).putInt(tick).putInt(c.sequence)
+                    .put((byte) flags).putInt(base.getTick());
+            c.out.put(this.encoded);
+            this.encoded.rewind();
+            this.bytesSent += length;
+            try {
+                write(c);
+            } catch (IOException e) {
+                disconnect(c);
+            }
+        }
+    }
+
+    /**
+     * Returns the state a client acknowledged, if it is still in the history, and the empty state
+     * otherwise.
+     *
+     * @param c    the client
+     * @param tick the current tick
+     * @return the base to encode the client's next state against
+     */
+    private StateSnapshot baseOf(Connection c, int tick) {
+        if (c.acknowledged < 0 || tick - c.acknowledged >= HISTORY) {
+            return this.empty;
+        }
+        StateSnapshot base = this.history[c.acknowledged & (HISTORY - 1)];
+        return base.getTick() == c.acknowledged ? base : this.empty;
+    }
+
+    /**
+     * Tries to send what is left in every output buffer before the server stops.
+     */
+    private void flushAll() {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof Connection && key.isValid()) {
+                Connection c = (Connection) key.attachment();
+                try {
+                    c.out.flip();
+                    for (int spins = 0; c.out.hasRemaining() && spins < 1000; spins++) {
+                        c.channel.write(c.out);
+                    }
+                    c.out.compact();
+                } catch (IOException e) {
+                    disconnect(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a client. A player's paddle stops moving, and the slot can be taken by the next client.
+     *
+     * @param c the client
+     */
+    private void disconnect(Connection c) {
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            // the connection is gone either way
+        }
+        if (c.player >= 0 && this.players[c.player] == c) {
+            this.players[c.player] = null;
+            this.sensors[c.player].setButtons(0);
+            this.joined--;
+        }
+    }
+
+    /**
+     * Closes every connection, the listening socket and the selector.
+     */
+    private void closeQuietly() {
+        for (SelectionKey key : this.selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * The per-client state of the server: the socket, its buffers and the last input applied.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+        private SelectionKey key;
+        private int player = -1;
+        private int sequence;
+        private int acknowledged = -1;
+
+        /**
+         * Constructs a {@code Connection}.
+         *
+         * @param channel the socket of the client
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocateDirect(INPUT_BUFFER_BYTES);
+            this.out = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * A {@code LinkSimulator} is a proxy that sits between clients and a {@link GameServer} and makes the
+ * loopback link behave like a real network: every frame is held back by a latency plus a random jitter, and
+ * frames are dropped at a given rate.
+ *
+ * <p>
+ * The proxy understands frames, so it delays and drops whole messages, the way a datagram link would, while
+ * keeping their order. Greetings are never dropped. Since every state supersedes the previous one and every
+ * input repeats the buttons held, a lost frame only costs freshness, never consistency.
+ * </p>
+ */
+public class LinkSimulator implements Runnable, AutoCloseable {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long SELECT_MILLIS = 1;
+
+    private final InetSocketAddress target;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double lossRate;
+    private final SplittableRandom random;
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private long forwarded;
+    private long dropped;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a {@code LinkSimulator}.
+     *
+     * @param listenPort the port clients connect to, or 0 for any free port
+     * @param target     the server to forward to
+     * @param latencyMs  the one-way delay of every frame, in milliseconds
+     * @param jitterMs   the most extra delay added at random, in milliseconds
+     * @param lossRate   the probability a frame is dropped
+     * @param seed       the seed of the jitter and the losses
+     * @throws IOException if the port cannot be opened
+     */
+    public LinkSimulator(int listenPort, InetSocketAddress target, double latencyMs, double jitterMs,
+            double lossRate, long seed) throws IOException {
+        this.target = target;
+        this.latencyNanos = (long) (latencyMs * 1_000_000);
+        this.jitterNanos = (long) (jitterMs * 1_000_000);
+        this.lossRate = lossRate;
+        this.random = new SplittableRandom(seed);
+        this.selector = Selector.open();
+        this.acceptor = ServerSocketChannel.open();
+        this.acceptor.bind(new InetSocketAddress("127.0.0.1", listenPort));
+        this.acceptor.configureBlocking(false);
+        this.acceptor.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port clients connect to.
+     *
+     * @return the local port
+     * @throws IOException if the port cannot be read
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) this.acceptor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the number of frames forwarded.
+     *
+     * @return the number of frames
+     */
+    public long getForwarded() {
+        return this.forwarded;
+    }
+
+    /**
+     * Returns the number of frames dropped.
+     *
+     * @return the number of frames
+     */
+    public long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * Forwards frames until the proxy is closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!this.closed) {
+                this.selector.select(SELECT_MILLIS);
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        receive((Direction) key.attachment());
+                    }
+                }
+                long now = System.nanoTime();
+                for (SelectionKey key : this.selector.keys()) {
+                    if (key.attachment() instanceof Direction && key.isValid()) {
+                        deliver((Direction) key.attachment(), now);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("the link failed", e);
+        } finally {
+            for (SelectionKey key : this.selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    /**
+     * Stops forwarding. May be called from any thread.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.selector.wakeup();
+    }
+
+    /**
+     * Accepts a client and connects it to the server, with one direction of frames each way.
+     *
+     * @throws IOException if either side cannot be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel client = this.acceptor.accept();
+        if (client == null) {
+            return;
+        }
+        SocketChannel server = SocketChannel.open(this.target);
+        for (SocketChannel c : new SocketChannel[] {client, server}) {
+            c.configureBlocking(false);
+            c.socket().setTcpNoDelay(true);
+        }
+        client.register(this.selector, SelectionKey.OP_READ, new Direction(client, server));
+        server.register(this.selector, SelectionKey.OP_READ, new Direction(server, client));
+    }
+
+    /**
+     * Reads what arrived on one side, and queues each complete frame for delivery to the other side after
+     * its delay, unless it is lost.
+     *
+     * @param d the direction
+     * @throws IOException if the proxy cannot keep up
+     */
+    private void receive(Direction d) throws IOException {
+        int read;
+        try {
+            read = d.from.read(d.in);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            // one side hung up: hang up the other side too
+            d.from.close();
+            d.to.close();
+            return;
+        }
+        d.in.flip();
+        int length;
+        long now = System.nanoTime();
+        while ((length = Protocol.completeFrame(d.in)) > 0) {
+            int start = d.in.position();
+            boolean lost = Protocol.frameType(d.in) != Protocol.HELLO && this.random.nextDouble() < this.lossRate;
+            if (lost || d.queue.remaining() < Long.BYTES + length) {
+                this.dropped++;
+            } else {
+                long jitter = this.jitterNanos > 0 ? this.random.nextLong(this.jitterNanos) : 0;
+                // a frame may not overtake the frames before it
+                d.lastDue = Math.max(d.lastDue, now + this.latencyNanos + jitter);
+                d.queue.putLong(d.lastDue);
+                ByteBuffer frame = d.in.duplicate();
+                frame.limit(start + length);
+                d.queue.put(frame);
+            }
+            d.in.position(start + length);
+        }
+        d.in.compact();
+    }
+
+    /**
+     * Moves the frames that are due to the other side, and writes as much as it takes.
+     *
+     * @param d   the direction
+     * @param now the current time, from {@link System#nanoTime()}
+     * @throws IOException if the proxy cannot keep up
+     */
+    private void deliver(Direction d, long now) throws IOException {
+        d.queue.flip();
+        while (d.queue.remaining() >= Long.BYTES + Protocol.HEADER_BYTES
+                && d.queue.getLong(d.queue.position()) - now <= 0) {
+            int start = d.queue.position() + Long.BYTES;
+            int length = d.queue.getShort(start) & 0xFFFF;
+            if (d.out.remaining() < length) {
+                break;
+            }
+            ByteBuffer frame = d.queue.duplicate();
+            frame.limit(start + length).position(start);
+            d.out.put(frame);
+            d.queue.position(start + length);
+            this.forwarded++;
+        }
+        d.queue.compact();
+        d.out.flip();
+        if (d.out.hasRemaining() && d.to.isOpen()) {
+            try {
+                d.to.write(d.out);
+            } catch (IOException e) {
+                d.from.close();
+                d.to.close();
+            }
+        }
+        d.out.compact();
+    }
+
+    /**
+     * The frames flowing from one socket to the other: what was read, what waits for its due time, and what
+     * is due but not written yet.
+     */
+    private static final class Direction {
+        private final SocketChannel from;
+        private final SocketChannel to;
+        private final ByteBuffer in;
+        private final ByteBuffer queue;
+        private final ByteBuffer out;
+        private long lastDue = Long.MIN_VALUE;
+
+        /**
+         * Constructs a {@code Direction}.
+         *
+         * @param from the socket frames are read from
+         * @param to   the socket frames are written to
+         */
+        Direction(SocketChannel from, SocketChannel to) {
+            this.from = from;
+            this.to = to;
+            this.in = ByteBuffer.allocateDirect(Protocol.MAX_FRAME_BYTES * 2);
+            this.queue = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            this.out = ByteBuffer.allocateDirect(Protocol.MAX_FRAME_BYTES * 4);
+        }
+    }
+}
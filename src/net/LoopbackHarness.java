@@ -0,0 +1,137 @@
+package net;
+
+import game.NudgePolicy;
+import game.WorldConfig;
+import levels.LevelDefinition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@code LoopbackHarness} plays a two-player game over the loopback interface, through a
+ * {@link LinkSimulator}, and reports how the network held up. Each client is driven by a simple policy: its
+ * paddle chases the lowest ball above its half of the field.
+ */
+public final class LoopbackHarness {
+    private static final int PLAYERS = 2;
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+    private static final double DEAD_ZONE = 4;
+
+    /**
+     * Not instantiable.
+     */
+    private LoopbackHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the one-way latency in milliseconds (default 30), the loss rate (default 0.02), the number
+     *             of seconds to play (default 20), and the jitter in milliseconds (default 5)
+     * @throws Exception if the game cannot be set up or a thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        double latency = args.length > 0 ? Double.parseDouble(args[0]) : 30;
+        double loss = args.length > 1 ? Double.parseDouble(args[1]) : 0.02;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 20;
+        double jitter = args.length > 3 ? Double.parseDouble(args[3]) : 5;
+
+        GameServer server = new GameServer(WorldConfig.STANDARD, LevelDefinition.spiral(), PLAYERS, 0);
+        server.getGame().getCycleDetector().setPolicy(NudgePolicy.DEFLECT);
+        LinkSimulator link = new LinkSimulator(0, new InetSocketAddress("127.0.0.1", server.getPort()), latency,
+                jitter, loss, 1);
+        Thread serverThread = new Thread(server, "game-server");
+        Thread linkThread = new Thread(link, "link-simulator");
+        serverThread.start();
+        linkThread.start();
+
+        GameClient[] clients = new GameClient[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            clients[i] = new GameClient("127.0.0.1", link.getPort());
+        }
+        long[] roundTrips = new long[(int) (seconds * 60 * PLAYERS) + 1];
+        int samples = 0;
+        long frames = (long) (seconds * 60);
+        long next = System.nanoTime();
+        boolean over = false;
+        for (long frame = 0; frame < frames && !over; frame++) {
+            for (GameClient client : clients) {
+                if (client.poll() && client.getLastRoundTrip() > 0 && samples < roundTrips.length) {
+                    roundTrips[samples++] = client.getLastRoundTrip();
+                }
+                client.sendInput(decide(client));
+                over |= client.isOver();
+            }
+            next += FRAME_NANOS;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+        // let the last states through before tearing down
+        Thread.sleep((long) (2 * (latency + jitter)) + 50);
+        for (GameClient client : clients) {
+            try {
+                client.poll();
+            } catch (IOException e) {
+                // the server may be gone already
+            }
+        }
+        server.close();
+        serverThread.join();
+        link.close();
+        linkThread.join();
+
+        Arrays.sort(roundTrips, 0, samples);
+        GameClient first = clients[0];
+        System.out.printf("latency %.0f ms +%.0f jitter, loss %.1f%%%n", latency, jitter, 100 * loss);
+        System.out.printf("%d server ticks, %s, score %d, %d blocks left%n", server.getGame().getHitEvents().getTick(),
+                first.isOver() ? "game over" : "still running", first.getScore(), first.getRemainingBlocks());
+        for (int i = 0; i < PLAYERS; i++) {
+            GameClient c = clients[i];
+            System.out.printf("player %d: %d states, %d bytes (%.0f per state), %d without a base, mean rtt %.1f ms%n",
+                    c.getPlayer(), c.getStates(), c.getBytesReceived(),
+                    (double) c.getBytesReceived() / Math.max(1, c.getStates()), c.getMissingBases(),
+                    c.getMeanRoundTrip() / 1e6);
+            c.close();
+        }
+        if (samples > 0) {
+            System.out.printf("rtt p50 %.1f ms, p99 %.1f ms%n", roundTrips[samples / 2] / 1e6,
+                    roundTrips[Math.min(samples - 1, (int) (samples * 0.99))] / 1e6);
+        }
+        System.out.printf("link: %d frames forwarded, %d dropped; server sent %d bytes, skipped %d states%n",
+                link.getForwarded(), link.getDropped(), server.getBytesSent(), server.getSkippedStates());
+    }
+
+    /**
+     * Decides the buttons of a player: move towards the lowest ball above the player's share of the field.
+     *
+     * @param client the client of the player
+     * @return the buttons to hold
+     */
+    private static int decide(GameClient client) {
+        int player = client.getPlayer();
+        if (player < 0 || player >= client.getPaddleCount()) {
+            return 0;
+        }
+        double share = client.getFieldWidth() / client.getPaddleCount();
+        double left = player * share;
+        double target = -1;
+        double lowest = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < client.getBallCount(); i++) {
+            double x = client.getBallX(i);
+            if (x >= left && x < left + share && client.getBallY(i) > lowest) {
+                lowest = client.getBallY(i);
+                target = x;
+            }
+        }
+        if (target < 0) {
+            // nothing to defend: wait in the middle of the share
+            target = left + share / 2;
+        }
+        double center = client.getPaddleX(player) + client.getPaddleWidth(player) / 2;
+        if (target < center - DEAD_ZONE) {
+            return Protocol.LEFT;
+        }
+        return target > center + DEAD_ZONE ? Protocol.RIGHT : 0;
+    }
+}
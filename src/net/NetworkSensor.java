@@ -0,0 +1,44 @@
+package net;
+
+import biuoop.KeyboardSensor;
+
+/**
+ * A {@code NetworkSensor} is the keyboard of a remote player: it reports the buttons the player's last
+ * {@link Protocol#INPUT} message held, until the next one arrives.
+ */
+public class NetworkSensor implements KeyboardSensor {
+    private int buttons;
+
+    /**
+     * Sets the buttons that are held.
+     *
+     * @param held a combination of {@link Protocol#LEFT} and {@link Protocol#RIGHT}
+     */
+    public void setButtons(int held) {
+        this.buttons = held;
+    }
+
+    /**
+     * Returns the buttons that are held.
+     *
+     * @return a combination of {@link Protocol#LEFT} and {@link Protocol#RIGHT}
+     */
+    public int getButtons() {
+        return this.buttons;
+    }
+
+    /**
+     * Reports the left and right keys as pressed while the player holds them. Every other key is never
+     * pressed.
+     *
+     * @param key the key to check
+     * @return {@code true} if the key is pressed
+     */
+    @Override
+    public boolean isPressed(String key) {
+        if (LEFT_KEY.equals(key)) {
+            return (this.buttons & Protocol.LEFT) != 0;
+        }
+        return RIGHT_KEY.equals(key) && (this.buttons & Protocol.RIGHT) != 0;
+    }
+}
@@ -0,0 +1,101 @@
+package net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format spoken between a {@link GameServer} and its {@link GameClient}s.
+ *
+ * <p>
+ * Every message is a frame: a two-byte length (of the whole frame, header included), a one-byte type, and a
+ * payload whose layout depends on the type. All numbers are big-endian.
+ * </p>
+ * <ul>
+ *   <li>{@link #HELLO}, server to client, once after connecting: the player number (or -1 for a spectator),
+ *   the tick rate, and the width and height of the field</li>
+ *   <li>{@link #INPUT}, client to server, every tick: a sequence number, the tick of the last state the
+ *   client decoded, which acknowledges it as a base, and the buttons held ({@link #LEFT}, {@link #RIGHT})</li>
+ *   <li>{@link #STATE}, server to client, every tick: the tick, the sequence number of the client's last
+ *   input applied, flags ({@link #OVER}), the tick of the base state (or -1 for none), and the
+ *   {@link StateSnapshot} encoded by the {@link DeltaCodec} against that base</li>
+ * </ul>
+ */
+public final class Protocol {
+    /**
+     * A greeting sent to a client that just connected.
+     */
+    public static final int HELLO = 1;
+    /**
+     * The buttons a player holds.
+     */
+    public static final int INPUT = 2;
+    /**
+     * The state of the world after a tick.
+     */
+    public static final int STATE = 3;
+    /**
+     * The button bit that moves the paddle left.
+     */
+    public static final int LEFT = 1;
+    /**
+     * The button bit that moves the paddle right.
+     */
+    public static final int RIGHT = 2;
+    /**
+     * The state flag of the last state of a game that is over.
+     */
+    public static final int OVER = 1;
+    /**
+     * The size of the frame header: the length and the type.
+     */
+    public static final int HEADER_BYTES = 3;
+    /**
+     * The size of an {@link #INPUT} frame.
+     */
+    public static final int INPUT_BYTES = HEADER_BYTES + 9;
+    /**
+     * The size of a {@link #STATE} frame before the encoded state.
+     */
+    public static final int STATE_HEADER_BYTES = HEADER_BYTES + 13;
+    /**
+     * The largest frame either side may send.
+     */
+    public static final int MAX_FRAME_BYTES = 16384;
+    /**
+     * The most balls a {@link #STATE} frame carries; the rest are left out.
+     */
+    public static final int MAX_BALLS = 1024;
+
+    /**
+     * Not instantiable.
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Returns the length of the frame at the position of a buffer, if all of it has arrived.
+     *
+     * @param buffer a buffer in read mode
+     * @return the length of the frame, or 0 if the frame is not complete yet
+     * @throws IllegalStateException if the frame is malformed
+     */
+    public static int completeFrame(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return 0;
+        }
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        if (length < HEADER_BYTES || length > MAX_FRAME_BYTES) {
+            throw new IllegalStateException("bad frame length " + length);
+        }
+        return buffer.remaining() >= length ? length : 0;
+    }
+
+    /**
+     * Returns the type of the frame at the position of a buffer.
+     *
+     * @param buffer a buffer in read mode, holding at least a frame header
+     * @return the type of the frame
+     */
+    public static int frameType(ByteBuffer buffer) {
+        return buffer.get(buffer.position() + 2);
+    }
+}
@@ -0,0 +1,161 @@
+package net;
+
+import game.Game;
+import game.NudgePolicy;
+import game.WorldConfig;
+import geometry.Rectangle;
+import levels.LevelDefinition;
+import sprites.Ball;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A {@code RollbackHarness} plays a two-player game between two {@link RollbackSession}s in one process,
+ * with each input delivered to the other peer after a configurable delay, and reports what the rollbacks
+ * cost. Frames are simulated back to back rather than in real time, so the costs are measured without
+ * waiting. Each player chases the lowest ball above its half of the field, as its own peer sees it.
+ *
+ * <p>
+ * Every state that became final on both peers is compared by checksum, so a desync would be reported.
+ * </p>
+ */
+public final class RollbackHarness {
+    private static final int PLAYERS = 2;
+    private static final double FRAME_MILLIS = 1000.0 / 60;
+    private static final double DEAD_ZONE = 4;
+
+    /**
+     * Not instantiable.
+     */
+    private RollbackHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the one-way delay in milliseconds (default 50), the jitter in milliseconds (default 15), the
+     *             number of seconds to play (default 60), and the prediction window in ticks (default 12)
+     */
+    public static void main(String[] args) {
+        double delay = args.length > 0 ? Double.parseDouble(args[0]) : 50;
+        double jitter = args.length > 1 ? Double.parseDouble(args[1]) : 15;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+        int window = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+
+        RollbackSession[] peers = new RollbackSession[PLAYERS];
+        List<ArrayDeque<long[]>> links = new ArrayList<>();
+        long[] lastDue = new long[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            peers[i] = new RollbackSession(WorldConfig.STANDARD, LevelDefinition.spiral(), PLAYERS, i, window);
+            peers[i].getGame().getCycleDetector().setPolicy(NudgePolicy.DEFLECT);
+            // the inputs on their way to peer i: {due frame, player, tick, buttons}
+            links.add(new ArrayDeque<>());
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        long frames = (long) (seconds * 60);
+        long[] costs = new long[(int) frames * PLAYERS];
+        int samples = 0;
+        int compared = 0;
+        int desyncs = 0;
+        int lastCompared = -1;
+        long frameNanos = 0;
+        long maxFrameNanos = 0;
+        for (long frame = 0; frame < frames; frame++) {
+            for (int i = 0; i < PLAYERS; i++) {
+                RollbackSession peer = peers[i];
+                ArrayDeque<long[]> incoming = links.get(i);
+                while (!incoming.isEmpty() && incoming.peek()[0] <= frame) {
+                    long[] input = incoming.poll();
+                    peer.addInput((int) input[1], (int) input[2], (int) input[3]);
+                }
+                int buttons = decide(peer.getGame(), i);
+                long start = System.nanoTime();
+                boolean advanced = peer.advance(buttons);
+                long took = System.nanoTime() - start;
+                frameNanos += took;
+                maxFrameNanos = Math.max(maxFrameNanos, took);
+                if (peer.getLastRollbackNanos() > 0) {
+                    costs[samples++] = peer.getLastRollbackNanos();
+                }
+                if (advanced) {
+                    int at = peer.getTick() - 1;
+                    int other = 1 - i;
+                    long jitterFrames = jitter > 0 ? Math.round(random.nextDouble() * jitter / FRAME_MILLIS) : 0;
+                    // inputs arrive in order, as over a stream
+                    lastDue[other] = Math.max(lastDue[other], frame + Math.round(delay / FRAME_MILLIS) + jitterFrames);
+                    links.get(other).add(new long[] {lastDue[other], i, at, buttons});
+                }
+            }
+            int finalTick = Math.min(Math.min(peers[0].getConfirmedTick(), peers[1].getConfirmedTick()),
+                    Math.min(peers[0].getTick(), peers[1].getTick())) - 1;
+            // both peers rolled back what the inputs delivered this frame showed, so their final states are
+            // up to date
+            if (finalTick > lastCompared && peers[0].getTick() - finalTick <= RollbackSession.HISTORY
+                    && peers[1].getTick() - finalTick <= RollbackSession.HISTORY) {
+                compared++;
+                if (peers[0].checksum(finalTick) != peers[1].checksum(finalTick)) {
+                    desyncs++;
+                }
+                lastCompared = finalTick;
+            }
+            if (peers[0].getGame().isOver() && peers[1].getGame().isOver()) {
+                break;
+            }
+        }
+
+        Arrays.sort(costs, 0, samples);
+        System.out.printf("delay %.0f ms +%.0f jitter, prediction window %d ticks%n", delay, jitter, window);
+        for (int i = 0; i < PLAYERS; i++) {
+            RollbackSession p = peers[i];
+            long simulated = p.getSimulatedTicks();
+            System.out.printf("peer %d: tick %d, %d stalls, %d rollbacks (max depth %d), %d ticks re-simulated"
+                    + " (%.1f%% of all simulated)%n", i, p.getTick(), p.getStalls(), p.getRollbacks(),
+                    p.getMaxDepth(), p.getResimulatedTicks(), 100.0 * p.getResimulatedTicks() / simulated);
+            System.out.printf("        save %.2f us per tick, rollback %.1f us mean, %.1f us max,"
+                    + " %.2f us per re-simulated tick%n", p.getSaveNanos() / 1e3 / simulated,
+                    p.getRollbackNanos() / 1e3 / Math.max(1, p.getRollbacks()), p.getMaxRollbackNanos() / 1e3,
+                    p.getRollbackNanos() / 1e3 / Math.max(1, p.getResimulatedTicks()));
+        }
+        if (samples > 0) {
+            System.out.printf("rollback p50 %.1f us, p99 %.1f us; frame mean %.1f us, max %.1f us (%.1f%% of a"
+                    + " 60 Hz frame)%n", costs[samples / 2] / 1e3,
+                    costs[Math.min(samples - 1, (int) (samples * 0.99))] / 1e3,
+                    frameNanos / 1e3 / (frames * PLAYERS), maxFrameNanos / 1e3,
+                    100 * maxFrameNanos / 1e6 / FRAME_MILLIS);
+        }
+        Game game = peers[0].getGame();
+        System.out.printf("score %d, %d blocks left; %d final states compared, %d desyncs%n", game.getScore(),
+                game.getRemainingBlocks(), compared, desyncs);
+    }
+
+    /**
+     * Decides the buttons of a player: move towards the lowest ball above the player's share of the field.
+     *
+     * @param game   the game as the player's peer sees it
+     * @param player the player
+     * @return the buttons to hold
+     */
+    private static int decide(Game game, int player) {
+        double share = game.getWorld().getWidth() / PLAYERS;
+        double left = player * share;
+        double target = left + share / 2;
+        double lowest = Double.NEGATIVE_INFINITY;
+        for (Ball b : game.getBalls()) {
+            double x = b.getCenter().getX();
+            if (x >= left && x < left + share && b.getCenter().getY() > lowest) {
+                lowest = b.getCenter().getY();
+                target = x;
+            }
+        }
+        Rectangle paddle = game.getPaddles().get(player).getCollisionRectangle();
+        double center = paddle.getUpperLeft().getX() + paddle.getWidth() / 2;
+        if (target < center - DEAD_ZONE) {
+            return Protocol.LEFT;
+        }
+        return target > center + DEAD_ZONE ? Protocol.RIGHT : 0;
+    }
+}
@@ -0,0 +1,321 @@
+package net;
+
+import game.Game;
+import game.GameState;
+import game.WorldConfig;
+import levels.LevelDefinition;
+
+/**
+ * A {@code RollbackSession} runs one peer of a game that every peer simulates in full, in the manner of
+ * GGPO: nobody waits for the inputs of the others.
+ *
+ * <p>
+ * Every tick is simulated as soon as the local input for it is known. A remote player whose input has not
+ * arrived yet is predicted to hold the buttons of the last input that did. The state before every tick is
+ * saved into a ring of {@link GameState}s; when a remote input arrives that differs from what was predicted
+ * for its tick, the game is restored to the state before that tick and every tick since is simulated again,
+ * with the real input, within the same frame. Once the inputs of every player for a tick are known, the
+ * state after it is final and identical on every peer.
+ * </p>
+ *
+ * <p>
+ * The local simulation may only run a limited number of ticks ahead of the last remote input, so that a
+ * rollback never has to re-simulate more than that; beyond it, {@link #advance(int)} stalls until inputs
+ * arrive. Games run by a session have no power-ups, since those are not part of the saved state.
+ * </p>
+ */
+public class RollbackSession {
+    /**
+     * The number of saved states, and so the most ticks a session can run ahead of a remote player. A power
+     * of two.
+     */
+    public static final int HISTORY = 128;
+
+    private static final int MASK = HISTORY - 1;
+
+    private final Game game;
+    private final int localPlayer;
+    private final int maxPrediction;
+    private final NetworkSensor[] sensors;
+    private final GameState[] states;
+    private final int[][] inputs;
+    private final int[][] used;
+    private final int[] confirmed;
+    private int tick;
+    private int rollbackFrom = Integer.MAX_VALUE;
+
+    private long ticks;
+    private long saveNanos;
+    private long stalls;
+    private long rollbacks;
+    private long resimulatedTicks;
+    private long rollbackNanos;
+    private long lastRollbackNanos;
+    private long maxRollbackNanos;
+    private int maxDepth;
+
+    /**
+     * Constructs a {@code RollbackSession} with a game of one paddle per player.
+     *
+     * @param world         the playing field
+     * @param level         the level to play
+     * @param players       the number of players
+     * @param localPlayer   the number of the player at this peer
+     * @param maxPrediction the most ticks the simulation may run ahead of the inputs of a remote player
+     */
+    public RollbackSession(WorldConfig world, LevelDefinition level, int players, int localPlayer,
+            int maxPrediction) {
+        if (localPlayer < 0 || localPlayer >= players) {
+            throw new IllegalArgumentException("no player " + localPlayer + " among " + players);
+        }
+        if (maxPrediction <= 0 || maxPrediction >= HISTORY) {
+            throw new IllegalArgumentException("the prediction window must be between 1 and " + (HISTORY - 1));
+        }
+        this.localPlayer = localPlayer;
+        this.maxPrediction = maxPrediction;
+        this.sensors = new NetworkSensor[players];
+        for (int i = 0; i < players; i++) {
+            this.sensors[i] = new NetworkSensor();
+        }
+        this.game = new Game();
+        this.game.setWorld(world);
+        this.game.setLevel(level);
+        this.game.setPowerUps(false);
+        this.game.setCosmetics(false);
+        this.game.initialize(this.sensors[0]);
+        for (int i = 1; i < players; i++) {
+            this.game.addPaddle(this.sensors[i]);
+        }
+        this.states = new GameState[HISTORY];
+        for (int i = 0; i < HISTORY; i++) {
+            this.states[i] = new GameState();
+        }
+        this.inputs = new int[players][HISTORY];
+        this.used = new int[players][HISTORY];
+        this.confirmed = new int[players];
+        this.tick = (int) this.game.getHitEvents().getTick();
+        for (int i = 0; i < players; i++) {
+            this.confirmed[i] = this.tick;
+        }
+    }
+
+    /**
+     * Returns the game of this peer. Between calls to {@link #advance(int)} it shows the latest tick, which
+     * may still rest on predicted inputs.
+     *
+     * @return the game
+     */
+    public Game getGame() {
+        return this.game;
+    }
+
+    /**
+     * Returns the number of the next tick to simulate.
+     *
+     * @return the tick
+     */
+    public int getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Returns the first tick whose input is not yet known for every player. The states before it are final.
+     *
+     * @return the tick
+     */
+    public int getConfirmedTick() {
+        int min = Integer.MAX_VALUE;
+        for (int c : this.confirmed) {
+            min = Math.min(min, c);
+        }
+        return min;
+    }
+
+    /**
+     * Re-simulates the ticks since the earliest wrong prediction, if an input that arrived showed one, and
+     * simulates the next tick with the local input. If the simulation is as far ahead of a remote player as
+     * it may get, it stalls instead.
+     *
+     * @param buttons the buttons the local player holds, a combination of {@link Protocol#LEFT} and
+     *                {@link Protocol#RIGHT}
+     * @return {@code true} if the tick was simulated, so the input must be sent to the other peers for the
+     *         tick before {@link #getTick()}; {@code false} if the session stalled
+     */
+    public boolean advance(int buttons) {
+        this.lastRollbackNanos = 0;
+        synchronize();
+        if (this.tick - getConfirmedTick() >= this.maxPrediction) {
+            this.stalls++;
+            return false;
+        }
+        this.inputs[this.localPlayer][this.tick & MASK] = buttons;
+        this.confirmed[this.localPlayer] = this.tick + 1;
+        simulate();
+        return true;
+    }
+
+    /**
+     * Takes the input of a remote player for a tick. The inputs of a player must arrive in order; one that
+     * was already taken is ignored.
+     *
+     * @param player  the number of the player
+     * @param at      the tick of the input
+     * @param buttons the buttons the player held
+     */
+    public void addInput(int player, int at, int buttons) {
+        if (at < this.confirmed[player]) {
+            return;
+        }
+        if (at != this.confirmed[player]) {
+            throw new IllegalArgumentException("input for tick " + at + " of player " + player + " arrived before "
+                    + this.confirmed[player]);
+        }
+        this.inputs[player][at & MASK] = buttons;
+        this.confirmed[player] = at + 1;
+        if (at < this.tick && this.used[player][at & MASK] != buttons) {
+            this.rollbackFrom = Math.min(this.rollbackFrom, at);
+        }
+    }
+
+    /**
+     * Rolls back to the state before the earliest tick that was simulated with a wrong prediction, if any,
+     * and simulates every tick since then again.
+     */
+    public void synchronize() {
+        if (this.rollbackFrom >= this.tick) {
+            this.rollbackFrom = Integer.MAX_VALUE;
+            return;
+        }
+        long start = System.nanoTime();
+        int depth = this.tick - this.rollbackFrom;
+        int end = this.tick;
+        this.game.restoreState(this.states[this.rollbackFrom & MASK]);
+        this.tick = this.rollbackFrom;
+        this.rollbackFrom = Integer.MAX_VALUE;
+        while (this.tick < end) {
+            simulate();
+        }
+        this.lastRollbackNanos = System.nanoTime() - start;
+        this.rollbacks++;
+        this.resimulatedTicks += depth;
+        this.rollbackNanos += this.lastRollbackNanos;
+        this.maxRollbackNanos = Math.max(this.maxRollbackNanos, this.lastRollbackNanos);
+        this.maxDepth = Math.max(this.maxDepth, depth);
+    }
+
+    /**
+     * Saves the state before the next tick and simulates it, with the known inputs and the predicted ones.
+     */
+    private void simulate() {
+        int slot = this.tick & MASK;
+        long start = System.nanoTime();
+        this.game.saveState(this.states[slot]);
+        this.saveNanos += System.nanoTime() - start;
+        for (int p = 0; p < this.sensors.length; p++) {
+            int c = this.confirmed[p];
+            // a remote player is predicted to keep holding what they held in their last known input
+            int held = this.tick < c ? this.inputs[p][slot] : (c > 0 ? this.inputs[p][(c - 1) & MASK] : 0);
+            this.used[p][slot] = held;
+            this.sensors[p].setButtons(held);
+        }
+        this.game.tick();
+        this.tick++;
+        this.ticks++;
+    }
+
+    /**
+     * Returns the checksum of the state before a tick, for comparing peers.
+     *
+     * @param at a tick before both {@link #getTick()} and {@link #getConfirmedTick()}, and at most
+     *           {@link #HISTORY} ticks back
+     * @return the checksum of the saved state
+     * @throws IllegalArgumentException if the state is not final or no longer kept
+     */
+    public long checksum(int at) {
+        if (at >= this.tick || at >= getConfirmedTick() || this.tick - at > HISTORY || this.rollbackFrom <= at) {
+            throw new IllegalArgumentException("the state before tick " + at + " is not final or not kept");
+        }
+        return this.states[at & MASK].checksum();
+    }
+
+    /**
+     * Returns the number of ticks simulated, re-simulations included.
+     *
+     * @return the number of ticks
+     */
+    public long getSimulatedTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Returns the time spent saving states.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getSaveNanos() {
+        return this.saveNanos;
+    }
+
+    /**
+     * Returns the number of frames the session stalled because it was too far ahead of a remote player.
+     *
+     * @return the number of stalls
+     */
+    public long getStalls() {
+        return this.stalls;
+    }
+
+    /**
+     * Returns the number of rollbacks.
+     *
+     * @return the number of rollbacks
+     */
+    public long getRollbacks() {
+        return this.rollbacks;
+    }
+
+    /**
+     * Returns the number of ticks simulated again by rollbacks.
+     *
+     * @return the number of ticks
+     */
+    public long getResimulatedTicks() {
+        return this.resimulatedTicks;
+    }
+
+    /**
+     * Returns the time spent in rollbacks: restoring a state and simulating the ticks since again.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getRollbackNanos() {
+        return this.rollbackNanos;
+    }
+
+    /**
+     * Returns the time the rollback of the last call to {@link #advance(int)} took.
+     *
+     * @return the time, in nanoseconds, or 0 if there was no rollback
+     */
+    public long getLastRollbackNanos() {
+        return this.lastRollbackNanos;
+    }
+
+    /**
+     * Returns the time the longest rollback took.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getMaxRollbackNanos() {
+        return this.maxRollbackNanos;
+    }
+
+    /**
+     * Returns the most ticks a rollback simulated again.
+     *
+     * @return the number of ticks
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+}
@@ -0,0 +1,336 @@
+package net;
+
+import game.Game;
+import geometry.Rectangle;
+import sprites.Ball;
+import sprites.Paddle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@code StateSnapshot} is the state a remote viewer sees after a tick, quantized to the integers the
+ * {@link DeltaCodec} sends: the counters, the paddles, the balls with their velocities, and the bitset of
+ * live cells.
+ *
+ * <p>
+ * Positions are kept in units of 1/{@value #POSITION_SCALE} and velocities in units of
+ * 1/{@value #VELOCITY_SCALE} per tick, which is finer than anything a window shows. A snapshot is reused:
+ * {@link #capture(Game, int)} and the decoder overwrite it in place and only grow its arrays.
+ * </p>
+ */
+public class StateSnapshot {
+    /**
+     * The number of position units per logical unit.
+     */
+    public static final int POSITION_SCALE = 8;
+    /**
+     * The number of velocity units per logical unit per tick.
+     */
+    public static final int VELOCITY_SCALE = 64;
+
+    private int tick = -1;
+    private int score;
+    private int remainingBlocks;
+    private int remainingBalls;
+    private int paddleCount;
+    private int[] paddleX = new int[4];
+    private int[] paddleWidth = new int[4];
+    private int ballCount;
+    private int[] ballX = new int[16];
+    private int[] ballY = new int[16];
+    private int[] ballDx = new int[16];
+    private int[] ballDy = new int[16];
+    private long[] cells = new long[0];
+
+    /**
+     * Makes this the empty snapshot, the base of a client that has no snapshot yet.
+     *
+     * @return this snapshot
+     */
+    public StateSnapshot clear() {
+        this.tick = -1;
+        this.score = 0;
+        this.remainingBlocks = 0;
+        this.remainingBalls = 0;
+        this.paddleCount = 0;
+        this.ballCount = 0;
+        Arrays.fill(this.cells, 0);
+        return this;
+    }
+
+    /**
+     * Captures the state of a game.
+     *
+     * @param game the game
+     * @param at   the tick the state is for
+     */
+    public void capture(Game game, int at) {
+        this.tick = at;
+        this.score = game.getScore();
+        this.remainingBlocks = game.getRemainingBlocks();
+        this.remainingBalls = game.getRemainingBalls();
+        List<Paddle> paddles = game.getPaddles();
+        setPaddleCount(paddles.size());
+        for (int i = 0; i < this.paddleCount; i++) {
+            Rectangle r = paddles.get(i).getCollisionRectangle();
+            this.paddleX[i] = position(r.getUpperLeft().getX());
+            this.paddleWidth[i] = position(r.getWidth());
+        }
+        List<Ball> balls = game.getBalls();
+        setBallCount(Math.min(balls.size(), Protocol.MAX_BALLS));
+        for (int i = 0; i < this.ballCount; i++) {
+            Ball b = balls.get(i);
+            this.ballX[i] = position(b.getCenter().getX());
+            this.ballY[i] = position(b.getCenter().getY());
+            this.ballDx[i] = (int) Math.round(b.getVelocity().getDx() * VELOCITY_SCALE);
+            this.ballDy[i] = (int) Math.round(b.getVelocity().getDy() * VELOCITY_SCALE);
+        }
+        int words = game.getBlockGrid().getLiveCellWords();
+        if (this.cells.length != words) {
+            this.cells = new long[words];
+        }
+        game.getBlockGrid().copyLiveCells(this.cells);
+    }
+
+    /**
+     * Quantizes a coordinate.
+     *
+     * @param v the coordinate, in logical units
+     * @return the coordinate, in position units
+     */
+    private static int position(double v) {
+        return (int) Math.round(v * POSITION_SCALE);
+    }
+
+    /**
+     * Sets the number of paddles, growing the arrays if needed.
+     *
+     * @param count the number of paddles
+     */
+    void setPaddleCount(int count) {
+        if (this.paddleX.length < count) {
+            this.paddleX = Arrays.copyOf(this.paddleX, count);
+            this.paddleWidth = Arrays.copyOf(this.paddleWidth, count);
+        }
+        for (int i = this.paddleCount; i < count; i++) {
+            this.paddleX[i] = 0;
+            this.paddleWidth[i] = 0;
+        }
+        this.paddleCount = count;
+    }
+
+    /**
+     * Sets the number of balls, growing the arrays if needed. Balls past the previous count start at zero.
+     *
+     * @param count the number of balls
+     */
+    void setBallCount(int count) {
+        if (this.ballX.length < count) {
+            int capacity = Math.max(count, 2 * this.ballX.length);
+            this.ballX = Arrays.copyOf(this.ballX, capacity);
+            this.ballY = Arrays.copyOf(this.ballY, capacity);
+            this.ballDx = Arrays.copyOf(this.ballDx, capacity);
+            this.ballDy = Arrays.copyOf(this.ballDy, capacity);
+        }
+        for (int i = this.ballCount; i < count; i++) {
+            this.ballX[i] = 0;
+            this.ballY[i] = 0;
+            this.ballDx[i] = 0;
+            this.ballDy[i] = 0;
+        }
+        this.ballCount = count;
+    }
+
+    /**
+     * Sets the number of words of the live-cell bitset, clearing it if the size changes.
+     *
+     * @param words the number of words
+     */
+    void setCellWords(int words) {
+        if (this.cells.length != words) {
+            this.cells = new long[words];
+        }
+    }
+
+    /**
+     * Checks whether two snapshots hold the same state.
+     *
+     * @param other the other snapshot
+     * @return {@code true} if every field is equal
+     */
+    public boolean sameAs(StateSnapshot other) {
+        if (this.tick != other.tick || this.score != other.score || this.remainingBlocks != other.remainingBlocks
+                || this.remainingBalls != other.remainingBalls || this.paddleCount != other.paddleCount
+                || this.ballCount != other.ballCount || !Arrays.equals(this.cells, other.cells)) {
+            return false;
+        }
+        for (int i = 0; i < this.paddleCount; i++) {
+            if (this.paddleX[i] != other.paddleX[i] || this.paddleWidth[i] != other.paddleWidth[i]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < this.ballCount; i++) {
+            if (this.ballX[i] != other.ballX[i] || this.ballY[i] != other.ballY[i]
+                    || this.ballDx[i] != other.ballDx[i] || this.ballDy[i] != other.ballDy[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tick of the snapshot.
+     *
+     * @return the tick, or -1 for the empty snapshot
+     */
+    public int getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Sets the tick of the snapshot.
+     *
+     * @param at the tick
+     */
+    void setTick(int at) {
+        this.tick = at;
+    }
+
+    /**
+     * Returns the score.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Sets the score.
+     *
+     * @param value the score
+     */
+    void setScore(int value) {
+        this.score = value;
+    }
+
+    /**
+     * Returns the number of blocks left.
+     *
+     * @return the number of blocks
+     */
+    public int getRemainingBlocks() {
+        return this.remainingBlocks;
+    }
+
+    /**
+     * Sets the number of blocks left.
+     *
+     * @param value the number of blocks
+     */
+    void setRemainingBlocks(int value) {
+        this.remainingBlocks = value;
+    }
+
+    /**
+     * Returns the number of balls in play.
+     *
+     * @return the number of balls
+     */
+    public int getRemainingBalls() {
+        return this.remainingBalls;
+    }
+
+    /**
+     * Sets the number of balls in play.
+     *
+     * @param value the number of balls
+     */
+    void setRemainingBalls(int value) {
+        this.remainingBalls = value;
+    }
+
+    /**
+     * Returns the number of paddles.
+     *
+     * @return the number of paddles
+     */
+    public int getPaddleCount() {
+        return this.paddleCount;
+    }
+
+    /**
+     * Returns the quantized x-coordinates of the left edges of the paddles. Only the first
+     * {@link #getPaddleCount()} entries are meaningful.
+     *
+     * @return the coordinates, in position units
+     */
+    public int[] getPaddleX() {
+        return this.paddleX;
+    }
+
+    /**
+     * Returns the quantized widths of the paddles.
+     *
+     * @return the widths, in position units
+     */
+    public int[] getPaddleWidth() {
+        return this.paddleWidth;
+    }
+
+    /**
+     * Returns the number of balls in the snapshot.
+     *
+     * @return the number of balls
+     */
+    public int getBallCount() {
+        return this.ballCount;
+    }
+
+    /**
+     * Returns the quantized x-coordinates of the ball centers. Only the first {@link #getBallCount()}
+     * entries are meaningful.
+     *
+     * @return the coordinates, in position units
+     */
+    public int[] getBallX() {
+        return this.ballX;
+    }
+
+    /**
+     * Returns the quantized y-coordinates of the ball centers.
+     *
+     * @return the coordinates, in position units
+     */
+    public int[] getBallY() {
+        return this.ballY;
+    }
+
+    /**
+     * Returns the quantized horizontal velocities of the balls.
+     *
+     * @return the velocities, in velocity units
+     */
+    public int[] getBallDx() {
+        return this.ballDx;
+    }
+
+    /**
+     * Returns the quantized vertical velocities of the balls.
+     *
+     * @return the velocities, in velocity units
+     */
+    public int[] getBallDy() {
+        return this.ballDy;
+    }
+
+    /**
+     * Returns the bitset of live cells.
+     *
+     * @return the live cells, one bit per cell of the grid
+     */
+    public long[] getCells() {
+        return this.cells;
+    }
+}
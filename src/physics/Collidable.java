@@ -1,5 +1,6 @@
 package physics;
 
+import geometry.Line;
 import geometry.Point;
 import geometry.Rectangle;
 import sprites.Ball;
@@ -24,12 +25,25 @@ public interface Collidable {
      * Notifies the object that it has been collided with at the specified collision point,
      * with a given velocity. The object should respond by returning the new velocity
      * after the collision, taking into account its own physical response (e.g., bounce, deflection).
+     * The given velocity is the hitter's own, so a bounce changes it in place instead of allocating a new one.
      *
      * @param hitter the ball that hits the object
      * @param collisionPoint  the point at which the collision occurred
      * @param currentVelocity the velocity of the object before the collision
-     * @return the new velocity of the object after the collision
+     * @return the new velocity of the object after the collision, normally {@code currentVelocity} itself
      */
     Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity);
 
+    /**
+     * Returns the point where the given trajectory first touches this object, if any.
+     * By default this is the closest intersection with the collision rectangle; objects made of
+     * many parts, such as a block grid, answer the query themselves.
+     *
+     * @param trajectory the path an object is expected to follow
+     * @return the closest intersection to the start of the trajectory, or {@code null} if there is none
+     */
+    default Point closestIntersection(Line trajectory) {
+        return trajectory.closestIntersectionToStartOfLine(getCollisionRectangle());
+    }
+
 }
\ No newline at end of file
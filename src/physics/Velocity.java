@@ -27,6 +27,19 @@ public class Velocity {
         this.dy = dy;
     }
 
+    /**
+     * Changes this velocity in place. Only the owner of the object may do this, e.g. a
+     * {@code BallPool} reusing the velocity of a ball that left the game, or a {@link Collidable} bouncing
+     * the velocity of the ball that hit it.
+     *
+     * @param newDx The new change in position along the x-axis.
+     * @param newDy The new change in position along the y-axis.
+     */
+    public void set(double newDx, double newDy) {
+        this.dx = newDx;
+        this.dy = newDy;
+    }
+
     /**
      * Returns the change in position along the x-axis.
      *
@@ -65,8 +78,20 @@ public class Velocity {
      * @return A Velocity object representing the velocity in the direction of the given angle and speed.
      */
     public static Velocity fromAngleAndSpeed(double angle, double speed) {
-        double dx = Math.cos(Math.toRadians(angle)) * speed;
-        double dy = Math.sin(Math.toRadians(angle)) * speed;
-        return new Velocity(dx, dy);
+        Velocity v = new Velocity(0, 0);
+        v.setAngleAndSpeed(angle, speed);
+        return v;
+    }
+
+    /**
+     * Changes this velocity in place to point in the direction of an angle with a speed, like
+     * {@link #fromAngleAndSpeed(double, double)}. The same rules as for {@link #set(double, double)} apply.
+     *
+     * @param angle The angle in degrees at which the velocity is directed.
+     * @param speed The magnitude of the velocity (speed).
+     */
+    public void setAngleAndSpeed(double angle, double speed) {
+        this.dx = Math.cos(Math.toRadians(angle)) * speed;
+        this.dy = Math.sin(Math.toRadians(angle)) * speed;
     }
 }
\ No newline at end of file
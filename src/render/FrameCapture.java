@@ -0,0 +1,102 @@
+package render;
+
+import game.Game;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The {@code FrameCapture} tool runs a game headless and renders it into a {@link RasterDrawSurface}, without
+ * opening a window. It writes the final frame to a PNG file and reports how long drawing a frame takes on its
+ * own. Given a golden image, it also compares the frame against it pixel by pixel and exits with status 1 if
+ * they differ; {@link #GOLDEN} is the frame of the default level after the default 120 ticks
+ * ({@code ant golden} runs the comparison).
+ */
+public final class FrameCapture {
+    /**
+     * The golden image of the default level after 120 ticks, drawn with {@link RasterDrawSurface}.
+     */
+    public static final String GOLDEN = "assets/golden/spiral-120.png";
+
+    /**
+     * Not instantiable.
+     */
+    private FrameCapture() {
+    }
+
+    /**
+     * Simulates a number of ticks with an idle paddle, then draws the frame repeatedly to time it
+     * and writes it to a PNG file.
+     *
+     * @param args {@code <out.png> [ticks] [frames] [golden.png]}: the file to write, the number of ticks to
+     *             simulate (default 120), the number of frames to time (default 1000) and the image the frame
+     *             must match, if any
+     * @throws IOException if the file cannot be written or the golden image cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: FrameCapture <out.png> [ticks] [frames] [golden.png]");
+            return;
+        }
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        Game game = new Game();
+        game.initialize(key -> false);
+        for (int i = 0; i < ticks && !game.isOver(); i++) {
+            game.tick();
+        }
+
+        RasterDrawSurface surface = new RasterDrawSurface(game.getWorld().getWindowWidth(),
+                game.getWorld().getWindowHeight());
+        game.drawFrame(surface);
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            game.drawFrame(surface);
+        }
+        long elapsed = System.nanoTime() - start;
+        surface.writePng(Paths.get(args[0]));
+        System.out.printf("%d frames, %.1f us per frame%n", frames, elapsed / 1000.0 / Math.max(frames, 1));
+
+        if (args.length > 3) {
+            BufferedImage golden = ImageIO.read(Paths.get(args[3]).toFile());
+            if (golden == null) {
+                throw new IOException(args[3] + " is not an image");
+            }
+            long differences = countDifferences(surface.getImage(), golden);
+            if (differences != 0) {
+                System.out.printf("%d pixels differ from %s%n", differences, args[3]);
+                System.exit(1);
+            }
+            System.out.println("matches " + args[3]);
+        }
+    }
+
+    /**
+     * Counts the pixels in which two images differ. Pixels outside one of the images count as different.
+     *
+     * @param a the first image
+     * @param b the second image
+     * @return the number of pixels whose ARGB values differ
+     */
+    private static long countDifferences(BufferedImage a, BufferedImage b) {
+        int width = Math.max(a.getWidth(), b.getWidth());
+        int height = Math.max(a.getHeight(), b.getHeight());
+        long differences = (long) width * height;
+        int[] rowA = new int[width];
+        int[] rowB = new int[width];
+        int commonWidth = Math.min(a.getWidth(), b.getWidth());
+        for (int y = 0; y < Math.min(a.getHeight(), b.getHeight()); y++) {
+            a.getRGB(0, y, commonWidth, 1, rowA, 0, width);
+            b.getRGB(0, y, commonWidth, 1, rowB, 0, width);
+            for (int x = 0; x < commonWidth; x++) {
+                if (rowA[x] == rowB[x]) {
+                    differences--;
+                }
+            }
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,143 @@
+package render;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code FrameReader} plays back a file written by a {@link FrameRecorder}, one frame at a time.
+ * The file is mapped read-only in segments, and every frame is decoded into a caller-supplied raster.
+ */
+public class FrameReader implements AutoCloseable {
+    private static final long SEGMENT_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int frames;
+    private long end;
+    private IntBuffer segment;
+    private long segmentStart;
+    private int frame;
+    private long tick;
+
+    /**
+     * Opens a frame file.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read or is not a frame file
+     */
+    public FrameReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.end = this.channel.size();
+        mapSegment(0);
+        if (this.segment.remaining() < FrameRecorder.HEADER_INTS || this.segment.get() != FrameRecorder.MAGIC
+                || this.segment.get() != FrameRecorder.VERSION) {
+            this.channel.close();
+            throw new IOException("not a frame file: " + file);
+        }
+        this.width = this.segment.get();
+        this.height = this.segment.get();
+        this.frames = this.segment.get();
+        // the recorder leaves its preallocated tail in the file, so only map up to the recorded data
+        this.end = Math.min(this.end, (this.segment.get() & 0xFFFFFFFFL) | ((long) this.segment.get() << 32));
+    }
+
+    /**
+     * Returns the width of the frames.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the frames.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the number of frames in the file.
+     *
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return this.frames;
+    }
+
+    /**
+     * Returns the simulation tick of the frame read last.
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Decodes the next frame into a raster. Delta frames are applied on top of the raster, so it must hold
+     * the frame read before, as it does when the same raster is passed to every call.
+     *
+     * @param pixels the raster of {@code width * height} pixels to decode into
+     * @return {@code true} if a frame was read, {@code false} at the end of the file
+     * @throws IOException if the next segment of the file cannot be mapped
+     */
+    public boolean next(int[] pixels) throws IOException {
+        if (this.frame == this.frames) {
+            return false;
+        }
+        if (this.segment.remaining() < FrameRecorder.FRAME_HEADER_INTS
+                || this.segment.remaining() < FrameRecorder.FRAME_HEADER_INTS + this.segment.get(
+                        this.segment.position() + 2)) {
+            mapSegment(this.segmentStart + 4L * this.segment.position());
+        }
+        int type = this.segment.get();
+        this.tick = this.segment.get();
+        int length = this.segment.get();
+        if (type == FrameRecorder.RAW) {
+            this.segment.get(pixels, 0, length);
+        } else {
+            int end = this.segment.position() + length;
+            int i = 0;
+            while (this.segment.position() < end) {
+                i += this.segment.get();
+                int copied = this.segment.get();
+                this.segment.get(pixels, i, copied);
+                i += copied;
+            }
+        }
+        this.frame++;
+        return true;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Maps the segment of the file that starts at the given offset.
+     *
+     * @param position the file offset the segment starts at
+     * @throws IOException if the segment cannot be mapped
+     */
+    private void mapSegment(long position) throws IOException {
+        long size = Math.min(SEGMENT_BYTES, this.end - position);
+        this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        this.segmentStart = position;
+    }
+}
@@ -0,0 +1,231 @@
+package render;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code FrameRecorder} appends rendered frames to a memory-mapped file, so gameplay sessions can be
+ * reviewed later with a {@link FrameReader}.
+ *
+ * <p>
+ * The file starts with a header of {@link #HEADER_INTS} little-endian ints: {@link #MAGIC}, {@link #VERSION},
+ * width, height, the number of frames and, in the last two, the length of the recorded data in bytes as a
+ * long. Every frame is a record of three ints (type, tick, payload length
+ * in ints) followed by its payload:
+ * <ul>
+ *   <li>{@link #RAW}: every pixel of the frame</li>
+ *   <li>{@link #DELTA}: runs against the previous frame, each run being the number of unchanged pixels,
+ *   the number of changed pixels and the changed pixels themselves</li>
+ * </ul>
+ * Most of the screen is the static background, so a delta frame is usually a small fraction of a raw one.
+ * A frame is stored raw if its delta would not be smaller, and every {@link #KEYFRAME_INTERVAL}th frame
+ * is stored raw so playback can start from there.
+ * </p>
+ *
+ * <p>
+ * The file is mapped in large preallocated segments and frames are written into the mapping directly, so
+ * recording a frame allocates nothing. The previous frame is kept in a reused {@code int[]}. The file is not
+ * cut to the recorded length on close, since a file cannot be truncated while it is still mapped on every
+ * platform and Java cannot unmap it; readers stop at the length in the header instead.
+ * </p>
+ */
+public class FrameRecorder implements AutoCloseable {
+    /**
+     * The first int of a frame file ("ARKF").
+     */
+    public static final int MAGIC = 0x41524B46;
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 2;
+    /**
+     * The number of ints in the file header.
+     */
+    public static final int HEADER_INTS = 7;
+    /**
+     * The type of a frame that stores every pixel.
+     */
+    public static final int RAW = 0;
+    /**
+     * The type of a frame that stores the runs of pixels that changed since the previous frame.
+     */
+    public static final int DELTA = 1;
+    /**
+     * The number of ints in the record header of a frame.
+     */
+    public static final int FRAME_HEADER_INTS = 3;
+    /**
+     * Every this many frames, a frame is stored raw even if a delta would be smaller.
+     */
+    public static final int KEYFRAME_INTERVAL = 300;
+
+    private static final long DEFAULT_SEGMENT_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final int[] previous;
+    private final long segmentBytes;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer mapped;
+    private IntBuffer segment;
+    private long segmentStart;
+    private int frames;
+    private long rawInts;
+    private long writtenInts;
+
+    /**
+     * Constructs a {@code FrameRecorder} that maps the file in segments of 256 MB.
+     *
+     * @param file   the file to record to; it is overwritten
+     * @param width  the width of the frames
+     * @param height the height of the frames
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public FrameRecorder(Path file, int width, int height) throws IOException {
+        this(file, width, height, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Constructs a {@code FrameRecorder}.
+     *
+     * @param file         the file to record to; it is overwritten
+     * @param width        the width of the frames
+     * @param height       the height of the frames
+     * @param segmentBytes the number of bytes mapped at a time; at least the size of a raw frame
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public FrameRecorder(Path file, int width, int height, long segmentBytes) throws IOException {
+        long frameBytes = 4L * (FRAME_HEADER_INTS + (long) width * height);
+        if (segmentBytes < frameBytes || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segments must hold a raw frame and fit a mapping: " + segmentBytes);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.previous = new int[width * height];
+        this.segmentBytes = segmentBytes;
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, 4L * HEADER_INTS);
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+        this.header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(0).putLong(0);
+        mapSegment(4L * HEADER_INTS);
+    }
+
+    /**
+     * Records a frame.
+     *
+     * @param pixels the ARGB pixels of the frame, row by row, e.g. {@link RasterDrawSurface#getPixels()}
+     * @param tick   the simulation tick the frame shows
+     * @throws UncheckedIOException if the next segment of the file cannot be mapped
+     */
+    public void record(int[] pixels, long tick) {
+        int size = this.previous.length;
+        if (pixels.length != size) {
+            throw new IllegalArgumentException("expected " + size + " pixels, got " + pixels.length);
+        }
+        if (this.segment.remaining() < FRAME_HEADER_INTS + size) {
+            try {
+                mapSegment(this.segmentStart + 4L * this.segment.position());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int start = this.segment.position();
+        this.segment.position(start + FRAME_HEADER_INTS);
+        int type = DELTA;
+        if (this.frames % KEYFRAME_INTERVAL == 0 || !writeDelta(pixels, size)) {
+            type = RAW;
+            this.segment.position(start + FRAME_HEADER_INTS);
+            this.segment.put(pixels);
+        }
+        int length = this.segment.position() - start - FRAME_HEADER_INTS;
+        this.segment.put(start, type).put(start + 1, (int) tick).put(start + 2, length);
+        System.arraycopy(pixels, 0, this.previous, 0, size);
+        this.frames++;
+        this.rawInts += size;
+        this.writtenInts += FRAME_HEADER_INTS + length;
+    }
+
+    /**
+     * Returns the number of frames recorded so far.
+     *
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return this.frames;
+    }
+
+    /**
+     * Returns how many times smaller the recorded frames are than if they were all stored raw.
+     *
+     * @return the compression ratio
+     */
+    public double compressionRatio() {
+        return this.writtenInts == 0 ? 1 : (double) this.rawInts / this.writtenInts;
+    }
+
+    /**
+     * Writes the frame count and the recorded length, forces the last segment and the header to the file,
+     * and closes it.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        long end = this.segmentStart + 4L * this.segment.position();
+        this.mapped.force();
+        this.header.putInt(16, this.frames).putLong(20, end);
+        this.header.force();
+        this.segment = null;
+        this.mapped = null;
+        this.channel.close();
+    }
+
+    /**
+     * Writes the runs of changed pixels at the current position of the segment.
+     *
+     * @param pixels the pixels of the frame
+     * @param size   the number of pixels
+     * @return {@code true} if the delta was written, {@code false} if it would be as large as a raw frame
+     */
+    private boolean writeDelta(int[] pixels, int size) {
+        IntBuffer out = this.segment;
+        int[] prev = this.previous;
+        int budget = out.position() + size;
+        int i = 0;
+        while (i < size) {
+            int skipStart = i;
+            while (i < size && pixels[i] == prev[i]) {
+                i++;
+            }
+            if (i == size) {
+                break;
+            }
+            int copyStart = i;
+            while (i < size && pixels[i] != prev[i]) {
+                i++;
+            }
+            int copied = i - copyStart;
+            if (out.position() + 2 + copied >= budget) {
+                return false;
+            }
+            out.put(copyStart - skipStart).put(copied).put(pixels, copyStart, copied);
+        }
+        return true;
+    }
+
+    /**
+     * Maps the next segment of the file.
+     *
+     * @param position the file offset the segment starts at
+     * @throws IOException if the segment cannot be mapped
+     */
+    private void mapSegment(long position) throws IOException {
+        this.mapped = this.channel.map(FileChannel.MapMode.READ_WRITE, position, this.segmentBytes);
+        this.segment = this.mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        this.segmentStart = position;
+    }
+}
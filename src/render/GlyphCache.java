@@ -0,0 +1,124 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code GlyphCache} holds the printable ASCII characters of one font and color, rasterized once into a
+ * {@link TextureAtlas}, so text can be put together by copying glyph images instead of laying it out with
+ * the font every frame.
+ *
+ * <p>
+ * Glyphs are drawn without kerning, each one advancing by its own width, which for the HUD's labels and
+ * digits looks the same as the font's own layout. Characters outside the printable ASCII range are drawn
+ * as {@code '?'}.
+ * </p>
+ */
+public class GlyphCache {
+    private static final char FIRST = ' ';
+    private static final char LAST = '~';
+
+    private final BufferedImage[] glyphs;
+    private final int[] advances;
+    private final int ascent;
+    private final int height;
+
+    /**
+     * Rasterizes the printable ASCII characters of a font.
+     *
+     * @param font  the font to rasterize
+     * @param color the color of the glyphs
+     */
+    public GlyphCache(Font font, Color color) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D probe = scratch.createGraphics();
+        FontMetrics metrics = probe.getFontMetrics(font);
+        probe.dispose();
+        this.ascent = metrics.getAscent();
+        this.height = metrics.getAscent() + metrics.getDescent();
+
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        for (char c = FIRST; c <= LAST; c++) {
+            BufferedImage glyph = new BufferedImage(Math.max(1, metrics.charWidth(c)), this.height,
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = glyph.createGraphics();
+            g.setFont(font);
+            g.setColor(color);
+            g.drawString(String.valueOf(c), 0, this.ascent);
+            g.dispose();
+            images.put(String.valueOf(c), glyph);
+        }
+        TextureAtlas atlas = TextureAtlas.build(images, 512);
+        this.glyphs = new BufferedImage[LAST - FIRST + 1];
+        this.advances = new int[LAST - FIRST + 1];
+        for (char c = FIRST; c <= LAST; c++) {
+            this.glyphs[c - FIRST] = atlas.region(String.valueOf(c));
+            this.advances[c - FIRST] = metrics.charWidth(c);
+        }
+    }
+
+    /**
+     * Returns the distance from the top of a line of text to its baseline.
+     *
+     * @return the ascent, in pixels
+     */
+    public int getAscent() {
+        return this.ascent;
+    }
+
+    /**
+     * Returns the height of a line of text.
+     *
+     * @return the height, in pixels
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the width of a piece of text.
+     *
+     * @param text   the characters of the text
+     * @param length the number of characters to measure
+     * @return the width, in pixels
+     */
+    public int width(char[] text, int length) {
+        int width = 0;
+        for (int i = 0; i < length; i++) {
+            width += this.advances[slot(text[i])];
+        }
+        return width;
+    }
+
+    /**
+     * Copies the glyphs of a piece of text into a graphics context.
+     *
+     * @param g      the graphics to draw into
+     * @param x      the x-coordinate of the left edge of the text
+     * @param y      the y-coordinate of the top of the line
+     * @param text   the characters of the text
+     * @param length the number of characters to draw
+     */
+    public void draw(Graphics2D g, int x, int y, char[] text, int length) {
+        for (int i = 0; i < length; i++) {
+            int slot = slot(text[i]);
+            g.drawImage(this.glyphs[slot], x, y, null);
+            x += this.advances[slot];
+        }
+    }
+
+    /**
+     * Returns the slot of a character in the glyph tables.
+     *
+     * @param c the character
+     * @return the slot of the character, or of {@code '?'} if it is not cached
+     */
+    private static int slot(char c) {
+        return c >= FIRST && c <= LAST ? c - FIRST : '?' - FIRST;
+    }
+}
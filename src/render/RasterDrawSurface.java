@@ -0,0 +1,352 @@
+package render;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.ImageObserver;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The {@code RasterDrawSurface} is a {@link DrawSurface} that draws straight into the {@code int[]} ARGB
+ * raster of a {@link BufferedImage}, without a window.
+ *
+ * <p>
+ * The operations the game's sprites use every frame (filled rectangles, rectangle outlines, filled circles
+ * and images) are written directly into the raster. Text and the rarely used shapes go through a
+ * {@link Graphics2D} on the same image, with the same font the biuoop GUI uses. Shapes cover the same pixels
+ * as their AWT counterparts, so frames captured headless look like the ones shown in the window.
+ * </p>
+ */
+public class RasterDrawSurface implements DrawSurface {
+    private static final long IMAGE_LOAD_TIMEOUT_MILLIS = 5000;
+
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final Map<Image, BufferedImage> converted;
+    private Color color;
+    private int argb;
+    private Graphics2D graphics;
+    private Font[] fonts;
+
+    /**
+     * Constructs a {@code RasterDrawSurface} of the given size, cleared to white.
+     *
+     * @param width  the width of the surface in pixels
+     * @param height the height of the surface in pixels
+     */
+    public RasterDrawSurface(int width, int height) {
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+        this.width = width;
+        this.height = height;
+        this.converted = new IdentityHashMap<>();
+        this.fonts = new Font[0];
+        this.color = Color.BLACK;
+        this.argb = Color.BLACK.getRGB();
+        clear(Color.WHITE);
+    }
+
+    /**
+     * Returns the image the surface draws into.
+     *
+     * @return the image
+     */
+    public BufferedImage getImage() {
+        return this.image;
+    }
+
+    /**
+     * Returns the ARGB raster of the surface, one int per pixel, row by row.
+     * The array is the backing store of the image, not a copy.
+     *
+     * @return the raster
+     */
+    public int[] getPixels() {
+        return this.pixels;
+    }
+
+    /**
+     * Fills the whole surface with a color.
+     *
+     * @param background the color to fill with
+     */
+    public void clear(Color background) {
+        Arrays.fill(this.pixels, background.getRGB());
+    }
+
+    /**
+     * Writes the current contents of the surface to a PNG file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writePng(Path file) throws IOException {
+        ImageIO.write(this.image, "png", file.toFile());
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public void setColor(Color c) {
+        if (c.getAlpha() != 255) {
+            throw new AlphaChannelNotSupportedException("colors with an alpha channel are not supported: " + c);
+        }
+        this.color = c;
+        this.argb = c.getRGB();
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int w, int h) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + w, this.width);
+        int y1 = Math.min(y + h, this.height);
+        if (x0 >= x1) {
+            return;
+        }
+        for (int row = y0; row < y1; row++) {
+            int offset = row * this.width;
+            Arrays.fill(this.pixels, offset + x0, offset + x1, this.argb);
+        }
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int w, int h) {
+        if (w < 0 || h < 0) {
+            return;
+        }
+        // like Graphics.drawRect, the outline covers w + 1 by h + 1 pixels
+        fillRectangle(x, y, w + 1, 1);
+        fillRectangle(x, y + h, w + 1, 1);
+        fillRectangle(x, y + 1, 1, h - 1);
+        fillRectangle(x + w, y + 1, 1, h - 1);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        // a pixel is covered if its center lies inside the circle, as with fillOval(x - r, y - r, 2r, 2r)
+        int top = Math.max(y - r, 0);
+        int bottom = Math.min(y + r, this.height);
+        for (int row = top; row < bottom; row++) {
+            double dy = row + 0.5 - y;
+            double half = Math.sqrt((double) r * r - dy * dy);
+            int x0 = Math.max((int) Math.ceil(x - half - 0.5), 0);
+            int x1 = Math.min((int) Math.ceil(x + half - 0.5), this.width);
+            if (x0 < x1) {
+                int offset = row * this.width;
+                Arrays.fill(this.pixels, offset + x0, offset + x1, this.argb);
+            }
+        }
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image img) {
+        BufferedImage source = toIntRaster(img);
+        if (source == null) {
+            return;
+        }
+        // the image may be a view into a larger one, such as a region of a texture atlas
+        WritableRaster raster = source.getRaster();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        int[] src = buffer.getData();
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int base = buffer.getOffset() - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+        boolean opaque = source.getType() == BufferedImage.TYPE_INT_RGB;
+        int srcWidth = source.getWidth();
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + srcWidth, this.width);
+        int y1 = Math.min(y + source.getHeight(), this.height);
+        for (int row = y0; row < y1; row++) {
+            int from = base + (row - y) * stride + (x0 - x);
+            int to = row * this.width + x0;
+            if (opaque) {
+                for (int i = 0; i < x1 - x0; i++) {
+                    this.pixels[to + i] = src[from + i] | 0xFF000000;
+                }
+                continue;
+            }
+            for (int i = 0; i < x1 - x0; i++) {
+                int s = src[from + i];
+                int alpha = s >>> 24;
+                if (alpha == 255) {
+                    this.pixels[to + i] = s;
+                } else if (alpha != 0) {
+                    this.pixels[to + i] = blend(s, this.pixels[to + i], alpha);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        Graphics2D g = graphics();
+        g.setFont(font(fontSize));
+        g.drawString(text, x, y);
+    }
+
+    /**
+     * Returns the font text of a size is drawn in, creating it the first time the size is used.
+     *
+     * @param fontSize the size of the font
+     * @return the font
+     */
+    private Font font(int fontSize) {
+        if (fontSize < 0) {
+            return new Font(Font.DIALOG, Font.PLAIN, fontSize);
+        }
+        if (fontSize >= this.fonts.length) {
+            this.fonts = Arrays.copyOf(this.fonts, Math.max(fontSize + 1, 2 * this.fonts.length));
+        }
+        if (this.fonts[fontSize] == null) {
+            this.fonts[fontSize] = new Font(Font.DIALOG, Font.PLAIN, fontSize);
+        }
+        return this.fonts[fontSize];
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        graphics().drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int w, int h) {
+        graphics().drawOval(x, y, w, h);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int w, int h) {
+        graphics().fillOval(x, y, w, h);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        graphics().drawOval(x - r, y - r, 2 * r, 2 * r);
+    }
+
+    @Override
+    public void drawPolygon(Polygon p) {
+        graphics().drawPolygon(p);
+    }
+
+    @Override
+    public void fillPolygon(Polygon p) {
+        graphics().fillPolygon(p);
+    }
+
+    /**
+     * Returns the fallback graphics of the image, set to the current color.
+     *
+     * @return the graphics
+     */
+    private Graphics2D graphics() {
+        if (this.graphics == null) {
+            this.graphics = this.image.createGraphics();
+        }
+        this.graphics.setColor(this.color);
+        return this.graphics;
+    }
+
+    /**
+     * Blends a translucent source pixel over a destination pixel.
+     *
+     * @param src   the source pixel
+     * @param dst   the destination pixel
+     * @param alpha the alpha of the source pixel, between 1 and 254
+     * @return the blended pixel
+     */
+    private static int blend(int src, int dst, int alpha) {
+        int inverse = 255 - alpha;
+        int a = alpha + ((dst >>> 24) * inverse) / 255;
+        int r = (((src >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inverse) / 255;
+        int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inverse) / 255;
+        int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inverse) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Returns an image with an {@code int} raster holding the pixels of the given image. Images that already
+     * have one are used as they are; any other image is converted once and the copy is cached, so it is
+     * assumed not to change afterwards. Toolkit images are waited for until they are fully loaded.
+     *
+     * @param img the image to convert
+     * @return the image with an {@code int} raster, or {@code null} if the image could not be loaded
+     */
+    private BufferedImage toIntRaster(Image img) {
+        if (img instanceof BufferedImage) {
+            int type = ((BufferedImage) img).getType();
+            if (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB) {
+                return (BufferedImage) img;
+            }
+        }
+        BufferedImage cached = this.converted.get(img);
+        if (cached != null) {
+            return cached;
+        }
+        if (!awaitLoaded(img)) {
+            return null;
+        }
+        BufferedImage copy = new BufferedImage(img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        this.converted.put(img, copy);
+        return copy;
+    }
+
+    /**
+     * Waits until an image is fully loaded.
+     *
+     * @param img the image to wait for
+     * @return {@code true} if the image was loaded, {@code false} if loading failed or timed out
+     */
+    private static boolean awaitLoaded(Image img) {
+        Toolkit toolkit = Toolkit.getDefaultToolkit();
+        toolkit.prepareImage(img, -1, -1, null);
+        long deadline = System.currentTimeMillis() + IMAGE_LOAD_TIMEOUT_MILLIS;
+        while (true) {
+            int status = toolkit.checkImage(img, -1, -1, null);
+            if ((status & (ImageObserver.ERROR | ImageObserver.ABORT)) != 0) {
+                return false;
+            }
+            if ((status & (ImageObserver.ALLBITS | ImageObserver.FRAMEBITS)) != 0) {
+                return true;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
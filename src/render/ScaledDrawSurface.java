@@ -0,0 +1,193 @@
+package render;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A {@code ScaledDrawSurface} lets sprites draw in logical units onto a surface of another resolution: every
+ * coordinate and size is multiplied by a scale before it is passed on.
+ *
+ * <p>
+ * Edges are scaled rather than sizes, so shapes that touch in logical units still touch after scaling. Images
+ * are resampled once and cached for as long as the original image is in use, so drawing them every frame
+ * costs no more than drawing them unscaled.
+ * </p>
+ */
+public class ScaledDrawSurface implements DrawSurface {
+    private DrawSurface target;
+    private final double scale;
+    private final Map<Image, BufferedImage> scaled;
+
+    /**
+     * Constructs a {@code ScaledDrawSurface}.
+     *
+     * @param target the surface to draw on, or {@code null} to set it later
+     * @param scale  the number of target pixels per logical unit
+     */
+    public ScaledDrawSurface(DrawSurface target, double scale) {
+        this.target = target;
+        this.scale = scale;
+        this.scaled = new WeakHashMap<>();
+    }
+
+    /**
+     * Sets the surface to draw on, e.g. the surface of the next frame. Images resampled for the previous
+     * surface stay cached.
+     *
+     * @param surface the surface to draw on
+     */
+    public void setTarget(DrawSurface surface) {
+        this.target = surface;
+    }
+
+    /**
+     * Returns the width of the surface in logical units.
+     *
+     * @return the width of the target divided by the scale
+     */
+    @Override
+    public int getWidth() {
+        return (int) Math.ceil(this.target.getWidth() / this.scale);
+    }
+
+    /**
+     * Returns the height of the surface in logical units.
+     *
+     * @return the height of the target divided by the scale
+     */
+    @Override
+    public int getHeight() {
+        return (int) Math.ceil(this.target.getHeight() / this.scale);
+    }
+
+    @Override
+    public void setColor(Color color) throws AlphaChannelNotSupportedException {
+        this.target.setColor(color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        this.target.drawLine(s(x1), s(y1), s(x2), s(y2));
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        this.target.drawOval(s(x), s(y), s(x + width) - s(x), s(y + height) - s(y));
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        this.target.fillOval(s(x), s(y), s(x + width) - s(x), s(y + height) - s(y));
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        this.target.drawRectangle(s(x), s(y), s(x + width) - s(x), s(y + height) - s(y));
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        this.target.fillRectangle(s(x), s(y), s(x + width) - s(x), s(y + height) - s(y));
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image image) {
+        this.target.drawImage(s(x), s(y), scaledImage(image));
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int radius) {
+        this.target.drawCircle(s(x), s(y), Math.max(1, (int) Math.round(radius * this.scale)));
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int radius) {
+        this.target.fillCircle(s(x), s(y), Math.max(1, (int) Math.round(radius * this.scale)));
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        this.target.drawText(s(x), s(y), text, Math.max(1, (int) Math.round(fontSize * this.scale)));
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        this.target.drawPolygon(scaledPolygon(polygon));
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        this.target.fillPolygon(scaledPolygon(polygon));
+    }
+
+    /**
+     * Scales a coordinate.
+     *
+     * @param v the coordinate in logical units
+     * @return the coordinate in target pixels
+     */
+    private int s(int v) {
+        return (int) Math.floor(v * this.scale);
+    }
+
+    /**
+     * Scales the vertices of a polygon.
+     *
+     * @param polygon the polygon in logical units
+     * @return a new polygon in target pixels
+     */
+    private Polygon scaledPolygon(Polygon polygon) {
+        int[] xs = new int[polygon.npoints];
+        int[] ys = new int[polygon.npoints];
+        for (int i = 0; i < polygon.npoints; i++) {
+            xs[i] = s(polygon.xpoints[i]);
+            ys[i] = s(polygon.ypoints[i]);
+        }
+        return new Polygon(xs, ys, polygon.npoints);
+    }
+
+    /**
+     * Returns an image resampled to the scale, resampling it on first use.
+     *
+     * @param image the image in logical units
+     * @return the image in target pixels, or the image itself if its size is not known yet
+     */
+    private Image scaledImage(Image image) {
+        BufferedImage cached = this.scaled.get(image);
+        if (cached != null) {
+            return cached;
+        }
+        if (image.getWidth(null) < 0 || image.getHeight(null) < 0) {
+            return image;
+        }
+        BufferedImage result = resample(image, this.scale);
+        this.scaled.put(image, result);
+        return result;
+    }
+
+    /**
+     * Resamples an image to a scale with bilinear interpolation.
+     *
+     * @param image an image whose size is known
+     * @param scale the number of pixels of the result per pixel of the image
+     * @return a new image of the scaled size
+     */
+    public static BufferedImage resample(Image image, double scale) {
+        BufferedImage result = new BufferedImage(Math.max(1, (int) Math.round(image.getWidth(null) * scale)),
+                Math.max(1, (int) Math.round(image.getHeight(null) * scale)), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, result.getWidth(), result.getHeight(), null);
+        g.dispose();
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package render;
+
+import biuoop.DrawSurface;
+import game.WorldConfig;
+import sprites.BlockGrid;
+import sprites.Paddle;
+import sprites.ParticleSystem;
+import sprites.PowerUpField;
+import sprites.Palette;
+import sprites.ScoreIndicator;
+import sprites.Sprite;
+
+import java.awt.Image;
+import java.util.List;
+
+/**
+ * The {@code SnapshotRenderer} draws a {@link WorldSnapshot} on the render thread.
+ *
+ * <p>
+ * Everything that moves or changes is taken from the snapshot. The scenery (borders and death zone)
+ * never changes after the level is built, so it is drawn straight from its sprites, and the paddle and
+ * score indicator are only used for their drawing code and never read for state.
+ * </p>
+ *
+ * <p>
+ * The block grid is not read on the render thread at all: the renderer draws a private copy of it, taken
+ * with {@link BlockGrid#copyForDrawing()} when the renderer is constructed, with the live cells of each
+ * snapshot. A renderer must therefore be constructed before the simulation starts, and the cell colors of
+ * the level must not change while it is played; the live cells may. Colors are looked up in the palette,
+ * which may safely be read while the simulation adds colors to it.
+ * </p>
+ */
+public class SnapshotRenderer {
+    private final Image background;
+    private final int backgroundX;
+    private final int backgroundY;
+    private final List<Sprite> scenery;
+    private final BlockGrid grid;
+    private final Paddle paddle;
+    private final ScoreIndicator scoreIndicator;
+    private final Palette palette;
+
+    /**
+     * Constructs a {@code SnapshotRenderer}.
+     *
+     * @param background     the background image, scaled here to cover the field
+     * @param scenery        the sprites that never change after the level is built
+     * @param grid           the block grid of the level, copied; its live cells are taken from the snapshot
+     * @param paddle         the paddle, drawn at the position taken from the snapshot
+     * @param scoreIndicator the score indicator, drawn with the score taken from the snapshot
+     * @param palette        the palette the ball color indices refer to
+     * @param world          the world configuration, which places the background
+     */
+    public SnapshotRenderer(Image background, List<Sprite> scenery, BlockGrid grid, Paddle paddle,
+                            ScoreIndicator scoreIndicator, Palette palette, WorldConfig world) {
+        int width = background.getWidth(null);
+        int height = background.getHeight(null);
+        double scale = world.getBackgroundScale(width, height);
+        this.background = scale == 1 ? background : ScaledDrawSurface.resample(background, scale);
+        this.backgroundX = world.getBackgroundX(width, height);
+        this.backgroundY = world.getBackgroundY(width, height);
+        this.scenery = scenery;
+        this.grid = grid.copyForDrawing();
+        this.paddle = paddle;
+        this.scoreIndicator = scoreIndicator;
+        this.palette = palette;
+    }
+
+    /**
+     * Draws a snapshot of the world.
+     *
+     * <p>
+     * Balls and the paddle are drawn at their positions interpolated between the previous and the current
+     * tick, so motion stays smooth when the display rate is higher than the physics rate.
+     * </p>
+     *
+     * @param d        the surface to draw on
+     * @param snapshot the snapshot to draw
+     * @param alpha    the interpolation factor, from 0 (previous tick) to 1 (current tick)
+     */
+    public void draw(DrawSurface d, WorldSnapshot snapshot, double alpha) {
+        d.drawImage(this.backgroundX, this.backgroundY, this.background);
+        for (int i = 0; i < this.scenery.size(); i++) {
+            this.scenery.get(i).drawOn(d);
+        }
+        this.grid.drawCells(d, snapshot.getLiveCells());
+        for (int i = 0; i < snapshot.getBallCount(); i++) {
+            d.setColor(this.palette.colorOf(snapshot.getBallColor(i)));
+            d.fillCircle((int) snapshot.getBallX(i, alpha), (int) snapshot.getBallY(i, alpha),
+                    snapshot.getBallRadius(i));
+        }
+        int current = -1;
+        for (int i = 0; i < snapshot.getParticleCount(); i++) {
+            // particles of one burst share a color, so the color rarely changes between them
+            if (snapshot.getParticleColor(i) != current) {
+                current = snapshot.getParticleColor(i);
+                d.setColor(this.palette.colorOf(current));
+            }
+            d.fillRectangle((int) snapshot.getParticleX(i), (int) snapshot.getParticleY(i), ParticleSystem.SIZE,
+                    ParticleSystem.SIZE);
+        }
+        for (int i = 0; i < snapshot.getPowerUpCount(); i++) {
+            PowerUpField.drawCapsule(d, snapshot.getPowerUpX(i), snapshot.getPowerUpY(i),
+                    snapshot.getPowerUpFactor(i));
+        }
+        this.paddle.drawAt(d, snapshot.getPaddleX(alpha), snapshot.getPaddleY(), snapshot.getPaddleWidth());
+        this.scoreIndicator.drawScore(d, snapshot.getScore());
+    }
+}
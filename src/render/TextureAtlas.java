@@ -0,0 +1,237 @@
+package render;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code TextureAtlas} holds many sprite images packed into one backing image.
+ *
+ * <p>
+ * Images are packed onto shelves: sorted by height, they are placed left to right on the current shelf,
+ * and a new shelf is opened below when a row is full. Every sprite is a {@link BufferedImage#getSubimage}
+ * view of the backing image, so drawing it reads from the one shared raster, and Java2D only has to keep
+ * a single image in its accelerated cache no matter how many textures there are. The backing image is
+ * created compatible with the screen when there is one.
+ * </p>
+ *
+ * <p>
+ * An atlas can be built at startup with {@link #build(Map, int)}, or offline with {@link #main(String[])}
+ * and then loaded with {@link #load(Path, Path)}: the packed image is stored as a PNG next to a text index
+ * with one {@code name x y width height} line per region.
+ * </p>
+ */
+public class TextureAtlas {
+    private static final int PADDING = 1;
+
+    private final BufferedImage image;
+    private final Map<String, BufferedImage> regions;
+    private final Map<String, int[]> bounds;
+
+    /**
+     * Constructs an atlas over a packed image.
+     *
+     * @param image  the backing image
+     * @param bounds the {@code {x, y, width, height}} of every region, by name
+     */
+    private TextureAtlas(BufferedImage image, Map<String, int[]> bounds) {
+        this.image = image;
+        this.bounds = bounds;
+        this.regions = new HashMap<>();
+        for (Map.Entry<String, int[]> e : bounds.entrySet()) {
+            int[] b = e.getValue();
+            this.regions.put(e.getKey(), image.getSubimage(b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    /**
+     * Packs images into a new atlas.
+     *
+     * @param images   the images to pack, by name
+     * @param minWidth the minimal width of the backing image; it is widened to fit the widest image
+     * @return the atlas
+     */
+    public static TextureAtlas build(Map<String, BufferedImage> images, int minWidth) {
+        List<Map.Entry<String, BufferedImage>> order = new ArrayList<>(images.entrySet());
+        order.sort((a, b) -> b.getValue().getHeight() - a.getValue().getHeight());
+        int width = minWidth;
+        for (BufferedImage img : images.values()) {
+            width = Math.max(width, img.getWidth());
+        }
+
+        Map<String, int[]> bounds = new LinkedHashMap<>();
+        int x = 0;
+        int shelfY = 0;
+        int shelfHeight = 0;
+        for (Map.Entry<String, BufferedImage> e : order) {
+            BufferedImage img = e.getValue();
+            if (x + img.getWidth() > width) {
+                shelfY += shelfHeight + PADDING;
+                shelfHeight = 0;
+                x = 0;
+            }
+            bounds.put(e.getKey(), new int[] {x, shelfY, img.getWidth(), img.getHeight()});
+            x += img.getWidth() + PADDING;
+            shelfHeight = Math.max(shelfHeight, img.getHeight());
+        }
+
+        BufferedImage packed = createImage(width, Math.max(1, shelfY + shelfHeight));
+        Graphics2D g = packed.createGraphics();
+        for (Map.Entry<String, int[]> e : bounds.entrySet()) {
+            g.drawImage(images.get(e.getKey()), e.getValue()[0], e.getValue()[1], null);
+        }
+        g.dispose();
+        return new TextureAtlas(packed, bounds);
+    }
+
+    /**
+     * Reads image files and packs them into a new atlas. Every region is named after the path of its file.
+     *
+     * @param files    the image files
+     * @param minWidth the minimal width of the backing image
+     * @return the atlas
+     * @throws IOException if one of the files cannot be read
+     */
+    public static TextureAtlas build(List<String> files, int minWidth) throws IOException {
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        for (String file : files) {
+            BufferedImage img = ImageIO.read(Paths.get(file).toFile());
+            if (img == null) {
+                throw new IOException("not an image: " + file);
+            }
+            images.put(file, img);
+        }
+        return build(images, minWidth);
+    }
+
+    /**
+     * Loads an atlas that was saved with {@link #save(Path, Path)}.
+     *
+     * @param imageFile the PNG file holding the packed image
+     * @param indexFile the index file holding the regions
+     * @return the atlas
+     * @throws IOException if one of the files cannot be read
+     */
+    public static TextureAtlas load(Path imageFile, Path indexFile) throws IOException {
+        BufferedImage stored = ImageIO.read(imageFile.toFile());
+        if (stored == null) {
+            throw new IOException("not an image: " + imageFile);
+        }
+        BufferedImage packed = createImage(stored.getWidth(), stored.getHeight());
+        Graphics2D g = packed.createGraphics();
+        g.drawImage(stored, 0, 0, null);
+        g.dispose();
+
+        Map<String, int[]> bounds = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(" ");
+                int n = parts.length;
+                if (n < 5) {
+                    throw new IOException("malformed atlas index line: " + line);
+                }
+                String name = String.join(" ", Arrays.copyOf(parts, n - 4));
+                bounds.put(name, new int[] {Integer.parseInt(parts[n - 4]), Integer.parseInt(parts[n - 3]),
+                        Integer.parseInt(parts[n - 2]), Integer.parseInt(parts[n - 1])});
+            }
+        }
+        return new TextureAtlas(packed, bounds);
+    }
+
+    /**
+     * Saves the atlas, so it can be loaded with {@link #load(Path, Path)} instead of being packed again.
+     *
+     * @param imageFile the PNG file to write the packed image to
+     * @param indexFile the index file to write the regions to
+     * @throws IOException if one of the files cannot be written
+     */
+    public void save(Path imageFile, Path indexFile) throws IOException {
+        ImageIO.write(this.image, "png", imageFile.toFile());
+        try (BufferedWriter out = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, int[]> e : this.bounds.entrySet()) {
+                int[] b = e.getValue();
+                out.write(e.getKey() + " " + b[0] + " " + b[1] + " " + b[2] + " " + b[3]);
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the backing image all regions are views of.
+     *
+     * @return the packed image
+     */
+    public BufferedImage getImage() {
+        return this.image;
+    }
+
+    /**
+     * Returns the region with the given name, as a view that shares the backing image's raster.
+     *
+     * @param name the name of the region
+     * @return the region
+     * @throws IllegalArgumentException if the atlas has no region with that name
+     */
+    public BufferedImage region(String name) {
+        BufferedImage region = this.regions.get(name);
+        if (region == null) {
+            throw new IllegalArgumentException("no such texture: " + name);
+        }
+        return region;
+    }
+
+    /**
+     * Creates a translucent image, compatible with the screen if there is one.
+     *
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @return the image
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Packs image files into an atlas offline and saves it.
+     *
+     * @param args {@code <atlas.png> <atlas.idx> <image>...}
+     * @throws IOException if an image cannot be read or the atlas cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: TextureAtlas <atlas.png> <atlas.idx> <image>...");
+            return;
+        }
+        List<String> files = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            files.add(args[i]);
+        }
+        TextureAtlas atlas = build(files, 2048);
+        atlas.save(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("packed " + files.size() + " images into " + atlas.getImage().getWidth() + "x"
+                + atlas.getImage().getHeight());
+    }
+}
@@ -0,0 +1,108 @@
+package render;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code Textures} class gives the sprites access to the game's images, which all live in one shared
+ * {@link TextureAtlas}.
+ *
+ * <p>
+ * The atlas is created the first time a texture is asked for. If an atlas cached offline with
+ * {@link TextureAtlas#main(String[])} is found at {@link #CACHED_IMAGE} and {@link #CACHED_INDEX}, and it
+ * is newer than every source image, it is loaded; otherwise the source images are packed at startup.
+ * </p>
+ */
+public final class Textures {
+    /**
+     * The background of the level.
+     */
+    public static final String BACKGROUND = "assets/air_temple.jpg";
+    /**
+     * The skin of horizontal border blocks.
+     */
+    public static final String CLOUDS_HORIZONTAL = "assets/clouds_horizontal.png";
+    /**
+     * The skin of vertical border blocks.
+     */
+    public static final String CLOUDS_VERTICAL = "assets/clouds_vertical.png";
+    /**
+     * The skin of the paddle.
+     */
+    public static final String PADDLE = "assets/appa.png";
+    /**
+     * Where the atlas image is cached.
+     */
+    public static final String CACHED_IMAGE = "assets/atlas.png";
+    /**
+     * Where the atlas index is cached.
+     */
+    public static final String CACHED_INDEX = "assets/atlas.idx";
+
+    private static final List<String> SOURCES = Arrays.asList(BACKGROUND, CLOUDS_HORIZONTAL, CLOUDS_VERTICAL,
+            PADDLE);
+    private static TextureAtlas atlas;
+
+    /**
+     * Not instantiable.
+     */
+    private Textures() {
+    }
+
+    /**
+     * Returns a texture of the game.
+     *
+     * @param name the name of the texture, one of the constants of this class
+     * @return the texture, a view into the shared atlas
+     * @throws UncheckedIOException if the atlas cannot be loaded
+     */
+    public static BufferedImage get(String name) {
+        return atlas().region(name);
+    }
+
+    /**
+     * Returns the shared atlas, creating it on first use.
+     *
+     * @return the atlas
+     * @throws UncheckedIOException if the atlas cannot be loaded
+     */
+    public static synchronized TextureAtlas atlas() {
+        if (atlas == null) {
+            try {
+                atlas = isCacheFresh() ? TextureAtlas.load(Paths.get(CACHED_IMAGE), Paths.get(CACHED_INDEX))
+                        : TextureAtlas.build(SOURCES, 2048);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * Checks whether a cached atlas exists that is newer than all of its source images.
+     *
+     * @return {@code true} if the cached atlas can be used
+     * @throws IOException if the modification times cannot be read
+     */
+    private static boolean isCacheFresh() throws IOException {
+        Path image = Paths.get(CACHED_IMAGE);
+        Path index = Paths.get(CACHED_INDEX);
+        if (!Files.exists(image) || !Files.exists(index)) {
+            return false;
+        }
+        long cached = Math.min(Files.getLastModifiedTime(image).toMillis(),
+                Files.getLastModifiedTime(index).toMillis());
+        for (String source : SOURCES) {
+            if (Files.getLastModifiedTime(Paths.get(source)).toMillis() > cached) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
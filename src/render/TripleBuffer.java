@@ -0,0 +1,71 @@
+package render;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free triple buffer that hands the latest value from one writer thread to one reader thread.
+ *
+ * <p>
+ * Of the three buffers, the writer owns one (the back buffer), the reader owns one (the front buffer),
+ * and the third one (the middle buffer) is exchanged through a single atomic. Publishing swaps the back
+ * and middle buffers and marks the middle one as fresh; reading swaps the front and middle buffers if the
+ * middle one is fresh. Neither side ever waits for the other, and the reader always gets the most recently
+ * published value.
+ * </p>
+ *
+ * @param <T> the type of the buffers
+ */
+public class TripleBuffer<T> {
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final Object[] buffers;
+    private final AtomicInteger middle;
+    private int back;
+    private int front;
+
+    /**
+     * Constructs a {@code TripleBuffer} over three preallocated buffers.
+     *
+     * @param first  the first buffer
+     * @param second the second buffer
+     * @param third  the third buffer
+     */
+    public TripleBuffer(T first, T second, T third) {
+        this.buffers = new Object[] {first, second, third};
+        this.back = 0;
+        this.front = 1;
+        this.middle = new AtomicInteger(2);
+    }
+
+    /**
+     * Returns the buffer the writer may fill. Only the writer thread may call this method.
+     *
+     * @return the back buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T writeBuffer() {
+        return (T) this.buffers[this.back];
+    }
+
+    /**
+     * Publishes the back buffer and gives the writer a new one. Only the writer thread may call this method.
+     */
+    public void publish() {
+        this.back = this.middle.getAndSet(this.back | FRESH) & INDEX;
+    }
+
+    /**
+     * Returns the most recently published buffer. Only the reader thread may call this method.
+     * The buffer stays valid until the next call.
+     *
+     * @return the front buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T readLatest() {
+        if ((this.middle.get() & FRESH) != 0) {
+            this.front = this.middle.getAndSet(this.front) & INDEX;
+        }
+        return (T) this.buffers[this.front];
+    }
+}
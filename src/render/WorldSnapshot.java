@@ -0,0 +1,426 @@
+package render;
+
+import java.util.Arrays;
+
+/**
+ * A {@code WorldSnapshot} holds everything the render thread needs to draw one simulated tick:
+ * the ball positions, the paddle rectangle, the live cells of the block grid, the particles, the falling
+ * power-ups and the score.
+ *
+ * <p>
+ * Snapshots are preallocated and reused through a {@link TripleBuffer}: the simulation thread fills one,
+ * publishes it, and never touches it again until the render thread has moved on to a newer one.
+ * </p>
+ */
+public class WorldSnapshot {
+    private long tick;
+    private int score;
+    private boolean finished;
+    private int ballCount;
+    private long publishedNanos;
+    private double[] ballXs;
+    private double[] ballYs;
+    private double[] previousBallXs;
+    private double[] previousBallYs;
+    private int[] ballRadii;
+    private int[] ballColors;
+    private double paddleX;
+    private double previousPaddleX;
+    private double paddleY;
+    private double paddleWidth;
+    private double paddleHeight;
+    private long[] liveCells;
+    private int particleCount;
+    private float[] particleXs;
+    private float[] particleYs;
+    private byte[] particleColors;
+    private int powerUpCount;
+    private double[] powerUpXs;
+    private double[] powerUpYs;
+    private int[] powerUpFactors;
+
+    /**
+     * Constructs an empty snapshot.
+     */
+    public WorldSnapshot() {
+        this.ballXs = new double[16];
+        this.ballYs = new double[16];
+        this.previousBallXs = new double[16];
+        this.previousBallYs = new double[16];
+        this.ballRadii = new int[16];
+        this.ballColors = new int[16];
+        this.liveCells = new long[0];
+        this.particleXs = new float[256];
+        this.particleYs = new float[256];
+        this.particleColors = new byte[256];
+        this.powerUpXs = new double[16];
+        this.powerUpYs = new double[16];
+        this.powerUpFactors = new int[16];
+    }
+
+    /**
+     * Starts filling the snapshot for a new tick, forgetting the balls, particles and power-ups of the
+     * previous one.
+     *
+     * @param currentTick  the tick that was just simulated
+     * @param currentScore the score after that tick
+     * @param isFinished   whether the game ended in that tick
+     */
+    public void begin(long currentTick, int currentScore, boolean isFinished) {
+        this.tick = currentTick;
+        this.score = currentScore;
+        this.finished = isFinished;
+        this.ballCount = 0;
+        this.particleCount = 0;
+        this.powerUpCount = 0;
+    }
+
+    /**
+     * Adds a ball to the snapshot.
+     *
+     * @param x          the x-coordinate of the ball's center
+     * @param y          the y-coordinate of the ball's center
+     * @param previousX  the x-coordinate of the ball's center one tick earlier
+     * @param previousY  the y-coordinate of the ball's center one tick earlier
+     * @param radius     the radius of the ball
+     * @param colorIndex the palette index of the ball's color
+     */
+    public void addBall(double x, double y, double previousX, double previousY, int radius, int colorIndex) {
+        if (this.ballCount == this.ballXs.length) {
+            int size = this.ballCount * 2;
+            this.ballXs = Arrays.copyOf(this.ballXs, size);
+            this.ballYs = Arrays.copyOf(this.ballYs, size);
+            this.previousBallXs = Arrays.copyOf(this.previousBallXs, size);
+            this.previousBallYs = Arrays.copyOf(this.previousBallYs, size);
+            this.ballRadii = Arrays.copyOf(this.ballRadii, size);
+            this.ballColors = Arrays.copyOf(this.ballColors, size);
+        }
+        this.ballXs[this.ballCount] = x;
+        this.ballYs[this.ballCount] = y;
+        this.previousBallXs[this.ballCount] = previousX;
+        this.previousBallYs[this.ballCount] = previousY;
+        this.ballRadii[this.ballCount] = radius;
+        this.ballColors[this.ballCount] = colorIndex;
+        this.ballCount++;
+    }
+
+    /**
+     * Adds a particle to the snapshot.
+     *
+     * @param x          the x-coordinate of the particle
+     * @param y          the y-coordinate of the particle
+     * @param colorIndex the palette index of the particle's color, as stored by the particle system
+     */
+    public void addParticle(float x, float y, byte colorIndex) {
+        if (this.particleCount == this.particleXs.length) {
+            int size = this.particleCount * 2;
+            this.particleXs = Arrays.copyOf(this.particleXs, size);
+            this.particleYs = Arrays.copyOf(this.particleYs, size);
+            this.particleColors = Arrays.copyOf(this.particleColors, size);
+        }
+        this.particleXs[this.particleCount] = x;
+        this.particleYs[this.particleCount] = y;
+        this.particleColors[this.particleCount] = colorIndex;
+        this.particleCount++;
+    }
+
+    /**
+     * Adds a falling power-up capsule to the snapshot.
+     *
+     * @param x      the x-coordinate of the capsule's upper-left corner
+     * @param y      the y-coordinate of the capsule's upper-left corner
+     * @param factor the split factor of the capsule
+     */
+    public void addPowerUp(double x, double y, int factor) {
+        if (this.powerUpCount == this.powerUpXs.length) {
+            int size = this.powerUpCount * 2;
+            this.powerUpXs = Arrays.copyOf(this.powerUpXs, size);
+            this.powerUpYs = Arrays.copyOf(this.powerUpYs, size);
+            this.powerUpFactors = Arrays.copyOf(this.powerUpFactors, size);
+        }
+        this.powerUpXs[this.powerUpCount] = x;
+        this.powerUpYs[this.powerUpCount] = y;
+        this.powerUpFactors[this.powerUpCount] = factor;
+        this.powerUpCount++;
+    }
+
+    /**
+     * Sets the paddle rectangle.
+     *
+     * @param x         the x-coordinate of the paddle's upper-left corner
+     * @param previousX the x-coordinate of the paddle's upper-left corner one tick earlier
+     * @param y         the y-coordinate of the paddle's upper-left corner
+     * @param width     the width of the paddle
+     * @param height    the height of the paddle
+     */
+    public void setPaddle(double x, double previousX, double y, double width, double height) {
+        this.paddleX = x;
+        this.previousPaddleX = previousX;
+        this.paddleY = y;
+        this.paddleWidth = width;
+        this.paddleHeight = height;
+    }
+
+    /**
+     * Returns the bitset of live grid cells, resized to the given number of words, for the caller to fill.
+     *
+     * @param words the number of 64-bit words of the grid's bitset
+     * @return the bitset to fill
+     */
+    public long[] liveCellsBuffer(int words) {
+        if (this.liveCells.length != words) {
+            this.liveCells = new long[words];
+        }
+        return this.liveCells;
+    }
+
+    /**
+     * Stamps the snapshot with the time it is published at.
+     *
+     * @param nanos the value of {@link System#nanoTime()} at publication
+     */
+    public void setPublishedNanos(long nanos) {
+        this.publishedNanos = nanos;
+    }
+
+    /**
+     * Returns the time the snapshot was published at.
+     *
+     * @return the value of {@link System#nanoTime()} at publication
+     */
+    public long getPublishedNanos() {
+        return this.publishedNanos;
+    }
+
+    /**
+     * Returns the tick the snapshot was taken at.
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Returns the score at the time of the snapshot.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Returns whether the game ended at the time of the snapshot.
+     *
+     * @return {@code true} if the game is over
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Returns the number of balls in the snapshot.
+     *
+     * @return the number of balls
+     */
+    public int getBallCount() {
+        return this.ballCount;
+    }
+
+    /**
+     * Returns the x-coordinate of a ball's center.
+     *
+     * @param i the index of the ball in the snapshot
+     * @return the x-coordinate
+     */
+    public double getBallX(int i) {
+        return this.ballXs[i];
+    }
+
+    /**
+     * Returns the y-coordinate of a ball's center.
+     *
+     * @param i the index of the ball in the snapshot
+     * @return the y-coordinate
+     */
+    public double getBallY(int i) {
+        return this.ballYs[i];
+    }
+
+    /**
+     * Returns the x-coordinate of a ball's center, interpolated between the previous and the current tick.
+     *
+     * @param i     the index of the ball in the snapshot
+     * @param alpha the interpolation factor, from 0 (previous tick) to 1 (current tick)
+     * @return the interpolated x-coordinate
+     */
+    public double getBallX(int i, double alpha) {
+        return this.previousBallXs[i] + (this.ballXs[i] - this.previousBallXs[i]) * alpha;
+    }
+
+    /**
+     * Returns the y-coordinate of a ball's center, interpolated between the previous and the current tick.
+     *
+     * @param i     the index of the ball in the snapshot
+     * @param alpha the interpolation factor, from 0 (previous tick) to 1 (current tick)
+     * @return the interpolated y-coordinate
+     */
+    public double getBallY(int i, double alpha) {
+        return this.previousBallYs[i] + (this.ballYs[i] - this.previousBallYs[i]) * alpha;
+    }
+
+    /**
+     * Returns the radius of a ball.
+     *
+     * @param i the index of the ball in the snapshot
+     * @return the radius
+     */
+    public int getBallRadius(int i) {
+        return this.ballRadii[i];
+    }
+
+    /**
+     * Returns the palette index of a ball's color.
+     *
+     * @param i the index of the ball in the snapshot
+     * @return the color index
+     */
+    public int getBallColor(int i) {
+        return this.ballColors[i];
+    }
+
+    /**
+     * Returns the number of particles in the snapshot.
+     *
+     * @return the number of particles
+     */
+    public int getParticleCount() {
+        return this.particleCount;
+    }
+
+    /**
+     * Returns the x-coordinate of a particle.
+     *
+     * @param i the index of the particle in the snapshot
+     * @return the x-coordinate
+     */
+    public float getParticleX(int i) {
+        return this.particleXs[i];
+    }
+
+    /**
+     * Returns the y-coordinate of a particle.
+     *
+     * @param i the index of the particle in the snapshot
+     * @return the y-coordinate
+     */
+    public float getParticleY(int i) {
+        return this.particleYs[i];
+    }
+
+    /**
+     * Returns the palette index of a particle's color.
+     *
+     * @param i the index of the particle in the snapshot
+     * @return the color index
+     */
+    public int getParticleColor(int i) {
+        return this.particleColors[i] & 0xFF;
+    }
+
+    /**
+     * Returns the number of power-up capsules in the snapshot.
+     *
+     * @return the number of capsules
+     */
+    public int getPowerUpCount() {
+        return this.powerUpCount;
+    }
+
+    /**
+     * Returns the x-coordinate of a capsule's upper-left corner.
+     *
+     * @param i the index of the capsule in the snapshot
+     * @return the x-coordinate
+     */
+    public double getPowerUpX(int i) {
+        return this.powerUpXs[i];
+    }
+
+    /**
+     * Returns the y-coordinate of a capsule's upper-left corner.
+     *
+     * @param i the index of the capsule in the snapshot
+     * @return the y-coordinate
+     */
+    public double getPowerUpY(int i) {
+        return this.powerUpYs[i];
+    }
+
+    /**
+     * Returns the split factor of a capsule.
+     *
+     * @param i the index of the capsule in the snapshot
+     * @return the split factor
+     */
+    public int getPowerUpFactor(int i) {
+        return this.powerUpFactors[i];
+    }
+
+    /**
+     * Returns the x-coordinate of the paddle's upper-left corner.
+     *
+     * @return the x-coordinate
+     */
+    public double getPaddleX() {
+        return this.paddleX;
+    }
+
+    /**
+     * Returns the x-coordinate of the paddle's upper-left corner, interpolated between the previous and
+     * the current tick.
+     *
+     * @param alpha the interpolation factor, from 0 (previous tick) to 1 (current tick)
+     * @return the interpolated x-coordinate
+     */
+    public double getPaddleX(double alpha) {
+        return this.previousPaddleX + (this.paddleX - this.previousPaddleX) * alpha;
+    }
+
+    /**
+     * Returns the y-coordinate of the paddle's upper-left corner.
+     *
+     * @return the y-coordinate
+     */
+    public double getPaddleY() {
+        return this.paddleY;
+    }
+
+    /**
+     * Returns the width of the paddle.
+     *
+     * @return the width
+     */
+    public double getPaddleWidth() {
+        return this.paddleWidth;
+    }
+
+    /**
+     * Returns the height of the paddle.
+     *
+     * @return the height
+     */
+    public double getPaddleHeight() {
+        return this.paddleHeight;
+    }
+
+    /**
+     * Returns the bitset of live grid cells.
+     *
+     * @return the live cells
+     */
+    public long[] getLiveCells() {
+        return this.liveCells;
+    }
+}
@@ -0,0 +1,229 @@
+package sim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * A {@code BalanceReport} collects the outcomes of randomized playthroughs of a level: how often it was
+ * cleared, lost, stuck in a loop or ran out of time, and how long clearing it took. Reports of separate
+ * batches of playthroughs can be merged.
+ */
+public class BalanceReport {
+    /**
+     * The playthrough cleared every block.
+     */
+    public static final int CLEARED = 0;
+    /**
+     * The playthrough lost every ball.
+     */
+    public static final int LOST = 1;
+    /**
+     * The playthrough went on without breaking a block for so long that the balls are taken to be stuck in a
+     * loop between the borders and the blocks.
+     */
+    public static final int STUCK = 2;
+    /**
+     * The playthrough reached the tick limit.
+     */
+    public static final int TIMEOUT = 3;
+
+    private final long[] outcomes;
+    private long clearCount;
+    private double clearMean;
+    private double clearM2;
+    private long totalScore;
+    private long blocksLeft;
+    private boolean cached;
+
+    /**
+     * Constructs an empty {@code BalanceReport}.
+     */
+    public BalanceReport() {
+        this.outcomes = new long[4];
+    }
+
+    /**
+     * Adds the outcome of one playthrough.
+     *
+     * @param outcome   {@link #CLEARED}, {@link #LOST}, {@link #STUCK} or {@link #TIMEOUT}
+     * @param ticks     the number of ticks the playthrough lasted
+     * @param score     the final score
+     * @param remaining the number of blocks left
+     */
+    public void add(int outcome, long ticks, int score, int remaining) {
+        this.outcomes[outcome]++;
+        this.totalScore += score;
+        this.blocksLeft += remaining;
+        if (outcome == CLEARED) {
+            // Welford's online mean and variance
+            this.clearCount++;
+            double delta = ticks - this.clearMean;
+            this.clearMean += delta / this.clearCount;
+            this.clearM2 += delta * (ticks - this.clearMean);
+        }
+    }
+
+    /**
+     * Merges another report into this one.
+     *
+     * @param other the report to merge
+     */
+    public void merge(BalanceReport other) {
+        for (int i = 0; i < this.outcomes.length; i++) {
+            this.outcomes[i] += other.outcomes[i];
+        }
+        this.totalScore += other.totalScore;
+        this.blocksLeft += other.blocksLeft;
+        long n = this.clearCount + other.clearCount;
+        if (n == 0) {
+            return;
+        }
+        // Chan et al.'s formula for combining two partial variances
+        double delta = other.clearMean - this.clearMean;
+        this.clearM2 += other.clearM2 + delta * delta * this.clearCount * other.clearCount / n;
+        this.clearMean += delta * other.clearCount / n;
+        this.clearCount = n;
+    }
+
+    /**
+     * Returns the number of playthroughs.
+     *
+     * @return the number of playthroughs
+     */
+    public long getRuns() {
+        long runs = 0;
+        for (long count : this.outcomes) {
+            runs += count;
+        }
+        return runs;
+    }
+
+    /**
+     * Returns the fraction of playthroughs that ended with the given outcome.
+     *
+     * @param outcome {@link #CLEARED}, {@link #LOST}, {@link #STUCK} or {@link #TIMEOUT}
+     * @return the rate of the outcome, between 0 and 1
+     */
+    public double rate(int outcome) {
+        long runs = getRuns();
+        return runs == 0 ? 0 : (double) this.outcomes[outcome] / runs;
+    }
+
+    /**
+     * Returns the mean number of ticks it took to clear the level, over the playthroughs that cleared it.
+     *
+     * @return the expected clear time, in ticks
+     */
+    public double getClearTimeMean() {
+        return this.clearMean;
+    }
+
+    /**
+     * Returns the variance of the number of ticks it took to clear the level.
+     *
+     * @return the sample variance of the clear time
+     */
+    public double getClearTimeVariance() {
+        return this.clearCount < 2 ? 0 : this.clearM2 / (this.clearCount - 1);
+    }
+
+    /**
+     * Checks whether the report was read from the cache rather than simulated.
+     *
+     * @return {@code true} if the report came from the cache
+     */
+    public boolean isCached() {
+        return this.cached;
+    }
+
+    /**
+     * Returns a human-readable report.
+     *
+     * @return the report
+     */
+    public String report() {
+        long runs = Math.max(1, getRuns());
+        StringBuilder sb = new StringBuilder();
+        sb.append("Playthroughs: ").append(getRuns()).append(this.cached ? " (cached)" : "").append('\n');
+        sb.append(String.format(Locale.ROOT, "Cleared: %.1f%%, lost: %.1f%%, stuck: %.1f%%, timed out: %.1f%%%n",
+                100 * rate(CLEARED), 100 * rate(LOST), 100 * rate(STUCK), 100 * rate(TIMEOUT)));
+        sb.append(String.format(Locale.ROOT, "Clear time: %.0f ticks (standard deviation %.0f)%n",
+                this.clearMean, Math.sqrt(getClearTimeVariance())));
+        sb.append(String.format(Locale.ROOT, "Mean score: %.1f, mean blocks left: %.1f%n",
+                (double) this.totalScore / runs, (double) this.blocksLeft / runs));
+        return sb.toString();
+    }
+
+    /**
+     * Writes the report to a file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("cleared", Long.toString(this.outcomes[CLEARED]));
+        p.setProperty("lost", Long.toString(this.outcomes[LOST]));
+        p.setProperty("stuck", Long.toString(this.outcomes[STUCK]));
+        p.setProperty("timeout", Long.toString(this.outcomes[TIMEOUT]));
+        p.setProperty("clearMean", Double.toString(this.clearMean));
+        p.setProperty("clearM2", Double.toString(this.clearM2));
+        p.setProperty("totalScore", Long.toString(this.totalScore));
+        p.setProperty("blocksLeft", Long.toString(this.blocksLeft));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            p.store(out, "level balance report");
+        }
+    }
+
+    /**
+     * Reads a report written by {@link #write(Path)}.
+     *
+     * @param file the file to read
+     * @return the report, marked as cached
+     * @throws IOException if the file cannot be read or is not a report
+     */
+    public static BalanceReport read(Path file) throws IOException {
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+        }
+        BalanceReport report = new BalanceReport();
+        try {
+            report.outcomes[CLEARED] = Long.parseLong(required(p, "cleared", file));
+            report.outcomes[LOST] = Long.parseLong(required(p, "lost", file));
+            report.outcomes[STUCK] = Long.parseLong(required(p, "stuck", file));
+            report.outcomes[TIMEOUT] = Long.parseLong(required(p, "timeout", file));
+            report.clearCount = report.outcomes[CLEARED];
+            report.clearMean = Double.parseDouble(required(p, "clearMean", file));
+            report.clearM2 = Double.parseDouble(required(p, "clearM2", file));
+            report.totalScore = Long.parseLong(required(p, "totalScore", file));
+            report.blocksLeft = Long.parseLong(required(p, "blocksLeft", file));
+        } catch (NumberFormatException e) {
+            throw new IOException(file + " is not a balance report", e);
+        }
+        report.cached = true;
+        return report;
+    }
+
+    /**
+     * Returns a property of a report file.
+     *
+     * @param p    the properties of the file
+     * @param key  the name of the property
+     * @param file the file, for the error message
+     * @return the value of the property
+     * @throws IOException if the property is missing
+     */
+    private static String required(Properties p, String key, Path file) throws IOException {
+        String value = p.getProperty(key);
+        if (value == null) {
+            throw new IOException(file + " is not a balance report: no " + key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,276 @@
+package sim;
+
+import biuoop.KeyboardSensor;
+import game.AutopilotSensor;
+import game.Game;
+import game.NudgePolicy;
+import levels.LevelDefinition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An offline tool that estimates how hard a level is by playing it many times headless, with randomized
+ * ball start velocities and an imperfect paddle policy, and reports the clear rate, expected clear time and
+ * its variance, the loss rate, and how often the balls got stuck in a loop.
+ *
+ * <p>
+ * The paddle is played by an {@link AutopilotSensor} that, every tick, may make a mistake and press a random
+ * direction for a few ticks; how often it errs is drawn per playthrough. Balls the game's
+ * {@link game.CycleDetector} finds bouncing in a cycle are taken out of play, and a playthrough counts as
+ * stuck if its last ball went that way, or once no block was broken for {@link #STUCK_TICKS} ticks. Every
+ * playthrough is seeded from the seed of the run and its own index, so a report is reproducible no matter how
+ * the playthroughs are spread over threads.
+ * </p>
+ *
+ * <p>
+ * Reports are cached in a directory under the hash of the level and the balancing parameters, so re-running
+ * the tool on a set of levels only simulates the ones that changed.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java sim.LevelBalancer [level file] [playthroughs] [threads]}; without a level file, or
+ * with {@code -} in its place, the spiral level is balanced.
+ * </p>
+ */
+public final class LevelBalancer {
+    /**
+     * The number of ticks without a broken block after which a playthrough is taken to be stuck.
+     */
+    public static final int STUCK_TICKS = 3600;
+    /**
+     * The directory reports are cached in by {@link #main(String[])}.
+     */
+    public static final Path CACHE_DIRECTORY = Paths.get(".balance-cache");
+
+    // bump whenever the physics changes, so reports cached for the old physics are not reused
+    private static final int SIMULATION_VERSION = 2;
+    private static final double VELOCITY_JITTER = Math.toRadians(20);
+    private static final double MIN_SPEED_FACTOR = 0.9;
+    private static final double MAX_SPEED_FACTOR = 1.1;
+    private static final double MAX_MISTAKE_RATE = 0.005;
+    private static final int MISTAKE_TICKS = 15;
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * Not instantiable.
+     */
+    private LevelBalancer() {
+    }
+
+    /**
+     * Balances a level, reusing a cached report if the same level was balanced with the same parameters
+     * before, and caching the report otherwise.
+     *
+     * @param level     the level to balance
+     * @param runs      the number of playthroughs
+     * @param threads   the number of worker threads
+     * @param seed      the seed of the randomized playthroughs
+     * @param maxTicks  the number of ticks after which a playthrough is stopped
+     * @param cache     the directory reports are cached in
+     * @return the report
+     * @throws IOException if the cache cannot be read or written
+     */
+    public static BalanceReport balance(LevelDefinition level, int runs, int threads, long seed, int maxTicks,
+                                        Path cache) throws IOException {
+        Path file = cache.resolve(String.format("%016x-r%d-s%d-t%d-v%d.properties", level.hash(), runs, seed,
+                maxTicks, SIMULATION_VERSION));
+        if (Files.isRegularFile(file)) {
+            return BalanceReport.read(file);
+        }
+        BalanceReport report = balance(level, runs, threads, seed, maxTicks);
+        Files.createDirectories(cache);
+        Path partial = Files.createTempFile(cache, "report", ".tmp");
+        report.write(partial);
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        return report;
+    }
+
+    /**
+     * Balances a level without the cache. The playthroughs are split into batches that are played on a pool
+     * of worker threads, and the partial reports are merged at the end.
+     *
+     * @param level    the level to balance
+     * @param runs     the number of playthroughs
+     * @param threads  the number of worker threads
+     * @param seed     the seed of the randomized playthroughs
+     * @param maxTicks the number of ticks after which a playthrough is stopped
+     * @return the report
+     */
+    public static BalanceReport balance(LevelDefinition level, int runs, int threads, long seed, int maxTicks) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int batches = Math.max(1, Math.min(runs, threads * BATCHES_PER_THREAD));
+            List<Future<BalanceReport>> parts = new ArrayList<>();
+            for (int b = 0; b < batches; b++) {
+                int from = (int) ((long) runs * b / batches);
+                int to = (int) ((long) runs * (b + 1) / batches);
+                parts.add(pool.submit(() -> playBatch(level, from, to, seed, maxTicks)));
+            }
+            BalanceReport total = new BalanceReport();
+            for (Future<BalanceReport> part : parts) {
+                total.merge(part.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while balancing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a batch of playthroughs.
+     *
+     * @param level    the level to play
+     * @param from     the index of the first playthrough
+     * @param to       the index after the last playthrough
+     * @param seed     the seed of the run
+     * @param maxTicks the number of ticks after which a playthrough is stopped
+     * @return the report of the batch
+     */
+    private static BalanceReport playBatch(LevelDefinition level, int from, int to, long seed, int maxTicks) {
+        BalanceReport report = new BalanceReport();
+        for (int run = from; run < to; run++) {
+            play(level, new SplittableRandom(seed ^ (run * 0x9E3779B97F4A7C15L)), maxTicks, report);
+        }
+        return report;
+    }
+
+    /**
+     * Plays one randomized playthrough of a level.
+     *
+     * @param level    the level to play
+     * @param random   the source of the playthrough's randomness
+     * @param maxTicks the number of ticks after which the playthrough is stopped
+     * @param report   the report to add the outcome to
+     */
+    private static void play(LevelDefinition level, SplittableRandom random, int maxTicks, BalanceReport report) {
+        LevelDefinition variant = level.copy();
+        for (int i = 0; i < variant.getBallCount(); i++) {
+            double dx = variant.getBallDx(i);
+            double dy = variant.getBallDy(i);
+            double angle = (random.nextDouble() * 2 - 1) * VELOCITY_JITTER;
+            double factor = MIN_SPEED_FACTOR + random.nextDouble() * (MAX_SPEED_FACTOR - MIN_SPEED_FACTOR);
+            double cos = Math.cos(angle) * factor;
+            double sin = Math.sin(angle) * factor;
+            variant.setBall(i, variant.getBallX(i), variant.getBallY(i), dx * cos - dy * sin, dx * sin + dy * cos);
+        }
+
+        Game game = new Game();
+        game.setLevel(variant);
+        game.setCosmetics(false);
+        game.initialize(new NoisyPolicy(game, random.nextDouble() * MAX_MISTAKE_RATE, random.split()));
+        game.getCycleDetector().setPolicy(NudgePolicy.REMOVE);
+        int blocks = game.getRemainingBlocks();
+        long progress = 0;
+        long tick = 0;
+        int outcome = BalanceReport.TIMEOUT;
+        while (tick < maxTicks) {
+            game.tick();
+            tick++;
+            if (game.isOver()) {
+                game.endGame();
+                if (game.getRemainingBlocks() == 0) {
+                    outcome = BalanceReport.CLEARED;
+                } else if (game.getCycleDetector().getLastDetectionTick() == tick - 1) {
+                    // the last ball was taken out of play for being stuck, not lost
+                    outcome = BalanceReport.STUCK;
+                } else {
+                    outcome = BalanceReport.LOST;
+                }
+                break;
+            }
+            if (game.getRemainingBlocks() != blocks) {
+                blocks = game.getRemainingBlocks();
+                progress = tick;
+            } else if (tick - progress >= STUCK_TICKS) {
+                outcome = BalanceReport.STUCK;
+                break;
+            }
+        }
+        report.add(outcome, tick, game.getScore(), game.getRemainingBlocks());
+    }
+
+    /**
+     * Balances the level given on the command line and prints the report.
+     *
+     * @param args the level file (or {@code -} for the spiral level), the number of playthroughs and the
+     *             number of threads
+     * @throws IOException if the level cannot be read or the cache cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        LevelDefinition level = args.length > 0 && !"-".equals(args[0])
+                ? LevelDefinition.read(Paths.get(args[0])) : LevelDefinition.spiral();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        BalanceReport report = balance(level, runs, threads, 1, 60 * 60 * 10, CACHE_DIRECTORY);
+        System.out.println("Level: " + level.getName() + String.format(" (%016x)", level.hash()));
+        System.out.print(report.report());
+        System.out.printf("Took %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A paddle policy that follows an {@link AutopilotSensor} but now and then makes a mistake, pressing a
+     * random direction for a few ticks.
+     */
+    private static final class NoisyPolicy implements KeyboardSensor {
+        private final Game game;
+        private final AutopilotSensor autopilot;
+        private final double mistakeRate;
+        private final SplittableRandom random;
+        private long decidedTick = -1;
+        private long mistakeEnd;
+        private int direction;
+
+        /**
+         * Constructs a {@code NoisyPolicy}.
+         *
+         * @param game        the game to play
+         * @param mistakeRate the probability of starting a mistake on any tick
+         * @param random      the source of the mistakes
+         */
+        NoisyPolicy(Game game, double mistakeRate, SplittableRandom random) {
+            this.game = game;
+            this.autopilot = new AutopilotSensor(game);
+            this.mistakeRate = mistakeRate;
+            this.random = random;
+        }
+
+        @Override
+        public boolean isPressed(String key) {
+            long tick = this.game.getHitEvents().getTick();
+            if (tick != this.decidedTick) {
+                this.decidedTick = tick;
+                if (tick >= this.mistakeEnd) {
+                    if (this.random.nextDouble() < this.mistakeRate) {
+                        this.direction = this.random.nextInt(3) - 1;
+                        this.mistakeEnd = tick + MISTAKE_TICKS;
+                    } else if (this.autopilot.isPressed(LEFT_KEY)) {
+                        this.direction = -1;
+                    } else {
+                        this.direction = this.autopilot.isPressed(RIGHT_KEY) ? 1 : 0;
+                    }
+                }
+            }
+            if (LEFT_KEY.equals(key)) {
+                return this.direction < 0;
+            }
+            return RIGHT_KEY.equals(key) && this.direction > 0;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package sim;
+
+import biuoop.KeyboardSensor;
+import game.Game;
+import game.NudgePolicy;
+import geometry.Rectangle;
+import physics.Velocity;
+import sprites.Ball;
+import sprites.BlockGrid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@code VecEnv} runs many independent headless games side by side and advances them in lockstep, one
+ * action per game per step, for training paddle policies.
+ *
+ * <p>
+ * Each call to {@link #step(int[])} ticks every game once, with the paddle pressing the keys of its action,
+ * and writes what happened into preallocated arrays: the observation of every game into one
+ * {@code float[]} (see {@link #getObservationSize()} for its layout), the points scored into the rewards,
+ * and whether the episode ended into the done flags. A game that is over, or that has run for the maximal
+ * number of ticks, is started over in place on the same step, so the observation after a done flag is
+ * already the first one of the next episode.
+ * </p>
+ *
+ * <p>
+ * The games are split into contiguous shards, one per thread. The caller's thread steps the first shard and
+ * the worker threads the others; workers spin briefly and then park between steps, so a steady stream of
+ * steps keeps them hot without burning a core while the caller is busy elsewhere. The games are created once,
+ * without particles since nothing draws them, and reset with {@link Game#reset()} at the end of an episode.
+ * </p>
+ */
+public class VecEnv implements AutoCloseable {
+    /**
+     * The action that leaves the paddle where it is.
+     */
+    public static final int STAY = 0;
+    /**
+     * The action that moves the paddle left.
+     */
+    public static final int LEFT = 1;
+    /**
+     * The action that moves the paddle right.
+     */
+    public static final int RIGHT = 2;
+    /**
+     * The index, within a game's observation, of the x-coordinate of the paddle's center.
+     */
+    public static final int PADDLE_X = 0;
+    /**
+     * The index, within a game's observation, of the paddle's width.
+     */
+    public static final int PADDLE_WIDTH = 1;
+    /**
+     * The index, within a game's observation, of the number of balls in play.
+     */
+    public static final int BALL_COUNT = 2;
+    /**
+     * The index, within a game's observation, where the balls start: x, y, dx and dy for each ball.
+     */
+    public static final int BALLS = 3;
+
+    private static final int SPINS = 20_000;
+
+    private final int count;
+    private final int maxBalls;
+    private final int maxEpisodeTicks;
+    private final int cellOffset;
+    private final int stride;
+    private final Game[] games;
+    private final ActionSensor[] sensors;
+    private final int[] lastScores;
+    private final int[] episodeTicks;
+    private final float[] observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final int[] shardBounds;
+    private final Thread[] workers;
+    private final AtomicInteger pending;
+    private final AtomicLong episodes;
+    private volatile long generation;
+    private volatile boolean running;
+    private int[] actions;
+
+    /**
+     * Constructs a {@code VecEnv} and starts its worker threads.
+     *
+     * @param count           the number of games
+     * @param threads         the number of threads to step them on, including the caller's
+     * @param maxBalls        the number of balls an observation has room for; further balls are left out
+     * @param maxEpisodeTicks the number of ticks after which an episode ends even if the game is not over
+     */
+    public VecEnv(int count, int threads, int maxBalls, int maxEpisodeTicks) {
+        if (count <= 0 || threads <= 0 || maxBalls < 0 || maxEpisodeTicks <= 0) {
+            throw new IllegalArgumentException("invalid environment size");
+        }
+        this.count = count;
+        this.maxBalls = maxBalls;
+        this.maxEpisodeTicks = maxEpisodeTicks;
+        this.games = new Game[count];
+        this.sensors = new ActionSensor[count];
+        this.lastScores = new int[count];
+        this.episodeTicks = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.sensors[i] = new ActionSensor();
+            Game game = new Game();
+            game.setCosmetics(false);
+            game.getCycleDetector().setPolicy(NudgePolicy.DEFLECT);
+            game.initialize(this.sensors[i]);
+            this.games[i] = game;
+            newEpisode(i);
+        }
+        BlockGrid grid = this.games[0].getBlockGrid();
+        this.cellOffset = BALLS + 4 * maxBalls;
+        this.stride = this.cellOffset + grid.getColumns() * grid.getRows();
+        this.observations = new float[count * this.stride];
+        this.rewards = new float[count];
+        this.dones = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            observe(i);
+        }
+
+        int shards = Math.min(threads, count);
+        this.shardBounds = new int[shards + 1];
+        for (int s = 0; s <= shards; s++) {
+            this.shardBounds[s] = (int) ((long) count * s / shards);
+        }
+        this.pending = new AtomicInteger();
+        this.episodes = new AtomicLong();
+        this.running = true;
+        this.workers = new Thread[shards - 1];
+        for (int s = 1; s < shards; s++) {
+            final int shard = s;
+            this.workers[s - 1] = new Thread(() -> work(shard), "vec-env-" + s);
+            this.workers[s - 1].setDaemon(true);
+            this.workers[s - 1].start();
+        }
+    }
+
+    /**
+     * Advances every game by one tick.
+     *
+     * @param stepActions the action of every game: {@link #STAY}, {@link #LEFT} or {@link #RIGHT}
+     */
+    public void step(int[] stepActions) {
+        if (stepActions.length < this.count) {
+            throw new IllegalArgumentException("expected " + this.count + " actions, got " + stepActions.length);
+        }
+        if (!this.running) {
+            throw new IllegalStateException("the environment is closed");
+        }
+        this.actions = stepActions;
+        this.pending.set(this.workers.length);
+        // the volatile write publishes the actions to the workers
+        this.generation++;
+        for (Thread worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+        runShard(0);
+        int idle = 0;
+        while (this.pending.get() != 0) {
+            if (++idle > SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Starts a new episode in every game.
+     */
+    public void reset() {
+        for (int i = 0; i < this.count; i++) {
+            this.games[i].reset();
+            newEpisode(i);
+            observe(i);
+        }
+        Arrays.fill(this.rewards, 0);
+        Arrays.fill(this.dones, false);
+    }
+
+    /**
+     * Returns the observations of all games, {@link #getObservationSize()} floats per game, one game after
+     * the other. The array is updated in place by every step.
+     *
+     * @return the observations
+     */
+    public float[] getObservations() {
+        return this.observations;
+    }
+
+    /**
+     * Returns the points every game scored on the last step. The array is updated in place by every step.
+     *
+     * @return the rewards
+     */
+    public float[] getRewards() {
+        return this.rewards;
+    }
+
+    /**
+     * Returns whether the episode of every game ended on the last step. The array is updated in place by
+     * every step.
+     *
+     * @return the done flags
+     */
+    public boolean[] getDones() {
+        return this.dones;
+    }
+
+    /**
+     * Returns the number of floats in the observation of one game. They are laid out as follows:
+     * <ul>
+     *   <li>{@link #PADDLE_X}, {@link #PADDLE_WIDTH}: the center and the width of the paddle</li>
+     *   <li>{@link #BALL_COUNT}: the number of balls in play</li>
+     *   <li>from {@link #BALLS}: x, y, dx and dy of each ball, for up to the maximal number of balls,
+     *   padded with zeros</li>
+     *   <li>from {@link #getCellOffset()}: 1 for every live cell of the block grid and 0 for every broken
+     *   one, row by row</li>
+     * </ul>
+     *
+     * @return the size of an observation
+     */
+    public int getObservationSize() {
+        return this.stride;
+    }
+
+    /**
+     * Returns the index, within a game's observation, where the live-block bitmap starts.
+     *
+     * @return the offset of the block bitmap
+     */
+    public int getCellOffset() {
+        return this.cellOffset;
+    }
+
+    /**
+     * Returns the number of games.
+     *
+     * @return the number of games
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the number of episodes that ended so far.
+     *
+     * @return the number of finished episodes
+     */
+    public long getEpisodeCount() {
+        return this.episodes.get();
+    }
+
+    /**
+     * Stops the worker threads. The environment cannot be stepped afterwards.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        for (Thread worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+        for (Thread worker : this.workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The body of a worker thread: steps its shard once for every step, until the environment is closed.
+     *
+     * @param shard the index of the worker's shard
+     */
+    private void work(int shard) {
+        long seen = 0;
+        while (true) {
+            int idle = 0;
+            while (this.generation == seen) {
+                if (!this.running) {
+                    return;
+                }
+                if (++idle > SPINS) {
+                    LockSupport.park(this);
+                }
+            }
+            seen = this.generation;
+            runShard(shard);
+            this.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Steps the games of a shard.
+     *
+     * @param shard the index of the shard
+     */
+    private void runShard(int shard) {
+        int[] stepActions = this.actions;
+        for (int i = this.shardBounds[shard]; i < this.shardBounds[shard + 1]; i++) {
+            this.sensors[i].setAction(stepActions[i]);
+            Game game = this.games[i];
+            game.tick();
+            this.episodeTicks[i]++;
+            boolean over = game.isOver();
+            if (over) {
+                game.endGame();
+            }
+            int score = game.getScore();
+            this.rewards[i] = score - this.lastScores[i];
+            this.lastScores[i] = score;
+            this.dones[i] = over || this.episodeTicks[i] >= this.maxEpisodeTicks;
+            if (this.dones[i]) {
+                this.episodes.incrementAndGet();
+                game.reset();
+                newEpisode(i);
+            }
+            observe(i);
+        }
+    }
+
+    /**
+     * Resets the bookkeeping of a game whose new episode starts.
+     *
+     * @param i the index of the game
+     */
+    private void newEpisode(int i) {
+        Game game = this.games[i];
+        this.sensors[i].setAction(STAY);
+        this.lastScores[i] = game.getScore();
+        this.episodeTicks[i] = 0;
+    }
+
+    /**
+     * Writes the observation of a game.
+     *
+     * @param i the index of the game
+     */
+    private void observe(int i) {
+        Game game = this.games[i];
+        float[] obs = this.observations;
+        int base = i * this.stride;
+        Rectangle paddle = game.getPaddle().getCollisionRectangle();
+        obs[base + PADDLE_X] = (float) (paddle.getUpperLeft().getX() + paddle.getWidth() / 2);
+        obs[base + PADDLE_WIDTH] = (float) paddle.getWidth();
+        List<Ball> balls = game.getBalls();
+        int n = Math.min(balls.size(), this.maxBalls);
+        obs[base + BALL_COUNT] = balls.size();
+        int at = base + BALLS;
+        for (int b = 0; b < n; b++) {
+            Ball ball = balls.get(b);
+            Velocity v = ball.getVelocity();
+            obs[at++] = (float) ball.getCenter().getX();
+            obs[at++] = (float) ball.getCenter().getY();
+            obs[at++] = (float) v.getDx();
+            obs[at++] = (float) v.getDy();
+        }
+        Arrays.fill(obs, at, base + this.cellOffset, 0f);
+        BlockGrid grid = game.getBlockGrid();
+        int cells = this.stride - this.cellOffset;
+        for (int c = 0; c < cells; c++) {
+            obs[base + this.cellOffset + c] = grid.isAlive(c) ? 1f : 0f;
+        }
+    }
+
+    /**
+     * A {@link KeyboardSensor} whose keys are pressed by the action of the current step.
+     */
+    private static final class ActionSensor implements KeyboardSensor {
+        private int action;
+
+        /**
+         * Sets the action of the current step.
+         *
+         * @param newAction {@link #STAY}, {@link #LEFT} or {@link #RIGHT}
+         */
+        void setAction(int newAction) {
+            this.action = newAction;
+        }
+
+        @Override
+        public boolean isPressed(String key) {
+            if (LEFT_KEY.equals(key)) {
+                return this.action == LEFT;
+            }
+            return RIGHT_KEY.equals(key) && this.action == RIGHT;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package sim;
+
+import game.Xorshift;
+
+/**
+ * A {@code VecEnvHarness} runs random policies on a {@link VecEnv} and reports the throughput, in
+ * environment steps per second.
+ */
+public final class VecEnvHarness {
+    /**
+     * Not instantiable.
+     */
+    private VecEnvHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args optional: the number of games, the number of threads and the number of steps
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int[] actions = new int[games];
+        Xorshift random = new Xorshift(1);
+        try (VecEnv env = new VecEnv(games, threads, 8, 10_000)) {
+            long start = System.nanoTime();
+            for (int s = 0; s < steps; s++) {
+                for (int i = 0; i < games; i++) {
+                    actions[i] = (int) ((random.nextLong() >>> 33) % 3);
+                }
+                env.step(actions);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games on %d threads: %.0f environment steps per second, %d episodes%n",
+                    games, threads, (double) games * steps / seconds, env.getEpisodeCount());
+        }
+    }
+}
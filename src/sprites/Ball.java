@@ -2,12 +2,14 @@ package sprites;
 
 import physics.Velocity;
 import physics.CollisionInfo;
+import game.CycleDetector;
 import game.Game;
 import game.GameEnvironment;
 import geometry.Line;
 import biuoop.DrawSurface;
 import geometry.Point;
 import geometry.Rectangle;
+import telemetry.TelemetryRecorder;
 
 import java.awt.Color;
 
@@ -18,11 +20,17 @@ import java.awt.Color;
  */
 public class Ball implements Sprite {
     private Point center;
+    private Point previousCenter;
     private int r;
-    private java.awt.Color color;
+    private Color color;
+    private Palette palette;
+    private int colorIndex = -1;
     private Velocity v;
     private static final double EPSILON = 0.00001;
     private GameEnvironment gameEnv;
+    private int id = -1;
+    private TelemetryRecorder telemetry;
+    private CycleDetector cycles;
 
     /**
      * Constructs a ball with the specified center point, radius, and color.
@@ -72,6 +80,25 @@ public class Ball implements Sprite {
         this.v = new Velocity(0, 0);
     }
 
+    /**
+     * Constructs a new Ball whose color comes from a level palette.
+     *
+     * @param x          the x-coordinate of the center of the ball
+     * @param y          the y-coordinate of the center of the ball
+     * @param r          the radius of the ball
+     * @param palette    the palette of the level
+     * @param colorIndex the index of the ball's color in the palette
+     * @param gameEnv    the game environment in which the ball moves and detects collisions
+     */
+    public Ball(int x, int y, int r, Palette palette, int colorIndex, GameEnvironment gameEnv) {
+        this.center = new Point(x, y);
+        this.r = r;
+        this.palette = palette;
+        this.colorIndex = colorIndex;
+        this.gameEnv = gameEnv;
+        this.v = new Velocity(0, 0);
+    }
+
     /**
      * Gets the x-coordinate of the ball's center.
      *
@@ -105,7 +132,25 @@ public class Ball implements Sprite {
      * @return The color of the ball.
      */
     public java.awt.Color getColor() {
-        return this.color;
+        return this.palette == null ? this.color : this.palette.colorOf(this.colorIndex);
+    }
+
+    /**
+     * Gets the index of the ball's color in its palette.
+     *
+     * @return The color index of the ball, or -1 if it was built from a color and not added to a game yet.
+     */
+    public int getColorIndex() {
+        return this.colorIndex;
+    }
+
+    /**
+     * Gets the palette the ball's color index refers to.
+     *
+     * @return The palette of the ball, or null if it was built from a color and not added to a game yet.
+     */
+    public Palette getPalette() {
+        return this.palette;
     }
 
 
@@ -118,13 +163,25 @@ public class Ball implements Sprite {
         return this.center;
     }
 
+    /**
+     * Gets the center point of the ball before its last move, so renderers can interpolate
+     * between the previous and the current tick.
+     *
+     * @return The center of the ball one tick ago.
+     */
+    public Point getPreviousCenter() {
+        return this.previousCenter != null ? this.previousCenter : this.center;
+    }
+
     /**
      * Sets the center point of the ball to the specified point.
+     * The ball is teleported there, so it is not interpolated from its old position.
      *
      * @param center The new center of the ball.
      */
     public void setCenter(Point center) {
         this.center = center;
+        this.previousCenter = center;
     }
 
     /**
@@ -133,7 +190,7 @@ public class Ball implements Sprite {
      * @param d The drawing surface to draw the ball on.
      */
     public void drawOn(DrawSurface d) {
-        d.setColor(this.color);
+        d.setColor(getColor());
         d.fillCircle(this.getX(), this.getY(), r);
     }
 
@@ -141,18 +198,21 @@ public class Ball implements Sprite {
      * Notifies the ball that time has passed.
      * Causes the ball to move one step according to its velocity,
      * checking for and handling collisions along its trajectory.
+     * The position before the move is kept for render interpolation.
      */
     public void timePassed() {
+        this.previousCenter = this.center;
         this.moveOneStep();
     }
 
     /**
-     * Sets the velocity of the ball to the specified Velocity object.
+     * Sets the velocity of the ball to that of the specified Velocity object. The ball keeps its own velocity
+     * object and copies the components into it.
      *
      * @param v The new velocity of the ball.
      */
     public void setVelocity(Velocity v) {
-        this.v = v;
+        this.v.set(v.getDx(), v.getDy());
     }
 
     /**
@@ -162,7 +222,7 @@ public class Ball implements Sprite {
      * @param dy The velocity component in the y direction.
      */
     public void setVelocity(double dx, double dy) {
-        this.v = new Velocity(dx, dy);
+        this.v.set(dx, dy);
     }
 
     /**
@@ -180,6 +240,8 @@ public class Ball implements Sprite {
      * it never overlaps the colliding object.  If the collision is with a
      * Paddle (exact class), the ball will also be teleported directly above
      * the paddle’s top edge to prevent sticking.
+     * After a collision the game's {@link CycleDetector} is told, so it can spot a ball stuck in a loop.
+     * If the game records telemetry, the new position of the ball is recorded.
      */
     public void moveOneStep() {
         //calculate line trajectory
@@ -191,7 +253,8 @@ public class Ball implements Sprite {
         } else {
             // 4) If the collided object’s exact class is Paddle, teleport up
             if (info.collisionObject().getClass().equals(Paddle.class)) {
-                // flip horizontal velocity again (in case paddle.hit only flipped dx)
+                // flip horizontal velocity again (in case paddle.hit only flipped dx); the paddle bounces the
+                // ball's own velocity in place
                 this.setVelocity(info.collisionObject().hit(this, info.collisionPoint(), this.getVelocity()));
 
                 // teleport so ball’s bottom edge sits just above paddle
@@ -218,11 +281,16 @@ public class Ball implements Sprite {
                         start.getY() + this.getVelocity().getDy() * ratio
                 );
 
-                // now flip velocity
-                Velocity newV = info.collisionObject().hit(this, collisionPoint, this.getVelocity());
-                this.setVelocity(newV);
+                // now flip velocity, in place
+                this.setVelocity(info.collisionObject().hit(this, collisionPoint, this.getVelocity()));
 
             }
+            if (this.cycles != null) {
+                this.cycles.collided(this);
+            }
+        }
+        if (this.telemetry != null) {
+            this.telemetry.recordBall(this.id, this.center.getX(), this.center.getY());
         }
     }
 
@@ -237,11 +305,32 @@ public class Ball implements Sprite {
 
     /**
      * Adds this ball to the specified game as a sprite, so it will be drawn and updated.
+     * The first time the ball is added it is also registered with the game's hit event buffer,
+     * and its color is moved to the game's palette.
      *
      * @param g the Game to add this ball to
      */
     public void addToGame(Game g) {
-        g.addSprite(this);
+        if (this.id < 0) {
+            this.id = g.getHitEvents().registerBall(this);
+        }
+        if (this.palette != g.getPalette()) {
+            this.colorIndex = g.getPalette().indexOf(getColor());
+            this.palette = g.getPalette();
+            this.color = null;
+        }
+        this.telemetry = g.getTelemetry();
+        this.cycles = g.getCycleDetector();
+        g.addBall(this);
+    }
+
+    /**
+     * Returns the id the game's hit event buffer assigned to this ball, or -1 if it was never added to a game.
+     *
+     * @return the id of the ball
+     */
+    public int getId() {
+        return this.id;
     }
 
     /**
@@ -250,7 +339,27 @@ public class Ball implements Sprite {
      * @param g the game from which this object should be removed
      */
     public void removeFromGame(Game g) {
-        g.removeSprite(this);
+        g.removeBall(this);
+    }
+
+    /**
+     * Puts the ball back into its initial state at a new position, so a ball that left the game can be
+     * reused instead of allocating a new one. The ball keeps its id, palette and velocity object; the
+     * velocity is changed in place, so it must not be shared with another ball.
+     *
+     * @param x          the x-coordinate of the ball's center
+     * @param y          the y-coordinate of the ball's center
+     * @param radius     the radius of the ball
+     * @param index      the palette index of the ball's color
+     * @param dx         the velocity component in the x direction
+     * @param dy         the velocity component in the y direction
+     */
+    public void reset(double x, double y, int radius, int index, double dx, double dy) {
+        this.center = new Point(x, y);
+        this.previousCenter = this.center;
+        this.r = radius;
+        this.colorIndex = index;
+        this.v.set(dx, dy);
     }
 
     /**
@@ -259,6 +368,19 @@ public class Ball implements Sprite {
      * @param c the new color to set
      */
     public void setColor(Color c) {
-        this.color = c;
+        if (this.palette == null) {
+            this.color = c;
+        } else {
+            this.colorIndex = this.palette.indexOf(c);
+        }
+    }
+
+    /**
+     * Sets the color of the ball to the color at the given index of its palette.
+     *
+     * @param index the index of the new color
+     */
+    public void setColorIndex(int index) {
+        this.colorIndex = index;
     }
 }
@@ -0,0 +1,109 @@
+package sprites;
+
+import game.GameEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@code BallPool} recycles the balls that leave the game, so that splitting balls into many does not
+ * allocate a new {@link Ball} and {@link physics.Velocity} for every ball that is spawned.
+ *
+ * <p>
+ * A released ball keeps the id it was given by the game's hit event buffer, so a pooled ball is only
+ * registered once no matter how often it comes back into play.
+ * </p>
+ */
+public class BallPool {
+    private final Palette palette;
+    private final GameEnvironment environment;
+    private final List<Ball> free;
+    private int created;
+
+    /**
+     * Constructs an empty {@code BallPool}.
+     *
+     * @param palette     the palette the color indices of the balls refer to
+     * @param environment the game environment the balls move in
+     */
+    public BallPool(Palette palette, GameEnvironment environment) {
+        this.palette = palette;
+        this.environment = environment;
+        this.free = new ArrayList<>();
+    }
+
+    /**
+     * Returns a ball in its initial state, reusing a released ball if there is one.
+     *
+     * @param x          the x-coordinate of the ball's center
+     * @param y          the y-coordinate of the ball's center
+     * @param radius     the radius of the ball
+     * @param colorIndex the palette index of the ball's color
+     * @param dx         the velocity component in the x direction
+     * @param dy         the velocity component in the y direction
+     * @return the ball, not yet added to a game
+     */
+    public Ball acquire(double x, double y, int radius, int colorIndex, double dx, double dy) {
+        Ball ball;
+        if (this.free.isEmpty()) {
+            ball = new Ball((int) x, (int) y, radius, this.palette, colorIndex, this.environment);
+            this.created++;
+        } else {
+            ball = this.free.remove(this.free.size() - 1);
+        }
+        ball.reset(x, y, radius, colorIndex, dx, dy);
+        return ball;
+    }
+
+    /**
+     * Takes back a ball that was removed from the game.
+     *
+     * @param ball the ball to release; it must not be used by the caller afterwards
+     */
+    public void release(Ball ball) {
+        this.free.add(ball);
+    }
+
+    /**
+     * Copies the released balls, in the order they will be reused from last to first, into a list.
+     *
+     * @param dest the list to copy into; it is cleared first
+     */
+    public void saveFree(List<Ball> dest) {
+        dest.clear();
+        for (int i = 0; i < this.free.size(); i++) {
+            dest.add(this.free.get(i));
+        }
+    }
+
+    /**
+     * Makes the released balls exactly the balls of a list saved by {@link #saveFree(List)}, when the game
+     * is restored to an earlier state.
+     *
+     * @param source the saved list
+     */
+    public void restoreFree(List<Ball> source) {
+        this.free.clear();
+        for (int i = 0; i < source.size(); i++) {
+            this.free.add(source.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of released balls waiting to be reused.
+     *
+     * @return the number of free balls
+     */
+    public int getFreeCount() {
+        return this.free.size();
+    }
+
+    /**
+     * Returns the number of balls the pool had to allocate.
+     *
+     * @return the number of balls created
+     */
+    public int getCreatedCount() {
+        return this.created;
+    }
+}
@@ -6,8 +6,12 @@ import game.Game;
 import biuoop.DrawSurface;
 import geometry.Point;
 import geometry.Rectangle;
+import listeners.HitEventBuffer;
 import listeners.HitNotifier;
 import listeners.HitListener;
+import listeners.HitTarget;
+import render.Textures;
+import telemetry.TelemetryRecorder;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -18,12 +22,18 @@ import java.util.List;
  * The block has a rectangle that defines its position and size, and it can change velocity
  * when hit by other objects.
  */
-public class Block implements Collidable, Sprite, HitNotifier {
+public class Block implements Collidable, Sprite, HitNotifier, HitTarget {
     private List<HitListener> hitListeners;
     private final Rectangle rectangle;
-    private final Color color;
+    private Color color;
+    private Palette palette;
+    private int colorIndex = -1;
     private static final double EPSILON = 0.00001;
     private int border;
+    private HitEventBuffer hitEvents;
+    private int id = -1;
+    private TelemetryRecorder telemetry;
+    private boolean inGame;
 
     /**
      * Constructs a Block with the given rectangle and a default color of black.
@@ -31,9 +41,7 @@ public class Block implements Collidable, Sprite, HitNotifier {
      * @param rectangle the rectangle that defines the block's position and size
      */
     public Block(Rectangle rectangle) {
-        this.rectangle = rectangle;
-        this.color = Color.BLACK;
-        border = 0;
+        this(rectangle, Color.BLACK);
     }
 
     /**
@@ -43,17 +51,49 @@ public class Block implements Collidable, Sprite, HitNotifier {
      * @param color     the color of the block
      */
     public Block(Rectangle rectangle, Color color) {
-        this.rectangle = rectangle;
-        this.color = color;
-        border = 0;
+        this(rectangle, color, 0);
     }
 
+    /**
+     * Constructs a Block with the given rectangle, color and border style.
+     * The color is looked up in the game's palette when the block is added to a game.
+     *
+     * @param rectangle the rectangle that defines the block's position and size
+     * @param color     the color of the block
+     * @param border    0 for a regular block, 1 or 2 for a horizontal or vertical cloud border
+     */
     public Block(Rectangle rectangle, Color color, int border) {
         this.rectangle = rectangle;
         this.color = color;
         this.border = border;
     }
 
+    /**
+     * Constructs a Block with the given rectangle and a color from a level palette.
+     *
+     * @param rectangle  the rectangle that defines the block's position and size
+     * @param palette    the palette of the level
+     * @param colorIndex the index of the block's color in the palette
+     */
+    public Block(Rectangle rectangle, Palette palette, int colorIndex) {
+        this(rectangle, palette, colorIndex, 0);
+    }
+
+    /**
+     * Constructs a Block with the given rectangle, a color from a level palette and a border style.
+     *
+     * @param rectangle  the rectangle that defines the block's position and size
+     * @param palette    the palette of the level
+     * @param colorIndex the index of the block's color in the palette
+     * @param border     0 for a regular block, 1 or 2 for a horizontal or vertical cloud border
+     */
+    public Block(Rectangle rectangle, Palette palette, int colorIndex, int border) {
+        this.rectangle = rectangle;
+        this.palette = palette;
+        this.colorIndex = colorIndex;
+        this.border = border;
+    }
+
     /**
      * Returns the rectangle that defines the block's position and size.
      *
@@ -73,19 +113,55 @@ public class Block implements Collidable, Sprite, HitNotifier {
      *
      * @param hitter the ball that hits the block
      * @param collisionPoint  the point where the collision occurred
-     * @param currentVelocity the velocity of the object before the collision
-     * @return a new Velocity object representing the updated velocity after the collision
+     * @param currentVelocity the velocity of the object before the collision, bounced in place
+     * @return {@code currentVelocity}, updated to the velocity after the collision
      */
     public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
+        Rectangle rect = this.getCollisionRectangle();
+        Velocity newVelocity = bounce(rect.getUpperLeft().getX(), rect.getUpperLeft().getY(),
+                rect.getWidth(), rect.getHeight(), collisionPoint, currentVelocity);
+        if (this.telemetry != null) {
+            this.telemetry.recordBlockHit(this.id);
+        }
+        if (!ballColorMatch(hitter)) {
+            if (this.hitListeners != null) {
+                if (this.hitEvents != null) {
+                    // listeners run at the end of the tick, once every ball has moved
+                    this.hitEvents.record(this.id, hitter.getId(), collisionPoint.getX(), collisionPoint.getY());
+                } else {
+                    this.notifyHit(hitter);
+                }
+            }
+        }
+
+        return newVelocity;
+    }
+
+    /**
+     * Computes the velocity of a ball that bounces off an axis-aligned rectangle.
+     *
+     * <p>
+     * The method checks which edge of the rectangle was hit (top, bottom, left, or right) and inverts the
+     * appropriate component of the velocity (horizontal or vertical). If no edge is clearly hit, it falls
+     * back to a vertical bounce.
+     * </p>
+     *
+     * @param leftX           the x-coordinate of the rectangle's left edge
+     * @param topY            the y-coordinate of the rectangle's top edge
+     * @param width           the width of the rectangle
+     * @param height          the height of the rectangle
+     * @param collisionPoint  the point where the collision occurred
+     * @param currentVelocity the velocity of the ball before the collision, bounced in place
+     * @return {@code currentVelocity}, updated to the velocity after the collision
+     */
+    static Velocity bounce(double leftX, double topY, double width, double height, Point collisionPoint,
+                           Velocity currentVelocity) {
         double dx = currentVelocity.getDx();
         double dy = currentVelocity.getDy();
-        Rectangle rect = this.getCollisionRectangle();
 
         // Cache the four edges of the rectangle
-        double topY = rect.getUpperLeft().getY();
-        double bottomY = topY + rect.getHeight();
-        double leftX = rect.getUpperLeft().getX();
-        double rightX = leftX + rect.getWidth();
+        double bottomY = topY + height;
+        double rightX = leftX + width;
 
         // Compute how close the collision point is to each edge
         double topDelta = Math.abs(collisionPoint.getY() - topY);
@@ -112,13 +188,8 @@ public class Block implements Collidable, Sprite, HitNotifier {
             // Fuzzy corner or no clear edge: fallback to a vertical bounce
             dy = -dy;
         }
-        if (!ballColorMatch(hitter)) {
-            if (this.hitListeners != null) {
-                this.notifyHit(hitter);
-            }
-        }
-
-        return new Velocity(dx, dy);
+        currentVelocity.set(dx, dy);
+        return currentVelocity;
     }
 
     /**
@@ -132,7 +203,7 @@ public class Block implements Collidable, Sprite, HitNotifier {
      */
     public void drawOn(DrawSurface d) {
         if (border == 0) {
-            d.setColor(this.color);
+            d.setColor(getColor());
             d.fillRectangle((int) this.rectangle.getUpperLeft().getX(), (int) this.rectangle.getUpperLeft().getY(),
                     (int) this.rectangle.getWidth(), (int) this.rectangle.getHeight());
             d.setColor(Color.BLACK);
@@ -140,11 +211,11 @@ public class Block implements Collidable, Sprite, HitNotifier {
                     (int) this.rectangle.getWidth(), (int) this.rectangle.getHeight());
         }
         if (border == 1) {
-            Image img = Toolkit.getDefaultToolkit().getImage("assets/clouds_horizontal.png");
+            Image img = Textures.get(Textures.CLOUDS_HORIZONTAL);
             d.drawImage((int) this.rectangle.getUpperLeft().getX(), (int) this.rectangle.getUpperLeft().getY(), img);
         }
         if (border == 2) {
-            Image img = Toolkit.getDefaultToolkit().getImage("assets/clouds_vertical.png");
+            Image img = Textures.get(Textures.CLOUDS_VERTICAL);
             d.drawImage((int) this.rectangle.getUpperLeft().getX(), (int) this.rectangle.getUpperLeft().getY(), img);
         }
 
@@ -161,48 +232,95 @@ public class Block implements Collidable, Sprite, HitNotifier {
      * Adds the block to the game as both a sprite and a collidable.
      *
      * <p>
-     * The block is added to the game for collision detection and rendering during the game loop.
+     * The block is added to the game for collision detection and rendering during the game loop,
+     * and is registered with the game's hit event buffer so its hits are dispatched at the end of each tick.
+     * Its color is moved to the game's palette, where a regular block (one without a cloud border) is counted
+     * as a breakable block of its color for as long as it is in the game.
      * </p>
      *
      * @param g the game to which the block will be added
      */
     public void addToGame(Game g) {
+        if (this.palette != g.getPalette()) {
+            this.colorIndex = g.getPalette().indexOf(getColor());
+            this.palette = g.getPalette();
+            this.color = null;
+        }
+        if (this.hitEvents != g.getHitEvents()) {
+            this.hitEvents = g.getHitEvents();
+            this.id = this.hitEvents.register(this, 1);
+        }
+        this.telemetry = g.getTelemetry();
         g.addSprite(this);
         g.addCollidable(this);
+        if (!this.inGame && this.border == 0) {
+            this.palette.blockAdded(this.colorIndex);
+        }
+        this.inGame = true;
     }
 
     /**
      * Checks if the color of the given ball matches this object's color.
+     * When both share a palette this is a single int compare.
      *
      * @param ball the Ball to compare color with
      * @return true if the colors match, false otherwise
      */
     public boolean ballColorMatch(Ball ball) {
-        return this.color.equals(ball.getColor());
+        if (this.palette != null && this.palette == ball.getPalette()) {
+            return this.colorIndex == ball.getColorIndex();
+        }
+        return this.getColor().equals(ball.getColor());
     }
 
     /**
      * Removes this object from the specified game.
-     * It removes both from the game's collidable and sprite lists.
+     * It removes both from the game's collidable and sprite lists, and a regular block is no longer
+     * counted in the palette.
      *
      * @param game the Game instance to remove this object from
      */
     public void removeFromGame(Game game) {
         game.removeCollidable(this);
         game.removeSprite(this);
+        if (this.inGame && this.border == 0) {
+            this.palette.blockRemoved(this.colorIndex);
+        }
+        this.inGame = false;
     }
 
     /**
      * Notifies all registered hit listeners that this object has been hit by the given ball.
      *
+     * <p>
+     * A listener may remove itself while being notified; the remaining listeners are still notified
+     * in order, without copying the listener list.
+     * </p>
+     *
      * @param hitter the Ball that hit this object
      */
-    private void notifyHit(Ball hitter) {
-        // Make a copy of the hitListeners before iterating over them.
-        List<HitListener> listeners = new ArrayList<>(this.hitListeners);
-        // Notify all listeners about a hit event:
-        for (HitListener hl : listeners) {
+    public void notifyHit(Ball hitter) {
+        int i = 0;
+        while (i < this.hitListeners.size()) {
+            HitListener hl = this.hitListeners.get(i);
             hl.hitEvent(this, hitter);
+            if (i < this.hitListeners.size() && this.hitListeners.get(i) == hl) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of a hit recorded during the tick, unless the block was removed from the game
+     * by an earlier hit of the same tick, e.g. when two balls hit it at once.
+     *
+     * @param index  the index of the hit target within the block, always 0
+     * @param hitter the ball that hit the block
+     */
+    @Override
+    public void dispatchHit(int index, Ball hitter) {
+        if (this.inGame) {
+            notifyHit(hitter);
         }
     }
 
@@ -220,12 +338,30 @@ public class Block implements Collidable, Sprite, HitNotifier {
     }
 
 
+    /**
+     * Returns the id the game's hit event buffer assigned to this block, or -1 if it was never added to a game.
+     *
+     * @return the id of the block
+     */
+    public int getId() {
+        return this.id;
+    }
+
     /**
      * Returns the current color of this object.
      *
      * @return the Color of this object
      */
     public Color getColor() {
-        return this.color;
+        return this.palette == null ? this.color : this.palette.colorOf(this.colorIndex);
+    }
+
+    /**
+     * Returns the index of this object's color in its palette.
+     *
+     * @return the color index, or -1 if the block was built from a {@link Color} and not added to a game yet
+     */
+    public int getColorIndex() {
+        return this.colorIndex;
     }
 }
@@ -0,0 +1,744 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Game;
+import geometry.Line;
+import geometry.Point;
+import geometry.Rectangle;
+import listeners.CellHitListener;
+import listeners.HitEventBuffer;
+import listeners.HitTarget;
+import physics.Collidable;
+import physics.Velocity;
+import telemetry.TelemetryRecorder;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@code BlockGrid} is a whole grid-aligned level of blocks packed into one collidable sprite.
+ *
+ * <p>
+ * Cells are laid out row by row at a fixed pitch, and every live cell holds a block of a fixed size at the
+ * top-left corner of the cell. Instead of one {@link Block} object per cell, the grid keeps a bitset of live
+ * cells and one palette color index (a byte) per cell. Ray queries walk only the cells the trajectory crosses
+ * (a grid DDA), removing a block clears a bit, and drawing iterates the set bits. A second bitset marks solid
+ * cells, whose blocks deflect balls but never break.
+ * </p>
+ *
+ * <p>
+ * Drawing is batched by color: the visible live cells are sorted by color, every color is set once and its
+ * blocks are filled, merging horizontally adjacent blocks into one fill when they touch, and then all outlines
+ * are drawn in a single black pass.
+ * </p>
+ */
+public class BlockGrid implements Collidable, Sprite, HitTarget {
+    private static final double EPSILON = 0.00001;
+
+    private double originX;
+    private double originY;
+    private final int columns;
+    private final int rows;
+    private final double pitchX;
+    private final double pitchY;
+    private final double blockWidth;
+    private final double blockHeight;
+    private final long[] alive;
+    private final long[] solid;
+    private final byte[] colors;
+    private final Palette palette;
+    private Rectangle bounds;
+    private final List<CellHitListener> listeners;
+    private int liveCells;
+    private HitEventBuffer hitEvents;
+    private int firstId = -1;
+    private TelemetryRecorder telemetry;
+    private final int[] colorCounts;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param originX     the x-coordinate of the top-left corner of the first cell
+     * @param originY     the y-coordinate of the top-left corner of the first cell
+     * @param columns     the number of columns
+     * @param rows        the number of rows
+     * @param pitchX      the horizontal distance between the left edges of two neighbouring cells
+     * @param pitchY      the vertical distance between the top edges of two neighbouring cells
+     * @param blockWidth  the width of a block, at most {@code pitchX}
+     * @param blockHeight the height of a block, at most {@code pitchY}
+     * @param palette     the palette the cell color indices refer to
+     */
+    public BlockGrid(double originX, double originY, int columns, int rows, double pitchX, double pitchY,
+                     double blockWidth, double blockHeight, Palette palette) {
+        if (blockWidth > pitchX || blockHeight > pitchY) {
+            throw new IllegalArgumentException("a block must fit inside its cell");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.columns = columns;
+        this.rows = rows;
+        this.pitchX = pitchX;
+        this.pitchY = pitchY;
+        this.blockWidth = blockWidth;
+        this.blockHeight = blockHeight;
+        this.alive = new long[(columns * rows + 63) >>> 6];
+        this.solid = new long[this.alive.length];
+        this.colors = new byte[columns * rows];
+        this.palette = palette;
+        this.bounds = new Rectangle(new Point(originX, originY), columns * pitchX, rows * pitchY);
+        this.listeners = new ArrayList<>();
+        this.colorCounts = new int[Palette.MAX_COLORS];
+    }
+
+    /**
+     * Puts a live block into the cell at the given row and column.
+     *
+     * @param row        the row of the cell
+     * @param column     the column of the cell
+     * @param colorIndex the palette index of the block's color
+     * @return the index of the cell
+     */
+    public int setCell(int row, int column, int colorIndex) {
+        int cell = row * this.columns + column;
+        this.colors[cell] = (byte) colorIndex;
+        if (!isAlive(cell)) {
+            this.alive[cell >>> 6] |= 1L << cell;
+            this.liveCells++;
+        }
+        return cell;
+    }
+
+    /**
+     * Puts a solid block into the cell at the given row and column. A solid block bounces balls like any
+     * other block but never breaks: its cell listeners are not notified when it is hit.
+     *
+     * @param row        the row of the cell
+     * @param column     the column of the cell
+     * @param colorIndex the palette index of the block's color
+     * @return the index of the cell
+     */
+    public int setSolidCell(int row, int column, int colorIndex) {
+        int cell = setCell(row, column, colorIndex);
+        this.solid[cell >>> 6] |= 1L << cell;
+        return cell;
+    }
+
+    /**
+     * Removes every block and moves the grid so its first cell starts at the given point, so the grid can be
+     * reused for another part of a level. It keeps its hit ids and listeners.
+     *
+     * @param x the new x-coordinate of the top-left corner of the first cell
+     * @param y the new y-coordinate of the top-left corner of the first cell
+     */
+    public void reset(double x, double y) {
+        Arrays.fill(this.alive, 0);
+        Arrays.fill(this.solid, 0);
+        this.liveCells = 0;
+        this.originX = x;
+        this.originY = y;
+        this.bounds = new Rectangle(new Point(x, y), this.columns * this.pitchX, this.rows * this.pitchY);
+    }
+
+    /**
+     * Checks whether the given cell holds a solid block.
+     *
+     * @param cell the index of the cell
+     * @return {@code true} if the cell holds a block that never breaks
+     */
+    public boolean isSolid(int cell) {
+        return (this.solid[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Removes the block in the given cell.
+     *
+     * @param cell the index of the cell
+     */
+    public void removeCell(int cell) {
+        if (isAlive(cell)) {
+            this.alive[cell >>> 6] &= ~(1L << cell);
+            this.solid[cell >>> 6] &= ~(1L << cell);
+            this.liveCells--;
+        }
+    }
+
+    /**
+     * Checks whether the given cell holds a live block.
+     *
+     * @param cell the index of the cell
+     * @return {@code true} if the cell holds a live block
+     */
+    public boolean isAlive(int cell) {
+        return (this.alive[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the palette color index of the block in the given cell.
+     *
+     * @param cell the index of the cell
+     * @return the color index
+     */
+    public int getColorIndex(int cell) {
+        return this.colors[cell] & 0xFF;
+    }
+
+    /**
+     * Returns the number of cells that hold a live block, solid blocks included.
+     *
+     * @return the number of live blocks
+     */
+    public int getLiveCells() {
+        return this.liveCells;
+    }
+
+    /**
+     * Returns the number of columns of the grid.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Returns the number of rows of the grid.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the palette the cell color indices refer to.
+     *
+     * @return the palette of the grid
+     */
+    public Palette getPalette() {
+        return this.palette;
+    }
+
+    /**
+     * Returns the bounding rectangle of the whole grid.
+     *
+     * @return the bounds of the grid
+     */
+    public Rectangle getCollisionRectangle() {
+        return this.bounds;
+    }
+
+    /**
+     * Finds the first live block the trajectory touches.
+     *
+     * <p>
+     * The trajectory is clipped to the grid bounds, and the cells it crosses are then visited in order.
+     * Since every block lies inside its own cell, the first live block that is hit is also the closest one,
+     * so the walk stops there.
+     * </p>
+     *
+     * @param trajectory the path an object is expected to follow
+     * @return the closest intersection to the start of the trajectory, or {@code null} if there is none
+     */
+    @Override
+    public Point closestIntersection(Line trajectory) {
+        double sx = trajectory.start().getX();
+        double sy = trajectory.start().getY();
+        double dx = trajectory.end().getX() - sx;
+        double dy = trajectory.end().getY() - sy;
+
+        double[] span = {0, 1};
+        if (!clip(sx, sy, dx, dy, this.originX, this.originY, this.columns * this.pitchX,
+                this.rows * this.pitchY, span)) {
+            return null;
+        }
+        double t = span[0];
+        double px = sx + dx * t;
+        double py = sy + dy * t;
+        int col = Math.min(this.columns - 1, Math.max(0, (int) Math.floor((px - this.originX) / this.pitchX)));
+        int row = Math.min(this.rows - 1, Math.max(0, (int) Math.floor((py - this.originY) / this.pitchY)));
+
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : this.pitchX / Math.abs(dx);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : this.pitchY / Math.abs(dy);
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY
+                : ((this.originX + (col + (dx > 0 ? 1 : 0)) * this.pitchX) - sx) / dx;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY
+                : ((this.originY + (row + (dy > 0 ? 1 : 0)) * this.pitchY) - sy) / dy;
+
+        while (col >= 0 && col < this.columns && row >= 0 && row < this.rows && t <= span[1]) {
+            int cell = row * this.columns + col;
+            if (isAlive(cell)) {
+                Point hit = intersectBlock(sx, sy, dx, dy, col, row);
+                if (hit != null) {
+                    return hit;
+                }
+            }
+            if (nextX < nextY) {
+                t = nextX;
+                nextX += deltaX;
+                col += stepX;
+            } else {
+                t = nextY;
+                nextY += deltaY;
+                row += stepY;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Handles a ball hitting a live block of the grid, bouncing it like a {@link Block} would.
+     * If the ball's color differs from the block's and the block is not solid, the cell's listeners are
+     * notified.
+     *
+     * @param hitter          the ball that hits the grid
+     * @param collisionPoint  the point where the collision occurred
+     * @param currentVelocity the velocity of the ball before the collision
+     * @return the velocity of the ball after the collision
+     */
+    public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
+        int cell = cellAt(collisionPoint);
+        if (cell < 0) {
+            currentVelocity.set(currentVelocity.getDx(), -currentVelocity.getDy());
+            return currentVelocity;
+        }
+        double left = this.originX + (cell % this.columns) * this.pitchX;
+        double top = this.originY + (cell / this.columns) * this.pitchY;
+        Velocity newVelocity = Block.bounce(left, top, this.blockWidth, this.blockHeight, collisionPoint,
+                currentVelocity);
+
+        if (this.telemetry != null) {
+            this.telemetry.recordBlockHit(this.firstId + cell);
+        }
+        if (getColorIndex(cell) != hitter.getColorIndex() && !this.listeners.isEmpty() && !isSolid(cell)) {
+            if (this.hitEvents != null) {
+                this.hitEvents.record(this.firstId + cell, hitter.getId(), collisionPoint.getX(),
+                        collisionPoint.getY());
+            } else {
+                notifyHit(cell, hitter);
+            }
+        }
+        return newVelocity;
+    }
+
+    /**
+     * Draws every live block as a filled rectangle with a black outline.
+     *
+     * @param d the DrawSurface to draw the grid on
+     */
+    public void drawOn(DrawSurface d) {
+        drawCells(d, this.alive);
+    }
+
+    /**
+     * Copies the bitset of live cells into the given array.
+     *
+     * @param dest an array of {@link #getLiveCellWords()} words
+     */
+    public void copyLiveCells(long[] dest) {
+        System.arraycopy(this.alive, 0, dest, 0, this.alive.length);
+    }
+
+    /**
+     * Makes the live cells exactly the cells of a bitset copied earlier with {@link #copyLiveCells(long[])},
+     * when the game is restored to an earlier state. Breakable blocks that come back or go away are added to
+     * or removed from the palette's counts. No listener is notified.
+     *
+     * @param source an array of {@link #getLiveCellWords()} words
+     */
+    public void restoreLiveCells(long[] source) {
+        for (int w = 0; w < this.alive.length; w++) {
+            long diff = this.alive[w] ^ source[w];
+            while (diff != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(diff);
+                diff &= diff - 1;
+                if (isAlive(cell)) {
+                    this.palette.blockRemoved(getColorIndex(cell));
+                    this.liveCells--;
+                } else {
+                    this.palette.blockAdded(getColorIndex(cell));
+                    this.liveCells++;
+                }
+            }
+            this.alive[w] = source[w];
+        }
+    }
+
+    /**
+     * Returns a copy of the grid for drawing only: the same geometry, palette, cell colors and live and solid
+     * cells, but no listeners, hit ids or telemetry. Later changes to either grid do not show in the other,
+     * so the copy can be drawn on another thread while this grid is played.
+     *
+     * @return the copy
+     */
+    public BlockGrid copyForDrawing() {
+        BlockGrid copy = new BlockGrid(this.originX, this.originY, this.columns, this.rows, this.pitchX,
+                this.pitchY, this.blockWidth, this.blockHeight, this.palette);
+        System.arraycopy(this.alive, 0, copy.alive, 0, this.alive.length);
+        System.arraycopy(this.solid, 0, copy.solid, 0, this.solid.length);
+        System.arraycopy(this.colors, 0, copy.colors, 0, this.colors.length);
+        copy.liveCells = this.liveCells;
+        return copy;
+    }
+
+    /**
+     * Returns the number of 64-bit words in the bitset of live cells.
+     *
+     * @return the number of words
+     */
+    public int getLiveCellWords() {
+        return this.alive.length;
+    }
+
+    /**
+     * Draws the blocks of the cells set in the given bitset, which may be a copy of the grid's own
+     * bitset taken at an earlier time.
+     *
+     * <p>
+     * Cells outside the surface are skipped. The visible cells are counted per color, and then the bitset is
+     * walked once for every color that has any, so every color is set only once per frame without keeping
+     * an array as large as the grid. Must only be called from one thread at a time.
+     * </p>
+     *
+     * @param d         the DrawSurface to draw the blocks on
+     * @param liveCells the bitset of the cells to draw
+     */
+    public void drawCells(DrawSurface d, long[] liveCells) {
+        int[] counts = this.colorCounts;
+        Arrays.fill(counts, 0);
+        int visible = 0;
+        for (int w = 0; w < liveCells.length; w++) {
+            long bits = liveCells[w];
+            while (bits != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (isOnSurface(d, cell)) {
+                    counts[getColorIndex(cell)]++;
+                    visible++;
+                }
+            }
+        }
+        if (visible == 0) {
+            return;
+        }
+
+        for (int c = 0; c < this.palette.size(); c++) {
+            if (counts[c] > 0) {
+                d.setColor(this.palette.colorOf(c));
+                fillRuns(d, liveCells, c, counts[c]);
+            }
+        }
+        d.setColor(Color.BLACK);
+        for (int w = 0; w < liveCells.length; w++) {
+            long bits = liveCells[w];
+            while (bits != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (isOnSurface(d, cell)) {
+                    d.drawRectangle(cellX(cell), cellY(cell), (int) this.blockWidth, (int) this.blockHeight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the visible blocks of one color. If blocks touch horizontally, each run of adjacent blocks in a
+     * row is filled as one rectangle; the outlines drawn afterwards still separate them.
+     *
+     * @param d          the DrawSurface to draw the blocks on
+     * @param liveCells  the bitset of the cells to draw
+     * @param colorIndex the palette index of the color
+     * @param count      the number of visible cells of the color, after which the walk stops
+     */
+    private void fillRuns(DrawSurface d, long[] liveCells, int colorIndex, int count) {
+        boolean touching = this.pitchX == this.blockWidth;
+        int first = -1;
+        int last = -1;
+        int left = count;
+        for (int w = 0; w < liveCells.length && left > 0; w++) {
+            long bits = liveCells[w];
+            while (bits != 0 && left > 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (getColorIndex(cell) != colorIndex || !isOnSurface(d, cell)) {
+                    continue;
+                }
+                left--;
+                if (touching && first >= 0 && cell == last + 1 && cell % this.columns != 0) {
+                    last = cell;
+                    continue;
+                }
+                if (first >= 0) {
+                    fillRun(d, first, last);
+                }
+                first = cell;
+                last = cell;
+            }
+        }
+        if (first >= 0) {
+            fillRun(d, first, last);
+        }
+    }
+
+    /**
+     * Fills one run of adjacent blocks in a row as a single rectangle.
+     *
+     * @param d     the DrawSurface to draw the blocks on
+     * @param first the index of the first cell of the run
+     * @param last  the index of the last cell of the run
+     */
+    private void fillRun(DrawSurface d, int first, int last) {
+        int x = cellX(first);
+        d.fillRectangle(x, cellY(first), cellX(last) + (int) this.blockWidth - x, (int) this.blockHeight);
+    }
+
+    /**
+     * Checks whether any part of the block of a cell, including its outline, falls on the surface.
+     *
+     * @param d    the DrawSurface the block is drawn on
+     * @param cell the index of the cell
+     * @return {@code true} if the block is at least partly on the surface
+     */
+    private boolean isOnSurface(DrawSurface d, int cell) {
+        int x = cellX(cell);
+        int y = cellY(cell);
+        return x + (int) this.blockWidth >= 0 && x < d.getWidth()
+                && y + (int) this.blockHeight >= 0 && y < d.getHeight();
+    }
+
+    /**
+     * Returns the x-coordinate of the center of a cell's block.
+     *
+     * @param cell the index of the cell
+     * @return the x-coordinate of the block's center
+     */
+    public double getCellCenterX(int cell) {
+        return this.originX + (cell % this.columns) * this.pitchX + this.blockWidth / 2;
+    }
+
+    /**
+     * Returns the y-coordinate of the center of a cell's block.
+     *
+     * @param cell the index of the cell
+     * @return the y-coordinate of the block's center
+     */
+    public double getCellCenterY(int cell) {
+        return this.originY + (cell / this.columns) * this.pitchY + this.blockHeight / 2;
+    }
+
+    /**
+     * Returns the x-coordinate a cell's block is drawn at.
+     *
+     * @param cell the index of the cell
+     * @return the x-coordinate of the block's left edge, in pixels
+     */
+    private int cellX(int cell) {
+        return (int) (this.originX + (cell % this.columns) * this.pitchX);
+    }
+
+    /**
+     * Returns the y-coordinate a cell's block is drawn at.
+     *
+     * @param cell the index of the cell
+     * @return the y-coordinate of the block's top edge, in pixels
+     */
+    private int cellY(int cell) {
+        return (int) (this.originY + (cell / this.columns) * this.pitchY);
+    }
+
+    /**
+     * The grid does not change on its own when time passes.
+     */
+    public void timePassed() {
+    }
+
+    /**
+     * Adds the grid to the game as both a sprite and a collidable, and registers one hit id per cell
+     * with the game's hit event buffer.
+     *
+     * @param g the game to which the grid will be added
+     */
+    public void addToGame(Game g) {
+        if (this.hitEvents != g.getHitEvents()) {
+            this.hitEvents = g.getHitEvents();
+            this.firstId = this.hitEvents.register(this, this.columns * this.rows);
+        }
+        this.telemetry = g.getTelemetry();
+        g.addSprite(this);
+        g.addCollidable(this);
+    }
+
+    /**
+     * Removes the grid from the game's collidable and sprite lists.
+     *
+     * @param g the game to remove the grid from
+     */
+    public void removeFromGame(Game g) {
+        g.removeCollidable(this);
+        g.removeSprite(this);
+    }
+
+    /**
+     * Adds a listener that is notified when a live cell is hit by a ball of a different color.
+     *
+     * @param hl the listener to add
+     */
+    public void addCellHitListener(CellHitListener hl) {
+        this.listeners.add(hl);
+    }
+
+    /**
+     * Removes a cell hit listener.
+     *
+     * @param hl the listener to remove
+     */
+    public void removeCellHitListener(CellHitListener hl) {
+        this.listeners.remove(hl);
+    }
+
+    @Override
+    public void dispatchHit(int index, Ball hitter) {
+        // another ball may already have broken this block earlier in the same tick
+        if (isAlive(index)) {
+            notifyHit(index, hitter);
+        }
+    }
+
+    /**
+     * Notifies all cell hit listeners that the given cell was hit by the given ball.
+     *
+     * @param cell   the index of the cell
+     * @param hitter the ball that hit the cell
+     */
+    private void notifyHit(int cell, Ball hitter) {
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).cellHit(this, cell, hitter);
+        }
+    }
+
+    /**
+     * Finds the live cell whose block has the given point on its boundary.
+     *
+     * @param p the point
+     * @return the index of the cell, or -1 if there is none
+     */
+    private int cellAt(Point p) {
+        int col = (int) Math.floor((p.getX() - this.originX) / this.pitchX);
+        int row = (int) Math.floor((p.getY() - this.originY) / this.pitchY);
+        for (int r = row; r >= row - 1; r--) {
+            for (int c = col; c >= col - 1; c--) {
+                if (r < 0 || r >= this.rows || c < 0 || c >= this.columns) {
+                    continue;
+                }
+                int cell = r * this.columns + c;
+                double left = this.originX + c * this.pitchX;
+                double top = this.originY + r * this.pitchY;
+                if (isAlive(cell) && p.getX() >= left - EPSILON && p.getX() <= left + this.blockWidth + EPSILON
+                        && p.getY() >= top - EPSILON && p.getY() <= top + this.blockHeight + EPSILON) {
+                    return cell;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Intersects the trajectory with the block of the given cell.
+     *
+     * @param sx  the x-coordinate of the start of the trajectory
+     * @param sy  the y-coordinate of the start of the trajectory
+     * @param dx  the horizontal extent of the trajectory
+     * @param dy  the vertical extent of the trajectory
+     * @param col the column of the cell
+     * @param row the row of the cell
+     * @return the point where the trajectory first touches the block's boundary, or {@code null}
+     */
+    private Point intersectBlock(double sx, double sy, double dx, double dy, int col, int row) {
+        double left = this.originX + col * this.pitchX;
+        double top = this.originY + row * this.pitchY;
+        double[] span = {0, 1};
+        if (!clip(sx, sy, dx, dy, left, top, this.blockWidth, this.blockHeight, span)) {
+            return null;
+        }
+        double t = span[0];
+        if (t == 0 && sx > left && sx < left + this.blockWidth && sy > top && sy < top + this.blockHeight) {
+            // the trajectory starts inside the block: it touches the boundary where it leaves
+            t = span[1];
+            if (t >= 1) {
+                return null;
+            }
+        }
+        double x = sx + dx * t;
+        double y = sy + dy * t;
+        // snap to the edge that was crossed, so the bounce can tell which edge it was
+        x = snap(x, left, left + this.blockWidth);
+        y = snap(y, top, top + this.blockHeight);
+        return new Point(x, y);
+    }
+
+    /**
+     * Moves a coordinate onto an edge if it is within rounding distance of it.
+     *
+     * @param v   the coordinate
+     * @param min the lower edge
+     * @param max the upper edge
+     * @return the snapped coordinate
+     */
+    private static double snap(double v, double min, double max) {
+        if (Math.abs(v - min) <= EPSILON) {
+            return min;
+        }
+        if (Math.abs(v - max) <= EPSILON) {
+            return max;
+        }
+        return v;
+    }
+
+    /**
+     * Clips the segment {@code start + t * (dx, dy)} with the given rectangle (slab method).
+     *
+     * @param sx     the x-coordinate of the start of the segment
+     * @param sy     the y-coordinate of the start of the segment
+     * @param dx     the horizontal extent of the segment
+     * @param dy     the vertical extent of the segment
+     * @param left   the x-coordinate of the rectangle's left edge
+     * @param top    the y-coordinate of the rectangle's top edge
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @param span   on input the range of t to consider, on output the range of t inside the rectangle
+     * @return {@code true} if the segment touches the rectangle
+     */
+    private static boolean clip(double sx, double sy, double dx, double dy, double left, double top,
+                                double width, double height, double[] span) {
+        return clipAxis(sx, dx, left, left + width, span) && clipAxis(sy, dy, top, top + height, span);
+    }
+
+    /**
+     * Clips a segment against one slab of a rectangle.
+     *
+     * @param s    the start coordinate of the segment
+     * @param d    the extent of the segment along the axis
+     * @param min  the lower edge of the slab
+     * @param max  the upper edge of the slab
+     * @param span the range of t, narrowed in place
+     * @return {@code true} if some part of the range lies inside the slab
+     */
+    private static boolean clipAxis(double s, double d, double min, double max, double[] span) {
+        if (d == 0) {
+            return s >= min && s <= max;
+        }
+        double t0 = (min - s) / d;
+        double t1 = (max - s) / d;
+        if (t0 > t1) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        span[0] = Math.max(span[0], t0);
+        span[1] = Math.min(span[1], t1);
+        return span[0] <= span[1];
+    }
+}
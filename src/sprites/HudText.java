@@ -0,0 +1,121 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Game;
+import render.GlyphCache;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.function.IntSupplier;
+
+/**
+ * A {@code HudText} is a heads-up display line made of a fixed label followed by a number, such as
+ * "Score: 120", "Balls: 3" or "FPS: 60".
+ *
+ * <p>
+ * The line is put together from the glyphs of a {@link GlyphCache} into an image that is kept until the
+ * number changes, so an unchanged line costs a single image draw per frame and no string is built.
+ * </p>
+ */
+public class HudText implements Sprite {
+    private final GlyphCache glyphs;
+    private final int x;
+    private final int y;
+    private final IntSupplier value;
+    private final char[] text;
+    private final int labelLength;
+    private BufferedImage line;
+    private int shownValue;
+
+    /**
+     * Constructs a {@code HudText}.
+     *
+     * @param glyphs the glyphs to draw the text with
+     * @param x      the x-coordinate of the left edge of the text
+     * @param y      the y-coordinate of the baseline of the text
+     * @param label  the fixed text before the number
+     * @param value  the source of the number, read every frame
+     */
+    public HudText(GlyphCache glyphs, int x, int y, String label, IntSupplier value) {
+        this.glyphs = glyphs;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+        this.labelLength = label.length();
+        // room for the label and any int, including its sign
+        this.text = new char[this.labelLength + 11];
+        label.getChars(0, this.labelLength, this.text, 0);
+    }
+
+    @Override
+    public void drawOn(DrawSurface d) {
+        drawValue(d, this.value.getAsInt());
+    }
+
+    /**
+     * Draws the line with the given number, which may differ from the current value of the source
+     * (e.g. when drawing a snapshot taken earlier).
+     *
+     * @param d the DrawSurface to draw the line on
+     * @param n the number to show
+     */
+    public void drawValue(DrawSurface d, int n) {
+        if (this.line == null || n != this.shownValue) {
+            this.line = render(n);
+            this.shownValue = n;
+        }
+        d.drawImage(this.x, this.y - this.glyphs.getAscent(), this.line);
+    }
+
+    @Override
+    public void timePassed() {
+    }
+
+    /**
+     * Adds this line to the given game as a sprite.
+     *
+     * @param g the game to add the line to
+     */
+    public void addToGame(Game g) {
+        g.addSprite(this);
+    }
+
+    /**
+     * Formats the number after the label and draws the whole line into a new image.
+     * A new image is used, rather than drawing over the old one, because the GUI may still be showing it.
+     *
+     * @param n the number to show
+     * @return the image of the line
+     */
+    private BufferedImage render(int n) {
+        int length = formatAfterLabel(n);
+        BufferedImage image = new BufferedImage(Math.max(1, this.glyphs.width(this.text, length)),
+                this.glyphs.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        this.glyphs.draw(g, 0, 0, this.text, length);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Writes the decimal digits of a number after the label, without building a string.
+     *
+     * @param n the number to write
+     * @return the length of the whole text
+     */
+    private int formatAfterLabel(int n) {
+        int end = this.text.length;
+        int pos = end;
+        long rest = Math.abs((long) n);
+        do {
+            this.text[--pos] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (n < 0) {
+            this.text[--pos] = '-';
+        }
+        int digits = end - pos;
+        System.arraycopy(this.text, pos, this.text, this.labelLength, digits);
+        return this.labelLength + digits;
+    }
+}
@@ -5,8 +5,10 @@ import biuoop.KeyboardSensor;
 import physics.Velocity;
 import physics.Collidable;
 import game.Game;
+import game.WorldConfig;
 import geometry.Point;
 import geometry.Rectangle;
+import render.Textures;
 
 import java.awt.*;
 
@@ -24,10 +26,12 @@ public class Paddle implements Sprite, Collidable {
     private Rectangle paddleRect;
     private final java.awt.Color color;
     private final double speed;
+    private final double fieldWidth;
+    private double previousX;
     private static final double EPSILON = 0.00001;
 
     /**
-     * Constructs a new Paddle controlled by the keyboard.
+     * Constructs a new Paddle controlled by the keyboard, on a field as wide as the standard one.
      *
      * @param keyboard   the keyboard sensor used to detect user input
      * @param paddleRect the rectangle defining the paddle's position and size
@@ -35,10 +39,26 @@ public class Paddle implements Sprite, Collidable {
      * @param speed      the movement speed of the paddle in pixels per frame
      */
     public Paddle(biuoop.KeyboardSensor keyboard, Rectangle paddleRect, java.awt.Color color, double speed) {
+        this(keyboard, paddleRect, color, speed, WorldConfig.STANDARD.getWidth());
+    }
+
+    /**
+     * Constructs a new Paddle controlled by the keyboard.
+     *
+     * @param keyboard   the keyboard sensor used to detect user input
+     * @param paddleRect the rectangle defining the paddle's position and size
+     * @param color      the color to fill the paddle with
+     * @param speed      the movement speed of the paddle in pixels per frame
+     * @param fieldWidth the width of the field, at whose edges the paddle wraps around
+     */
+    public Paddle(biuoop.KeyboardSensor keyboard, Rectangle paddleRect, java.awt.Color color, double speed,
+                  double fieldWidth) {
         this.keyboard = keyboard;
         this.paddleRect = paddleRect;
         this.color = color;
         this.speed = speed;
+        this.fieldWidth = fieldWidth;
+        this.previousX = paddleRect.getUpperLeft().getX();
     }
 
     /**
@@ -65,17 +85,19 @@ public class Paddle implements Sprite, Collidable {
      * <p>
      * If the paddle reaches the left or right edge of the screen, it wraps around to the opposite edge.
      * It listens for keyboard input (left or right arrow keys) to move the paddle accordingly.
+     * The position before the move is kept for render interpolation; wrapping around is not interpolated.
      * </p>
      */
     public void timePassed() {
         if (this.paddleRect.getUpperLeft().getX() < 0) {
-            this.paddleRect = new Rectangle(new Point(800 - this.paddleRect.getWidth(),
+            this.paddleRect = new Rectangle(new Point(this.fieldWidth - this.paddleRect.getWidth(),
                     this.paddleRect.getUpperLeft().getY()), this.paddleRect.getWidth(), this.paddleRect.getHeight());
         }
-        if (this.paddleRect.getUpperLeft().getX() + this.paddleRect.getWidth() > 800) {
+        if (this.paddleRect.getUpperLeft().getX() + this.paddleRect.getWidth() > this.fieldWidth) {
             this.paddleRect = new Rectangle(new Point(0,
                     this.paddleRect.getUpperLeft().getY()), this.paddleRect.getWidth(), this.paddleRect.getHeight());
         }
+        this.previousX = this.paddleRect.getUpperLeft().getX();
         if (this.keyboard.isPressed(KeyboardSensor.LEFT_KEY)) {
             moveLeft();
         }
@@ -97,8 +119,55 @@ public class Paddle implements Sprite, Collidable {
         //d.setColor(this.color);
         //d.fillRectangle((int) this.paddleRect.getUpperLeft().getX(), (int) this.paddleRect.getUpperLeft().getY(),
         //        (int) this.paddleRect.getWidth(), (int) this.paddleRect.getHeight());
-        Image img = Toolkit.getDefaultToolkit().getImage("assets/appa.png");
-        d.drawImage((int) this.paddleRect.getUpperLeft().getX(), (int) this.paddleRect.getUpperLeft().getY(), img);
+        drawAt(d, this.paddleRect.getUpperLeft().getX(), this.paddleRect.getUpperLeft().getY(),
+                this.paddleRect.getWidth());
+    }
+
+    /**
+     * Draws the paddle with its upper-left corner at the given position, which may differ from its
+     * current position (e.g. when drawing a snapshot taken earlier).
+     * A paddle wider than its image is filled with its color, with the image in the middle.
+     *
+     * @param d     the DrawSurface to draw the paddle on
+     * @param x     the x-coordinate of the paddle's upper-left corner
+     * @param y     the y-coordinate of the paddle's upper-left corner
+     * @param width the width of the paddle
+     */
+    public void drawAt(DrawSurface d, double x, double y, double width) {
+        Image img = Textures.get(Textures.PADDLE);
+        int imageWidth = img.getWidth(null);
+        if (width > imageWidth) {
+            d.setColor(this.color);
+            d.fillRectangle((int) x, (int) y, (int) width, (int) this.paddleRect.getHeight());
+            d.drawImage((int) (x + (width - imageWidth) / 2), (int) y, img);
+        } else {
+            d.drawImage((int) x, (int) y, img);
+        }
+    }
+
+    /**
+     * Changes the width of the paddle, keeping its center in place.
+     * The change is not interpolated when the paddle is drawn.
+     *
+     * @param width the new width
+     */
+    public void setWidth(double width) {
+        double centerX = this.paddleRect.getUpperLeft().getX() + this.paddleRect.getWidth() / 2;
+        this.paddleRect = new Rectangle(new Point(centerX - width / 2, this.paddleRect.getUpperLeft().getY()),
+                width, this.paddleRect.getHeight());
+        this.previousX = this.paddleRect.getUpperLeft().getX();
+    }
+
+    /**
+     * Moves the paddle so its upper-left corner is at the given x-coordinate.
+     * The move is not interpolated when the paddle is drawn.
+     *
+     * @param x the new x-coordinate of the paddle's upper-left corner
+     */
+    public void setX(double x) {
+        this.paddleRect = new Rectangle(new Point(x, this.paddleRect.getUpperLeft().getY()),
+                this.paddleRect.getWidth(), this.paddleRect.getHeight());
+        this.previousX = x;
     }
 
     /**
@@ -114,6 +183,24 @@ public class Paddle implements Sprite, Collidable {
         return this.paddleRect;
     }
 
+    /**
+     * Returns the distance the paddle moves in one tick while a key is held.
+     *
+     * @return the speed of the paddle, in pixels per tick
+     */
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    /**
+     * Returns the x-coordinate of the paddle's upper-left corner before its last move.
+     *
+     * @return the previous x-coordinate
+     */
+    public double getPreviousX() {
+        return this.previousX;
+    }
+
     /**
      * Handles the collision of the paddle with another object and adjusts the velocity accordingly.
      *
@@ -126,8 +213,8 @@ public class Paddle implements Sprite, Collidable {
      *
      * @param hitter the ball that hits the paddle
      * @param collisionPoint  the point where the collision occurs
-     * @param currentVelocity the current velocity of the object before the collision
-     * @return a new Velocity object representing the updated velocity after the collision
+     * @param currentVelocity the current velocity of the object before the collision, bounced in place
+     * @return {@code currentVelocity}, updated to the velocity after the collision
      */
     public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
         double dx = currentVelocity.getDx();
@@ -160,7 +247,8 @@ public class Paddle implements Sprite, Collidable {
                         angle = 300;
                     }
 
-                    return Velocity.fromAngleAndSpeed(angle, speed);
+                    currentVelocity.setAngleAndSpeed(angle, speed);
+                    return currentVelocity;
                 }
             }
         }
@@ -171,7 +259,8 @@ public class Paddle implements Sprite, Collidable {
             dx = -dx;
         }
 
-        return new Velocity(dx, dy);
+        currentVelocity.set(dx, dy);
+        return currentVelocity;
     }
 
     /**
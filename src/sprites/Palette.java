@@ -0,0 +1,108 @@
+package sprites;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * The {@code Palette} is the level-wide table of colors used by blocks and balls.
+ *
+ * <p>
+ * Blocks and balls refer to their color by its small index in the palette, so matching colors is an
+ * int compare and a block's color state is a single number. The palette also counts the breakable
+ * blocks that are still alive per color, so questions like "how many blocks of the ball's color are
+ * left" are answered in constant time.
+ * </p>
+ *
+ * <p>
+ * Colors are only ever added, by the simulation, while a render thread may look them up. Adding is
+ * synchronized and publishes a grown copy of the color table, so lookups read a consistent table without a
+ * lock.
+ * </p>
+ */
+public class Palette {
+    /**
+     * The maximal number of colors a palette can hold, so that an index always fits in a byte.
+     */
+    public static final int MAX_COLORS = 256;
+
+    private volatile Color[] colors;
+    private final int[] remaining;
+
+    /**
+     * Constructs an empty palette.
+     */
+    public Palette() {
+        this.colors = new Color[0];
+        this.remaining = new int[MAX_COLORS];
+    }
+
+    /**
+     * Returns the index of the given color, adding it to the palette if it is not there yet.
+     *
+     * @param color the color to look up
+     * @return the index of the color
+     * @throws IllegalStateException if the color is new and the palette already holds {@link #MAX_COLORS}
+     */
+    public synchronized int indexOf(Color color) {
+        Color[] table = this.colors;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i].equals(color)) {
+                return i;
+            }
+        }
+        if (table.length == MAX_COLORS) {
+            throw new IllegalStateException("a palette holds at most " + MAX_COLORS + " colors");
+        }
+        Color[] grown = Arrays.copyOf(table, table.length + 1);
+        grown[table.length] = color;
+        this.colors = grown;
+        return table.length;
+    }
+
+    /**
+     * Returns the color at the given index.
+     *
+     * @param index the index of the color
+     * @return the color
+     */
+    public Color colorOf(int index) {
+        return this.colors[index];
+    }
+
+    /**
+     * Returns the number of colors in the palette.
+     *
+     * @return the number of colors
+     */
+    public int size() {
+        return this.colors.length;
+    }
+
+    /**
+     * Counts a new breakable block of the given color.
+     *
+     * @param index the color index of the block
+     */
+    public void blockAdded(int index) {
+        this.remaining[index]++;
+    }
+
+    /**
+     * Counts the removal of a breakable block of the given color.
+     *
+     * @param index the color index of the block
+     */
+    public void blockRemoved(int index) {
+        this.remaining[index]--;
+    }
+
+    /**
+     * Returns the number of breakable blocks of the given color that are still alive.
+     *
+     * @param index the color index
+     * @return the number of remaining blocks of that color
+     */
+    public int remainingBlocks(int index) {
+        return this.remaining[index];
+    }
+}
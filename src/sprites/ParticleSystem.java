@@ -0,0 +1,170 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Game;
+import game.Xorshift;
+import render.WorldSnapshot;
+
+/**
+ * A {@code ParticleSystem} animates the bursts of particles thrown off by breaking blocks.
+ *
+ * <p>
+ * Particles are not objects: their position, velocity, remaining life and palette color index live in
+ * preallocated parallel arrays (a structure of arrays) that are updated in one tight loop. The arrays are
+ * used as a ring in the order the particles were emitted, so when the system is full, a new particle
+ * takes the slot of the oldest one. Nothing is allocated after construction, so even tens of thousands of
+ * live particles cost no garbage collection.
+ * </p>
+ */
+public class ParticleSystem implements Sprite {
+    /**
+     * The size of a particle, in pixels.
+     */
+    public static final int SIZE = 2;
+
+    private static final float GRAVITY = 0.15f;
+    private static final float MAX_SPEED = 4f;
+    private static final int MIN_LIFE = 20;
+    private static final int MAX_LIFE = 50;
+
+    private final Palette palette;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] vxs;
+    private final float[] vys;
+    private final short[] lives;
+    private final byte[] colors;
+    private final int mask;
+    private int start;
+    private int count;
+    private final Xorshift random;
+
+    /**
+     * Constructs a {@code ParticleSystem}.
+     *
+     * @param capacity the maximal number of live particles, rounded up to the next power of two
+     * @param palette  the palette the particle color indices refer to
+     * @param seed     the seed of the random bursts
+     */
+    public ParticleSystem(int capacity, Palette palette, long seed) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.palette = palette;
+        this.xs = new float[size];
+        this.ys = new float[size];
+        this.vxs = new float[size];
+        this.vys = new float[size];
+        this.lives = new short[size];
+        this.colors = new byte[size];
+        this.mask = size - 1;
+        this.random = new Xorshift(seed);
+    }
+
+    /**
+     * Emits a burst of particles flying out of a point in random directions.
+     *
+     * @param x          the x-coordinate of the point
+     * @param y          the y-coordinate of the point
+     * @param colorIndex the palette index of the particles' color
+     * @param n          the number of particles
+     */
+    public void emit(double x, double y, int colorIndex, int n) {
+        for (int i = 0; i < n; i++) {
+            int slot = (this.start + this.count) & this.mask;
+            if (this.count == this.mask + 1) {
+                // full: recycle the oldest particle
+                this.start = (this.start + 1) & this.mask;
+            } else {
+                this.count++;
+            }
+            this.xs[slot] = (float) x;
+            this.ys[slot] = (float) y;
+            this.vxs[slot] = (this.random.nextFloat() * 2 - 1) * MAX_SPEED;
+            this.vys[slot] = (this.random.nextFloat() * 2 - 1) * MAX_SPEED;
+            this.lives[slot] = (short) (MIN_LIFE + (int) (this.random.nextFloat() * (MAX_LIFE - MIN_LIFE)));
+            this.colors[slot] = (byte) colorIndex;
+        }
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear() {
+        this.start = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Returns the number of slots in use, which is an upper bound on the number of live particles.
+     *
+     * @return the number of particles that may still be alive
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Moves every live particle one step, pulled down by gravity, and frees the slots of the oldest
+     * particles once they have died.
+     */
+    @Override
+    public void timePassed() {
+        float[] x = this.xs;
+        float[] y = this.ys;
+        float[] vx = this.vxs;
+        float[] vy = this.vys;
+        short[] life = this.lives;
+        for (int i = 0; i < this.count; i++) {
+            int slot = (this.start + i) & this.mask;
+            if (life[slot] > 0) {
+                x[slot] += vx[slot];
+                y[slot] += vy[slot];
+                vy[slot] += GRAVITY;
+                life[slot]--;
+            }
+        }
+        while (this.count > 0 && life[this.start] <= 0) {
+            this.start = (this.start + 1) & this.mask;
+            this.count--;
+        }
+    }
+
+    @Override
+    public void drawOn(DrawSurface d) {
+        int current = -1;
+        for (int i = 0; i < this.count; i++) {
+            int slot = (this.start + i) & this.mask;
+            if (this.lives[slot] <= 0) {
+                continue;
+            }
+            int color = this.colors[slot] & 0xFF;
+            if (color != current) {
+                d.setColor(this.palette.colorOf(color));
+                current = color;
+            }
+            d.fillRectangle((int) this.xs[slot], (int) this.ys[slot], SIZE, SIZE);
+        }
+    }
+
+    /**
+     * Copies the live particles into a snapshot.
+     *
+     * @param snapshot the snapshot to fill
+     */
+    public void writeTo(WorldSnapshot snapshot) {
+        for (int i = 0; i < this.count; i++) {
+            int slot = (this.start + i) & this.mask;
+            if (this.lives[slot] > 0) {
+                snapshot.addParticle(this.xs[slot], this.ys[slot], this.colors[slot]);
+            }
+        }
+    }
+
+    /**
+     * Adds the particle system to the game as a sprite.
+     *
+     * @param g the game to add the particle system to
+     */
+    public void addToGame(Game g) {
+        g.addSprite(this);
+    }
+}
@@ -0,0 +1,176 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Game;
+import geometry.Rectangle;
+import render.WorldSnapshot;
+
+import java.awt.Color;
+
+/**
+ * The {@code PowerUpField} animates the multi-ball capsules dropped by broken blocks.
+ *
+ * <p>
+ * A capsule falls straight down. If it touches the paddle, every ball in play splits into as many balls
+ * as the capsule's factor, or, for a {@link #WIDE_PADDLE} capsule, the paddle grows wider for a while;
+ * if it reaches the death zone, it is lost. There are never many capsules at
+ * once, so they are kept in small parallel arrays and a caught or lost capsule is replaced by the last one.
+ * </p>
+ */
+public class PowerUpField implements Sprite {
+    /**
+     * The width of a capsule.
+     */
+    public static final int WIDTH = 30;
+    /**
+     * The height of a capsule.
+     */
+    public static final int HEIGHT = 12;
+    /**
+     * The factor of a capsule that widens the paddle instead of splitting the balls.
+     */
+    public static final int WIDE_PADDLE = 1;
+
+    private static final double FALL_SPEED = 2.5;
+    private static final Color CAPSULE = new Color(236, 190, 60);
+    private static final String[] LABELS = new String[17];
+
+    static {
+        for (int i = 0; i < LABELS.length; i++) {
+            LABELS[i] = "x" + i;
+        }
+        LABELS[WIDE_PADDLE] = "<->";
+    }
+
+    private final Game game;
+    private final Paddle paddle;
+    private final double bottom;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] factors;
+    private int count;
+
+    /**
+     * Constructs an empty {@code PowerUpField}.
+     *
+     * @param game     the game whose balls are split
+     * @param paddle   the paddle that catches the capsules
+     * @param bottom   the y-coordinate below which a capsule is lost
+     * @param capacity the maximal number of capsules falling at once; further drops are ignored
+     */
+    public PowerUpField(Game game, Paddle paddle, double bottom, int capacity) {
+        this.game = game;
+        this.paddle = paddle;
+        this.bottom = bottom;
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.factors = new int[capacity];
+    }
+
+    /**
+     * Drops a capsule centered at the given point.
+     *
+     * @param x      the x-coordinate of the capsule's center
+     * @param y      the y-coordinate of the capsule's center
+     * @param factor the number of balls every ball splits into when the capsule is caught, at most 16,
+     *               or {@link #WIDE_PADDLE}
+     */
+    public void drop(double x, double y, int factor) {
+        if (this.count == this.xs.length) {
+            return;
+        }
+        this.xs[this.count] = x - WIDTH / 2.0;
+        this.ys[this.count] = y - HEIGHT / 2.0;
+        this.factors[this.count] = factor;
+        this.count++;
+    }
+
+    /**
+     * Removes every falling capsule.
+     */
+    public void clear() {
+        this.count = 0;
+    }
+
+    /**
+     * Returns the number of capsules that are falling.
+     *
+     * @return the number of capsules
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Moves the capsules down, splitting the balls for every capsule the paddle catches.
+     */
+    @Override
+    public void timePassed() {
+        Rectangle p = this.paddle.getCollisionRectangle();
+        double left = p.getUpperLeft().getX();
+        double top = p.getUpperLeft().getY();
+        int i = 0;
+        while (i < this.count) {
+            this.ys[i] += FALL_SPEED;
+            boolean caught = this.xs[i] < left + p.getWidth() && this.xs[i] + WIDTH > left
+                    && this.ys[i] + HEIGHT > top && this.ys[i] < top + p.getHeight();
+            if (caught && this.factors[i] == WIDE_PADDLE) {
+                this.game.widenPaddle();
+            } else if (caught) {
+                this.game.splitBalls(this.factors[i]);
+            }
+            if (caught || this.ys[i] > this.bottom) {
+                this.count--;
+                this.xs[i] = this.xs[this.count];
+                this.ys[i] = this.ys[this.count];
+                this.factors[i] = this.factors[this.count];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    @Override
+    public void drawOn(DrawSurface d) {
+        for (int i = 0; i < this.count; i++) {
+            drawCapsule(d, this.xs[i], this.ys[i], this.factors[i]);
+        }
+    }
+
+    /**
+     * Copies the falling capsules into a snapshot.
+     *
+     * @param snapshot the snapshot to fill
+     */
+    public void writeTo(WorldSnapshot snapshot) {
+        for (int i = 0; i < this.count; i++) {
+            snapshot.addPowerUp(this.xs[i], this.ys[i], this.factors[i]);
+        }
+    }
+
+    /**
+     * Draws a capsule.
+     *
+     * @param d      the DrawSurface to draw the capsule on
+     * @param x      the x-coordinate of the capsule's upper-left corner
+     * @param y      the y-coordinate of the capsule's upper-left corner
+     * @param factor the split factor of the capsule
+     */
+    public static void drawCapsule(DrawSurface d, double x, double y, int factor) {
+        d.setColor(CAPSULE);
+        d.fillRectangle((int) x, (int) y, WIDTH, HEIGHT);
+        d.setColor(Color.BLACK);
+        d.drawRectangle((int) x, (int) y, WIDTH, HEIGHT);
+        d.drawText((int) x + (factor == WIDE_PADDLE ? 5 : 9), (int) y + HEIGHT - 2,
+                LABELS[Math.min(factor, LABELS.length - 1)], 11);
+    }
+
+    /**
+     * Adds the field to the game as a sprite.
+     *
+     * @param g the game to add the field to
+     */
+    public void addToGame(Game g) {
+        g.addSprite(this);
+    }
+}
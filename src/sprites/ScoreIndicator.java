@@ -3,15 +3,21 @@ package sprites;
 import game.Game;
 import biuoop.DrawSurface;
 import listeners.Counter;
+import render.GlyphCache;
 
 import java.awt.Color;
+import java.awt.Font;
 
 /**
  * The {@code ScoreIndicator} class is a sprite that displays the current score on the screen.
  * It retrieves the score from a {@link Counter} object and renders it on a {@link DrawSurface}.
+ * The text is drawn as a {@link HudText}, so it is only put together again when the score changes.
  */
 public class ScoreIndicator implements Sprite {
+    private static GlyphCache glyphs;
+
     private final Counter score;
+    private HudText text;
 
     /**
      * Constructs a {@code ScoreIndicator} with a given {@link Counter} that holds the score.
@@ -24,14 +30,40 @@ public class ScoreIndicator implements Sprite {
 
     @Override
     public void drawOn(DrawSurface d) {
-        d.setColor(Color.RED);
-        d.drawText(350, 20, "Score: " + score.getValue(), 20);
+        drawScore(d, score.getValue());
+    }
+
+    /**
+     * Draws the given score value, which may differ from the counter's current value
+     * (e.g. when drawing a snapshot taken earlier).
+     *
+     * @param d     the DrawSurface to draw the score on
+     * @param value the score to draw
+     */
+    public void drawScore(DrawSurface d, int value) {
+        if (this.text == null) {
+            // made on first use, so headless games that are never drawn don't pay for it
+            this.text = new HudText(glyphs(), 350, 20, "Score: ", this.score::getValue);
+        }
+        this.text.drawValue(d, value);
     }
 
     @Override
     public void timePassed() {
     }
 
+    /**
+     * Returns the glyphs of the score, rasterized once and shared by the score indicators of all games.
+     *
+     * @return the glyph cache
+     */
+    private static synchronized GlyphCache glyphs() {
+        if (glyphs == null) {
+            glyphs = new GlyphCache(new Font(Font.DIALOG, Font.PLAIN, 20), Color.RED);
+        }
+        return glyphs;
+    }
+
     /**
      * Adds this {@code ScoreIndicator} to the given {@link Game}.
      *
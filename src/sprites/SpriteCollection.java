@@ -1,6 +1,7 @@
 package sprites;
 
 import biuoop.DrawSurface;
+import game.TimingWheel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +17,7 @@ import java.util.List;
  */
 public class SpriteCollection {
     private final java.util.List<Sprite> sprites;
+    private final TimingWheel timers;
 
     /**
      * Constructs an empty SpriteCollection.
@@ -23,6 +25,7 @@ public class SpriteCollection {
      */
     public SpriteCollection() {
         sprites = new ArrayList<>();
+        this.timers = new TimingWheel();
     }
 
     /**
@@ -40,13 +43,24 @@ public class SpriteCollection {
      * <p>
      * This method calls the {@code timePassed()} method on each sprite, which allows
      * sprites to update their states accordingly (e.g., moving or changing).
+     * Hit listeners run only after this pass, so the collection is not modified while it is iterated.
+     * Then the timing wheel advances by one tick and runs the timed effects that expire on it.
      * </p>
      */
     public void notifyAllTimePassed() {
-        ArrayList<Sprite> sprites2 = new ArrayList<>(this.sprites);
-        for (Sprite s : sprites2) {
-            s.timePassed();
+        for (int i = 0; i < this.sprites.size(); i++) {
+            this.sprites.get(i).timePassed();
         }
+        this.timers.advance();
+    }
+
+    /**
+     * Returns the timing wheel that timed effects are scheduled on, in ticks of this collection.
+     *
+     * @return the timing wheel
+     */
+    public TimingWheel getTimers() {
+        return this.timers;
     }
 
     /**
@@ -0,0 +1,80 @@
+package telemetry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An offline tool that aggregates many telemetry files into one summary.
+ * Every file is read on its own worker thread, and the partial summaries are merged at the end.
+ *
+ * <p>
+ * Usage: {@code java telemetry.TelemetryAggregator file1.telemetry file2.telemetry ...}
+ * </p>
+ */
+public final class TelemetryAggregator {
+
+    /**
+     * Not instantiable.
+     */
+    private TelemetryAggregator() {
+    }
+
+    /**
+     * Aggregates the given telemetry files in parallel.
+     *
+     * @param files   the files to aggregate
+     * @param threads the number of worker threads
+     * @return the merged summary
+     * @throws IOException if one of the files cannot be read
+     */
+    public static TelemetrySummary aggregate(List<Path> files, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TelemetrySummary>> parts = new ArrayList<>();
+            for (Path file : files) {
+                parts.add(pool.submit(() -> TelemetrySummary.read(file)));
+            }
+            TelemetrySummary total = new TelemetrySummary();
+            for (Future<TelemetrySummary> part : parts) {
+                total.merge(part.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while aggregating telemetry", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Aggregates the telemetry files given on the command line and prints the summary.
+     *
+     * @param args the telemetry files to aggregate
+     * @throws IOException if one of the files cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: TelemetryAggregator <file>...");
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            files.add(Paths.get(arg));
+        }
+        TelemetrySummary summary = aggregate(files, Runtime.getRuntime().availableProcessors());
+        System.out.print(summary.report(10));
+    }
+}
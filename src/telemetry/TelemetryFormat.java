@@ -0,0 +1,49 @@
+package telemetry;
+
+/**
+ * Constants describing the layout of a telemetry file.
+ *
+ * <p>
+ * A file starts with a header of six ints: magic, version, field width, field height, heatmap cell size
+ * and trajectory sample interval. It is followed by a sequence of chunks, each starting with a kind byte:
+ * </p>
+ * <ul>
+ *   <li>{@link #TRAJECTORY}: an int count, followed by the columns ball id (int), tick (int), x (float)
+ *   and y (float), each holding {@code count} values.</li>
+ *   <li>{@link #HEATMAP}: two ints (columns, rows), followed by {@code columns * rows} int cell counts
+ *   in row-major order.</li>
+ *   <li>{@link #BLOCK_HITS}: an int count, followed by {@code count} int hit counts indexed by block id.</li>
+ * </ul>
+ * <p>
+ * Heatmap and hit count chunks hold the counts since the previous chunk of the same kind, and may appear any
+ * number of times; the totals of a file are their sums. All numbers are big-endian.
+ * </p>
+ */
+public final class TelemetryFormat {
+    /**
+     * The magic number at the start of every telemetry file ("ARKT").
+     */
+    public static final int MAGIC = 0x41524B54;
+    /**
+     * The version of the format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The kind byte of a trajectory sample chunk.
+     */
+    public static final byte TRAJECTORY = 1;
+    /**
+     * The kind byte of a ball-density heatmap chunk.
+     */
+    public static final byte HEATMAP = 2;
+    /**
+     * The kind byte of a per-block hit count chunk.
+     */
+    public static final byte BLOCK_HITS = 3;
+
+    /**
+     * Not instantiable.
+     */
+    private TelemetryFormat() {
+    }
+}
@@ -0,0 +1,271 @@
+package telemetry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The {@code TelemetryRecorder} collects level-design statistics while the game runs: per-block hit counts,
+ * a per-cell ball-density heatmap over the field and sampled ball trajectories.
+ *
+ * <p>
+ * All statistics live in primitive arrays. Trajectory samples are collected into fixed-size columns that are
+ * flushed to disk through a {@link FileChannel} and a direct buffer whenever they fill up, so memory stays
+ * bounded no matter how long the game runs. Every few trajectory flushes, and when the recorder is closed,
+ * the heatmap and the hit counts collected since they were last written are written too and start over, so a
+ * game that never ends cleanly still leaves most of its counts on disk. See {@link TelemetryFormat} for the
+ * file layout.
+ * </p>
+ */
+public class TelemetryRecorder implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The number of trajectory flushes between two writes of the heatmap and hit count deltas.
+     */
+    private static final int DELTA_FLUSHES = 8;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int sampleInterval;
+    private final int[] heatmap;
+    private int[] blockHits;
+    private final int[] sampleBalls;
+    private final int[] sampleTicks;
+    private final float[] sampleXs;
+    private final float[] sampleYs;
+    private int samples;
+    private int flushes;
+    private long tick;
+
+    /**
+     * Constructs a {@code TelemetryRecorder} that streams to the given file, replacing it if it exists.
+     *
+     * @param file           the file to write to
+     * @param fieldWidth     the width of the field, in pixels
+     * @param fieldHeight    the height of the field, in pixels
+     * @param cellSize       the size of a heatmap cell, in pixels
+     * @param sampleInterval the number of ticks between two trajectory samples of a ball
+     * @param chunkSize      the number of trajectory samples kept in memory before they are flushed
+     * @throws IOException if the file cannot be opened
+     */
+    public TelemetryRecorder(Path file, int fieldWidth, int fieldHeight, int cellSize, int sampleInterval,
+                             int chunkSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.cellSize = cellSize;
+        this.columns = (fieldWidth + cellSize - 1) / cellSize;
+        this.rows = (fieldHeight + cellSize - 1) / cellSize;
+        this.sampleInterval = sampleInterval;
+        this.heatmap = new int[this.columns * this.rows];
+        this.blockHits = new int[64];
+        this.sampleBalls = new int[chunkSize];
+        this.sampleTicks = new int[chunkSize];
+        this.sampleXs = new float[chunkSize];
+        this.sampleYs = new float[chunkSize];
+
+        this.buffer.putInt(TelemetryFormat.MAGIC);
+        this.buffer.putInt(TelemetryFormat.VERSION);
+        this.buffer.putInt(fieldWidth);
+        this.buffer.putInt(fieldHeight);
+        this.buffer.putInt(cellSize);
+        this.buffer.putInt(sampleInterval);
+    }
+
+    /**
+     * Constructs a {@code TelemetryRecorder} for an 800x600 field with 10 pixel heatmap cells,
+     * sampling every ball trajectory every 6 ticks.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be opened
+     */
+    public TelemetryRecorder(Path file) throws IOException {
+        this(file, 800, 600);
+    }
+
+    /**
+     * Constructs a {@code TelemetryRecorder} for a field of the given size with 10 pixel heatmap cells,
+     * sampling every ball trajectory every 6 ticks.
+     *
+     * @param file        the file to write to
+     * @param fieldWidth  the width of the field
+     * @param fieldHeight the height of the field
+     * @throws IOException if the file cannot be opened
+     */
+    public TelemetryRecorder(Path file, int fieldWidth, int fieldHeight) throws IOException {
+        this(file, fieldWidth, fieldHeight, 10, 6, 4096);
+    }
+
+    /**
+     * Sets the tick that the following records belong to.
+     *
+     * @param currentTick the tick being simulated
+     */
+    public void setTick(long currentTick) {
+        this.tick = currentTick;
+    }
+
+    /**
+     * Records the position of a ball after it moved: always counted in the heatmap, and sampled into
+     * the trajectory columns every sample interval.
+     *
+     * @param ballId the id of the ball
+     * @param x      the x-coordinate of the ball's center
+     * @param y      the y-coordinate of the ball's center
+     */
+    public void recordBall(int ballId, double x, double y) {
+        int col = (int) x / this.cellSize;
+        int row = (int) y / this.cellSize;
+        if (x >= 0 && y >= 0 && col < this.columns && row < this.rows) {
+            this.heatmap[row * this.columns + col]++;
+        }
+        if (this.tick % this.sampleInterval == 0) {
+            if (this.samples == this.sampleBalls.length) {
+                flushTrajectory();
+            }
+            this.sampleBalls[this.samples] = ballId;
+            this.sampleTicks[this.samples] = (int) this.tick;
+            this.sampleXs[this.samples] = (float) x;
+            this.sampleYs[this.samples] = (float) y;
+            this.samples++;
+        }
+    }
+
+    /**
+     * Records a hit on a block.
+     *
+     * @param blockId the id of the block that was hit
+     */
+    public void recordBlockHit(int blockId) {
+        if (blockId < 0) {
+            return;
+        }
+        if (blockId >= this.blockHits.length) {
+            this.blockHits = Arrays.copyOf(this.blockHits, Math.max(blockId + 1, this.blockHits.length * 2));
+        }
+        this.blockHits[blockId]++;
+    }
+
+    /**
+     * Writes the pending trajectory samples, the heatmap and the block hit counts, and closes the file.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushTrajectory();
+            flushCounts();
+            drain();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes the collected trajectory samples as one columnar chunk and empties the columns.
+     */
+    private void flushTrajectory() {
+        if (this.samples == 0) {
+            return;
+        }
+        put(TelemetryFormat.TRAJECTORY);
+        putInt(this.samples);
+        for (int i = 0; i < this.samples; i++) {
+            putInt(this.sampleBalls[i]);
+        }
+        for (int i = 0; i < this.samples; i++) {
+            putInt(this.sampleTicks[i]);
+        }
+        for (int i = 0; i < this.samples; i++) {
+            putFloat(this.sampleXs[i]);
+        }
+        for (int i = 0; i < this.samples; i++) {
+            putFloat(this.sampleYs[i]);
+        }
+        this.samples = 0;
+        if (++this.flushes % DELTA_FLUSHES == 0) {
+            flushCounts();
+        }
+        drain();
+    }
+
+    /**
+     * Writes the heatmap and the block hit counts collected since they were last written, and resets them.
+     */
+    private void flushCounts() {
+        put(TelemetryFormat.HEATMAP);
+        putInt(this.columns);
+        putInt(this.rows);
+        for (int count : this.heatmap) {
+            putInt(count);
+        }
+        put(TelemetryFormat.BLOCK_HITS);
+        putInt(this.blockHits.length);
+        for (int count : this.blockHits) {
+            putInt(count);
+        }
+        Arrays.fill(this.heatmap, 0);
+        Arrays.fill(this.blockHits, 0);
+    }
+
+    /**
+     * Appends a byte to the output buffer, draining it first if it is full.
+     *
+     * @param value the byte to write
+     */
+    private void put(byte value) {
+        if (!this.buffer.hasRemaining()) {
+            drain();
+        }
+        this.buffer.put(value);
+    }
+
+    /**
+     * Appends an int to the output buffer, draining it first if it is full.
+     *
+     * @param value the int to write
+     */
+    private void putInt(int value) {
+        if (this.buffer.remaining() < Integer.BYTES) {
+            drain();
+        }
+        this.buffer.putInt(value);
+    }
+
+    /**
+     * Appends a float to the output buffer, draining it first if it is full.
+     *
+     * @param value the float to write
+     */
+    private void putFloat(float value) {
+        if (this.buffer.remaining() < Float.BYTES) {
+            drain();
+        }
+        this.buffer.putFloat(value);
+    }
+
+    /**
+     * Writes the content of the output buffer to the file.
+     */
+    private void drain() {
+        this.buffer.flip();
+        try {
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,280 @@
+package telemetry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The {@code TelemetrySummary} aggregates the content of one or more telemetry files:
+ * the merged ball-density heatmap, the merged per-block hit counts and trajectory statistics.
+ */
+public class TelemetrySummary {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private int files;
+    private int columns;
+    private int rows;
+    private int cellSize;
+    private long[] heatmap;
+    private long[] blockHits;
+    private long samples;
+    private long lastTick;
+    private int maxBallId;
+
+    /**
+     * Constructs an empty {@code TelemetrySummary}.
+     */
+    public TelemetrySummary() {
+        this.heatmap = new long[0];
+        this.blockHits = new long[0];
+        this.maxBallId = -1;
+    }
+
+    /**
+     * Reads a whole telemetry file into a new summary, streaming it through a direct buffer.
+     *
+     * @param file the telemetry file to read
+     * @return the summary of that file
+     * @throws IOException if the file cannot be read or is not a telemetry file
+     */
+    public static TelemetrySummary read(Path file) throws IOException {
+        TelemetrySummary summary = new TelemetrySummary();
+        summary.files = 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            require(channel, buffer, 6 * Integer.BYTES);
+            if (buffer.getInt() != TelemetryFormat.MAGIC) {
+                throw new IOException(file + " is not a telemetry file");
+            }
+            int version = buffer.getInt();
+            if (version != TelemetryFormat.VERSION) {
+                throw new IOException(file + " has unsupported telemetry version " + version);
+            }
+            buffer.getInt();
+            buffer.getInt();
+            summary.cellSize = buffer.getInt();
+            buffer.getInt();
+
+            while (require(channel, buffer, 1)) {
+                byte kind = buffer.get();
+                if (kind == TelemetryFormat.TRAJECTORY) {
+                    summary.readTrajectory(channel, buffer);
+                } else if (kind == TelemetryFormat.HEATMAP) {
+                    summary.readHeatmap(channel, buffer);
+                } else if (kind == TelemetryFormat.BLOCK_HITS) {
+                    summary.readBlockHits(channel, buffer);
+                } else {
+                    throw new IOException(file + " has an unknown chunk kind " + kind);
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Merges another summary into this one.
+     *
+     * @param other the summary to merge
+     * @return this summary
+     */
+    public TelemetrySummary merge(TelemetrySummary other) {
+        if (this.heatmap.length == 0) {
+            this.columns = other.columns;
+            this.rows = other.rows;
+            this.cellSize = other.cellSize;
+            this.heatmap = new long[other.heatmap.length];
+        }
+        if (other.heatmap.length != 0) {
+            if (other.columns != this.columns || other.rows != this.rows) {
+                throw new IllegalArgumentException("heatmaps of different sizes cannot be merged");
+            }
+            for (int i = 0; i < this.heatmap.length; i++) {
+                this.heatmap[i] += other.heatmap[i];
+            }
+        }
+        if (other.blockHits.length > this.blockHits.length) {
+            this.blockHits = Arrays.copyOf(this.blockHits, other.blockHits.length);
+        }
+        for (int i = 0; i < other.blockHits.length; i++) {
+            this.blockHits[i] += other.blockHits[i];
+        }
+        this.files += other.files;
+        this.samples += other.samples;
+        this.lastTick = Math.max(this.lastTick, other.lastTick);
+        this.maxBallId = Math.max(this.maxBallId, other.maxBallId);
+        return this;
+    }
+
+    /**
+     * Returns a human readable report of the summary, listing the hottest heatmap cells and
+     * the most hit blocks.
+     *
+     * @param top how many cells and blocks to list
+     * @return the report
+     */
+    public String report(int top) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Files: ").append(this.files).append('\n');
+        sb.append("Trajectory samples: ").append(this.samples).append(" (balls: ").append(this.maxBallId + 1)
+                .append(", last tick: ").append(this.lastTick).append(")\n");
+        sb.append("Hottest cells (x, y: visits):\n");
+        for (int cell : topIndices(this.heatmap, top)) {
+            sb.append("  ").append((cell % this.columns) * this.cellSize).append(", ")
+                    .append((cell / this.columns) * this.cellSize).append(": ").append(this.heatmap[cell]).append('\n');
+        }
+        sb.append("Most hit blocks (id: hits):\n");
+        for (int block : topIndices(this.blockHits, top)) {
+            sb.append("  ").append(block).append(": ").append(this.blockHits[block]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a trajectory chunk. Only the statistics of the samples are kept.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer
+     * @throws IOException if reading fails
+     */
+    private void readTrajectory(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int count = readInt(channel, buffer);
+        for (int i = 0; i < count; i++) {
+            this.maxBallId = Math.max(this.maxBallId, readInt(channel, buffer));
+        }
+        for (int i = 0; i < count; i++) {
+            this.lastTick = Math.max(this.lastTick, readInt(channel, buffer));
+        }
+        // skip the x and y columns
+        skip(channel, buffer, 2L * count * Float.BYTES);
+        this.samples += count;
+    }
+
+    /**
+     * Reads a heatmap chunk and adds it to the merged heatmap.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer
+     * @throws IOException if reading fails
+     */
+    private void readHeatmap(FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.columns = readInt(channel, buffer);
+        this.rows = readInt(channel, buffer);
+        if (this.heatmap.length != this.columns * this.rows) {
+            this.heatmap = new long[this.columns * this.rows];
+        }
+        for (int i = 0; i < this.heatmap.length; i++) {
+            this.heatmap[i] += readInt(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads a block hit chunk and adds it to the merged hit counts.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer
+     * @throws IOException if reading fails
+     */
+    private void readBlockHits(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int count = readInt(channel, buffer);
+        if (count > this.blockHits.length) {
+            this.blockHits = Arrays.copyOf(this.blockHits, count);
+        }
+        for (int i = 0; i < count; i++) {
+            this.blockHits[i] += readInt(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads an int, refilling the buffer if needed.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer
+     * @return the int
+     * @throws IOException if reading fails or the file ends
+     */
+    private static int readInt(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (!require(channel, buffer, Integer.BYTES)) {
+            throw new EOFException("truncated telemetry file");
+        }
+        return buffer.getInt();
+    }
+
+    /**
+     * Skips the given number of bytes.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer
+     * @param bytes   the number of bytes to skip
+     * @throws IOException if reading fails
+     */
+    private static void skip(FileChannel channel, ByteBuffer buffer, long bytes) throws IOException {
+        long inBuffer = Math.min(bytes, buffer.remaining());
+        buffer.position(buffer.position() + (int) inBuffer);
+        if (bytes > inBuffer) {
+            channel.position(channel.position() + bytes - inBuffer);
+        }
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of unread bytes.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the read buffer, in read mode
+     * @param bytes   the number of bytes needed
+     * @return {@code true} if the bytes are available, {@code false} if the file ended before any of them
+     * @throws IOException if reading fails or the file ends in the middle of the requested bytes
+     */
+    private static boolean require(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                if (buffer.hasRemaining()) {
+                    throw new EOFException("truncated telemetry file");
+                }
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * Returns the indices of the largest non-zero values of an array, largest first.
+     *
+     * @param values the values
+     * @param top    the maximal number of indices to return
+     * @return the indices
+     */
+    private static int[] topIndices(long[] values, int top) {
+        int[] best = new int[Math.min(top, values.length)];
+        int found = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == 0) {
+                continue;
+            }
+            int pos;
+            if (found < best.length) {
+                pos = found++;
+            } else if (best.length > 0 && values[i] > values[best[best.length - 1]]) {
+                pos = best.length - 1;
+            } else {
+                continue;
+            }
+            while (pos > 0 && values[best[pos - 1]] < values[i]) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = i;
+        }
+        return Arrays.copyOf(best, found);
+    }
+}